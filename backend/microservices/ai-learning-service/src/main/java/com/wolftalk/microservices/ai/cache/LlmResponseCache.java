@@ -0,0 +1,327 @@
+package com.wolftalk.microservices.ai.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Two-tier cache for LLM responses, keyed by use case + prompt
+ *
+ * The key is "llm:{use-case}:" + SHA-256 of the model settings and the normalized prompt. The prompt embeds
+ * every input of the use case between fixed template text, so different inputs never share a key (unlike
+ * concatenating raw arguments). Normalization collapses whitespace and, for use cases whose answer does not
+ * echo the input back, ignores case.
+ *
+ * - L1: bounded in-process LRU with a short TTL, serves hot prompts without a Redis round-trip
+ * - L2: Redis with a TTL per use case (llm.cache.ttl-seconds.{use-case}; 0 disables caching for it)
+ * - Values of at least llm.cache.compress-min-bytes are stored gzip-compressed in both tiers
+ * - Concurrent misses on the same key share one loader call (single flight)
+ *
+ * Failed loads are never cached, and a Redis outage only costs the L2 hit: requests fall through to the loader.
+ * Metrics: llm.cache.requests (tags: useCase, result), llm.cache.hit.ratio, llm.cache.local.entries,
+ * llm.cache.served.bytes, llm.cache.compression.saved.bytes, llm.cache.redis.errors.
+ */
+@Component
+@Slf4j
+public class LlmResponseCache {
+
+    public enum UseCase {
+        PRONUNCIATION_SUGGESTIONS("pronunciation-suggestions", true),
+        PRONUNCIATION_FEEDBACK("pronunciation-feedback", true),
+        GRAMMAR_CORRECTION("grammar-correction", false),
+        GRAMMAR_EXPLANATION("grammar-explanation", false),
+        VOCABULARY("vocabulary", true),
+        CONVERSATION_RESPONSE("conversation-response", true),
+        CONVERSATION_SUGGESTIONS("conversation-suggestions", false),
+        DETAILED_FEEDBACK("detailed-feedback", false),
+        GENERIC("generic", false);
+
+        private final String key;
+        private final boolean ignoreCase;
+
+        UseCase(String key, boolean ignoreCase) {
+            this.key = key;
+            this.ignoreCase = ignoreCase;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    private static final String KEY_PREFIX = "llm:";
+    private static final byte RAW = 0;
+    private static final byte GZIP = 1;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final RedisTemplate<String, byte[]> redis;
+    private final MeterRegistry meterRegistry;
+    private final String modelFingerprint;
+    private final long localTtlMs;
+    private final int localMaxEntries;
+    private final int compressMinBytes;
+    private final Map<UseCase, Long> ttlSeconds = new EnumMap<>(UseCase.class);
+
+    private final Map<String, LocalEntry> local;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong redisErrors = new AtomicLong();
+    private final AtomicLong servedBytes = new AtomicLong();
+    private final AtomicLong compressionSavedBytes = new AtomicLong();
+
+    private record LocalEntry(byte[] value, long expiresAt) {
+    }
+
+    public LlmResponseCache(RedisConnectionFactory redisConnectionFactory,
+                            MeterRegistry meterRegistry,
+                            Environment environment,
+                            @Value("${gemini.model}") String model,
+                            @Value("${gemini.temperature}") Double temperature,
+                            @Value("${gemini.max.tokens}") Integer maxTokens,
+                            @Value("${llm.cache.default-ttl-seconds:3600}") long defaultTtlSeconds,
+                            @Value("${llm.cache.local.ttl-seconds:300}") long localTtlSeconds,
+                            @Value("${llm.cache.local.max-entries:2000}") int localMaxEntries,
+                            @Value("${llm.cache.compress-min-bytes:256}") int compressMinBytes) {
+        this.redis = new RedisTemplate<>();
+        this.redis.setConnectionFactory(redisConnectionFactory);
+        this.redis.setKeySerializer(StringRedisSerializer.UTF_8);
+        this.redis.setValueSerializer(RedisSerializer.byteArray());
+        this.redis.afterPropertiesSet();
+
+        this.meterRegistry = meterRegistry;
+        // A different model or sampling setup must not reuse old answers
+        this.modelFingerprint = model + "|" + temperature + "|" + maxTokens;
+        this.localTtlMs = localTtlSeconds * 1000;
+        this.localMaxEntries = localMaxEntries;
+        this.compressMinBytes = compressMinBytes;
+        for (UseCase useCase : UseCase.values()) {
+            ttlSeconds.put(useCase, environment.getProperty(
+                    "llm.cache.ttl-seconds." + useCase.key(), Long.class, defaultTtlSeconds));
+        }
+        this.local = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalEntry> eldest) {
+                return size() > LlmResponseCache.this.localMaxEntries;
+            }
+        };
+
+        Gauge.builder("llm.cache.hit.ratio", this, LlmResponseCache::hitRatio).register(meterRegistry);
+        Gauge.builder("llm.cache.local.entries", local, entries -> {
+            synchronized (entries) {
+                return entries.size();
+            }
+        }).register(meterRegistry);
+        FunctionCounter.builder("llm.cache.served.bytes", servedBytes, AtomicLong::get)
+                .baseUnit("bytes").register(meterRegistry);
+        FunctionCounter.builder("llm.cache.compression.saved.bytes", compressionSavedBytes, AtomicLong::get)
+                .baseUnit("bytes").register(meterRegistry);
+        FunctionCounter.builder("llm.cache.redis.errors", redisErrors, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Cached value for the prompt, otherwise the loader's value (stored on success).
+     * A loader exception is rethrown to every caller waiting on the same key and nothing is cached.
+     */
+    public String get(UseCase useCase, String prompt, Supplier<String> loader) {
+        long ttl = ttlSeconds.get(useCase);
+        if (ttl <= 0) {
+            return loader.get();
+        }
+        String key = key(useCase, prompt);
+        String cached = lookup(useCase, key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            count(useCase, "coalesced");
+            return running.join();
+        }
+        misses.incrementAndGet();
+        count(useCase, "miss");
+        try {
+            String value = loader.get();
+            store(key, value, ttl);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Cached value or null, without loading (streaming responses check this before opening a stream)
+     */
+    public String getIfPresent(UseCase useCase, String prompt) {
+        if (ttlSeconds.get(useCase) <= 0) {
+            return null;
+        }
+        String cached = lookup(useCase, key(useCase, prompt));
+        if (cached == null) {
+            misses.incrementAndGet();
+            count(useCase, "miss");
+        }
+        return cached;
+    }
+
+    public void put(UseCase useCase, String prompt, String value) {
+        long ttl = ttlSeconds.get(useCase);
+        if (ttl > 0) {
+            store(key(useCase, prompt), value, ttl);
+        }
+    }
+
+    private String lookup(UseCase useCase, String key) {
+        byte[] value = null;
+        String tier = "l1_hit";
+        synchronized (local) {
+            LocalEntry entry = local.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > System.currentTimeMillis()) {
+                    value = entry.value();
+                } else {
+                    local.remove(key);
+                }
+            }
+        }
+        if (value == null) {
+            try {
+                value = redis.opsForValue().get(key);
+            } catch (RuntimeException e) {
+                redisErrors.incrementAndGet();
+                log.warn("LLM cache: Redis read failed: {}", e.getMessage());
+            }
+            if (value == null) {
+                return null;
+            }
+            tier = "l2_hit";
+            putLocal(key, value, localTtlMs);
+        }
+        String decoded = decode(value);
+        hits.incrementAndGet();
+        servedBytes.addAndGet(decoded.getBytes(StandardCharsets.UTF_8).length);
+        count(useCase, tier);
+        return decoded;
+    }
+
+    private void store(String key, String value, long ttl) {
+        byte[] encoded = encode(value);
+        putLocal(key, encoded, Math.min(localTtlMs, ttl * 1000));
+        try {
+            redis.opsForValue().set(key, encoded, Duration.ofSeconds(ttl));
+        } catch (RuntimeException e) {
+            redisErrors.incrementAndGet();
+            log.warn("LLM cache: Redis write failed: {}", e.getMessage());
+        }
+    }
+
+    private void putLocal(String key, byte[] value, long ttlMs) {
+        synchronized (local) {
+            local.put(key, new LocalEntry(value, System.currentTimeMillis() + ttlMs));
+        }
+    }
+
+    private String key(UseCase useCase, String prompt) {
+        String normalized = WHITESPACE.matcher(prompt.strip()).replaceAll(" ");
+        if (useCase.ignoreCase) {
+            normalized = normalized.toLowerCase(Locale.ROOT);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelFingerprint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalized.getBytes(StandardCharsets.UTF_8));
+            return KEY_PREFIX + useCase.key() + ":" + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // First byte tells whether the rest is raw UTF-8 or gzip
+    private byte[] encode(String value) {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        if (raw.length >= compressMinBytes) {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+                out.write(GZIP);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(raw);
+                }
+                byte[] compressed = out.toByteArray();
+                if (compressed.length < raw.length) {
+                    compressionSavedBytes.addAndGet(raw.length + 1 - compressed.length);
+                    return compressed;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        byte[] encoded = new byte[raw.length + 1];
+        encoded[0] = RAW;
+        System.arraycopy(raw, 0, encoded, 1, raw.length);
+        return encoded;
+    }
+
+    private String decode(byte[] value) {
+        if (value[0] == GZIP) {
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(value, 1, value.length - 1))) {
+                return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new String(Arrays.copyOfRange(value, 1, value.length), StandardCharsets.UTF_8);
+    }
+
+    private void count(UseCase useCase, String result) {
+        Counter.builder("llm.cache.requests")
+                .tag("useCase", useCase.key())
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private double hitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+}
@@ -3,16 +3,21 @@ package com.wolftalk.microservices.ai.controller;
 import com.wolftalk.microservices.ai.dto.GrammarCheckResponse;
 import com.wolftalk.microservices.ai.dto.PronunciationAssessmentResponse;
 import com.wolftalk.microservices.ai.service.AIProviderService;
+import com.wolftalk.microservices.ai.service.GeminiService;
 import com.wolftalk.microservices.ai.service.GrammarService;
 import com.wolftalk.microservices.ai.service.PronunciationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +31,9 @@ public class AILearningController {
     private final GrammarService grammarService;
     private final AIProviderService aiProviderService;
     
+    @Value("${ai.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+    
     private AIProviderService.AIProvider getProvider(String providerParam) {
         if (providerParam == null) {
             return AIProviderService.AIProvider.AUTO;
@@ -51,7 +59,7 @@ public class AILearningController {
     @PostMapping("/pronunciation/assess")
     public ResponseEntity<PronunciationAssessmentResponse> assessPronunciation(
             @RequestParam("audio") MultipartFile audioFile,
-            @RequestParam("expectedText") String expectedText) {
+            @RequestParam("expectedText") String expectedText) throws IOException {
         
         String email = getCurrentUserEmail();
         if (email == null) {
@@ -60,14 +68,9 @@ public class AILearningController {
         
         // Use dummy userId for now
         Long userId = 1L;
-        try {
-            PronunciationAssessmentResponse response = pronunciationService.assessPronunciation(
-                    userId, audioFile, expectedText);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error assessing pronunciation: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().build();
-        }
+        PronunciationAssessmentResponse response = pronunciationService.assessPronunciation(
+                userId, audioFile, expectedText);
+        return ResponseEntity.ok(response);
     }
     
     @PostMapping("/grammar/check")
@@ -86,13 +89,8 @@ public class AILearningController {
         
         // Use dummy userId for now
         Long userId = 1L;
-        try {
-            GrammarCheckResponse response = grammarService.checkGrammar(userId, text);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error checking grammar: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().build();
-        }
+        GrammarCheckResponse response = grammarService.checkGrammar(userId, text);
+        return ResponseEntity.ok(response);
     }
     
     @PostMapping("/vocabulary/suggest")
@@ -103,14 +101,9 @@ public class AILearningController {
         String context = request.get("context");
         String level = request.getOrDefault("level", "intermediate");
         
-        try {
-            List<String> suggestions = aiProviderService.suggestVocabulary(
-                    context, level, getProvider(provider));
-            return ResponseEntity.ok(suggestions);
-        } catch (Exception e) {
-            log.error("Error suggesting vocabulary: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().build();
-        }
+        List<String> suggestions = aiProviderService.suggestVocabulary(
+                context, level, getProvider(provider));
+        return ResponseEntity.ok(suggestions);
     }
     
     @PostMapping("/conversation/generate")
@@ -122,24 +115,51 @@ public class AILearningController {
         String context = request.getOrDefault("context", "general conversation");
         String difficulty = request.getOrDefault("difficulty", "intermediate");
         
-        try {
-            AIProviderService.AIProvider aiProvider = getProvider(provider);
-            
-            String response = aiProviderService.generateConversationResponse(
-                    userMessage, context, difficulty, aiProvider);
-            
-            List<String> suggestions = aiProviderService.generateConversationSuggestions(
-                    userMessage, context, aiProvider);
-            
-            return ResponseEntity.ok(Map.of(
-                    "response", response,
-                    "suggestions", String.join("\n", suggestions),
-                    "provider", aiProvider.name()
-            ));
-        } catch (Exception e) {
-            log.error("Error generating conversation: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().build();
-        }
+        AIProviderService.AIProvider aiProvider = getProvider(provider);
+        
+        String response = aiProviderService.generateConversationResponse(
+                userMessage, context, difficulty, aiProvider);
+        
+        List<String> suggestions = aiProviderService.generateConversationSuggestions(
+                userMessage, context, aiProvider);
+        
+        return ResponseEntity.ok(Map.of(
+                "response", response,
+                "suggestions", String.join("\n", suggestions),
+                "provider", aiProvider.name()
+        ));
+    }
+    
+    /**
+     * Streaming variant of /conversation/generate: "token" events as Gemini produces the reply, then a "done"
+     * event with the same fields as the JSON endpoint. Suggestions are generated concurrently with the reply.
+     */
+    @PostMapping(value = "/conversation/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamConversationResponse(
+            @RequestParam(required = false) String provider,
+            @RequestBody Map<String, String> request) {
+        
+        String userMessage = request.get("message");
+        String context = request.getOrDefault("context", "general conversation");
+        String difficulty = request.getOrDefault("difficulty", "intermediate");
+        AIProviderService.AIProvider aiProvider = getProvider(provider);
+        
+        // Take the Gemini slot before committing to an event stream: a shed call is answered with
+        // 429 + Retry-After by AIRejectionHandler instead of an "error" event on a 200 response
+        GeminiService.PendingStream stream = aiProviderService.openConversationStream(
+                userMessage, context, difficulty, aiProvider);
+        var suggestionsFuture = aiProviderService.generateConversationSuggestionsAsync(
+                userMessage, context, aiProvider);
+        
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        SseTokenRelay relay = new SseTokenRelay(emitter, response -> suggestionsFuture.thenApply(
+                suggestions -> Map.of(
+                        "response", response,
+                        "suggestions", String.join("\n", suggestions),
+                        "provider", aiProvider.name()
+                )));
+        relay.attach(stream.start(relay));
+        return emitter;
     }
     
     @PostMapping("/feedback/generate")
@@ -150,15 +170,10 @@ public class AILearningController {
         String topic = (String) request.getOrDefault("topic", "General English");
         Double score = ((Number) request.getOrDefault("score", 75.0)).doubleValue();
         
-        try {
-            String feedback = aiProviderService.generateDetailedFeedback(
-                    text, topic, java.math.BigDecimal.valueOf(score), AIProviderService.AIProvider.AUTO);
-            
-            return ResponseEntity.ok(Map.of("feedback", feedback));
-        } catch (Exception e) {
-            log.error("Error generating feedback: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().build();
-        }
+        String feedback = aiProviderService.generateDetailedFeedback(
+                text, topic, java.math.BigDecimal.valueOf(score), AIProviderService.AIProvider.AUTO);
+        
+        return ResponseEntity.ok(Map.of("feedback", feedback));
     }
     
     @GetMapping("/health")
@@ -31,13 +31,8 @@ public class GrammarExerciseController {
 
         log.info("Generate exercises: topic={}, level={}, count={}", topic, level, count);
 
-        try {
-            GrammarExerciseResponse response = exerciseService.generateExercises(topic, level, count, provider);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error generating exercises", e);
-            return ResponseEntity.status(500).build();
-        }
+        GrammarExerciseResponse response = exerciseService.generateExercises(topic, level, count, provider, email);
+        return ResponseEntity.ok(response);
     }
 
     private String getCurrentUserEmail() {
@@ -1,13 +1,19 @@
 package com.wolftalk.microservices.ai.controller;
 
 import com.wolftalk.microservices.ai.dto.ReadingPassageResponse;
+import com.wolftalk.microservices.ai.service.GeminiService;
 import com.wolftalk.microservices.ai.service.ReadingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -17,6 +23,9 @@ public class ReadingController {
 
     private final ReadingService readingService;
 
+    @Value("${ai.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
     @PostMapping("/generate")
     public ResponseEntity<ReadingPassageResponse> generatePassage(
             @RequestParam(required = false) String topic,
@@ -31,13 +40,35 @@ public class ReadingController {
 
         log.info("Generate reading passage: topic={}, level={}, length={}", topic, level, length);
 
-        try {
-            ReadingPassageResponse response = readingService.generatePassage(topic, level, length, provider);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error generating passage", e);
-            return ResponseEntity.status(500).build();
+        ReadingPassageResponse response = readingService.generatePassage(topic, level, length, provider, email);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Streaming variant of /generate: raw "token" events while the passage is written, then a "done" event
+     * carrying the parsed ReadingPassageResponse
+     */
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamPassage(
+            @RequestParam(required = false) String topic,
+            @RequestParam(defaultValue = "intermediate") String level,
+            @RequestParam(defaultValue = "medium") String length,
+            @RequestParam(defaultValue = "auto") String provider) {
+
+        String email = getCurrentUserEmail();
+        if (email == null) {
+            return ResponseEntity.status(401).build();
         }
+
+        log.info("Stream reading passage: topic={}, level={}, length={}", topic, level, length);
+
+        // Opened before the emitter so a shed call is answered with 429 + Retry-After (AIRejectionHandler)
+        GeminiService.PendingStream stream = readingService.openPassageStream(topic, level, length, provider);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        SseTokenRelay relay = new SseTokenRelay(emitter, fullText -> CompletableFuture.completedFuture(
+                readingService.parsePassageResponse(fullText, topic, level)));
+        relay.attach(stream.start(relay));
+        return ResponseEntity.ok(emitter);
     }
 
     private String getCurrentUserEmail() {
@@ -0,0 +1,90 @@
+package com.wolftalk.microservices.ai.controller;
+
+import com.wolftalk.microservices.ai.service.GeminiService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Relays a streamed Gemini generation to the browser as server-sent events:
+ * "token" events while text arrives, then one "done" event with the payload built from the full text,
+ * or an "error" event. The upstream call is cancelled when the browser disconnects or the emitter times out.
+ */
+@Slf4j
+final class SseTokenRelay implements GeminiService.StreamListener {
+
+    private final SseEmitter emitter;
+    private final Function<String, CompletionStage<?>> donePayload;
+    private volatile Runnable cancel = () -> { };
+    private volatile boolean closed;
+
+    SseTokenRelay(SseEmitter emitter, Function<String, CompletionStage<?>> donePayload) {
+        this.emitter = emitter;
+        this.donePayload = donePayload;
+        emitter.onTimeout(this::close);
+        emitter.onError(error -> close());
+        emitter.onCompletion(this::close);
+    }
+
+    void attach(Runnable cancel) {
+        this.cancel = cancel;
+        if (closed) {
+            cancel.run();
+        }
+    }
+
+    @Override
+    public void onToken(String text) {
+        if (closed) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name("token").data(text));
+        } catch (Exception e) {
+            log.debug("Client went away while streaming: {}", e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    public void onComplete(String fullText) {
+        if (closed) {
+            return;
+        }
+        donePayload.apply(fullText).whenComplete((payload, error) -> {
+            if (error != null) {
+                onError(error);
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name("done").data(payload));
+                emitter.complete();
+            } catch (Exception e) {
+                log.debug("Client went away before the final event: {}", e.getMessage());
+                close();
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        if (closed) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name("error")
+                    .data(Map.of("message", "Unable to process request at this time.")));
+            emitter.complete();
+        } catch (Exception e) {
+            close();
+        }
+    }
+
+    private void close() {
+        closed = true;
+        cancel.run();
+    }
+}
@@ -32,19 +32,14 @@ public class WritingController {
         log.info("Writing analysis request from {}, type: {}, provider: {}", 
                 email, request.getType(), provider);
 
-        try {
-            WritingAnalysisResponse response = writingService.analyzeWriting(
-                    request.getText(),
-                    request.getType(),
-                    request.getTopic(),
-                    provider
-            );
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error analyzing writing", e);
-            return ResponseEntity.status(500).build();
-        }
+        WritingAnalysisResponse response = writingService.analyzeWriting(
+                request.getText(),
+                request.getType(),
+                request.getTopic(),
+                provider
+        );
+        
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/generate-prompt")
@@ -61,13 +56,8 @@ public class WritingController {
 
         log.info("Generate prompt request: type={}, topic={}, level={}", type, topic, level);
 
-        try {
-            String prompt = writingService.generatePrompt(type, topic, level, provider);
-            return ResponseEntity.ok(prompt);
-        } catch (Exception e) {
-            log.error("Error generating prompt", e);
-            return ResponseEntity.status(500).build();
-        }
+        String prompt = writingService.generatePrompt(type, topic, level, provider, email);
+        return ResponseEntity.ok(prompt);
     }
 
     private String getCurrentUserEmail() {
@@ -0,0 +1,44 @@
+package com.wolftalk.microservices.ai.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records that a learner was served a pooled item, so the pool never serves it to them again
+ */
+@Entity
+@Table(name = "ai_content_deliveries", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ai_content_delivery", columnNames = {"learner", "content_id"})
+}, indexes = {
+        @Index(name = "idx_ai_content_delivery_content", columnList = "content_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentDelivery {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Email from the JWT subject - this service has no user ids of its own
+    @Column(name = "learner", nullable = false)
+    private String learner;
+    
+    @Column(name = "content_id", nullable = false)
+    private Long contentId;
+    
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        deliveredAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,62 @@
+package com.wolftalk.microservices.ai.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One pre-generated, validated piece of learning content waiting in a pool (see ContentPoolService).
+ * A pool is identified by (kind, topic, level, variant); content holds the serialized response.
+ */
+@Entity
+@Table(name = "ai_content_pool", indexes = {
+        @Index(name = "idx_ai_content_pool_key", columnList = "kind, topic, level, variant, id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PooledContent {
+    
+    public enum Kind {
+        READING_PASSAGE,
+        GRAMMAR_EXERCISES,
+        WRITING_PROMPT
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", length = 32, nullable = false)
+    private Kind kind;
+    
+    @Column(name = "topic", length = 200, nullable = false)
+    private String topic;
+    
+    @Column(name = "level", length = 50, nullable = false)
+    private String level;
+    
+    // length for passages, exercise count for exercises, writing type for prompts
+    @Column(name = "variant", length = 50, nullable = false)
+    private String variant;
+    
+    @Column(name = "content", columnDefinition = "TEXT", nullable = false)
+    private String content;
+    
+    @Column(name = "content_hash", length = 64, nullable = false, unique = true)
+    private String contentHash;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,88 @@
+package com.wolftalk.microservices.ai.governor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Sheds AI requests with 429 + Retry-After before they reach a controller (see AIGovernor.admit).
+ *
+ * Runs after JwtAuthenticationFilter so requests are charged to the learner's email. Unauthenticated
+ * requests are passed through untouched - Spring Security rejects them with 401 anyway.
+ */
+@Component
+@RequiredArgsConstructor
+public class AIAdmissionFilter extends OncePerRequestFilter {
+
+    private static final String AI_PATH = "/api/v1/ai/";
+    private static final String HEALTH_PATH = "/api/v1/ai/health";
+
+    private final AIGovernor governor;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith(AI_PATH) || path.equals(HEALTH_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String path = request.getRequestURI();
+        try {
+            governor.admit(authentication.getName(), cost(path), priority(path));
+        } catch (AIGovernor.RejectedException e) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), errorBody(e));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    // 429 body, shared with AIRejectionHandler
+    static Map<String, Object> errorBody(AIGovernor.RejectedException e) {
+        return Map.of(
+                "error", "Too many AI requests, please try again shortly",
+                "reason", e.getReason(),
+                "retryAfterSeconds", e.getRetryAfterSeconds()
+        );
+    }
+
+    // Number of Gemini calls the endpoint makes when nothing is cached
+    private static int cost(String path) {
+        if (path.endsWith("/grammar/check")) {
+            return 3;
+        }
+        if (path.endsWith("/pronunciation/assess") || path.contains("/conversation/generate")) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static AIGovernor.Priority priority(String path) {
+        return path.contains("/conversation/") ? AIGovernor.Priority.INTERACTIVE : AIGovernor.Priority.STANDARD;
+    }
+}
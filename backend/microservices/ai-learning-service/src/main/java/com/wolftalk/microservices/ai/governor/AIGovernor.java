@@ -0,0 +1,280 @@
+package com.wolftalk.microservices.ai.governor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of Gemini
+ *
+ * 1. admit() - called by AIAdmissionFilter for every AI request, before any work is done. The request's
+ *    cost (number of Gemini calls it makes) is taken from the caller's bucket and from the global bucket.
+ *    A request is shed right away with 429 + Retry-After when either bucket is empty or too many calls
+ *    are already queued.
+ * 2. acquire() - called by GeminiService around each HTTP call. At most ai.governor.max-concurrent calls
+ *    run at once. A caller waits up to the queue timeout of its priority, then gets a RejectedException:
+ *    - INTERACTIVE (conversation) may use every slot
+ *    - STANDARD (grammar, pronunciation, reading, ...) leaves ai.governor.reserved-interactive slots free
+ *    - BATCH (content pool refill) additionally runs at most ai.governor.batch-max-concurrent at once and
+ *      only spends global tokens while the bucket is above ai.governor.global.batch-reserve
+ *    Batch work never passes through admit(), so it is charged to the global bucket here.
+ *
+ * A RejectedException from acquire() propagates up to AIRejectionHandler, which answers 429 + Retry-After
+ * like the admission filter does.
+ *
+ * Metrics (/actuator/metrics): ai.governor.in.flight, ai.governor.queued, ai.governor.queue.wait (tag
+ * priority), ai.governor.rejections (tags reason, priority).
+ */
+@Component
+@Slf4j
+public class AIGovernor {
+
+    public enum Priority {
+        INTERACTIVE,
+        STANDARD,
+        BATCH
+    }
+
+    /**
+     * A Gemini call was not allowed to run; retryAfterSeconds is a hint for the Retry-After header
+     */
+    public static class RejectedException extends RuntimeException {
+
+        private final String reason;
+        private final long retryAfterSeconds;
+
+        public RejectedException(String reason, long retryAfterSeconds) {
+            super("AI request rejected: " + reason);
+            this.reason = reason;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    /**
+     * A running slot; closing it more than once is harmless
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final Priority priority;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Priority priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(priority);
+            }
+        }
+    }
+
+    private static final long IDLE_BUCKET_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final MeterRegistry meterRegistry;
+    private final TokenBucket globalBucket;
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final double userBurst;
+    private final double userRatePerMinute;
+    private final double batchReserve;
+    private final int maxConcurrent;
+    private final int reservedInteractive;
+    private final int batchMaxConcurrent;
+    private final int maxQueued;
+    private final long interactiveQueueTimeoutMs;
+    private final long standardQueueTimeoutMs;
+    private final long batchQueueTimeoutMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private int inFlight;
+    private int batchInFlight;
+    private int queued;
+
+    public AIGovernor(MeterRegistry meterRegistry,
+                      @Value("${ai.governor.global.rate-per-minute:600}") double globalRatePerMinute,
+                      @Value("${ai.governor.global.burst:60}") double globalBurst,
+                      @Value("${ai.governor.global.batch-reserve:30}") double batchReserve,
+                      @Value("${ai.governor.user.rate-per-minute:20}") double userRatePerMinute,
+                      @Value("${ai.governor.user.burst:6}") double userBurst,
+                      @Value("${ai.governor.max-concurrent:32}") int maxConcurrent,
+                      @Value("${ai.governor.reserved-interactive:8}") int reservedInteractive,
+                      @Value("${ai.governor.batch-max-concurrent:2}") int batchMaxConcurrent,
+                      @Value("${ai.governor.max-queued:64}") int maxQueued,
+                      @Value("${ai.governor.queue-timeout-ms.interactive:3000}") long interactiveQueueTimeoutMs,
+                      @Value("${ai.governor.queue-timeout-ms.standard:5000}") long standardQueueTimeoutMs,
+                      @Value("${ai.governor.queue-timeout-ms.batch:0}") long batchQueueTimeoutMs) {
+        this.meterRegistry = meterRegistry;
+        this.globalBucket = new TokenBucket(globalBurst, globalRatePerMinute);
+        this.batchReserve = batchReserve;
+        this.userRatePerMinute = userRatePerMinute;
+        this.userBurst = userBurst;
+        this.maxConcurrent = maxConcurrent;
+        this.reservedInteractive = reservedInteractive;
+        this.batchMaxConcurrent = batchMaxConcurrent;
+        this.maxQueued = maxQueued;
+        this.interactiveQueueTimeoutMs = interactiveQueueTimeoutMs;
+        this.standardQueueTimeoutMs = standardQueueTimeoutMs;
+        this.batchQueueTimeoutMs = batchQueueTimeoutMs;
+
+        Gauge.builder("ai.governor.in.flight", this, governor -> governor.snapshot(true)).register(meterRegistry);
+        Gauge.builder("ai.governor.queued", this, governor -> governor.snapshot(false)).register(meterRegistry);
+        Gauge.builder("ai.governor.global.tokens", globalBucket, TokenBucket::available).register(meterRegistry);
+    }
+
+    /**
+     * Admission check for one incoming request of the given cost (Gemini calls). Throws RejectedException
+     * when the request should be shed.
+     */
+    public void admit(String caller, int cost, Priority priority) {
+        if (snapshot(false) >= maxQueued) {
+            throw reject("overloaded", priority, TimeUnit.SECONDS.toNanos(1));
+        }
+        TokenBucket userBucket = userBuckets.computeIfAbsent(caller,
+                key -> new TokenBucket(userBurst, userRatePerMinute));
+        double userCost = Math.min(cost, userBurst);
+        long userWait = userBucket.tryConsume(userCost, 0);
+        if (userWait > 0) {
+            throw reject("user_rate", priority, userWait);
+        }
+        long globalWait = globalBucket.tryConsume(cost, 0);
+        if (globalWait > 0) {
+            // The request is shed, so it must not count against the learner's own budget
+            userBucket.refund(userCost);
+            throw reject("global_rate", priority, globalWait);
+        }
+    }
+
+    /**
+     * Rethrow the RejectedException behind error, if any (directly or as the cause of a CompletionException).
+     * Used where a join() wraps the rejection, so callers see the RejectedException itself and
+     * AIRejectionHandler can answer 429 + Retry-After.
+     */
+    public static void rethrowIfRejected(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RejectedException rejected) {
+                throw rejected;
+            }
+        }
+    }
+
+    /**
+     * Wait for a running slot (up to the priority's queue timeout). Close the permit when the call ends.
+     */
+    public Permit acquire(Priority priority) {
+        if (priority == Priority.BATCH) {
+            long wait = globalBucket.tryConsume(1, batchReserve);
+            if (wait > 0) {
+                throw reject("global_rate", priority, wait);
+            }
+        }
+
+        long start = System.nanoTime();
+        long remaining = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs(priority));
+        lock.lock();
+        try {
+            queued++;
+            try {
+                while (!hasSlot(priority)) {
+                    if (remaining <= 0) {
+                        throw reject("queue_timeout", priority, TimeUnit.SECONDS.toNanos(1));
+                    }
+                    remaining = slotFreed.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject("interrupted", priority, 0);
+            } finally {
+                queued--;
+            }
+            inFlight++;
+            if (priority == Priority.BATCH) {
+                batchInFlight++;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Timer.builder("ai.governor.queue.wait")
+                .tag("priority", priority.name())
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Permit(priority);
+    }
+
+    private boolean hasSlot(Priority priority) {
+        return switch (priority) {
+            case INTERACTIVE -> inFlight < maxConcurrent;
+            case STANDARD -> inFlight < maxConcurrent - reservedInteractive;
+            case BATCH -> inFlight < maxConcurrent - reservedInteractive && batchInFlight < batchMaxConcurrent;
+        };
+    }
+
+    private long queueTimeoutMs(Priority priority) {
+        return switch (priority) {
+            case INTERACTIVE -> interactiveQueueTimeoutMs;
+            case STANDARD -> standardQueueTimeoutMs;
+            case BATCH -> batchQueueTimeoutMs;
+        };
+    }
+
+    private void release(Priority priority) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (priority == Priority.BATCH) {
+                batchInFlight--;
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int snapshot(boolean running) {
+        lock.lock();
+        try {
+            return running ? inFlight : queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RejectedException reject(String reason, Priority priority, long retryAfterNanos) {
+        Counter.builder("ai.governor.rejections")
+                .tag("reason", reason)
+                .tag("priority", priority.name())
+                .register(meterRegistry)
+                .increment();
+        log.warn("AI governor rejected a {} call: {}", priority, reason);
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999));
+        return new RejectedException(reason, retryAfterSeconds);
+    }
+
+    // Buckets of callers that have been quiet for a while are full again - no need to keep them
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        userBuckets.values().removeIf(bucket -> bucket.isIdle(IDLE_BUCKET_NANOS));
+    }
+}
@@ -0,0 +1,24 @@
+package com.wolftalk.microservices.ai.governor;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * 429 + Retry-After for a Gemini call the governor turned down after the request was admitted
+ * (e.g. queue_timeout while every slot was busy), with the same body as AIAdmissionFilter
+ */
+@RestControllerAdvice
+public class AIRejectionHandler {
+
+    @ExceptionHandler(AIGovernor.RejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleRejected(AIGovernor.RejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(AIAdmissionFilter.errorBody(e));
+    }
+}
@@ -0,0 +1,63 @@
+package com.wolftalk.microservices.ai.governor;
+
+/**
+ * Classic token bucket: holds up to capacity tokens, refilled continuously at ratePerMinute
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+    private long lastUsed;
+
+    TokenBucket(double capacity, double ratePerMinute) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerMinute / 60_000_000_000.0;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        this.lastUsed = lastRefill;
+    }
+
+    /**
+     * Take cost tokens if that leaves at least reserve tokens in the bucket.
+     * Returns 0 on success, otherwise the nanoseconds until it would succeed.
+     */
+    synchronized long tryConsume(double cost, double reserve) {
+        refill();
+        lastUsed = lastRefill;
+        double needed = cost + reserve;
+        if (tokens >= needed) {
+            tokens -= cost;
+            return 0;
+        }
+        return (long) Math.ceil((needed - tokens) / tokensPerNano);
+    }
+
+    /**
+     * Give back tokens taken by tryConsume for work that was not done after all
+     */
+    synchronized void refund(double tokens) {
+        refill();
+        this.tokens = Math.min(capacity, this.tokens + tokens);
+    }
+
+    synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    /**
+     * Full and untouched for idleNanos - can be dropped, a new bucket would behave the same
+     */
+    synchronized boolean isIdle(long idleNanos) {
+        refill();
+        return tokens >= capacity && lastRefill - lastUsed > idleNanos;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
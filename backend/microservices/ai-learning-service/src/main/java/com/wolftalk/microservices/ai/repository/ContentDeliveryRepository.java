@@ -0,0 +1,28 @@
+package com.wolftalk.microservices.ai.repository;
+
+import com.wolftalk.microservices.ai.entity.ContentDelivery;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface ContentDeliveryRepository extends JpaRepository<ContentDelivery, Long> {
+    
+    /**
+     * 0 when the learner already has the item - a concurrent request delivered it first. ON CONFLICT instead of
+     * a caught constraint violation, which would abort the surrounding PostgreSQL transaction.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ai_content_deliveries (learner, content_id, delivered_at) " +
+                   "VALUES (:learner, :contentId, NOW()) ON CONFLICT ON CONSTRAINT uk_ai_content_delivery DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("learner") String learner, @Param("contentId") Long contentId);
+    
+    @Modifying
+    @Query("DELETE FROM ContentDelivery d WHERE d.contentId IN :contentIds")
+    int deleteByContentIds(@Param("contentIds") Collection<Long> contentIds);
+}
@@ -0,0 +1,74 @@
+package com.wolftalk.microservices.ai.repository;
+
+import com.wolftalk.microservices.ai.entity.PooledContent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PooledContentRepository extends JpaRepository<PooledContent, Long> {
+    
+    String POOL_MATCH = "c.kind = :kind AND c.topic = :topic AND c.level = :level AND c.variant = :variant ";
+    
+    /**
+     * Size of every pool, one row per (kind, topic, level, variant)
+     */
+    interface PoolSizeView {
+        PooledContent.Kind getKind();
+        String getTopic();
+        String getLevel();
+        String getVariant();
+        long getSize();
+    }
+    
+    // Oldest item of the pool the learner has not been served yet
+    @Query("SELECT c FROM PooledContent c WHERE " + POOL_MATCH +
+           "AND NOT EXISTS (SELECT d.id FROM ContentDelivery d WHERE d.contentId = c.id AND d.learner = :learner) " +
+           "ORDER BY c.id")
+    List<PooledContent> findUnseen(@Param("kind") PooledContent.Kind kind,
+                                   @Param("topic") String topic,
+                                   @Param("level") String level,
+                                   @Param("variant") String variant,
+                                   @Param("learner") String learner,
+                                   Pageable pageable);
+    
+    @Query("SELECT c.id FROM PooledContent c WHERE " + POOL_MATCH + "ORDER BY c.id")
+    List<Long> findIdsOldestFirst(@Param("kind") PooledContent.Kind kind,
+                                  @Param("topic") String topic,
+                                  @Param("level") String level,
+                                  @Param("variant") String variant,
+                                  Pageable pageable);
+    
+    @Query("SELECT COUNT(c) FROM PooledContent c WHERE " + POOL_MATCH)
+    long countPool(@Param("kind") PooledContent.Kind kind,
+                   @Param("topic") String topic,
+                   @Param("level") String level,
+                   @Param("variant") String variant);
+    
+    @Query("SELECT c.kind AS kind, c.topic AS topic, c.level AS level, c.variant AS variant, COUNT(c) AS size " +
+           "FROM PooledContent c GROUP BY c.kind, c.topic, c.level, c.variant")
+    List<PoolSizeView> findPoolSizes();
+    
+    /**
+     * 0 when the same content is already pooled, possibly added by a concurrent request a moment ago
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ai_content_pool (kind, topic, level, variant, content, content_hash, created_at) " +
+                   "VALUES (:kind, :topic, :level, :variant, :content, :contentHash, NOW()) " +
+                   "ON CONFLICT (content_hash) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("kind") String kind,
+                       @Param("topic") String topic,
+                       @Param("level") String level,
+                       @Param("variant") String variant,
+                       @Param("content") String content,
+                       @Param("contentHash") String contentHash);
+    
+    @Query("SELECT c.id FROM PooledContent c WHERE c.contentHash = :contentHash")
+    Long findIdByContentHash(@Param("contentHash") String contentHash);
+}
@@ -1,21 +1,52 @@
 package com.wolftalk.microservices.ai.service;
 
+import com.wolftalk.microservices.ai.governor.AIGovernor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * Service to manage AI provider (Google Gemini only)
+ *
+ * The *Async variants run each Gemini call on a virtual thread with a per-call deadline, so
+ * callers can start independent calls together and only wait for the slowest one. A call that
+ * misses its deadline or fails completes with the same fallback as the blocking variant. A call the
+ * AIGovernor turns down is never replaced by a fallback: the RejectedException propagates (429 + Retry-After).
+ * Every call is timed into the "ai.call" timer (tags: stage, outcome) under /actuator/metrics.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AIProviderService {
     
+    private static final String SUGGESTIONS_FALLBACK = "Unable to generate suggestions at this time.";
+    private static final String PRONUNCIATION_FEEDBACK_FALLBACK = "Great effort! Keep practicing.";
+    private static final String EXPLANATION_FALLBACK = "Unable to explain errors at this time.";
+    private static final String DETAILED_FEEDBACK_FALLBACK = "Keep up the good work!";
+    
     private final GeminiService geminiService;
+    private final MeterRegistry meterRegistry;
+    
+    // Gemini calls are blocking I/O, one cheap virtual thread per in-flight call
+    private final ExecutorService aiCallExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    @Value("${ai.orchestration.call-timeout-ms:30000}")
+    private long callTimeoutMs;
     
     public enum AIProvider {
         GEMINI,
@@ -27,12 +58,9 @@ public class AIProviderService {
      */
     public List<String> generatePronunciationSuggestions(
             String transcript, String expectedText, AIProvider provider) {
-        try {
-            return geminiService.generatePronunciationSuggestions(transcript, expectedText);
-        } catch (Exception e) {
-            log.error("Gemini failed for pronunciation suggestions: {}", e.getMessage());
-            return List.of("Unable to generate suggestions at this time.");
-        }
+        return withFallback("pronunciation suggestions",
+                () -> geminiService.generatePronunciationSuggestions(transcript, expectedText),
+                List.of(SUGGESTIONS_FALLBACK));
     }
     
     /**
@@ -40,24 +68,16 @@ public class AIProviderService {
      */
     public String generatePronunciationFeedback(
             String transcript, String expectedText, BigDecimal score, AIProvider provider) {
-        try {
-            return geminiService.generatePronunciationFeedback(transcript, expectedText, score);
-        } catch (Exception e) {
-            log.error("Gemini failed for pronunciation feedback: {}", e.getMessage());
-            return "Great effort! Keep practicing.";
-        }
+        return withFallback("pronunciation feedback",
+                () -> geminiService.generatePronunciationFeedback(transcript, expectedText, score),
+                PRONUNCIATION_FEEDBACK_FALLBACK);
     }
     
     /**
      * Correct grammar using Gemini
      */
     public String correctGrammar(String text, AIProvider provider) {
-        try {
-            return geminiService.correctGrammar(text);
-        } catch (Exception e) {
-            log.error("Gemini failed for grammar correction: {}", e.getMessage());
-            return text;
-        }
+        return withFallback("grammar correction", () -> geminiService.correctGrammar(text), text);
     }
     
     /**
@@ -65,24 +85,18 @@ public class AIProviderService {
      */
     public List<String> explainGrammarErrors(
             String originalText, String correctedText, AIProvider provider) {
-        try {
-            return geminiService.explainGrammarErrors(originalText, correctedText);
-        } catch (Exception e) {
-            log.error("Gemini failed for grammar explanation: {}", e.getMessage());
-            return List.of("Unable to explain errors at this time.");
-        }
+        return withFallback("grammar explanation",
+                () -> geminiService.explainGrammarErrors(originalText, correctedText),
+                List.of(EXPLANATION_FALLBACK));
     }
     
     /**
      * Suggest vocabulary using Gemini
      */
     public List<String> suggestVocabulary(String context, String level, AIProvider provider) {
-        try {
-            return geminiService.suggestVocabulary(context, level);
-        } catch (Exception e) {
-            log.error("Gemini failed for vocabulary suggestions: {}", e.getMessage());
-            return List.of("Unable to suggest vocabulary at this time.");
-        }
+        return withFallback("vocabulary suggestions",
+                () -> geminiService.suggestVocabulary(context, level),
+                List.of("Unable to suggest vocabulary at this time."));
     }
     
     /**
@@ -90,12 +104,17 @@ public class AIProviderService {
      */
     public String generateConversationResponse(
             String userMessage, String context, String difficulty, AIProvider provider) {
-        try {
-            return geminiService.generateConversationResponse(userMessage, context, difficulty);
-        } catch (Exception e) {
-            log.error("Gemini failed for conversation response: {}", e.getMessage());
-            return "I'm sorry, I'm having trouble responding right now.";
-        }
+        return withFallback("conversation response",
+                () -> geminiService.generateConversationResponse(userMessage, context, difficulty),
+                "I'm sorry, I'm having trouble responding right now.");
+    }
+    
+    /**
+     * Open a streamed conversation response using Gemini; throws RejectedException when the call is shed
+     */
+    public GeminiService.PendingStream openConversationStream(
+            String userMessage, String context, String difficulty, AIProvider provider) {
+        return geminiService.openConversationStream(userMessage, context, difficulty);
     }
     
     /**
@@ -103,12 +122,9 @@ public class AIProviderService {
      */
     public List<String> generateConversationSuggestions(
             String userMessage, String context, AIProvider provider) {
-        try {
-            return geminiService.generateConversationSuggestions(userMessage, context);
-        } catch (Exception e) {
-            log.error("Gemini failed for conversation suggestions: {}", e.getMessage());
-            return List.of("Unable to generate suggestions at this time.");
-        }
+        return withFallback("conversation suggestions",
+                () -> geminiService.generateConversationSuggestions(userMessage, context),
+                List.of(SUGGESTIONS_FALLBACK));
     }
     
     /**
@@ -116,12 +132,9 @@ public class AIProviderService {
      */
     public String generateDetailedFeedback(
             String studentText, String topic, BigDecimal score, AIProvider provider) {
-        try {
-            return geminiService.generateDetailedFeedback(studentText, topic, score);
-        } catch (Exception e) {
-            log.error("Gemini failed for detailed feedback: {}", e.getMessage());
-            return "Keep up the good work!";
-        }
+        return withFallback("detailed feedback",
+                () -> geminiService.generateDetailedFeedback(studentText, topic, score),
+                DETAILED_FEEDBACK_FALLBACK);
     }
     
     /**
@@ -129,14 +142,125 @@ public class AIProviderService {
      * Used for new features like Writing, Reading, Grammar Exercises
      */
     public String getResponse(String prompt, String providerStr) {
+        return withFallback("generic response",
+                () -> geminiService.getGenericResponse(prompt),
+                "Unable to process request at this time.");
+    }
+    
+    public CompletableFuture<List<String>> generatePronunciationSuggestionsAsync(
+            String transcript, String expectedText, AIProvider provider) {
+        return callAsync("pronunciation.suggestions",
+                () -> generatePronunciationSuggestions(transcript, expectedText, provider),
+                List.of(SUGGESTIONS_FALLBACK));
+    }
+    
+    public CompletableFuture<String> generatePronunciationFeedbackAsync(
+            String transcript, String expectedText, BigDecimal score, AIProvider provider) {
+        return callAsync("pronunciation.feedback",
+                () -> generatePronunciationFeedback(transcript, expectedText, score, provider),
+                PRONUNCIATION_FEEDBACK_FALLBACK);
+    }
+    
+    public CompletableFuture<List<String>> generateConversationSuggestionsAsync(
+            String userMessage, String context, AIProvider provider) {
+        return callAsync("conversation.suggestions",
+                () -> generateConversationSuggestions(userMessage, context, provider),
+                List.of(SUGGESTIONS_FALLBACK));
+    }
+    
+    public CompletableFuture<String> correctGrammarAsync(String text, AIProvider provider) {
+        return callAsync("grammar.correct", () -> correctGrammar(text, provider), text);
+    }
+    
+    public CompletableFuture<List<String>> explainGrammarErrorsAsync(
+            String originalText, String correctedText, AIProvider provider) {
+        return callAsync("grammar.explain",
+                () -> explainGrammarErrors(originalText, correctedText, provider),
+                List.of(EXPLANATION_FALLBACK));
+    }
+    
+    public CompletableFuture<String> generateDetailedFeedbackAsync(
+            String studentText, String topic, BigDecimal score, AIProvider provider) {
+        return callAsync("feedback.detailed",
+                () -> generateDetailedFeedback(studentText, topic, score, provider),
+                DETAILED_FEEDBACK_FALLBACK);
+    }
+    
+    /**
+     * Run one Gemini call, answering with the fallback when it fails. A shed call is not a failure:
+     * its RejectedException goes on to AIRejectionHandler.
+     */
+    private <T> T withFallback(String what, Supplier<T> call, T fallback) {
         try {
-            return geminiService.getGenericResponse(prompt);
+            return call.get();
+        } catch (AIGovernor.RejectedException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Gemini failed for generic response: {}", e.getMessage());
-            return "Unable to process request at this time.";
+            log.error("Gemini failed for {}: {}", what, e.getMessage());
+            return fallback;
         }
     }
     
+    /**
+     * Run one AI call off the caller's thread. The deadline only stops the caller from waiting:
+     * the HTTP call itself keeps running until the client's own timeouts end it.
+     */
+    private <T> CompletableFuture<T> callAsync(String stage, Supplier<T> call, T fallback) {
+        long start = System.nanoTime();
+        return CompletableFuture.supplyAsync(call, aiCallExecutor)
+                .orTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                .handle((result, error) -> {
+                    if (error == null) {
+                        recordStage(stage, "success", start);
+                        return result;
+                    }
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    // A shed call fails the whole request with 429 instead of degrading to the fallback
+                    if (cause instanceof AIGovernor.RejectedException rejected) {
+                        throw rejected;
+                    }
+                    if (cause instanceof TimeoutException) {
+                        log.warn("AI call {} exceeded {} ms, using fallback", stage, callTimeoutMs);
+                        recordStage(stage, "timeout", start);
+                    } else {
+                        log.error("AI call {} failed: {}", stage, cause.getMessage());
+                        recordStage(stage, "error", start);
+                    }
+                    return fallback;
+                });
+    }
+    
+    private void recordStage(String stage, String outcome, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Timer.builder("ai.call")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.debug("AI call {} finished ({}) in {} ms", stage, outcome, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        aiCallExecutor.shutdownNow();
+    }
+    
+    /**
+     * Uncached generation for content pools - empty when Gemini fails or the governor turns the call down
+     */
+    public Optional<String> generateContent(String prompt, AIGovernor.Priority priority) {
+        return withFallback("content generation",
+                () -> geminiService.generateContent(prompt, priority),
+                Optional.empty());
+    }
+    
+    /**
+     * Generic streaming variant of getResponse; throws RejectedException when the call is shed
+     */
+    public GeminiService.PendingStream openStream(String prompt, String providerStr) {
+        return geminiService.openGenerateContentStream(prompt);
+    }
+    
     /**
      * Parse provider string to enum (for backwards compatibility)
      */
@@ -0,0 +1,59 @@
+package com.wolftalk.microservices.ai.service;
+
+import com.wolftalk.microservices.ai.governor.AIGovernor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Background producer for ContentPoolService: every content.pool.refill-interval-ms it generates one item
+ * for the in-demand pool that is furthest below its target size. One item per tick is the rate limit, so
+ * refilling never spends more than 60000 / interval Gemini calls per minute. Calls run at BATCH priority:
+ * while live traffic has drained the global bucket down to its batch reserve, AIGovernor turns them down
+ * and the pool backs off like after any failed refill.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ContentPoolRefiller {
+
+    private final ContentPoolService contentPoolService;
+    private final ReadingService readingService;
+    private final GrammarExerciseService grammarExerciseService;
+    private final WritingService writingService;
+
+    @Scheduled(fixedDelayString = "${content.pool.refill-interval-ms:10000}",
+               initialDelayString = "${content.pool.refill-initial-delay-ms:30000}")
+    public void refillOne() {
+        if (!contentPoolService.isEnabled()) {
+            return;
+        }
+        try {
+            contentPoolService.nextKeyToRefill().ifPresent(this::refill);
+        } catch (Exception e) {
+            log.error("Content pool refill failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void refill(ContentPoolService.PoolKey key) {
+        AIGovernor.Priority batch = AIGovernor.Priority.BATCH;
+        Optional<?> content = switch (key.kind()) {
+            case READING_PASSAGE -> readingService.generateForPool(key.topic(), key.level(), key.variant(), batch);
+            case GRAMMAR_EXERCISES -> grammarExerciseService.generateForPool(
+                    key.topic(), key.level(), Integer.parseInt(key.variant()), batch);
+            case WRITING_PROMPT -> writingService.generateForPool(key.variant(), key.topic(), key.level(), batch);
+        };
+        if (content.isEmpty()) {
+            log.warn("Content pool: no valid {} generated for {}, backing off", key.kind(), key);
+            contentPoolService.recordRefillFailure(key);
+            return;
+        }
+        contentPoolService.recordRefillSuccess(key);
+        if (contentPoolService.add(key, content.get(), null)) {
+            log.debug("Content pool: added {} to {}", key.kind(), key);
+        }
+    }
+}
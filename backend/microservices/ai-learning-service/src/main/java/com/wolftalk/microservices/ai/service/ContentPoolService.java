@@ -0,0 +1,301 @@
+package com.wolftalk.microservices.ai.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wolftalk.microservices.ai.entity.PooledContent;
+import com.wolftalk.microservices.ai.repository.ContentDeliveryRepository;
+import com.wolftalk.microservices.ai.repository.PooledContentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pools of pre-generated reading passages, grammar exercise sets and writing prompts
+ *
+ * Content is stored in the database (ai_content_pool), so pools survive restarts. take() serves the
+ * oldest item of the pool the learner has not seen yet and records the delivery, so nobody gets the same
+ * item twice. Each pool holds at most content.pool.max-size items; adding beyond that drops the oldest.
+ * Deliveries and items are inserted with ON CONFLICT DO NOTHING, so concurrent requests racing for the same
+ * item or adding the same content never fail: take() moves on to the next unseen item, add() reports a duplicate.
+ *
+ * Every take() counts a request for its pool. A pool is in demand once it was requested
+ * content.pool.min-requests times within content.pool.active-hours, so a one-off free-text topic is never
+ * refilled. At most content.pool.max-tracked-pools pools are tracked; when full, the least recently requested
+ * pool that is not in demand makes room. ContentPoolRefiller tops up in-demand pools (and the
+ * content.pool.warm-levels reading pools) to content.pool.target-size in the background.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ContentPoolService {
+
+    private final PooledContentRepository pooledContentRepository;
+    private final ContentDeliveryRepository contentDeliveryRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${content.pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${content.pool.target-size:20}")
+    private int targetSize;
+
+    @Value("${content.pool.max-size:50}")
+    private int maxSize;
+
+    @Value("${content.pool.active-hours:24}")
+    private long activeHours;
+
+    @Value("${content.pool.min-requests:3}")
+    private int minRequests;
+
+    @Value("${content.pool.max-tracked-pools:500}")
+    private int maxTrackedPools;
+
+    @Value("${content.pool.failure-backoff-ms:300000}")
+    private long failureBackoffMs;
+
+    @Value("${content.pool.warm-levels:beginner,intermediate,advanced}")
+    private List<String> warmLevels;
+
+    // Attempts at delivering an unseen item when concurrent requests of the same learner keep taking it first
+    private static final int MAX_TAKE_ATTEMPTS = 3;
+
+    // Pool -> recent requests; refill-failure backoff per pool
+    private final Map<PoolKey, Demand> demand = new ConcurrentHashMap<>();
+    private final Map<PoolKey, Long> retryAfter = new ConcurrentHashMap<>();
+
+    private record Demand(int requests, long lastRequested) {
+    }
+
+    /**
+     * Identity of a pool. variant is the passage length, the exercise count or the writing type.
+     * Parts are trimmed and lower-cased so "Travel " and "travel" share a pool.
+     */
+    public record PoolKey(PooledContent.Kind kind, String topic, String level, String variant) {
+
+        public static PoolKey of(PooledContent.Kind kind, String topic, String level, Object variant) {
+            return new PoolKey(kind, normalize(topic), normalize(level), normalize(String.valueOf(variant)));
+        }
+
+        private static String normalize(String value) {
+            return value == null ? "" : value.strip().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        // Persisted pools that grew past one item per miss were refilled or requested repeatedly by a previous
+        // run - they stay in demand for another active window
+        long now = System.currentTimeMillis();
+        for (PooledContentRepository.PoolSizeView pool : pooledContentRepository.findPoolSizes()) {
+            if (pool.getSize() >= minRequests && demand.size() < maxTrackedPools) {
+                demand.putIfAbsent(new PoolKey(pool.getKind(), pool.getTopic(), pool.getLevel(), pool.getVariant()),
+                        new Demand(minRequests, now));
+            }
+        }
+        log.info("Content pool: {} pools in demand after startup", demand.size());
+    }
+
+    /**
+     * Next unseen item of the pool for this learner, or empty when the learner has seen the whole pool
+     */
+    @Transactional
+    public <T> Optional<T> take(PoolKey key, String learner, Class<T> type) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        recordDemand(key, System.currentTimeMillis());
+
+        for (int attempt = 0; attempt < MAX_TAKE_ATTEMPTS; attempt++) {
+            List<PooledContent> unseen = pooledContentRepository.findUnseen(
+                    key.kind(), key.topic(), key.level(), key.variant(), learner, PageRequest.of(0, 1));
+            if (unseen.isEmpty()) {
+                break;
+            }
+            PooledContent item = unseen.get(0);
+            if (contentDeliveryRepository.insertIfAbsent(learner, item.getId()) == 0) {
+                // Another request of this learner got the item first - try the next one
+                continue;
+            }
+            count("content.pool.requests", key.kind(), "result", "hit");
+            try {
+                return Optional.of(objectMapper.readValue(item.getContent(), type));
+            } catch (JsonProcessingException e) {
+                log.error("Content pool: item {} cannot be read as {}: {}", item.getId(), type.getSimpleName(),
+                        e.getMessage());
+                return Optional.empty();
+            }
+        }
+        count("content.pool.requests", key.kind(), "result", "miss");
+        return Optional.empty();
+    }
+
+    /**
+     * Add validated content to the pool. deliveredTo (nullable) is the learner it is being served to right now.
+     * Returns false when the same content is already pooled.
+     */
+    @Transactional
+    public boolean add(PoolKey key, Object content, String deliveredTo) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(content);
+        } catch (JsonProcessingException e) {
+            log.error("Content pool: cannot serialize {}: {}", key.kind(), e.getMessage());
+            return false;
+        }
+        String hash = sha256(key.kind() + "\n" + json);
+        if (pooledContentRepository.insertIfAbsent(key.kind().name(), key.topic(), key.level(), key.variant(),
+                json, hash) == 0) {
+            count("content.pool.additions", key.kind(), "outcome", "duplicate");
+            return false;
+        }
+
+        Long contentId = pooledContentRepository.findIdByContentHash(hash);
+        if (deliveredTo != null) {
+            contentDeliveryRepository.insertIfAbsent(deliveredTo, contentId);
+        }
+        count("content.pool.additions", key.kind(), "outcome", "added");
+
+        long size = pooledContentRepository.countPool(key.kind(), key.topic(), key.level(), key.variant());
+        if (size > maxSize) {
+            List<Long> oldest = pooledContentRepository.findIdsOldestFirst(key.kind(), key.topic(), key.level(),
+                    key.variant(), PageRequest.of(0, (int) (size - maxSize)));
+            contentDeliveryRepository.deleteByContentIds(oldest);
+            pooledContentRepository.deleteAllByIdInBatch(oldest);
+        }
+        return true;
+    }
+
+    /**
+     * The in-demand pool furthest below the target size (not backing off after a failed refill)
+     */
+    public Optional<PoolKey> nextKeyToRefill() {
+        long now = System.currentTimeMillis();
+        long activeSince = now - activeHours * 3_600_000;
+        demand.values().removeIf(pool -> pool.lastRequested() < activeSince);
+
+        Map<PoolKey, Long> sizes = new HashMap<>();
+        for (PooledContentRepository.PoolSizeView pool : pooledContentRepository.findPoolSizes()) {
+            sizes.put(new PoolKey(pool.getKind(), pool.getTopic(), pool.getLevel(), pool.getVariant()), pool.getSize());
+        }
+
+        PoolKey best = null;
+        long bestSize = targetSize;
+        for (PoolKey key : candidateKeys()) {
+            Long retry = retryAfter.get(key);
+            if (retry != null && retry > now) {
+                continue;
+            }
+            long size = sizes.getOrDefault(key, 0L);
+            if (size < bestSize) {
+                best = key;
+                bestSize = size;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    public void recordRefillFailure(PoolKey key) {
+        retryAfter.put(key, System.currentTimeMillis() + failureBackoffMs);
+        count("content.pool.additions", key.kind(), "outcome", "invalid");
+    }
+
+    public void recordRefillSuccess(PoolKey key) {
+        retryAfter.remove(key);
+    }
+
+    private Set<PoolKey> candidateKeys() {
+        Set<PoolKey> keys = new LinkedHashSet<>();
+        // Random-topic medium passages are what the reading page asks for by default
+        for (String level : warmLevels) {
+            keys.add(PoolKey.of(PooledContent.Kind.READING_PASSAGE, "", level, "medium"));
+        }
+        demand.forEach((key, pool) -> {
+            if (pool.requests() >= minRequests) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    private void recordDemand(PoolKey key, long now) {
+        if (demand.computeIfPresent(key, (k, pool) -> new Demand(pool.requests() + 1, now)) != null) {
+            return;
+        }
+        synchronized (demand) {
+            if (demand.size() >= maxTrackedPools && !makeRoom(now)) {
+                count("content.pool.demand", key.kind(), "result", "untracked");
+                return;
+            }
+            demand.merge(key, new Demand(1, now), (pool, first) -> new Demand(pool.requests() + 1, now));
+        }
+    }
+
+    // Drops expired pools, otherwise the least recently requested pool that is not in demand
+    private boolean makeRoom(long now) {
+        long activeSince = now - activeHours * 3_600_000;
+        demand.values().removeIf(pool -> pool.lastRequested() < activeSince);
+        if (demand.size() < maxTrackedPools) {
+            return true;
+        }
+        PoolKey coldest = null;
+        long coldestRequested = Long.MAX_VALUE;
+        for (Map.Entry<PoolKey, Demand> entry : demand.entrySet()) {
+            Demand pool = entry.getValue();
+            if (pool.requests() < minRequests && pool.lastRequested() < coldestRequested) {
+                coldest = entry.getKey();
+                coldestRequested = pool.lastRequested();
+            }
+        }
+        if (coldest == null) {
+            return false;
+        }
+        demand.remove(coldest);
+        return true;
+    }
+
+    private void count(String name, PooledContent.Kind kind, String tag, String value) {
+        Counter.builder(name)
+                .tag("kind", kind.name())
+                .tag(tag, value)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,23 +1,40 @@
 package com.wolftalk.microservices.ai.service;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wolftalk.microservices.ai.cache.LlmResponseCache;
+import com.wolftalk.microservices.ai.cache.LlmResponseCache.UseCase;
+import com.wolftalk.microservices.ai.governor.AIGovernor;
+import com.wolftalk.microservices.ai.governor.AIGovernor.Priority;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
+import okio.BufferedSource;
 
 @Service
 @Slf4j
@@ -25,28 +42,71 @@ public class GeminiService {
     
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final LlmResponseCache responseCache;
+    private final AIGovernor governor;
     private final String apiKey;
     private final String model;
     private final Integer maxTokens;
     private final Double temperature;
+    private final long callTimeoutMs;
     
     private static final String GEMINI_API_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final String FALLBACK_RESPONSE = "Sorry, I couldn't generate a response at this time.";
     
+    /**
+     * Receives a streamed generation. Callbacks run on an OkHttp dispatcher thread;
+     * exactly one of onComplete / onError is called last.
+     */
+    public interface StreamListener {
+        void onToken(String text);
+        
+        void onComplete(String fullText);
+        
+        void onError(Throwable error);
+    }
+    
+    /**
+     * All calls (blocking ones included) go through the dispatcher, so max-concurrent-requests bounds the
+     * number of in-flight Gemini requests; excess calls wait in the dispatcher queue without holding a thread.
+     * Connections to the API host are kept alive and reused (HTTP/2 multiplexes them when negotiated).
+     * Every HTTP call additionally holds an AIGovernor permit, so cache hits never count against the limits.
+     */
     public GeminiService(
+            LlmResponseCache responseCache,
+            AIGovernor governor,
             @Value("${gemini.api.key}") String apiKey,
             @Value("${gemini.model}") String model,
             @Value("${gemini.max.tokens}") Integer maxTokens,
-            @Value("${gemini.temperature}") Double temperature) {
-        this.httpClient = new OkHttpClient();
+            @Value("${gemini.temperature}") Double temperature,
+            @Value("${gemini.http.max-concurrent-requests:64}") int maxConcurrentRequests,
+            @Value("${gemini.http.max-idle-connections:16}") int maxIdleConnections,
+            @Value("${gemini.http.keep-alive-ms:300000}") long keepAliveMs,
+            @Value("${gemini.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+            @Value("${gemini.http.read-timeout-ms:60000}") long readTimeoutMs,
+            @Value("${gemini.http.call-timeout-ms:120000}") long callTimeoutMs) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+        this.httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .writeTimeout(Duration.ofMillis(connectTimeoutMs))
+                // Max gap between two bytes - a stream that is still producing tokens never hits it
+                .readTimeout(Duration.ofMillis(readTimeoutMs))
+                .callTimeout(Duration.ofMillis(callTimeoutMs))
+                .build();
         this.objectMapper = new ObjectMapper();
+        this.responseCache = responseCache;
+        this.governor = governor;
         this.apiKey = apiKey;
         this.model = model;
         this.maxTokens = maxTokens;
         this.temperature = temperature;
+        this.callTimeoutMs = callTimeoutMs;
     }
     
-    @Cacheable(value = "geminiPronunciationSuggestions", key = "#transcript + #expectedText")
     public List<String> generatePronunciationSuggestions(String transcript, String expectedText) {
         String prompt = String.format(
                 "As an English pronunciation coach, compare the student's speech transcript with the expected text. " +
@@ -57,11 +117,10 @@ public class GeminiService {
                 expectedText, transcript
         );
         
-        String response = callGemini(prompt);
+        String response = callGemini(UseCase.PRONUNCIATION_SUGGESTIONS, prompt);
         return Arrays.asList(response.split("\n"));
     }
     
-    @Cacheable(value = "geminiPronunciationFeedback", key = "#transcript + #expectedText + #score")
     public String generatePronunciationFeedback(String transcript, String expectedText, BigDecimal score) {
         String prompt = String.format(
                 "As an encouraging English teacher, provide brief, positive feedback on the student's pronunciation attempt.\n\n" +
@@ -72,10 +131,9 @@ public class GeminiService {
                 expectedText, transcript, score
         );
         
-        return callGemini(prompt);
+        return callGemini(UseCase.PRONUNCIATION_FEEDBACK, prompt);
     }
     
-    @Cacheable(value = "geminiGrammarCorrection", key = "#text")
     public String correctGrammar(String text) {
         String prompt = String.format(
                 "Correct the following English text for grammar, spelling, and punctuation errors. " +
@@ -85,10 +143,9 @@ public class GeminiService {
                 text
         );
         
-        return callGemini(prompt);
+        return callGemini(UseCase.GRAMMAR_CORRECTION, prompt);
     }
     
-    @Cacheable(value = "geminiGrammarExplanation", key = "#originalText + #correctedText")
     public List<String> explainGrammarErrors(String originalText, String correctedText) {
         String prompt = String.format(
                 "Analyze the grammar errors between the original and corrected text. " +
@@ -105,11 +162,10 @@ public class GeminiService {
                 originalText, correctedText
         );
         
-        String response = callGemini(prompt);
+        String response = callGemini(UseCase.GRAMMAR_EXPLANATION, prompt);
         return Arrays.asList(response.split("\n"));
     }
     
-    @Cacheable(value = "geminiVocabularySuggestions", key = "#context + #level")
     public List<String> suggestVocabulary(String context, String level) {
         String prompt = String.format(
                 "Suggest 5 useful English vocabulary words for a %s level student in the context of: %s\n\n" +
@@ -118,24 +174,28 @@ public class GeminiService {
                 level, context
         );
         
-        String response = callGemini(prompt);
+        String response = callGemini(UseCase.VOCABULARY, prompt);
         return Arrays.asList(response.split("\n"));
     }
     
-    @Cacheable(value = "geminiConversationResponse", key = "#userMessage + #context")
     public String generateConversationResponse(String userMessage, String context, String difficulty) {
-        String prompt = String.format(
+        return callGemini(UseCase.CONVERSATION_RESPONSE, buildConversationPrompt(userMessage, context, difficulty));
+    }
+    
+    public PendingStream openConversationStream(String userMessage, String context, String difficulty) {
+        return open(UseCase.CONVERSATION_RESPONSE, buildConversationPrompt(userMessage, context, difficulty));
+    }
+    
+    private String buildConversationPrompt(String userMessage, String context, String difficulty) {
+        return String.format(
                 "You are an AI English conversation partner. The student is at %s level. " +
                 "Context: %s\n\n" +
                 "Student: %s\n\n" +
                 "Respond naturally and appropriately. Keep your response conversational and at the student's level.",
                 difficulty, context, userMessage
         );
-        
-        return callGemini(prompt);
     }
     
-    @Cacheable(value = "geminiConversationSuggestions", key = "#userMessage + #context")
     public List<String> generateConversationSuggestions(String userMessage, String context) {
         String prompt = String.format(
                 "The student is in a conversation about: %s\n" +
@@ -145,7 +205,7 @@ public class GeminiService {
                 context, userMessage
         );
         
-        String response = callGemini(prompt);
+        String response = callGemini(UseCase.CONVERSATION_SUGGESTIONS, prompt);
         return Arrays.asList(response.split("\n"));
     }
     
@@ -163,7 +223,7 @@ public class GeminiService {
                 topic, studentText, score
         );
         
-        return callGemini(prompt);
+        return callGemini(UseCase.DETAILED_FEEDBACK, prompt);
     }
     
     /**
@@ -172,63 +232,270 @@ public class GeminiService {
      */
     public String getGenericResponse(String prompt) {
         log.info("Getting generic Gemini response for prompt length: {}", prompt.length());
-        return callGemini(prompt);
+        return callGemini(UseCase.GENERIC, prompt);
     }
     
-    private String callGemini(String prompt) {
+    /**
+     * Fresh, uncached generation for pooled content (each call should produce a new item).
+     * Empty on any failure instead of the fallback text, so callers never store the fallback.
+     * BATCH work (pool refill) only runs on spare quota, see AIGovernor; a live request the governor turns
+     * down gets the RejectedException (429) instead.
+     */
+    public Optional<String> generateContent(String prompt, Priority priority) {
         try {
-            // Build request body
-            String requestBody = String.format(
-                    "{\"contents\":[{\"parts\":[{\"text\":\"%s\"}]}]," +
-                    "\"generationConfig\":{\"temperature\":%.1f,\"maxOutputTokens\":%d}}",
-                    escapeJson(prompt), temperature, maxTokens
-            );
-            
-            // Build request
-            String url = GEMINI_API_URL + model + ":generateContent?key=" + apiKey;
-            Request request = new Request.Builder()
-                    .url(url)
-                    .post(RequestBody.create(requestBody, JSON))
-                    .build();
+            return Optional.of(requestGemini(prompt, priority).join());
+        } catch (RuntimeException e) {
+            if (priority != Priority.BATCH) {
+                AIGovernor.rethrowIfRejected(e);
+            }
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Prepare a streamed generation from streamGenerateContent (server-sent events). See PendingStream.
+     */
+    public PendingStream openGenerateContentStream(String prompt) {
+        return open(UseCase.GENERIC, prompt);
+    }
+    
+    /**
+     * A streamed generation whose running slot is already held, or whose answer is already cached.
+     * A shed call surfaces as a RejectedException when the stream is opened, so a controller can open it
+     * before it commits to an event stream and let AIRejectionHandler answer 429 + Retry-After.
+     * Call start() exactly once after a successful open.
+     */
+    public final class PendingStream {
+        
+        private final UseCase useCase;
+        private final String prompt;
+        private final String cached;
+        private final AIGovernor.Permit permit;
+        
+        private PendingStream(UseCase useCase, String prompt, String cached, AIGovernor.Permit permit) {
+            this.useCase = useCase;
+            this.prompt = prompt;
+            this.cached = cached;
+            this.permit = permit;
+        }
+        
+        /**
+         * Start the call: every text chunk is handed to the listener as soon as it is parsed.
+         * Returns a handle that cancels the call (e.g. the browser went away).
+         */
+        public Runnable start(StreamListener listener) {
+            // A cached answer is replayed as a single chunk
+            if (cached != null) {
+                listener.onToken(cached);
+                listener.onComplete(cached);
+                return () -> { };
+            }
             
-            // Execute request
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    log.error("Gemini API error: {}", response.code());
-                    return "Sorry, I couldn't generate a response at this time.";
+            log.info("Streaming Gemini response for prompt length: {}", prompt.length());
+            Call call = httpClient.newCall(buildRequest(prompt, "streamGenerateContent?alt=sse&key="));
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    permit.close();
+                    log.error("Error streaming from Gemini API: {}", e.getMessage());
+                    listener.onError(e);
                 }
                 
-                String responseBody = response.body().string();
-                JsonNode jsonResponse = objectMapper.readTree(responseBody);
-                
-                // Extract text from response
-                JsonNode candidates = jsonResponse.get("candidates");
-                if (candidates != null && candidates.isArray() && candidates.size() > 0) {
-                    JsonNode content = candidates.get(0).get("content");
-                    if (content != null) {
-                        JsonNode parts = content.get("parts");
-                        if (parts != null && parts.isArray() && parts.size() > 0) {
-                            String text = parts.get(0).get("text").asText();
-                            log.debug("Gemini response: {}", text);
-                            return text.trim();
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (permit; response) {
+                        if (!response.isSuccessful()) {
+                            log.error("Gemini API error: {}", response.code());
+                            listener.onError(new IOException("Gemini API error: " + response.code()));
+                            return;
+                        }
+                        StringBuilder fullText = new StringBuilder();
+                        BufferedSource source = response.body().source();
+                        String line;
+                        while ((line = source.readUtf8Line()) != null) {
+                            // Each event is a single "data: {GenerateContentResponse}" line followed by a blank line
+                            if (!line.startsWith("data:")) {
+                                continue;
+                            }
+                            String text = extractText(objectMapper.readTree(line.substring(5)));
+                            if (text != null && !text.isEmpty()) {
+                                fullText.append(text);
+                                listener.onToken(text);
+                            }
+                        }
+                        String text = fullText.toString().trim();
+                        if (!text.isEmpty()) {
+                            responseCache.put(useCase, prompt, text);
                         }
+                        listener.onComplete(text);
+                    } catch (Exception e) {
+                        log.error("Error reading Gemini stream: {}", e.getMessage());
+                        listener.onError(e);
                     }
                 }
-                
-                return "Sorry, I couldn't generate a response at this time.";
+            });
+            return call::cancel;
+        }
+    }
+    
+    private PendingStream open(UseCase useCase, String prompt) {
+        String cached = responseCache.getIfPresent(useCase, prompt);
+        if (cached != null) {
+            return new PendingStream(useCase, prompt, cached, null);
+        }
+        // Blocks the caller (at most the queue timeout of its priority) while all slots are busy
+        return new PendingStream(useCase, prompt, null, governor.acquire(priorityOf(useCase)));
+    }
+    
+    /**
+     * Non-blocking call: completes with the generated text, or exceptionally on any failure.
+     * The future itself also times out after call-timeout-ms (cancelling the call), so a caller that
+     * joins it never waits longer than that, even if the call sat in the dispatcher queue.
+     */
+    private CompletableFuture<String> requestGemini(String prompt, Priority priority) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        AIGovernor.Permit permit;
+        try {
+            // Blocks the caller (at most the queue timeout of its priority) while all slots are busy
+            permit = governor.acquire(priority);
+        } catch (AIGovernor.RejectedException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        Call call = httpClient.newCall(buildRequest(prompt, "generateContent?key="));
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                permit.close();
+                log.error("Error calling Gemini API: {}", e.getMessage(), e);
+                future.completeExceptionally(e);
             }
             
-        } catch (IOException e) {
-            log.error("Error calling Gemini API: {}", e.getMessage(), e);
-            return "Sorry, I couldn't generate a response at this time.";
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (permit; response) {
+                    if (!response.isSuccessful()) {
+                        log.error("Gemini API error: {}", response.code());
+                        future.completeExceptionally(new IOException("Gemini API error: " + response.code()));
+                        return;
+                    }
+                    // Parse straight from the socket instead of buffering the body into a String first
+                    String text = extractText(objectMapper.readTree(response.body().byteStream()));
+                    log.debug("Gemini response: {}", text);
+                    if (text == null) {
+                        future.completeExceptionally(new IOException("Gemini response has no text"));
+                    } else {
+                        future.complete(text.trim());
+                    }
+                } catch (Exception e) {
+                    log.error("Error reading Gemini response: {}", e.getMessage(), e);
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future.orTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((text, error) -> {
+                    if (error instanceof TimeoutException) {
+                        log.error("Gemini call timed out after {} ms", callTimeoutMs);
+                        call.cancel();
+                    }
+                });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+    
+    private String callGemini(UseCase useCase, String prompt) {
+        try {
+            return responseCache.get(useCase, prompt, () -> requestGemini(prompt, priorityOf(useCase)).join());
+        } catch (RuntimeException e) {
+            // Shed by the governor: 429 + Retry-After rather than a fallback the client cannot tell apart
+            AIGovernor.rethrowIfRejected(e);
+            // Already logged by requestGemini - the fallback text is returned but never cached
+            return FALLBACK_RESPONSE;
+        }
+    }
+    
+    // The conversation page waits on these - everything else gives way to them when Gemini is busy
+    private static Priority priorityOf(UseCase useCase) {
+        return switch (useCase) {
+            case CONVERSATION_RESPONSE, CONVERSATION_SUGGESTIONS -> Priority.INTERACTIVE;
+            default -> Priority.STANDARD;
+        };
+    }
+    
+    private Request buildRequest(String prompt, String method) {
+        String url = GEMINI_API_URL + model + ":" + method + apiKey;
+        return new Request.Builder()
+                .url(url)
+                .post(new GenerateContentBody(prompt))
+                .build();
+    }
+    
+    // Text of the first candidate (a whole response, or one chunk of a stream)
+    private String extractText(JsonNode jsonResponse) {
+        JsonNode candidates = jsonResponse.get("candidates");
+        if (candidates != null && candidates.isArray() && candidates.size() > 0) {
+            JsonNode content = candidates.get(0).get("content");
+            if (content != null) {
+                JsonNode parts = content.get("parts");
+                if (parts != null && parts.isArray()) {
+                    StringBuilder text = new StringBuilder();
+                    for (JsonNode part : parts) {
+                        JsonNode partText = part.get("text");
+                        if (partText != null) {
+                            text.append(partText.asText());
+                        }
+                    }
+                    return text.toString();
+                }
+            }
         }
+        return null;
     }
     
-    private String escapeJson(String text) {
-        return text.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+    /**
+     * generateContent request body, written by Jackson straight into the request stream (proper escaping,
+     * no intermediate String)
+     */
+    private final class GenerateContentBody extends RequestBody {
+        
+        private final String prompt;
+        
+        private GenerateContentBody(String prompt) {
+            this.prompt = prompt;
+        }
+        
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+        
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            OutputStream out = sink.outputStream();
+            // The sink belongs to OkHttp - flush the generator but leave the stream open
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("contents");
+                json.writeStartObject();
+                json.writeArrayFieldStart("parts");
+                json.writeStartObject();
+                json.writeStringField("text", prompt);
+                json.writeEndObject();
+                json.writeEndArray();
+                json.writeEndObject();
+                json.writeEndArray();
+                json.writeObjectFieldStart("generationConfig");
+                json.writeNumberField("temperature", temperature);
+                json.writeNumberField("maxOutputTokens", maxTokens);
+                json.writeEndObject();
+                json.writeEndObject();
+            }
+        }
     }
 }
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wolftalk.microservices.ai.dto.GrammarExerciseResponse;
+import com.wolftalk.microservices.ai.entity.PooledContent;
+import com.wolftalk.microservices.ai.governor.AIGovernor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -11,6 +13,7 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,15 +23,66 @@ import java.util.regex.Pattern;
 public class GrammarExerciseService {
 
     private final AIProviderService aiProviderService;
+    private final ContentPoolService contentPoolService;
     private final ObjectMapper objectMapper;
 
-    public GrammarExerciseResponse generateExercises(String topic, String level, Integer count, String provider) {
+    /**
+     * Served from the pre-generated pool when the learner has unseen exercise sets left; otherwise generated now
+     * and added to the pool for other learners
+     */
+    public GrammarExerciseResponse generateExercises(String topic, String level, Integer count, String provider,
+                                                     String learner) {
         log.info("Generating {} exercises on {} for {} level", count, topic, level);
 
-        String prompt = buildExercisePrompt(topic, level, count);
-        String aiResponse = aiProviderService.getResponse(prompt, provider);
+        ContentPoolService.PoolKey key = ContentPoolService.PoolKey.of(
+                PooledContent.Kind.GRAMMAR_EXERCISES, topic, level, count);
+        Optional<GrammarExerciseResponse> pooled = contentPoolService.take(key, learner, GrammarExerciseResponse.class);
+        if (pooled.isPresent()) {
+            return pooled.get();
+        }
+
+        return generateForPool(topic, level, count, AIGovernor.Priority.STANDARD)
+                .map(exercises -> {
+                    contentPoolService.add(key, exercises, learner);
+                    return exercises;
+                })
+                .orElseGet(() -> createFallbackResponse(topic, level, count));
+    }
 
-        return parseExerciseResponse(aiResponse, topic, level, count);
+    /**
+     * Generate and validate a new exercise set (uncached); empty if Gemini failed or any exercise is incomplete
+     */
+    public Optional<GrammarExerciseResponse> generateForPool(String topic, String level, Integer count,
+                                                             AIGovernor.Priority priority) {
+        Optional<String> aiResponse = aiProviderService.generateContent(
+                buildExercisePrompt(topic, level, count), priority);
+        if (aiResponse.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            JsonNode exercisesNode = objectMapper.readTree(extractJsonFromResponse(aiResponse.get())).get("exercises");
+            if (exercisesNode == null || !exercisesNode.isArray() || exercisesNode.isEmpty()) {
+                log.warn("Discarding exercise set without exercises");
+                return Optional.empty();
+            }
+            List<GrammarExerciseResponse.Exercise> exercises = objectMapper.convertValue(
+                    exercisesNode, new TypeReference<List<GrammarExerciseResponse.Exercise>>() {});
+            boolean complete = exercises.stream().allMatch(exercise ->
+                    exercise.getQuestion() != null && !exercise.getQuestion().isBlank()
+                            && exercise.getCorrectAnswer() != null && !exercise.getCorrectAnswer().isBlank());
+            if (!complete) {
+                log.warn("Discarding exercise set with an empty question or answer");
+                return Optional.empty();
+            }
+            return Optional.of(GrammarExerciseResponse.builder()
+                    .topic(topic)
+                    .level(level)
+                    .exercises(exercises)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Discarding unparseable exercise set: {}", e.getMessage());
+            return Optional.empty();
+        }
     }
 
     private String buildExercisePrompt(String topic, String level, Integer count) {
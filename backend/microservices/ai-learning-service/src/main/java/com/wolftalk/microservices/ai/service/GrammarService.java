@@ -2,6 +2,7 @@ package com.wolftalk.microservices.ai.service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.stereotype.Service;
 
@@ -26,25 +27,26 @@ public class GrammarService {
         log.info("Checking grammar for user: {}", userId);
         
         // Step 1: Get corrected text using AUTO provider
-        String correctedText = aiProviderService.correctGrammar(text, AIProviderService.AIProvider.AUTO);
+        String correctedText = aiProviderService.correctGrammarAsync(text, AIProviderService.AIProvider.AUTO).join();
         
-        // Step 2: Get error explanations
-        List<String> errorExplanations = aiProviderService.explainGrammarErrors(
+        // Step 2: Error explanations and overall feedback only depend on the corrected text - run both at once
+        CompletableFuture<List<String>> explanationsFuture = aiProviderService.explainGrammarErrorsAsync(
                 text, correctedText, AIProviderService.AIProvider.AUTO);
+        CompletableFuture<String> feedbackFuture = aiProviderService.generateDetailedFeedbackAsync(
+                text, 
+                "Grammar and Writing", 
+                calculateGrammarScore(text, correctedText),
+                AIProviderService.AIProvider.AUTO
+        );
         
         // Step 3: Parse errors into structured format
-        List<GrammarCheckResponse.GrammarError> errors = parseGrammarErrors(errorExplanations, text, correctedText);
+        List<GrammarCheckResponse.GrammarError> errors = parseGrammarErrors(explanationsFuture.join(), text, correctedText);
         
         // Step 4: Generate suggestions
         List<String> suggestions = generateSuggestions(errors);
         
-        // Step 5: Generate overall feedback
-        String overallFeedback = aiProviderService.generateDetailedFeedback(
-                text, 
-                "Grammar and Writing", 
-                calculateGrammarScore(text, correctedText),
-                AIProviderService.AIProvider.AUTO
-        );
+        // Step 5: Overall feedback
+        String overallFeedback = feedbackFuture.join();
         
         // Step 6: Save to database
         try {
@@ -17,6 +17,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -45,16 +46,19 @@ public class PronunciationService {
         BigDecimal pronunciationScore = calculatePronunciationScore(transcript, expectedText);
         BigDecimal overallScore = calculateOverallScore(accuracyScore, fluencyScore, pronunciationScore);
         
-        // Step 3: Get AI feedback using Gemini
-        List<String> suggestions = aiProviderService.generatePronunciationSuggestions(
+        // Step 3: Get AI feedback using Gemini - suggestions and feedback are independent, run both at once
+        CompletableFuture<List<String>> suggestionsFuture = aiProviderService.generatePronunciationSuggestionsAsync(
                 transcript, expectedText, AIProviderService.AIProvider.AUTO);
-        String generalFeedback = aiProviderService.generatePronunciationFeedback(
+        CompletableFuture<String> feedbackFuture = aiProviderService.generatePronunciationFeedbackAsync(
                 transcript, expectedText, overallScore, AIProviderService.AIProvider.AUTO);
         
-        // Step 4: Analyze word-level feedback
+        // Step 4: Analyze word-level feedback (while Gemini is working)
         List<PronunciationAssessmentResponse.WordFeedback> wordFeedback = 
                 analyzeWordLevelPronunciation(transcript, expectedText);
         
+        List<String> suggestions = suggestionsFuture.join();
+        String generalFeedback = feedbackFuture.join();
+        
         // Step 5: Save assessment to database
         PronunciationAssessment assessment = PronunciationAssessment.builder()
                 .userId(userId)
@@ -3,6 +3,8 @@ package com.wolftalk.microservices.ai.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wolftalk.microservices.ai.dto.ReadingPassageResponse;
+import com.wolftalk.microservices.ai.entity.PooledContent;
+import com.wolftalk.microservices.ai.governor.AIGovernor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -10,6 +12,7 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -19,15 +22,63 @@ import java.util.regex.Pattern;
 public class ReadingService {
 
     private final AIProviderService aiProviderService;
+    private final ContentPoolService contentPoolService;
     private final ObjectMapper objectMapper;
 
-    public ReadingPassageResponse generatePassage(String topic, String level, String length, String provider) {
+    /**
+     * Served from the pre-generated pool when the learner has unseen passages left; otherwise generated now
+     * and added to the pool for other learners
+     */
+    public ReadingPassageResponse generatePassage(String topic, String level, String length, String provider,
+                                                  String learner) {
         log.info("Generating reading passage: topic={}, level={}, length={}", topic, level, length);
 
-        String prompt = buildPassagePrompt(topic, level, length);
-        String aiResponse = aiProviderService.getResponse(prompt, provider);
+        ContentPoolService.PoolKey key = ContentPoolService.PoolKey.of(
+                PooledContent.Kind.READING_PASSAGE, topic, level, length);
+        Optional<ReadingPassageResponse> pooled = contentPoolService.take(key, learner, ReadingPassageResponse.class);
+        if (pooled.isPresent()) {
+            return pooled.get();
+        }
 
-        return parsePassageResponse(aiResponse, topic, level);
+        return generateForPool(topic, level, length, AIGovernor.Priority.STANDARD)
+                .map(passage -> {
+                    contentPoolService.add(key, passage, learner);
+                    return passage;
+                })
+                .orElseGet(() -> createFallbackResponse(topic, level));
+    }
+
+    /**
+     * Generate and validate a new passage (uncached); empty if Gemini failed or the output is unusable
+     */
+    public Optional<ReadingPassageResponse> generateForPool(String topic, String level, String length,
+                                                            AIGovernor.Priority priority) {
+        Optional<String> aiResponse = aiProviderService.generateContent(
+                buildPassagePrompt(topic, level, length), priority);
+        if (aiResponse.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            ReadingPassageResponse passage = parsePassage(aiResponse.get(), topic, level);
+            if (passage.getPassage().isBlank() || passage.getQuestions().isEmpty()) {
+                log.warn("Discarding reading passage without text or questions");
+                return Optional.empty();
+            }
+            return Optional.of(passage);
+        } catch (Exception e) {
+            log.warn("Discarding unparseable reading passage: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Open the passage generation stream; the caller parses the full text with parsePassageResponse when
+     * it completes
+     */
+    public GeminiService.PendingStream openPassageStream(String topic, String level, String length,
+                                                         String provider) {
+        log.info("Streaming reading passage: topic={}, level={}, length={}", topic, level, length);
+        return aiProviderService.openStream(buildPassagePrompt(topic, level, length), provider);
     }
 
     private String buildPassagePrompt(String topic, String level, String length) {
@@ -76,61 +127,64 @@ public class ReadingService {
                 """, level, topicPart, wordCount);
     }
 
-    private ReadingPassageResponse parsePassageResponse(String aiResponse, String topic, String level) {
+    public ReadingPassageResponse parsePassageResponse(String aiResponse, String topic, String level) {
         try {
-            log.info("Parsing AI response for reading passage");
-            
-            // Extract JSON from response
-            String jsonString = extractJsonFromResponse(aiResponse);
-            
-            // Parse JSON
-            JsonNode rootNode = objectMapper.readTree(jsonString);
-            
-            String passage = rootNode.has("passage") ? rootNode.get("passage").asText() : "";
-            
-            List<ReadingPassageResponse.Question> questions = new ArrayList<>();
-            if (rootNode.has("questions") && rootNode.get("questions").isArray()) {
-                for (JsonNode qNode : rootNode.get("questions")) {
-                    ReadingPassageResponse.Question question = ReadingPassageResponse.Question.builder()
-                            .type(qNode.has("type") ? qNode.get("type").asText() : "open_ended")
-                            .question(qNode.has("question") ? qNode.get("question").asText() : "")
-                            .options(parseStringList(qNode.get("options")))
-                            .correctAnswer(qNode.has("correctAnswer") ? qNode.get("correctAnswer").asText() : "")
-                            .explanation(qNode.has("explanation") ? qNode.get("explanation").asText() : "")
-                            .build();
-                    questions.add(question);
-                }
-            }
-            
-            List<ReadingPassageResponse.VocabularyItem> vocabulary = new ArrayList<>();
-            if (rootNode.has("vocabulary") && rootNode.get("vocabulary").isArray()) {
-                for (JsonNode vNode : rootNode.get("vocabulary")) {
-                    ReadingPassageResponse.VocabularyItem item = ReadingPassageResponse.VocabularyItem.builder()
-                            .word(vNode.has("word") ? vNode.get("word").asText() : "")
-                            .definition(vNode.has("definition") ? vNode.get("definition").asText() : "")
-                            .example(vNode.has("example") ? vNode.get("example").asText() : "")
-                            .build();
-                    vocabulary.add(item);
-                }
-            }
-            
-            log.info("Successfully parsed reading passage with {} questions and {} vocabulary items", 
-                    questions.size(), vocabulary.size());
-            
-            return ReadingPassageResponse.builder()
-                    .passage(passage)
-                    .questions(questions)
-                    .vocabulary(vocabulary)
-                    .topic(topic)
-                    .level(level)
-                    .build();
-                    
+            return parsePassage(aiResponse, topic, level);
         } catch (Exception e) {
             log.error("Failed to parse AI response for reading passage: {}", e.getMessage());
             log.debug("AI Response snippet: {}", aiResponse.substring(0, Math.min(200, aiResponse.length())));
             return createFallbackResponse(topic, level);
         }
     }
+
+    private ReadingPassageResponse parsePassage(String aiResponse, String topic, String level) throws Exception {
+        log.info("Parsing AI response for reading passage");
+        
+        // Extract JSON from response
+        String jsonString = extractJsonFromResponse(aiResponse);
+        
+        // Parse JSON
+        JsonNode rootNode = objectMapper.readTree(jsonString);
+        
+        String passage = rootNode.has("passage") ? rootNode.get("passage").asText() : "";
+        
+        List<ReadingPassageResponse.Question> questions = new ArrayList<>();
+        if (rootNode.has("questions") && rootNode.get("questions").isArray()) {
+            for (JsonNode qNode : rootNode.get("questions")) {
+                ReadingPassageResponse.Question question = ReadingPassageResponse.Question.builder()
+                        .type(qNode.has("type") ? qNode.get("type").asText() : "open_ended")
+                        .question(qNode.has("question") ? qNode.get("question").asText() : "")
+                        .options(parseStringList(qNode.get("options")))
+                        .correctAnswer(qNode.has("correctAnswer") ? qNode.get("correctAnswer").asText() : "")
+                        .explanation(qNode.has("explanation") ? qNode.get("explanation").asText() : "")
+                        .build();
+                questions.add(question);
+            }
+        }
+        
+        List<ReadingPassageResponse.VocabularyItem> vocabulary = new ArrayList<>();
+        if (rootNode.has("vocabulary") && rootNode.get("vocabulary").isArray()) {
+            for (JsonNode vNode : rootNode.get("vocabulary")) {
+                ReadingPassageResponse.VocabularyItem item = ReadingPassageResponse.VocabularyItem.builder()
+                        .word(vNode.has("word") ? vNode.get("word").asText() : "")
+                        .definition(vNode.has("definition") ? vNode.get("definition").asText() : "")
+                        .example(vNode.has("example") ? vNode.get("example").asText() : "")
+                        .build();
+                vocabulary.add(item);
+            }
+        }
+        
+        log.info("Successfully parsed reading passage with {} questions and {} vocabulary items", 
+                questions.size(), vocabulary.size());
+        
+        return ReadingPassageResponse.builder()
+                .passage(passage)
+                .questions(questions)
+                .vocabulary(vocabulary)
+                .topic(topic)
+                .level(level)
+                .build();
+    }
     
     private String extractJsonFromResponse(String response) {
         // Try to extract JSON from markdown code blocks
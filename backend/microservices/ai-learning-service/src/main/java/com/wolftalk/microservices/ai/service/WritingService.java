@@ -3,6 +3,8 @@ package com.wolftalk.microservices.ai.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wolftalk.microservices.ai.dto.WritingAnalysisResponse;
+import com.wolftalk.microservices.ai.entity.PooledContent;
+import com.wolftalk.microservices.ai.governor.AIGovernor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -16,7 +18,12 @@ import java.util.regex.Pattern;
 @RequiredArgsConstructor
 public class WritingService {
 
+    private static final int MAX_PROMPT_LENGTH = 2000;
+    private static final String FALLBACK_PROMPT = "Write about an experience that taught you something new. " +
+            "Describe what happened, how you felt, and what you learned from it (150-300 words).";
+
     private final AIProviderService aiProviderService;
+    private final ContentPoolService contentPoolService;
     private final ObjectMapper objectMapper;
 
     public WritingAnalysisResponse analyzeWriting(String text, String type, String topic, String provider) {
@@ -28,11 +35,35 @@ public class WritingService {
         return parseAnalysisResponse(text, aiResponse);
     }
 
-    public String generatePrompt(String type, String topic, String level, String provider) {
+    /**
+     * Served from the pre-generated pool when the learner has unseen prompts left; otherwise generated now
+     * and added to the pool for other learners
+     */
+    public String generatePrompt(String type, String topic, String level, String provider, String learner) {
         log.info("Generating {} prompt for topic: {}, level: {}", type, topic, level);
 
-        String prompt = buildPromptGenerationRequest(type, topic, level);
-        return aiProviderService.getResponse(prompt, provider);
+        ContentPoolService.PoolKey key = ContentPoolService.PoolKey.of(
+                PooledContent.Kind.WRITING_PROMPT, topic, level, type);
+        Optional<String> pooled = contentPoolService.take(key, learner, String.class);
+        if (pooled.isPresent()) {
+            return pooled.get();
+        }
+
+        return generateForPool(type, topic, level, AIGovernor.Priority.STANDARD)
+                .map(prompt -> {
+                    contentPoolService.add(key, prompt, learner);
+                    return prompt;
+                })
+                .orElse(FALLBACK_PROMPT);
+    }
+
+    /**
+     * Generate a new writing prompt (uncached); empty if Gemini failed or the text is empty / runaway
+     */
+    public Optional<String> generateForPool(String type, String topic, String level, AIGovernor.Priority priority) {
+        return aiProviderService.generateContent(buildPromptGenerationRequest(type, topic, level), priority)
+                .map(String::trim)
+                .filter(prompt -> !prompt.isEmpty() && prompt.length() <= MAX_PROMPT_LENGTH);
     }
 
     private String buildAnalysisPrompt(String text, String type, String topic) {
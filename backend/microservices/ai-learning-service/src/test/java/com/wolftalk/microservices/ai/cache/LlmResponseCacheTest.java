@@ -0,0 +1,148 @@
+package com.wolftalk.microservices.ai.cache;
+
+import com.wolftalk.microservices.ai.cache.LlmResponseCache.UseCase;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LlmResponseCacheTest {
+
+    private static final int CALLERS = 8;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LlmResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // Redis is down for every test: the cache has to work on the local tier alone
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenThrow(new RedisConnectionFailureException("connection refused"));
+        meterRegistry = new SimpleMeterRegistry();
+        MockEnvironment environment = new MockEnvironment().withProperty("llm.cache.ttl-seconds.generic", "0");
+        cache = new LlmResponseCache(connectionFactory, meterRegistry, environment,
+                "gemini-2.5-flash", 0.7, 1000, 3600, 300, 100, 256);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoaderCall() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> cache.get(UseCase.VOCABULARY, "travel words", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "passport, luggage";
+                })));
+            }
+            // Hold the loader until every other caller is waiting on it
+            waitForCoalesced(CALLERS - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("passport, luggage");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.get(UseCase.VOCABULARY, "travel words", () -> "reloaded")).isEqualTo("passport, luggage");
+    }
+
+    @Test
+    void aFailedLoadReachesEveryWaiterAndIsNotCached() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> cache.get(UseCase.VOCABULARY, "travel words", () -> {
+                    await(release);
+                    throw new IllegalStateException("Gemini API error: 503");
+                })));
+            }
+            waitForCoalesced(CALLERS - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IllegalStateException.class);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(cache.get(UseCase.VOCABULARY, "travel words", () -> "passport")).isEqualTo("passport");
+    }
+
+    @Test
+    void promptsAreNormalizedPerUseCase() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(UseCase.VOCABULARY, "  Travel   words\n", () -> "v" + loads.incrementAndGet());
+        assertThat(cache.get(UseCase.VOCABULARY, "travel words", () -> "v" + loads.incrementAndGet())).isEqualTo("v1");
+
+        // Grammar correction echoes the input, so case matters
+        cache.get(UseCase.GRAMMAR_CORRECTION, "i has a cat", () -> "g" + loads.incrementAndGet());
+        assertThat(cache.get(UseCase.GRAMMAR_CORRECTION, "I has a cat", () -> "g" + loads.incrementAndGet()))
+                .isEqualTo("g3");
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    void zeroTtlDisablesCachingForTheUseCase() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(UseCase.GENERIC, "write a story", () -> "s" + loads.incrementAndGet());
+        assertThat(cache.get(UseCase.GENERIC, "write a story", () -> "s" + loads.incrementAndGet())).isEqualTo("s2");
+        assertThat(cache.getIfPresent(UseCase.GENERIC, "write a story")).isNull();
+    }
+
+    @Test
+    void compressedValuesRoundTrip() {
+        String passage = "The quick brown fox jumps over the lazy dog. ".repeat(100);
+
+        cache.put(UseCase.DETAILED_FEEDBACK, "essay", passage);
+
+        assertThat(cache.getIfPresent(UseCase.DETAILED_FEEDBACK, "essay")).isEqualTo(passage);
+    }
+
+    private void waitForCoalesced(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalesced() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(coalesced()).isEqualTo((double) expected);
+    }
+
+    private double coalesced() {
+        Counter counter = meterRegistry.find("llm.cache.requests").tag("result", "coalesced").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
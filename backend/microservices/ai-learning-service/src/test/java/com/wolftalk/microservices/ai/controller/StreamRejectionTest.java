@@ -0,0 +1,86 @@
+package com.wolftalk.microservices.ai.controller;
+
+import com.wolftalk.microservices.ai.governor.AIGovernor.RejectedException;
+import com.wolftalk.microservices.ai.governor.AIRejectionHandler;
+import com.wolftalk.microservices.ai.service.AIProviderService;
+import com.wolftalk.microservices.ai.service.GrammarService;
+import com.wolftalk.microservices.ai.service.PronunciationService;
+import com.wolftalk.microservices.ai.service.ReadingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A Gemini call shed while a streaming endpoint opens its call must be answered like any other shed call
+ * (429 + Retry-After from AIRejectionHandler), not with an "error" event on a 200 event stream
+ */
+class StreamRejectionTest {
+
+    private AIProviderService aiProviderService;
+    private ReadingService readingService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        aiProviderService = mock(AIProviderService.class);
+        readingService = mock(ReadingService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                        new AILearningController(mock(PronunciationService.class), mock(GrammarService.class),
+                                aiProviderService),
+                        new ReadingController(readingService))
+                .setControllerAdvice(new AIRejectionHandler())
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("amy@wolftalk.test", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void aShedConversationStreamIsAnsweredWith429() throws Exception {
+        when(aiProviderService.openConversationStream(anyString(), anyString(), anyString(), any()))
+                .thenThrow(new RejectedException("queue_timeout", 2));
+
+        mockMvc.perform(post("/api/v1/ai/conversation/generate/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"message\":\"Hello\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.reason").value("queue_timeout"));
+
+        // No second Gemini call is started for a response that will never be sent
+        verify(aiProviderService, never()).generateConversationSuggestionsAsync(any(), any(), any());
+    }
+
+    @Test
+    void aShedReadingStreamIsAnsweredWith429() throws Exception {
+        when(readingService.openPassageStream(any(), anyString(), anyString(), anyString()))
+                .thenThrow(new RejectedException("overloaded", 1));
+
+        mockMvc.perform(post("/api/v1/ai/reading/generate/stream").param("topic", "space"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.reason").value("overloaded"));
+    }
+}
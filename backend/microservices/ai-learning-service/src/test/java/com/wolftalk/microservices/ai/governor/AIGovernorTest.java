@@ -0,0 +1,95 @@
+package com.wolftalk.microservices.ai.governor;
+
+import com.wolftalk.microservices.ai.governor.AIGovernor.Priority;
+import com.wolftalk.microservices.ai.governor.AIGovernor.RejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AIGovernorTest {
+
+    private static final double SLOW = 0.001;
+
+    @Test
+    void aCallerOverItsRateIsShedWithRetryAfter() {
+        // One token per second for the learner
+        AIGovernor governor = governor(60, 100, 60, 1, 4, 0, 0);
+
+        governor.admit("amy", 1, Priority.STANDARD);
+
+        assertThatThrownBy(() -> governor.admit("amy", 1, Priority.STANDARD))
+                .isInstanceOfSatisfying(RejectedException.class, e -> {
+                    assertThat(e.getReason()).isEqualTo("user_rate");
+                    assertThat(e.getRetryAfterSeconds()).isEqualTo(1L);
+                });
+        // Other learners have their own bucket
+        governor.admit("bob", 1, Priority.STANDARD);
+    }
+
+    @Test
+    void aGlobalRejectionDoesNotCostTheCallerTokens() {
+        AIGovernor governor = governor(SLOW, 2, SLOW, 2, 4, 0, 0);
+        governor.admit("amy", 2, Priority.STANDARD);
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> governor.admit("bob", 2, Priority.STANDARD))
+                    .isInstanceOfSatisfying(RejectedException.class,
+                            e -> assertThat(e.getReason()).isEqualTo("global_rate"));
+        }
+
+        assertThat(userBucket(governor, "bob").available()).isEqualTo(2.0);
+    }
+
+    @Test
+    void aCallWaitsForASlotUntilItsQueueTimeout() {
+        AIGovernor governor = governor(6000, 100, 6000, 100, 1, 0, 50);
+        AIGovernor.Permit running = governor.acquire(Priority.INTERACTIVE);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> governor.acquire(Priority.INTERACTIVE))
+                .isInstanceOfSatisfying(RejectedException.class,
+                        e -> assertThat(e.getReason()).isEqualTo("queue_timeout"));
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(40_000_000L);
+
+        running.close();
+        running.close();
+        governor.acquire(Priority.INTERACTIVE).close();
+    }
+
+    @Test
+    void standardCallsLeaveTheReservedSlotsToInteractiveOnes() {
+        AIGovernor governor = governor(6000, 100, 6000, 100, 2, 1, 0);
+
+        AIGovernor.Permit standard = governor.acquire(Priority.STANDARD);
+        assertThatThrownBy(() -> governor.acquire(Priority.STANDARD)).isInstanceOf(RejectedException.class);
+        AIGovernor.Permit interactive = governor.acquire(Priority.INTERACTIVE);
+
+        standard.close();
+        interactive.close();
+    }
+
+    @Test
+    void rethrowIfRejectedFindsTheRejectionBehindACompletionException() {
+        RejectedException rejected = new RejectedException("queue_timeout", 1);
+
+        assertThatThrownBy(() -> AIGovernor.rethrowIfRejected(new CompletionException(rejected))).isSameAs(rejected);
+        AIGovernor.rethrowIfRejected(new IllegalStateException("Gemini API error: 503"));
+    }
+
+    private static AIGovernor governor(double globalRate, double globalBurst, double userRate, double userBurst,
+                                       int maxConcurrent, int reservedInteractive, long queueTimeoutMs) {
+        return new AIGovernor(new SimpleMeterRegistry(), globalRate, globalBurst, 0, userRate, userBurst,
+                maxConcurrent, reservedInteractive, 1, 64, queueTimeoutMs, queueTimeoutMs, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TokenBucket userBucket(AIGovernor governor, String caller) {
+        return ((Map<String, TokenBucket>) ReflectionTestUtils.getField(governor, "userBuckets")).get(caller);
+    }
+}
@@ -0,0 +1,54 @@
+package com.wolftalk.microservices.ai.governor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void startsFullAndReportsTheWaitOnceEmpty() {
+        // One token per second
+        TokenBucket bucket = new TokenBucket(3, 60);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryConsume(1, 0)).isZero();
+        }
+        long wait = bucket.tryConsume(1, 0);
+        assertThat(wait).isGreaterThan(0L).isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void leavesTheReserveInTheBucket() {
+        TokenBucket bucket = new TokenBucket(10, 0.001);
+
+        assertThat(bucket.tryConsume(1, 9.5)).isGreaterThan(0L);
+        assertThat(bucket.tryConsume(1, 9)).isZero();
+        assertThat(bucket.tryConsume(1, 9)).isGreaterThan(0L);
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        // One token per millisecond
+        TokenBucket bucket = new TokenBucket(1, 60_000);
+        assertThat(bucket.tryConsume(1, 0)).isZero();
+
+        Thread.sleep(5);
+
+        assertThat(bucket.tryConsume(1, 0)).isZero();
+    }
+
+    @Test
+    void refundNeverExceedsCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 0.001);
+        bucket.tryConsume(2, 0);
+
+        bucket.refund(1);
+        assertThat(bucket.tryConsume(1, 0)).isZero();
+
+        bucket.refund(5);
+        assertThat(bucket.available()).isEqualTo(2.0);
+    }
+}
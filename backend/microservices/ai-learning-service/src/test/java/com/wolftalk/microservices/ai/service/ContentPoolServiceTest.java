@@ -0,0 +1,121 @@
+package com.wolftalk.microservices.ai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wolftalk.microservices.ai.entity.PooledContent;
+import com.wolftalk.microservices.ai.repository.ContentDeliveryRepository;
+import com.wolftalk.microservices.ai.repository.PooledContentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ContentPoolServiceTest {
+
+    private static final String LEARNER = "learner@wolftalk.test";
+    private static final ContentPoolService.PoolKey TRAVEL =
+            ContentPoolService.PoolKey.of(PooledContent.Kind.WRITING_PROMPT, "Travel", "beginner", "essay");
+
+    private PooledContentRepository pooledContentRepository;
+    private ContentDeliveryRepository contentDeliveryRepository;
+    private ContentPoolService service;
+
+    @BeforeEach
+    void setUp() {
+        pooledContentRepository = mock(PooledContentRepository.class);
+        contentDeliveryRepository = mock(ContentDeliveryRepository.class);
+        when(pooledContentRepository.findPoolSizes()).thenReturn(List.of());
+        when(pooledContentRepository.findUnseen(any(), anyString(), anyString(), anyString(), anyString(), any()))
+                .thenReturn(List.of());
+
+        service = new ContentPoolService(pooledContentRepository, contentDeliveryRepository, new ObjectMapper(),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "targetSize", 20);
+        ReflectionTestUtils.setField(service, "maxSize", 50);
+        ReflectionTestUtils.setField(service, "activeHours", 24L);
+        ReflectionTestUtils.setField(service, "minRequests", 3);
+        ReflectionTestUtils.setField(service, "maxTrackedPools", 500);
+        ReflectionTestUtils.setField(service, "warmLevels", List.of());
+    }
+
+    @Test
+    void takeMovesOnWhenAConcurrentRequestDeliveredTheItemFirst() {
+        when(pooledContentRepository.findUnseen(any(), anyString(), anyString(), anyString(), anyString(), any()))
+                .thenReturn(List.of(item(1L, "\"Describe your last trip\"")),
+                        List.of(item(2L, "\"Plan a weekend away\"")));
+        when(contentDeliveryRepository.insertIfAbsent(eq(LEARNER), eq(1L))).thenReturn(0);
+        when(contentDeliveryRepository.insertIfAbsent(eq(LEARNER), eq(2L))).thenReturn(1);
+
+        assertThat(service.take(TRAVEL, LEARNER, String.class)).contains("Plan a weekend away");
+    }
+
+    @Test
+    void takeIsAMissWhenTheLearnerHasSeenThePool() {
+        assertThat(service.take(TRAVEL, LEARNER, String.class)).isEmpty();
+        verify(contentDeliveryRepository, never()).insertIfAbsent(anyString(), any());
+    }
+
+    @Test
+    void addingContentThatIsAlreadyPooledIsADuplicate() {
+        when(pooledContentRepository.insertIfAbsent(anyString(), anyString(), anyString(), anyString(), anyString(),
+                anyString())).thenReturn(1, 0);
+        when(pooledContentRepository.findIdByContentHash(anyString())).thenReturn(7L);
+        when(pooledContentRepository.countPool(any(), anyString(), anyString(), anyString())).thenReturn(1L);
+
+        assertThat(service.add(TRAVEL, "Describe your last trip", LEARNER)).isTrue();
+        // A concurrent request generated the same prompt
+        assertThat(service.add(TRAVEL, "Describe your last trip", "other@wolftalk.test")).isFalse();
+
+        verify(contentDeliveryRepository, times(1)).insertIfAbsent(eq(LEARNER), eq(7L));
+        verify(contentDeliveryRepository, never()).insertIfAbsent(eq("other@wolftalk.test"), any());
+    }
+
+    @Test
+    void aPoolIsRefilledOnlyAfterRepeatedRequests() {
+        service.take(TRAVEL, LEARNER, String.class);
+        service.take(TRAVEL, LEARNER, String.class);
+        assertThat(service.nextKeyToRefill()).isEmpty();
+
+        service.take(TRAVEL, LEARNER, String.class);
+        assertThat(service.nextKeyToRefill()).contains(TRAVEL);
+    }
+
+    @Test
+    void oneOffTopicsCannotPushOutPoolsInDemand() {
+        ReflectionTestUtils.setField(service, "maxTrackedPools", 3);
+        for (int i = 0; i < 3; i++) {
+            service.take(TRAVEL, LEARNER, String.class);
+        }
+        for (int i = 0; i < 100; i++) {
+            service.take(ContentPoolService.PoolKey.of(PooledContent.Kind.WRITING_PROMPT, "topic " + i, "beginner",
+                    "essay"), LEARNER, String.class);
+        }
+
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(service, "demand")).hasSize(3).containsKey(TRAVEL);
+        assertThat(service.nextKeyToRefill()).contains(TRAVEL);
+    }
+
+    private static PooledContent item(Long id, String json) {
+        return PooledContent.builder()
+                .id(id)
+                .kind(TRAVEL.kind())
+                .topic(TRAVEL.topic())
+                .level(TRAVEL.level())
+                .variant(TRAVEL.variant())
+                .content(json)
+                .build();
+    }
+}
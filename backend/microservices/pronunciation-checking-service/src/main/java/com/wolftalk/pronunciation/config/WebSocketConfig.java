@@ -0,0 +1,36 @@
+package com.wolftalk.pronunciation.config;
+
+import com.wolftalk.pronunciation.websocket.PronunciationStreamHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final PronunciationStreamHandler pronunciationStreamHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(pronunciationStreamHandler, "/ws/v1/pronunciation/stream")
+                .setAllowedOrigins("http://localhost:5173", "http://localhost:3000");
+    }
+
+    /**
+     * Audio chunks are small (~100-250 ms of 16 kHz PCM), 64 KB per message is plenty
+     */
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(64 * 1024);
+        container.setMaxTextMessageBufferSize(8 * 1024);
+        container.setMaxSessionIdleTimeout(60_000L);
+        return container;
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -38,10 +39,23 @@ public class PronunciationAnalysisService {
         
         log.info("Checking pronunciation for user: {}, expected text: {}", userId, expectedText);
         
-        // Step 1: Transcribe audio using Vosk
-        byte[] audioData = audioFile.getBytes();
-        VoskSpeechRecognitionService.TranscriptionResult result = 
-                voskService.transcribeAudio(audioData);
+        // Step 1: Transcribe audio using Vosk (streamed from the upload, not buffered)
+        VoskSpeechRecognitionService.TranscriptionResult result;
+        try (InputStream audioStream = audioFile.getInputStream()) {
+            result = voskService.transcribeAudio(audioStream);
+        }
+        
+        return scoreTranscription(userId, userEmail, result, expectedText);
+    }
+    
+    /**
+     * Score a finished transcription (used by both the upload and the streaming endpoint)
+     */
+    public PronunciationCheckResponse scoreTranscription(
+            Long userId,
+            String userEmail,
+            VoskSpeechRecognitionService.TranscriptionResult result,
+            String expectedText) {
         
         String transcript = result.getTranscript();
         List<VoskWord> voskWords = result.getWords();
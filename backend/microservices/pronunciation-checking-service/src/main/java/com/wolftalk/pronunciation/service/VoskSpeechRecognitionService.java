@@ -9,7 +9,9 @@ import org.vosk.Model;
 import org.vosk.Recognizer;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +23,8 @@ public class VoskSpeechRecognitionService {
     private Model model;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private static final String MODEL_PATH = "models/vosk-model-small-en-us-0.15";
+    private static final int SAMPLE_RATE = 16000;
+    private static final int CHUNK_SIZE = 4096;
 
     @PostConstruct
     public void init() {
@@ -42,16 +46,113 @@ public class VoskSpeechRecognitionService {
     }
 
     public TranscriptionResult transcribeAudio(byte[] audioData) throws IOException {
+        return transcribeAudio(new ByteArrayInputStream(audioData));
+    }
+
+    /**
+     * Transcribe audio by feeding the recognizer chunk by chunk while it is read
+     * (no need to buffer the whole upload before decoding starts)
+     */
+    public TranscriptionResult transcribeAudio(InputStream audioStream) throws IOException {
+        try (StreamingRecognition recognition = startStreaming()) {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int read;
+            while ((read = audioStream.read(buffer)) > 0) {
+                recognition.acceptChunk(buffer, read);
+            }
+            return recognition.finish();
+        }
+    }
+
+    /**
+     * Open a streaming recognition session (16 kHz, 16-bit mono PCM)
+     * Caller must close it when done
+     */
+    public StreamingRecognition startStreaming() throws IOException {
         if (model == null) {
             throw new IOException("Vosk model is not loaded");
         }
+        Recognizer recognizer = new Recognizer(model, SAMPLE_RATE);
+        recognizer.setWords(true);
+        return new StreamingRecognition(recognizer);
+    }
 
-        try (Recognizer recognizer = new Recognizer(model, 16000)) {
-            recognizer.setWords(true);
-            recognizer.acceptWaveForm(audioData, audioData.length);
-            String rankResult = recognizer.getFinalResult();
-            
-            return parseResult(rankResult);
+    /**
+     * One streaming recognition: audio is decoded as chunks arrive,
+     * so only the last chunk is left to decode when the learner stops speaking
+     */
+    public class StreamingRecognition implements AutoCloseable {
+
+        private final Recognizer recognizer;
+        private final StringBuilder transcript = new StringBuilder();
+        private final List<VoskWord> words = new ArrayList<>();
+        private long bytesReceived;
+
+        private StreamingRecognition(Recognizer recognizer) {
+            this.recognizer = recognizer;
+        }
+
+        /**
+         * Feed one chunk of PCM audio
+         * @return finished segment (with word confidences) when Vosk detects a pause, otherwise the partial text
+         */
+        public synchronized ChunkResult acceptChunk(byte[] data, int length) throws IOException {
+            bytesReceived += length;
+            if (recognizer.acceptWaveForm(data, length)) {
+                TranscriptionResult segment = parseResult(recognizer.getResult());
+                append(segment);
+                return new ChunkResult(true, segment.getTranscript(), segment.getWords());
+            }
+            return new ChunkResult(false, parsePartial(recognizer.getPartialResult()), List.of());
+        }
+
+        /**
+         * Decode the remaining audio and return the full transcript of the session
+         */
+        public synchronized TranscriptionResult finish() throws IOException {
+            append(parseResult(recognizer.getFinalResult()));
+            return new TranscriptionResult(transcript.toString(), new ArrayList<>(words));
+        }
+
+        public synchronized long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        private void append(TranscriptionResult segment) {
+            String text = segment.getTranscript();
+            if (text != null && !text.isBlank()) {
+                if (transcript.length() > 0) {
+                    transcript.append(' ');
+                }
+                transcript.append(text.trim());
+            }
+            words.addAll(segment.getWords());
+        }
+
+        @Override
+        public synchronized void close() {
+            recognizer.close();
+        }
+    }
+
+    /**
+     * Result of feeding one chunk: either a finished segment or the current partial text
+     */
+    @Data
+    public static class ChunkResult {
+        private final boolean segmentFinal;
+        private final String text;
+        private final List<VoskWord> words;
+    }
+
+    private String parsePartial(String jsonResult) {
+        try {
+            Map result = objectMapper.readValue(jsonResult, Map.class);
+            Object partial = result.get("partial");
+            return partial != null ? partial.toString() : "";
+        } catch (Exception e) {
+            log.error("Error parsing Vosk partial result", e);
+            return "";
         }
     }
 
@@ -0,0 +1,153 @@
+package com.wolftalk.pronunciation.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wolftalk.pronunciation.dto.PronunciationCheckResponse;
+import com.wolftalk.pronunciation.service.PronunciationAnalysisService;
+import com.wolftalk.pronunciation.service.VoskSpeechRecognitionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming pronunciation check over WebSocket
+ *
+ * Protocol (ws://host:8086/ws/v1/pronunciation/stream?expectedText=...&token=JWT):
+ * - Client sends binary messages of 16 kHz, 16-bit little-endian mono PCM as it records
+ * - Server answers each chunk with {"type":"partial","text":...} or, when Vosk detects a pause,
+ *   {"type":"segment","text":...,"words":[{word,conf,start,end}]}
+ * - Client sends the text message "end" when the learner stops speaking; server decodes the
+ *   remaining audio, scores it and replies {"type":"final","result":PronunciationCheckResponse}
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PronunciationStreamHandler extends AbstractWebSocketHandler {
+
+    private static final String RECOGNITION_ATTR = "recognition";
+    private static final String EXPECTED_TEXT_ATTR = "expectedText";
+    private static final int BYTES_PER_SECOND = 16000 * 2;
+
+    private final VoskSpeechRecognitionService voskService;
+    private final PronunciationAnalysisService pronunciationService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${pronunciation.stream.max-seconds:60}")
+    private int maxSeconds;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String expectedText = session.getUri() != null
+                ? UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("expectedText")
+                : null;
+        if (!StringUtils.hasText(expectedText)) {
+            session.close(CloseStatus.BAD_DATA.withReason("expectedText is required"));
+            return;
+        }
+
+        session.getAttributes().put(EXPECTED_TEXT_ATTR,
+                URLDecoder.decode(expectedText, StandardCharsets.UTF_8));
+        session.getAttributes().put(RECOGNITION_ATTR, voskService.startStreaming());
+        send(session, Map.of("type", "ready"));
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        VoskSpeechRecognitionService.StreamingRecognition recognition = recognition(session);
+        if (recognition == null) {
+            return;
+        }
+
+        ByteBuffer payload = message.getPayload();
+        byte[] chunk = new byte[payload.remaining()];
+        payload.get(chunk);
+
+        if (recognition.getBytesReceived() + chunk.length > (long) maxSeconds * BYTES_PER_SECOND) {
+            // Too long for a single sentence - score what we have
+            finish(session, recognition);
+            return;
+        }
+
+        VoskSpeechRecognitionService.ChunkResult result = recognition.acceptChunk(chunk, chunk.length);
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put("type", result.isSegmentFinal() ? "segment" : "partial");
+        update.put("text", result.getText());
+        if (result.isSegmentFinal()) {
+            update.put("words", result.getWords());
+        }
+        send(session, update);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        String command = message.getPayload().trim();
+        if ("end".equalsIgnoreCase(command) || command.contains("\"end\"")) {
+            VoskSpeechRecognitionService.StreamingRecognition recognition = recognition(session);
+            if (recognition != null) {
+                finish(session, recognition);
+            }
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.warn("Pronunciation stream {} transport error: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Object recognition = session.getAttributes().remove(RECOGNITION_ATTR);
+        if (recognition instanceof VoskSpeechRecognitionService.StreamingRecognition streaming) {
+            streaming.close();
+        }
+    }
+
+    private void finish(WebSocketSession session,
+                        VoskSpeechRecognitionService.StreamingRecognition recognition) throws IOException {
+        session.getAttributes().remove(RECOGNITION_ATTR);
+        try (recognition) {
+            String expectedText = (String) session.getAttributes().get(EXPECTED_TEXT_ATTR);
+            String userEmail = session.getPrincipal() != null ? session.getPrincipal().getName() : null;
+
+            // Only the tail after the last chunk is decoded here
+            VoskSpeechRecognitionService.TranscriptionResult transcription = recognition.finish();
+            // In production, extract userId from JWT token (same as PronunciationController)
+            PronunciationCheckResponse response = pronunciationService.scoreTranscription(
+                    1L, userEmail, transcription, expectedText);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("type", "final");
+            result.put("result", response);
+            send(session, result);
+            session.close(CloseStatus.NORMAL);
+        } catch (Exception e) {
+            log.error("Error finishing pronunciation stream", e);
+            send(session, Map.of("type", "error", "message", "Failed to score pronunciation"));
+            session.close(CloseStatus.SERVER_ERROR);
+        }
+    }
+
+    private VoskSpeechRecognitionService.StreamingRecognition recognition(WebSocketSession session) {
+        return (VoskSpeechRecognitionService.StreamingRecognition) session.getAttributes().get(RECOGNITION_ATTR);
+    }
+
+    private void send(WebSocketSession session, Map<String, ?> payload) throws IOException {
+        if (session.isOpen()) {
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(payload)));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.wolftalk.pronunciation.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wolftalk.pronunciation.dto.PronunciationCheckResponse;
+import com.wolftalk.pronunciation.dto.VoskWord;
+import com.wolftalk.pronunciation.service.PronunciationAnalysisService;
+import com.wolftalk.pronunciation.service.VoskSpeechRecognitionService;
+import com.wolftalk.pronunciation.service.VoskSpeechRecognitionService.ChunkResult;
+import com.wolftalk.pronunciation.service.VoskSpeechRecognitionService.StreamingRecognition;
+import com.wolftalk.pronunciation.service.VoskSpeechRecognitionService.TranscriptionResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PronunciationStreamHandlerTest {
+
+    private static final String EXPECTED_TEXT = "hello world";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final List<String> sent = new ArrayList<>();
+
+    private StreamingRecognition recognition;
+    private PronunciationAnalysisService pronunciationService;
+    private WebSocketSession session;
+    private PronunciationStreamHandler handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Stands in for the Vosk recognizer: one partial result, then a segment at the pause
+        recognition = mock(StreamingRecognition.class);
+        when(recognition.acceptChunk(any(), anyInt())).thenReturn(
+                new ChunkResult(false, "hello", List.of()),
+                new ChunkResult(true, EXPECTED_TEXT, List.of(word("hello"), word("world"))));
+        when(recognition.finish()).thenReturn(
+                new TranscriptionResult(EXPECTED_TEXT, List.of(word("hello"), word("world"))));
+        VoskSpeechRecognitionService voskService = mock(VoskSpeechRecognitionService.class);
+        when(voskService.startStreaming()).thenReturn(recognition);
+
+        pronunciationService = mock(PronunciationAnalysisService.class);
+        when(pronunciationService.scoreTranscription(any(), any(), any(), any())).thenReturn(
+                PronunciationCheckResponse.builder().transcript(EXPECTED_TEXT).overallScore(92.0).build());
+
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("stream-1");
+        when(session.getUri()).thenReturn(
+                URI.create("ws://localhost:8086/ws/v1/pronunciation/stream?expectedText=hello%20world"));
+        when(session.getAttributes()).thenReturn(attributes);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            sent.add(((TextMessage) invocation.getArgument(0)).getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+
+        handler = new PronunciationStreamHandler(voskService, pronunciationService, objectMapper);
+        ReflectionTestUtils.setField(handler, "maxSeconds", 60);
+        handler.afterConnectionEstablished(session);
+    }
+
+    @Test
+    void chunksThenEndStreamPartialsAndOneFinalResult() throws Exception {
+        handler.handleBinaryMessage(session, chunk());
+        handler.handleBinaryMessage(session, chunk());
+        handler.handleTextMessage(session, new TextMessage("end"));
+        // A repeated "end" after the result is ignored
+        handler.handleTextMessage(session, new TextMessage("end"));
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        assertThat(types()).containsExactly("ready", "partial", "segment", "final");
+        verify(pronunciationService).scoreTranscription(eq(1L), isNull(), any(), eq(EXPECTED_TEXT));
+        verify(session).close(CloseStatus.NORMAL);
+        verify(recognition, times(1)).close();
+    }
+
+    @Test
+    void anEarlyCloseReleasesTheRecognizerWithoutScoring() throws Exception {
+        handler.handleBinaryMessage(session, chunk());
+        handler.afterConnectionClosed(session, CloseStatus.GOING_AWAY);
+
+        assertThat(types()).containsExactly("ready", "partial");
+        verify(pronunciationService, never()).scoreTranscription(any(), any(), any(), any());
+        verify(recognition, times(1)).close();
+    }
+
+    @Test
+    void aScoringFailureAnswersWithAnErrorAndReleasesTheRecognizer() throws Exception {
+        when(pronunciationService.scoreTranscription(any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        handler.handleBinaryMessage(session, chunk());
+        handler.handleTextMessage(session, new TextMessage("end"));
+        handler.afterConnectionClosed(session, CloseStatus.SERVER_ERROR);
+
+        assertThat(types()).containsExactly("ready", "partial", "error");
+        verify(session).close(CloseStatus.SERVER_ERROR);
+        verify(recognition, times(1)).close();
+    }
+
+    @Test
+    void aDecodingErrorClosesTheRecognizerWhenTheConnectionDrops() throws Exception {
+        when(recognition.acceptChunk(any(), anyInt())).thenThrow(new IOException("decoder failed"));
+
+        assertThatThrownBy(() -> handler.handleBinaryMessage(session, chunk())).isInstanceOf(IOException.class);
+        // Spring closes the session after a handler exception
+        handler.afterConnectionClosed(session, CloseStatus.SERVER_ERROR);
+
+        verify(pronunciationService, never()).scoreTranscription(any(), any(), any(), any());
+        verify(recognition, times(1)).close();
+    }
+
+    private List<String> types() throws IOException {
+        List<String> types = new ArrayList<>();
+        for (String message : sent) {
+            types.add(objectMapper.readTree(message).get("type").asText());
+        }
+        return types;
+    }
+
+    private static BinaryMessage chunk() {
+        // 100 ms of 16 kHz 16-bit mono silence
+        return new BinaryMessage(new byte[3200]);
+    }
+
+    private static VoskWord word(String text) {
+        VoskWord word = new VoskWord();
+        word.setWord(text);
+        word.setConf(0.95);
+        return word;
+    }
+}
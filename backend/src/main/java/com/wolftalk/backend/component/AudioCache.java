@@ -0,0 +1,274 @@
+package com.wolftalk.backend.component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache audio TTS theo nội dung (content-addressed)
+ *
+ * - Key = SHA-256 của (synthesizer, text, lang, voice, rate) nên cùng một câu chỉ gọi TTS provider một lần,
+ *   và audio của synthesizer giả không bao giờ trùng key với audio thật
+ * - Tầng 1: LRU trong heap, giới hạn theo tổng số byte (memory-max-bytes)
+ * - Tầng 2: file "<key>.mp3" trên đĩa, giữ qua các lần restart; file lớn được serve bằng sendfile.
+ *   Audio không persistent (synthesizer giả) chỉ nằm trong heap
+ * - Nhiều request cùng key đồng thời chỉ synthesize một lần (single-flight)
+ */
+@Component
+@Slf4j
+public class AudioCache {
+
+    @Value("${audio.cache.dir:./data/audio-cache}")
+    private String cacheDir;
+
+    @Value("${audio.cache.memory-max-bytes:33554432}")
+    private long memoryMaxBytes;
+
+    private Path directory;
+
+    // LinkedHashMap access-order = LRU; chỉ truy cập trong synchronized (memory)
+    private final LinkedHashMap<String, Clip> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    private final Map<String, CompletableFuture<Clip>> inFlight = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong synthesizedBytes = new AtomicLong();
+
+    /**
+     * Audio đã cache: bytes trong heap (có thể null nếu chỉ nằm trên đĩa) và file trên đĩa (có thể null nếu ghi đĩa lỗi)
+     */
+    public record Clip(String key, long size, byte[] bytes, Path file) {
+
+        public String etag() {
+            return "\"" + key + "\"";
+        }
+
+        public byte[] readBytes() {
+            if (bytes != null) {
+                return bytes;
+            }
+            try {
+                return Files.readAllBytes(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Hàm synthesize audio khi cache miss
+     */
+    @FunctionalInterface
+    public interface Synthesizer {
+        byte[] synthesize() throws IOException;
+    }
+
+    @PostConstruct
+    void init() {
+        directory = Paths.get(cacheDir).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            log.warn("AudioCache: cannot create {}, disk tier disabled: {}", directory, e.getMessage());
+            directory = null;
+        }
+    }
+
+    /**
+     * Key content-addressed của một yêu cầu TTS
+     *
+     * @param synthesizerId synthesizer sinh ra audio (vd "google", "fake")
+     */
+    public static String keyOf(String synthesizerId, String text, String languageCode, String voiceName,
+                               double speakingRate) {
+        String source = String.join("\u0000", "v2", synthesizerId, text, languageCode,
+                voiceName != null ? voiceName : "", Double.toString(speakingRate));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Lấy audio theo key: heap -> đĩa -> synthesizer (chỉ một thread synthesize cho mỗi key)
+     */
+    public Clip getOrCreate(String key, Synthesizer synthesizer) throws IOException {
+        return getOrCreate(key, synthesizer, true);
+    }
+
+    /**
+     * Như getOrCreate(key, synthesizer); persistent = false thì audio mới chỉ giữ trong heap, không ghi đĩa
+     */
+    public Clip getOrCreate(String key, Synthesizer synthesizer, boolean persistent) throws IOException {
+        Clip cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<Clip> created = new CompletableFuture<>();
+        CompletableFuture<Clip> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            // Kiểm tra lại sau khi giành được quyền synthesize (thread trước có thể vừa ghi xong)
+            Clip clip = lookup(key);
+            if (clip == null) {
+                misses.incrementAndGet();
+                byte[] audio = synthesizer.synthesize();
+                synthesizedBytes.addAndGet(audio.length);
+                clip = store(key, audio, persistent);
+            }
+            created.complete(clip);
+            return clip;
+        } catch (IOException | RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * Audio đã có trong cache (không synthesize), null nếu chưa có
+     */
+    public Clip lookup(String key) {
+        Clip remembered;
+        synchronized (memory) {
+            remembered = memory.get(key);
+        }
+        if (remembered != null) {
+            memoryHits.incrementAndGet();
+            return remembered;
+        }
+        Path file = fileOf(key);
+        if (file != null && Files.exists(file)) {
+            try {
+                long size = Files.size(file);
+                diskHits.incrementAndGet();
+                // Promote lên heap nếu đủ nhỏ
+                byte[] promoted = size <= memoryMaxBytes / 64 ? Files.readAllBytes(file) : null;
+                Clip clip = new Clip(key, size, promoted, file);
+                if (promoted != null) {
+                    remember(clip);
+                }
+                return clip;
+            } catch (IOException e) {
+                log.warn("AudioCache: cannot read {}: {}", file, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Key đã có trong cache chưa (không tính hit, không promote lên heap)
+     */
+    public boolean contains(String key) {
+        synchronized (memory) {
+            if (memory.containsKey(key)) {
+                return true;
+            }
+        }
+        Path file = fileOf(key);
+        return file != null && Files.exists(file);
+    }
+
+    private Clip store(String key, byte[] audio, boolean persistent) {
+        Path file = persistent ? fileOf(key) : null;
+        if (file != null) {
+            try {
+                // Ghi file tạm rồi rename atomic để request khác không đọc phải file ghi dở
+                Path tmp = Files.createTempFile(directory, key, ".tmp");
+                Files.write(tmp, audio);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("AudioCache: cannot write {}: {}", file, e.getMessage());
+                file = null;
+            }
+        }
+        Clip clip = new Clip(key, audio.length, audio, file);
+        remember(clip);
+        return clip;
+    }
+
+    private void remember(Clip clip) {
+        if (clip.size() > memoryMaxBytes) {
+            return;
+        }
+        synchronized (memory) {
+            Clip previous = memory.put(clip.key(), clip);
+            memoryBytes += clip.size() - (previous != null ? previous.size() : 0);
+            var iterator = memory.entrySet().iterator();
+            while (memoryBytes > memoryMaxBytes && iterator.hasNext()) {
+                memoryBytes -= iterator.next().getValue().size();
+                iterator.remove();
+            }
+        }
+    }
+
+    private Path fileOf(String key) {
+        return directory != null ? directory.resolve(key + ".mp3") : null;
+    }
+
+    private static Clip await(CompletableFuture<Clip> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Metrics của cache (hit theo tầng, dung lượng heap)
+     */
+    public Map<String, Object> getStats() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (memory) {
+            stats.put("memoryEntries", memory.size());
+            stats.put("memoryBytes", memoryBytes);
+        }
+        stats.put("memoryMaxBytes", memoryMaxBytes);
+        stats.put("diskDirectory", directory != null ? directory.toString() : null);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", total > 0 ? (double) hits / total : 0.0);
+        stats.put("synthesizedBytes", synthesizedBytes.get());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+}
@@ -0,0 +1,248 @@
+package com.wolftalk.backend.component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.entity.Challenge;
+import com.wolftalk.backend.repository.ChallengeRepository;
+import com.wolftalk.backend.repository.LessonConversationRepository;
+import com.wolftalk.backend.repository.LessonVocabularyRepository;
+import com.wolftalk.backend.repository.ListeningChallengeRepository;
+import com.wolftalk.backend.service.AudioGenerationService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Job sinh trước audio TTS cho nội dung cố định (vocabulary, conversation, listening challenge)
+ *
+ * - Gom text từ các bảng nội dung, bỏ trùng, rồi synthesize vào AudioCache với
+ *   số luồng giới hạn (parallelism) và giới hạn tốc độ gọi provider (rate-per-second)
+ * - Dùng đúng key mà frontend gọi (/api/audio/generate?lang=en-US, không chọn voice)
+ * - Resumable: audio đã có trong cache (trên đĩa) được bỏ qua, nên chạy lại sau khi dừng / restart
+ *   chỉ sinh phần còn thiếu
+ * - Chạy khi admin gọi start(), hoặc tự chạy lúc khởi động nếu audio.pregeneration.on-startup=true
+ * - Không chạy khi audio.tts.fake=true (audio im lặng không được ghi vào cache trên đĩa)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AudioPregenerationJob {
+
+    private static final String LANGUAGE_CODE = "en-US";
+
+    private final AudioGenerationService audioGenerationService;
+    private final LessonVocabularyRepository vocabRepository;
+    private final LessonConversationRepository conversationRepository;
+    private final ListeningChallengeRepository listeningChallengeRepository;
+    private final ChallengeRepository challengeRepository;
+
+    @Value("${audio.pregeneration.on-startup:false}")
+    private boolean runOnStartup;
+
+    @Value("${audio.pregeneration.parallelism:4}")
+    private int parallelism;
+
+    @Value("${audio.pregeneration.rate-per-second:10}")
+    private int ratePerSecond;
+
+    public enum State { IDLE, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private volatile State state = State.IDLE;
+    private volatile boolean cancelRequested;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String lastError;
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger generated = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    // Rate limit: mỗi lần gọi provider chiếm một slot cách nhau 1/rate giây
+    private final Object rateLock = new Object();
+    private long nextSlotNanos;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!runOnStartup) {
+            return;
+        }
+        if (audioGenerationService.isFake()) {
+            log.info("Audio pre-generation skipped: fake TTS is enabled");
+            return;
+        }
+        start();
+    }
+
+    /**
+     * Bắt đầu job trên thread nền; trả về false nếu job đang chạy
+     */
+    public synchronized boolean start() {
+        if (state == State.RUNNING) {
+            return false;
+        }
+        cancelRequested = false;
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        finishedAt = null;
+        lastError = null;
+        total.set(0);
+        generated.set(0);
+        skipped.set(0);
+        failed.set(0);
+
+        Thread worker = new Thread(this::run, "audio-pregeneration");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    /**
+     * Yêu cầu dừng job (các text đang synthesize dở vẫn được ghi xong)
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancel();
+    }
+
+    private void run() {
+        ExecutorService executor = null;
+        try {
+            if (!audioGenerationService.isAvailable()) {
+                throw new IllegalStateException("TTS is not enabled");
+            }
+            if (audioGenerationService.isFake()) {
+                // Audio giả chỉ nằm trong heap - sinh trước không có ích
+                throw new IllegalStateException("Fake TTS is enabled, nothing to pre-generate");
+            }
+
+            List<String> texts = collectTexts();
+            total.set(texts.size());
+            log.info("Audio pre-generation started: {} distinct texts, parallelism {}, {} req/s",
+                    texts.size(), parallelism, ratePerSecond);
+
+            executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+                Thread thread = new Thread(runnable, "audio-pregeneration-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (String text : texts) {
+                executor.execute(() -> generate(text));
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.info("Audio pre-generation progress: {}", getStats());
+            }
+
+            state = cancelRequested ? State.CANCELLED : State.COMPLETED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = State.CANCELLED;
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            state = State.FAILED;
+            log.error("Audio pre-generation failed", e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            finishedAt = Instant.now();
+            log.info("Audio pre-generation finished: {}", getStats());
+        }
+    }
+
+    private void generate(String text) {
+        if (cancelRequested) {
+            return;
+        }
+        try {
+            if (audioGenerationService.isCached(text, LANGUAGE_CODE, null)) {
+                skipped.incrementAndGet();
+                return;
+            }
+            acquirePermit();
+            audioGenerationService.getAudio(text, LANGUAGE_CODE, null);
+            generated.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Text lỗi sẽ được thử lại ở lần chạy sau (chưa có trong cache)
+            failed.incrementAndGet();
+            lastError = e.getMessage();
+            log.warn("Audio pre-generation failed for '{}': {}", text, e.getMessage());
+        }
+    }
+
+    /**
+     * Text cần đọc, bỏ trùng và sắp xếp để thứ tự chạy ổn định giữa các lần
+     */
+    private List<String> collectTexts() {
+        TreeSet<String> texts = new TreeSet<>();
+        addAll(texts, vocabRepository.findDistinctWords());
+        addAll(texts, vocabRepository.findDistinctExamples());
+        addAll(texts, conversationRepository.findDistinctTextEn());
+        addAll(texts, listeningChallengeRepository.findDistinctActiveEnglishTexts());
+        addAll(texts, challengeRepository.findDistinctContentByType(Challenge.ChallengeType.LISTENING));
+        return List.copyOf(texts);
+    }
+
+    private static void addAll(TreeSet<String> texts, List<String> values) {
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                texts.add(value); // giữ nguyên text để key trùng với request của frontend
+            }
+        }
+    }
+
+    private void acquirePermit() throws InterruptedException {
+        if (ratePerSecond <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (rateLock) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlotNanos);
+            nextSlotNanos = slot + TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Tiến độ job
+     */
+    public Map<String, Object> getStats() {
+        int done = generated.get() + skipped.get() + failed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state);
+        stats.put("total", total.get());
+        stats.put("generated", generated.get());
+        stats.put("skipped", skipped.get());
+        stats.put("failed", failed.get());
+        stats.put("progress", total.get() > 0 ? (double) done / total.get() : 0.0);
+        stats.put("startedAt", startedAt);
+        stats.put("finishedAt", finishedAt);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+}
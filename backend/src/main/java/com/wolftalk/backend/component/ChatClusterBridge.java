@@ -0,0 +1,83 @@
+package com.wolftalk.backend.component;
+
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fan-out /topic/** giữa các node khi chat.broker.mode=cluster
+ *
+ * - Gắn vào brokerChannel: tin nhắn server gửi (SimpMessagingTemplate) tới /topic/** được
+ *   publish lên ChatClusterBus, đồng thời vẫn đi tới simple broker của node này
+ * - Tin nhắn nhận từ node khác được đưa vào brokerChannel local với header clusterOrigin
+ *   để không bị publish lại (tránh vòng lặp)
+ */
+@Component
+@ConditionalOnProperty(name = "chat.broker.mode", havingValue = "cluster")
+@Slf4j
+public class ChatClusterBridge implements ChannelInterceptor {
+
+    private static final String ORIGIN_HEADER = "clusterOrigin";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ChatClusterBus bus;
+    private final MessageChannel brokerChannel;
+
+    public ChatClusterBridge(ChatClusterBus bus, @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel) {
+        this.bus = bus;
+        this.brokerChannel = brokerChannel;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        bus.subscribe(nodeId, this::deliver);
+        log.info("Chat cluster bridge started on node {}", nodeId);
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        bus.unsubscribe(nodeId);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (accessor.getMessageType() == SimpMessageType.MESSAGE
+                && destination != null && destination.startsWith("/topic/")
+                && accessor.getHeader(ORIGIN_HEADER) == null
+                && message.getPayload() instanceof byte[] payload) {
+            MimeType contentType = accessor.getContentType();
+            bus.publish(new ChatClusterBus.ClusterMessage(nodeId, destination,
+                    contentType != null ? contentType.toString() : null, payload));
+        }
+        return message;
+    }
+
+    private void deliver(ChatClusterBus.ClusterMessage clusterMessage) {
+        if (nodeId.equals(clusterMessage.originNode())) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(clusterMessage.destination());
+        if (clusterMessage.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(clusterMessage.contentType()));
+        }
+        accessor.setHeader(ORIGIN_HEADER, clusterMessage.originNode());
+        brokerChannel.send(MessageBuilder.createMessage(clusterMessage.payload(), accessor.getMessageHeaders()));
+    }
+}
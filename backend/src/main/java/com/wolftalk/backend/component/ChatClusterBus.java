@@ -0,0 +1,22 @@
+package com.wolftalk.backend.component;
+
+import java.util.function.Consumer;
+
+/**
+ * Kênh pub/sub dùng chung giữa các node backend khi chat.broker.mode=cluster
+ * ChatClusterBridge publish tin nhắn /topic/** của node này và nhận tin nhắn của các node khác
+ */
+public interface ChatClusterBus {
+
+    /**
+     * Tin nhắn đã convert sẵn (payload là JSON bytes) kèm node gửi để tránh vòng lặp
+     */
+    record ClusterMessage(String originNode, String destination, String contentType, byte[] payload) {
+    }
+
+    void publish(ClusterMessage message);
+
+    void subscribe(String nodeId, Consumer<ClusterMessage> listener);
+
+    void unsubscribe(String nodeId);
+}
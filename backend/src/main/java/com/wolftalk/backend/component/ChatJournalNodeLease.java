@@ -0,0 +1,127 @@
+package com.wolftalk.backend.component;
+
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cấp node id (0-15) duy nhất cho id tin nhắn của ChatWriteBehindJournal khi không cấu hình
+ * chat.write-behind.node-id
+ *
+ * - Mỗi instance giữ một dòng trong chat_journal_node_lease và gia hạn định kỳ (heartbeat)
+ * - Chỉ nhận được node id chưa ai giữ hoặc lease đã hết hạn (ttl-seconds không heartbeat) -
+ *   hai instance đang chạy không bao giờ cùng node id, nên ON CONFLICT (id) không nuốt tin nhắn
+ * - Mất lease (database không truy cập được lâu hơn ttl và instance khác đã lấy) thì lấy node id khác
+ * - Hết 16 slot thì không cho khởi động
+ */
+@Component
+@Slf4j
+public class ChatJournalNodeLease {
+
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS chat_journal_node_lease (" +
+            "node_id INT PRIMARY KEY, owner VARCHAR(64) NOT NULL, heartbeat_at TIMESTAMP NOT NULL)";
+
+    // Chỉ ghi đè khi lease cũ đã hết hạn; trả về 0 dòng nếu node id đang có người giữ
+    private static final String CLAIM_SQL = "INSERT INTO chat_journal_node_lease (node_id, owner, heartbeat_at) " +
+            "VALUES (?, ?, NOW()) ON CONFLICT (node_id) DO UPDATE " +
+            "SET owner = EXCLUDED.owner, heartbeat_at = EXCLUDED.heartbeat_at " +
+            "WHERE chat_journal_node_lease.heartbeat_at < NOW() - (? * INTERVAL '1 second')";
+
+    private static final String HEARTBEAT_SQL = "UPDATE chat_journal_node_lease SET heartbeat_at = NOW() " +
+            "WHERE node_id = ? AND owner = ?";
+
+    private static final String RELEASE_SQL = "DELETE FROM chat_journal_node_lease WHERE node_id = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String owner = UUID.randomUUID().toString();
+
+    @Value("${chat.write-behind.node-lease.ttl-seconds:60}")
+    private int ttlSeconds;
+
+    private volatile int nodeId = -1;
+    private int nodeCount;
+
+    public ChatJournalNodeLease(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Lấy một node id trong [0, nodeCount); ném IllegalStateException nếu mọi node id đều đang có người giữ
+     */
+    public synchronized int acquire(int nodeCount) {
+        if (nodeId >= 0) {
+            return nodeId;
+        }
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        this.nodeCount = nodeCount;
+        int claimed = claim();
+        if (claimed < 0) {
+            throw new IllegalStateException("Chat journal: all " + nodeCount + " node ids are leased by running "
+                    + "instances; set chat.write-behind.node-id explicitly or wait for stale leases to expire");
+        }
+        nodeId = claimed;
+        return claimed;
+    }
+
+    private int claim() {
+        for (int candidate = 0; candidate < nodeCount; candidate++) {
+            if (jdbcTemplate.update(CLAIM_SQL, candidate, owner, ttlSeconds) == 1) {
+                log.info("Chat journal: leased node id {} (owner {})", candidate, owner);
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Node id đang giữ (-1 nếu chưa acquire)
+     */
+    public int nodeId() {
+        return nodeId;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.write-behind.node-lease.heartbeat-ms:15000}")
+    public void heartbeat() {
+        int current = nodeId;
+        if (current < 0) {
+            return;
+        }
+        try {
+            if (jdbcTemplate.update(HEARTBEAT_SQL, current, owner) == 0) {
+                // Lease đã hết hạn và bị instance khác lấy - đổi sang node id khác
+                log.error("Chat journal: lost lease on node id {}, acquiring a new one", current);
+                synchronized (this) {
+                    int claimed = claim();
+                    if (claimed >= 0) {
+                        nodeId = claimed;
+                    } else {
+                        log.error("Chat journal: no free node id, keeping {} until a lease expires", current);
+                    }
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Chat journal: node lease heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Trả node id khi shutdown để instance khác dùng lại ngay
+     */
+    public void release() {
+        int current = nodeId;
+        if (current < 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(RELEASE_SQL, current, owner);
+        } catch (DataAccessException e) {
+            log.warn("Chat journal: cannot release node id {}: {}", current, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,560 @@
+package com.wolftalk.backend.component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wolftalk.backend.dto.MessageDTO;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Journal write-behind cho tin nhắn chat
+ *
+ * - append(): cấp id tăng theo thời gian trong bộ nhớ, ghi một dòng JSON vào segment journal
+ *   trên đĩa rồi đưa vào hàng đợi - ChatService broadcast ngay, không chờ database
+ * - flush(): một writer duy nhất ghi batch INSERT ... ON CONFLICT (id) DO NOTHING và một
+ *   UPDATE conversations cho mỗi cuộc trò chuyện (tin nhắn mới nhất trong batch), cùng với
+ *   conversation_inbox qua ConversationInboxStore - luôn trong transaction riêng (REQUIRES_NEW),
+ *   kể cả khi flush() được gọi từ trong transaction của caller
+ * - Segment chỉ bị xóa sau khi batch chứa nó đã commit; khi khởi động, các segment còn sót
+ *   được replay (idempotent nhờ id cố định + ON CONFLICT) => at-least-once
+ * - Batch lỗi được ghi lại từng tin nhắn: tin nhắn vẫn lỗi sau max-attempts lần flush được ghi vào
+ *   dead-letter.jsonl (cùng thư mục journal) và bỏ khỏi hàng đợi, không chặn các tin nhắn khác.
+ *   Database không truy cập được thì giữ nguyên hàng đợi, không tính là lần thử
+ * - Hàng đợi đầy (capacity) thì ChatService ghi trực tiếp (backpressure)
+ * - Node id trong id tin nhắn: chat.write-behind.node-id nếu có, không thì lease một node id
+ *   duy nhất qua ChatJournalNodeLease
+ *
+ * Mặc định journal chỉ flush xuống OS (an toàn khi process crash); bật fsync=true để an toàn
+ * cả khi mất điện, đổi lại mỗi tin nhắn tốn một lần fsync.
+ */
+@Component
+@Slf4j
+public class ChatWriteBehindJournal {
+
+    // Id = (ms từ 2025-01-01) << 12 | node (4 bit) << 8 | sequence (8 bit)
+    // Giữ dưới 2^53 để JavaScript đọc id không mất chính xác
+    private static final long ID_EPOCH_MILLIS = 1735689600000L;
+    private static final int NODE_BITS = 4;
+    private static final int SEQUENCE_BITS = 8;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private static final String INSERT_SQL = "INSERT INTO messages " +
+            "(id, conversation_id, sender_id, content, is_deleted, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, false, ?, ?) ON CONFLICT (id) DO NOTHING";
+
+    private static final String UPDATE_CONVERSATION_SQL = "UPDATE conversations " +
+            "SET last_message = ?, last_message_sender_id = ?, last_message_at = ?, updated_at = ? " +
+            "WHERE id = ? AND (last_message_at IS NULL OR last_message_at <= ?)";
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+    private static final String DEAD_LETTER_FILE = "dead-letter.jsonl";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ConversationInboxStore inboxStore;
+    private final ChatJournalNodeLease nodeLease;
+
+    @Value("${chat.write-behind.journal-dir:./data/chat-journal}")
+    private String journalDir;
+
+    @Value("${chat.write-behind.capacity:50000}")
+    private int capacity;
+
+    @Value("${chat.write-behind.fsync:false}")
+    private boolean fsync;
+
+    @Value("${chat.write-behind.node-id:-1}")
+    private int configuredNodeId;
+
+    @Value("${chat.write-behind.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * Một dòng journal - đủ để ghi lại tin nhắn vào database khi replay
+     */
+    public record JournalEntry(long id, long conversationId, long senderId, String content, Instant createdAt) {
+    }
+
+    private record Pending(JournalEntry entry, MessageDTO dto) {
+    }
+
+    private Path directory;
+    private final Object flushLock = new Object();
+    // Số lần flush lỗi liên tiếp của từng tin nhắn (chỉ truy cập trong flushLock)
+    private final Map<Long, Integer> failedAttempts = new HashMap<>();
+
+    // Các field dưới đây chỉ truy cập trong synchronized (this)
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private long segmentNumber;
+    private FileChannel segmentChannel;
+    private BufferedWriter segmentWriter;
+    private long lastIdMillis;
+    private long sequence;
+
+    // Metrics
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong replayedRows = new AtomicLong();
+    private final AtomicLong directWrites = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong deadLetteredRows = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+
+    public ChatWriteBehindJournal(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  ObjectMapper objectMapper,
+                                  ConversationInboxStore inboxStore,
+                                  ChatJournalNodeLease nodeLease) {
+        this.jdbcTemplate = jdbcTemplate;
+        // flush() có thể được gọi từ trong transaction của caller (vd: deleteMessage) - tin nhắn đã lấy
+        // khỏi hàng đợi và segment đã xóa không được phụ thuộc vào việc transaction đó commit
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.inboxStore = inboxStore;
+        this.nodeLease = nodeLease;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        if (configuredNodeId < 0) {
+            nodeLease.acquire(1 << NODE_BITS);
+        }
+
+        directory = Paths.get(journalDir).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+
+        List<Path> leftovers = listSegments();
+        segmentNumber = leftovers.isEmpty() ? 1 : segmentNumberOf(leftovers.get(leftovers.size() - 1)) + 1;
+        openSegment(segmentNumber);
+        if (!leftovers.isEmpty()) {
+            replay(leftovers);
+        }
+    }
+
+    private long nodeBits() {
+        int nodeId = configuredNodeId >= 0 ? configuredNodeId : nodeLease.nodeId();
+        return (long) (nodeId & ((1 << NODE_BITS) - 1)) << SEQUENCE_BITS;
+    }
+
+    /**
+     * Id tăng theo thời gian cho tin nhắn mới
+     */
+    public synchronized long nextId() {
+        long now = System.currentTimeMillis();
+        if (now < lastIdMillis) {
+            now = lastIdMillis; // đồng hồ lùi - giữ id tăng dần
+        }
+        if (now == lastIdMillis) {
+            sequence++;
+            if (sequence > MAX_SEQUENCE) {
+                // Hết sequence trong ms này - chờ sang ms tiếp theo
+                while (now <= lastIdMillis) {
+                    Thread.onSpinWait();
+                    now = System.currentTimeMillis();
+                }
+                sequence = 0;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastIdMillis = now;
+        return ((now - ID_EPOCH_MILLIS) << (NODE_BITS + SEQUENCE_BITS)) | nodeBits() | sequence;
+    }
+
+    /**
+     * Hàng đợi đầy: caller nên ghi trực tiếp thay vì append
+     */
+    public synchronized boolean isFull() {
+        return queue.size() >= capacity;
+    }
+
+    /**
+     * Ghi tin nhắn vào journal trên đĩa và hàng đợi flush
+     */
+    public synchronized void append(JournalEntry entry, MessageDTO dto) {
+        writeToSegment(List.of(entry));
+        queue.addLast(new Pending(entry, dto));
+        appended.incrementAndGet();
+    }
+
+    private void writeToSegment(List<JournalEntry> entries) {
+        try {
+            for (JournalEntry entry : entries) {
+                segmentWriter.write(objectMapper.writeValueAsString(entry));
+                segmentWriter.newLine();
+            }
+            segmentWriter.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write chat journal", e);
+        }
+        if (fsync) {
+            try {
+                segmentChannel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot fsync chat journal", e);
+            }
+        }
+    }
+
+    /**
+     * Tin nhắn của cuộc trò chuyện chưa được ghi xuống database (mới nhất trước)
+     */
+    public synchronized List<MessageDTO> pendingMessages(Long conversationId) {
+        List<MessageDTO> result = new ArrayList<>();
+        var iterator = queue.descendingIterator();
+        while (iterator.hasNext()) {
+            Pending pending = iterator.next();
+            // dto == null: tin nhắn replay từ journal lúc khởi động, chưa ghi được xuống database
+            if (pending.dto() != null && pending.entry().conversationId() == conversationId) {
+                result.add(pending.dto());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Id lớn nhất của tin nhắn cuộc trò chuyện còn trong hàng đợi (0 nếu không có)
+     */
+    public synchronized long latestPendingId(Long conversationId) {
+        long latest = 0;
+        for (Pending pending : queue) {
+            if (pending.entry().conversationId() == conversationId) {
+                latest = Math.max(latest, pending.entry().id());
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Writer duy nhất: chuyển sang segment mới, ghi batch đang chờ rồi xóa các segment cũ
+     */
+    @Scheduled(fixedDelayString = "${chat.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        synchronized (flushLock) {
+            flushBatch();
+        }
+    }
+
+    private void flushBatch() {
+        List<JournalEntry> batch;
+        long flushedSegment;
+        synchronized (this) {
+            if (queue.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(queue.size());
+            for (Pending pending : queue) {
+                batch.add(pending.entry());
+            }
+            flushedSegment = rollSegment();
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            List<JournalEntry> kept;
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                kept = List.of();
+            } catch (RuntimeException e) {
+                failedFlushes.incrementAndGet();
+                log.warn("Chat journal batch flush failed for {} messages, writing one by one: {}",
+                        batch.size(), e.getMessage());
+                kept = writeOneByOne(batch);
+            }
+            flushedRows.addAndGet(batch.size() - kept.size());
+            failedAttempts.keySet().retainAll(idsOf(kept));
+            if (kept.size() == batch.size()) {
+                // Không tin nhắn nào được ghi: giữ nguyên hàng đợi và segment, lần flush sau ghi lại
+                return;
+            }
+            synchronized (this) {
+                // Tin nhắn append trong lúc ghi vẫn ở cuối hàng đợi; tin nhắn giữ lại quay về đầu hàng đợi
+                // và được ghi lại vào segment hiện tại trước khi xóa segment cũ
+                Set<Long> keptIds = idsOf(kept);
+                List<Pending> retained = new ArrayList<>(kept.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    Pending pending = queue.pollFirst();
+                    if (keptIds.contains(pending.entry().id())) {
+                        retained.add(pending);
+                    }
+                }
+                for (int i = retained.size() - 1; i >= 0; i--) {
+                    queue.addFirst(retained.get(i));
+                }
+                writeToSegment(kept);
+            }
+            deleteSegmentsUpTo(flushedSegment);
+        } finally {
+            long elapsed = System.currentTimeMillis() - startTime;
+            lastFlushMillis = elapsed;
+            maxFlushMillis = Math.max(maxFlushMillis, elapsed);
+        }
+    }
+
+    /**
+     * Ghi từng tin nhắn trong transaction riêng sau khi batch lỗi
+     *
+     * @return các tin nhắn cần giữ lại cho lần flush sau (lỗi chưa đủ max-attempts lần hoặc database
+     *         không truy cập được); tin nhắn lỗi đủ max-attempts lần được dead-letter
+     */
+    private List<JournalEntry> writeOneByOne(List<JournalEntry> batch) {
+        List<JournalEntry> kept = new ArrayList<>();
+        boolean databaseUnavailable = false;
+        for (JournalEntry entry : batch) {
+            if (databaseUnavailable) {
+                kept.add(entry);
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(List.of(entry)));
+            } catch (RuntimeException e) {
+                if (isDatabaseUnavailable(e)) {
+                    // Lỗi không nằm ở tin nhắn: giữ lại toàn bộ phần còn lại
+                    log.error("Chat journal: database unavailable, keeping {} messages for the next flush",
+                            batch.size() - batch.indexOf(entry), e);
+                    databaseUnavailable = true;
+                    kept.add(entry);
+                    continue;
+                }
+                int attempts = failedAttempts.merge(entry.id(), 1, Integer::sum);
+                if (attempts < maxAttempts) {
+                    kept.add(entry);
+                } else {
+                    deadLetter(entry, attempts, e);
+                }
+            }
+        }
+        return kept;
+    }
+
+    private void deadLetter(JournalEntry entry, int attempts, RuntimeException cause) {
+        deadLetteredRows.incrementAndGet();
+        String line;
+        try {
+            line = objectMapper.writeValueAsString(entry);
+        } catch (IOException e) {
+            line = entry.toString();
+        }
+        log.error("Chat dead letter: dropping message {} after {} attempts: {}", entry.id(), attempts, line, cause);
+        try {
+            Files.writeString(directory.resolve(DEAD_LETTER_FILE), line + System.lineSeparator(),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Cannot write chat dead letter file: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isDatabaseUnavailable(RuntimeException e) {
+        return e instanceof CannotCreateTransactionException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransientDataAccessException;
+    }
+
+    private static Set<Long> idsOf(List<JournalEntry> entries) {
+        Set<Long> ids = new HashSet<>(entries.size() * 2);
+        for (JournalEntry entry : entries) {
+            ids.add(entry.id());
+        }
+        return ids;
+    }
+
+    /**
+     * Ghi trực tiếp một tin nhắn (khi hàng đợi đầy)
+     */
+    public void writeDirect(JournalEntry entry) {
+        transactionTemplate.executeWithoutResult(status -> write(List.of(entry)));
+        directWrites.incrementAndGet();
+    }
+
+    private void write(List<JournalEntry> batch) {
+        List<Object[]> args = new ArrayList<>(batch.size());
+        Map<Long, JournalEntry> latestByConversation = new HashMap<>();
+        for (JournalEntry entry : batch) {
+            Timestamp createdAt = Timestamp.from(entry.createdAt());
+            args.add(new Object[] {entry.id(), entry.conversationId(), entry.senderId(), entry.content(),
+                    createdAt, createdAt});
+            latestByConversation.merge(entry.conversationId(), entry,
+                    (current, candidate) -> candidate.id() > current.id() ? candidate : current);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+
+        List<Object[]> updates = new ArrayList<>(latestByConversation.size());
+        for (JournalEntry latest : latestByConversation.values()) {
+            Timestamp at = Timestamp.from(latest.createdAt());
+            updates.add(new Object[] {latest.content(), latest.senderId(), at, at, latest.conversationId(), at});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_CONVERSATION_SQL, updates);
+
+        // Hộp thư từng user cập nhật cùng transaction với tin nhắn
+        inboxStore.apply(batch);
+    }
+
+    private void replay(List<Path> segments) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        for (Path segment : segments) {
+            try (Stream<String> lines = Files.lines(segment, StandardCharsets.UTF_8)) {
+                lines.filter(line -> !line.isBlank()).forEach(line -> {
+                    try {
+                        entries.add(objectMapper.readValue(line, JournalEntry.class));
+                    } catch (IOException e) {
+                        // Dòng cuối bị ghi dở khi crash
+                        log.warn("Skipping unreadable chat journal line in {}", segment.getFileName());
+                    }
+                });
+            }
+        }
+        List<JournalEntry> kept = List.of();
+        if (!entries.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(entries));
+            } catch (RuntimeException e) {
+                log.warn("Chat journal replay batch failed for {} messages, writing one by one: {}",
+                        entries.size(), e.getMessage());
+                kept = writeOneByOne(entries);
+            }
+            replayedRows.addAndGet(entries.size() - kept.size());
+        }
+        if (!kept.isEmpty()) {
+            // Chưa ghi được: đưa vào hàng đợi và segment mới, writer thử lại như tin nhắn thường
+            synchronized (this) {
+                for (JournalEntry entry : kept) {
+                    queue.addLast(new Pending(entry, null));
+                }
+                writeToSegment(kept);
+            }
+        }
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        log.info("Chat journal replayed {} messages from {} segments ({} kept for retry)",
+                entries.size() - kept.size(), segments.size(), kept.size());
+    }
+
+    private long rollSegment() {
+        long previous = segmentNumber;
+        try {
+            segmentWriter.close();
+            segmentNumber++;
+            openSegment(segmentNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll chat journal segment", e);
+        }
+        return previous;
+    }
+
+    private void deleteSegmentsUpTo(long lastSegment) {
+        try {
+            for (Path segment : listSegments()) {
+                if (segmentNumberOf(segment) <= lastSegment) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot delete flushed chat journal segments: {}", e.getMessage());
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        segmentChannel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentWriter = new BufferedWriter(Channels.newWriter(segmentChannel, StandardCharsets.UTF_8));
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(ChatWriteBehindJournal::segmentNumberOf))
+                    .toList();
+        }
+    }
+
+    private static long segmentNumberOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing chat journal before shutdown ({} pending)", queueSize());
+        flush();
+        synchronized (this) {
+            try {
+                segmentWriter.close();
+            } catch (IOException e) {
+                log.warn("Cannot close chat journal segment: {}", e.getMessage());
+            }
+        }
+        nodeLease.release();
+    }
+
+    private synchronized int queueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Metrics của journal (queue depth, flush latency, ...)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queueSize());
+        stats.put("capacity", capacity);
+        stats.put("appended", appended.get());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("replayedRows", replayedRows.get());
+        stats.put("directWrites", directWrites.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("deadLetteredRows", deadLetteredRows.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("maxFlushMillis", maxFlushMillis);
+        stats.put("fsync", fsync);
+        return stats;
+    }
+}
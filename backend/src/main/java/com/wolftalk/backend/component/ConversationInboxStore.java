@@ -0,0 +1,221 @@
+package com.wolftalk.backend.component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.entity.Conversation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ghi bảng conversation_inbox (hộp thư materialize theo từng user)
+ *
+ * - createRows(): hai dòng khi tạo cuộc trò chuyện
+ * - apply(): gọi trong transaction flush riêng (REQUIRES_NEW) của ChatWriteBehindJournal, cùng
+ *   transaction với INSERT tin nhắn - cập nhật tin nhắn cuối và unread_count cho cả hai phía.
+ *   Chỉ áp dụng khi last_message_id < id mới nên replay journal không cộng unread hai lần; tin nhắn
+ *   có id <= last_read_message_id (đã đọc khi còn nằm trong journal) không tính là chưa đọc
+ * - markRead(): read receipt - reset unread_count và đánh dấu đã đọc tới một message id, không cần
+ *   chờ journal flush
+ * - backfill(): tạo dòng còn thiếu cho các cuộc trò chuyện có trước khi có bảng inbox. Chỉ chạy
+ *   một lần: sau khi xong ghi marker BACKFILL_VERSION vào conversation_inbox_backfill, các lần
+ *   khởi động sau không quét lại bảng conversations
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationInboxStore {
+
+    private static final String INSERT_SQL = "INSERT INTO conversation_inbox " +
+            "(user_id, conversation_id, other_user_id, last_activity_at, unread_count, is_archived, updated_at) " +
+            "VALUES (?, ?, ?, ?, 0, false, ?), (?, ?, ?, ?, 0, false, ?) " +
+            "ON CONFLICT (user_id, conversation_id) DO NOTHING";
+
+    private static final String SET_LAST_MESSAGE = "SET last_message = ?, last_message_id = ?, " +
+            "last_message_sender_id = ?, last_message_at = ?, last_activity_at = ?, updated_at = ?, ";
+
+    private static final String NEWER_THAN_CURRENT = "AND (last_message_id IS NULL OR last_message_id < ?)";
+
+    // Số id trong mảng tham số mà user chưa đọc (lớn hơn last_read_message_id của dòng inbox)
+    private static final String COUNT_UNREAD = "(SELECT COUNT(*) FROM unnest(CAST(? AS BIGINT[])) AS batch(id) " +
+            "WHERE batch.id > COALESCE(last_read_message_id, 0))";
+
+    // Người gửi đã đọc tới tin nhắn cuối cùng mình gửi trong batch
+    private static final String UPDATE_SENDER_SQL = "UPDATE conversation_inbox " + SET_LAST_MESSAGE +
+            "unread_count = " + COUNT_UNREAD + ", " +
+            "last_read_message_id = GREATEST(COALESCE(last_read_message_id, 0), ?) " +
+            "WHERE conversation_id = ? AND user_id = ? " + NEWER_THAN_CURRENT;
+
+    private static final String UPDATE_RECIPIENT_SQL = "UPDATE conversation_inbox " + SET_LAST_MESSAGE +
+            "unread_count = unread_count + " + COUNT_UNREAD + " " +
+            "WHERE conversation_id = ? AND user_id <> ? " + NEWER_THAN_CURRENT;
+
+    private static final String MARK_READ_SQL = "UPDATE conversation_inbox " +
+            "SET unread_count = 0, " +
+            "last_read_message_id = GREATEST(COALESCE(last_read_message_id, 0), COALESCE(last_message_id, 0), ?), " +
+            "updated_at = ? WHERE conversation_id = ? AND user_id = ?";
+
+    private static final String SET_ARCHIVED_SQL = "UPDATE conversation_inbox " +
+            "SET is_archived = ?, updated_at = ? WHERE conversation_id = ?";
+
+    private static final String BACKFILL_SQL = "INSERT INTO conversation_inbox " +
+            "(user_id, conversation_id, other_user_id, last_message, last_message_sender_id, last_message_at, " +
+            "last_activity_at, unread_count, is_archived, updated_at) " +
+            "SELECT c.user_id_1, c.id, c.user_id_2, c.last_message, c.last_message_sender_id, c.last_message_at, " +
+            "COALESCE(c.last_message_at, c.created_at), 0, COALESCE(c.is_archived, false), NOW() FROM conversations c " +
+            "UNION ALL " +
+            "SELECT c.user_id_2, c.id, c.user_id_1, c.last_message, c.last_message_sender_id, c.last_message_at, " +
+            "COALESCE(c.last_message_at, c.created_at), 0, COALESCE(c.is_archived, false), NOW() FROM conversations c " +
+            "ON CONFLICT (user_id, conversation_id) DO NOTHING";
+
+    // Tăng khi BACKFILL_SQL thay đổi và cần chạy lại trên dữ liệu cũ
+    private static final int BACKFILL_VERSION = 1;
+
+    private static final String CREATE_MARKER_TABLE_SQL = "CREATE TABLE IF NOT EXISTS conversation_inbox_backfill (" +
+            "version INT PRIMARY KEY, rows_inserted INT NOT NULL, completed_at TIMESTAMP NOT NULL)";
+
+    private static final String MARKER_EXISTS_SQL = "SELECT COUNT(*) FROM conversation_inbox_backfill WHERE version = ?";
+
+    private static final String INSERT_MARKER_SQL = "INSERT INTO conversation_inbox_backfill " +
+            "(version, rows_inserted, completed_at) VALUES (?, ?, NOW()) ON CONFLICT (version) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${chat.inbox.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    private final AtomicLong appliedMessages = new AtomicLong();
+    private final AtomicLong readReceipts = new AtomicLong();
+    private volatile int backfilledRows;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (backfillOnStartup) {
+            backfillOnce();
+        }
+    }
+
+    /**
+     * Backfill nếu chưa có marker của BACKFILL_VERSION; trả về số dòng đã tạo (0 nếu bỏ qua)
+     */
+    public int backfillOnce() {
+        jdbcTemplate.execute(CREATE_MARKER_TABLE_SQL);
+        Integer done = jdbcTemplate.queryForObject(MARKER_EXISTS_SQL, Integer.class, BACKFILL_VERSION);
+        if (done != null && done > 0) {
+            log.debug("Conversation inbox: backfill v{} already done, skipping", BACKFILL_VERSION);
+            return 0;
+        }
+        int rows = backfill();
+        // Hai instance khởi động cùng lúc có thể cùng backfill - an toàn nhờ ON CONFLICT
+        jdbcTemplate.update(INSERT_MARKER_SQL, BACKFILL_VERSION, rows);
+        return rows;
+    }
+
+    public int backfill() {
+        int rows = jdbcTemplate.update(BACKFILL_SQL);
+        backfilledRows = rows;
+        if (rows > 0) {
+            log.info("Conversation inbox: backfilled {} rows", rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Tạo dòng inbox cho cả hai người của cuộc trò chuyện mới
+     */
+    public void createRows(Conversation conversation) {
+        Long user1Id = conversation.getUser1().getId();
+        Long user2Id = conversation.getUser2().getId();
+        Timestamp createdAt = Timestamp.from(conversation.getCreatedAt());
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update(INSERT_SQL,
+                user1Id, conversation.getId(), user2Id, createdAt, now,
+                user2Id, conversation.getId(), user1Id, createdAt, now);
+    }
+
+    /**
+     * Cập nhật inbox cho một batch tin nhắn vừa ghi (chạy trong transaction REQUIRES_NEW của journal)
+     * Chat 1-1: người đã gửi trong batch có unread = số tin của người kia sau tin cuối mình gửi,
+     * người chưa gửi được cộng thêm toàn bộ tin nhắn của batch. Cả hai bỏ qua tin nhắn đã được
+     * markRead khi còn nằm trong journal
+     */
+    public void apply(List<ChatWriteBehindJournal.JournalEntry> batch) {
+        Map<Long, List<ChatWriteBehindJournal.JournalEntry>> byConversation = new HashMap<>();
+        for (ChatWriteBehindJournal.JournalEntry entry : batch) {
+            byConversation.computeIfAbsent(entry.conversationId(), id -> new ArrayList<>()).add(entry);
+        }
+
+        List<Object[]> senderUpdates = new ArrayList<>();
+        List<Object[]> recipientUpdates = new ArrayList<>();
+        Timestamp now = Timestamp.from(Instant.now());
+
+        for (List<ChatWriteBehindJournal.JournalEntry> entries : byConversation.values()) {
+            entries.sort(Comparator.comparingLong(ChatWriteBehindJournal.JournalEntry::id));
+            ChatWriteBehindJournal.JournalEntry latest = entries.get(entries.size() - 1);
+            Timestamp at = Timestamp.from(latest.createdAt());
+
+            // Tin nhắn cuối cùng mỗi người gửi trong batch
+            Map<Long, Long> lastSentBySender = new LinkedHashMap<>();
+            for (ChatWriteBehindJournal.JournalEntry entry : entries) {
+                lastSentBySender.put(entry.senderId(), entry.id());
+            }
+
+            for (Map.Entry<Long, Long> sender : lastSentBySender.entrySet()) {
+                Long[] unread = entries.stream()
+                        .filter(e -> e.senderId() != sender.getKey() && e.id() > sender.getValue())
+                        .map(ChatWriteBehindJournal.JournalEntry::id)
+                        .toArray(Long[]::new);
+                senderUpdates.add(new Object[] {latest.content(), latest.id(), latest.senderId(), at, at, now,
+                        unread, sender.getValue(), latest.conversationId(), sender.getKey(), latest.id()});
+            }
+            if (lastSentBySender.size() == 1) {
+                Long[] unread = entries.stream()
+                        .map(ChatWriteBehindJournal.JournalEntry::id)
+                        .toArray(Long[]::new);
+                recipientUpdates.add(new Object[] {latest.content(), latest.id(), latest.senderId(), at, at, now,
+                        unread, latest.conversationId(), latest.senderId(), latest.id()});
+            }
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_SENDER_SQL, senderUpdates);
+        if (!recipientUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_RECIPIENT_SQL, recipientUpdates);
+        }
+        appliedMessages.addAndGet(batch.size());
+    }
+
+    /**
+     * Read receipt: user đã đọc hết cuộc trò chuyện, tới tin nhắn cuối trong inbox hoặc readUpTo nếu lớn
+     * hơn (tin nhắn còn trong journal, chưa flush - readUpTo = 0 nếu không có)
+     */
+    public void markRead(Long conversationId, Long userId, long readUpTo) {
+        jdbcTemplate.update(MARK_READ_SQL, readUpTo, Timestamp.from(Instant.now()), conversationId, userId);
+        readReceipts.incrementAndGet();
+    }
+
+    public void setArchived(Long conversationId, boolean archived) {
+        jdbcTemplate.update(SET_ARCHIVED_SQL, archived, Timestamp.from(Instant.now()), conversationId);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("appliedMessages", appliedMessages.get());
+        stats.put("readReceipts", readReceipts.get());
+        stats.put("backfilledRows", backfilledRows);
+        return stats;
+    }
+}
@@ -26,6 +26,9 @@ public class DataSeeder implements CommandLineRunner {
         private final UserUnitProgressRepository unitProgressRepository;
         private final UserLessonProgressRepository lessonProgressRepository;
 
+        // Cây syllabus cache trong bộ nhớ - load lại sau khi seed
+        private final SyllabusCatalog syllabusCatalog;
+
         public DataSeeder(SyllabusLevelRepository levelRepository,
                         SyllabusUnitRepository unitRepository,
                         SyllabusLessonRepository lessonRepository,
@@ -36,7 +39,8 @@ public class DataSeeder implements CommandLineRunner {
                         CheckpointTestRepository testRepository,
                         CheckpointQuestionRepository questionRepository,
                         UserUnitProgressRepository unitProgressRepository,
-                        UserLessonProgressRepository lessonProgressRepository) {
+                        UserLessonProgressRepository lessonProgressRepository,
+                        SyllabusCatalog syllabusCatalog) {
                 this.levelRepository = levelRepository;
                 this.unitRepository = unitRepository;
                 this.lessonRepository = lessonRepository;
@@ -48,6 +52,7 @@ public class DataSeeder implements CommandLineRunner {
                 this.questionRepository = questionRepository;
                 this.unitProgressRepository = unitProgressRepository;
                 this.lessonProgressRepository = lessonProgressRepository;
+                this.syllabusCatalog = syllabusCatalog;
         }
 
         @Override
@@ -59,6 +64,7 @@ public class DataSeeder implements CommandLineRunner {
                                         "DataSeeder: Syllabus data missing. Re-seeding...");
                         cleanupSyllabusData();
                         seedSyllabusData();
+                        syllabusCatalog.reload();
                         System.out.println("DataSeeder: Seeding complete.");
                 } else {
                         System.out.println("DataSeeder: Syllabus data exists (" + vocabRepository.count()
@@ -0,0 +1,218 @@
+package com.wolftalk.backend.component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.wolftalk.backend.repository.FriendshipRepository;
+
+/**
+ * Đồ thị bạn bè trong bộ nhớ: mỗi user một Adjacency gồm các mảng long[] đã sắp xếp
+ * (accepted, pending vào/ra, blocked vào/ra)
+ *
+ * - Load lười khi được hỏi tới: hai truy vấn id theo index (requester_id / receiver_id), không load User
+ * - LRU giới hạn theo friends.graph.max-users
+ * - FriendshipService gọi invalidate() cho cả hai đầu của cạnh vừa thay đổi - ngay lập tức và sau
+ *   commit; một lần load bắt đầu trước invalidate không được ghi vào cache (so sánh epoch)
+ *
+ * Kiểm tra quan hệ là binary search trên mảng primitive (degree nhỏ nên gần như O(1)),
+ * đếm bạn bè là O(1).
+ */
+@Component
+public class FriendGraph {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final FriendshipRepository friendshipRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxUsers;
+
+    private final Map<Long, Adjacency> cache;
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public FriendGraph(FriendshipRepository friendshipRepository,
+                       ApplicationEventPublisher eventPublisher,
+                       @Value("${friends.graph.max-users:50000}") int maxUsers) {
+        this.friendshipRepository = friendshipRepository;
+        this.eventPublisher = eventPublisher;
+        this.maxUsers = maxUsers;
+        this.cache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Adjacency> eldest) {
+                return size() > FriendGraph.this.maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Quan hệ của các user này vừa thay đổi (FriendSuggestionEngine nghe để tính lại gợi ý)
+     */
+    public record ChangedEvent(List<Long> userIds) {
+    }
+
+    /**
+     * Các cạnh của một user, mỗi mảng đã sắp xếp tăng dần
+     * blockedOut: user này chặn người khác; blockedIn: người khác chặn user này
+     */
+    public record Adjacency(long[] accepted, long[] pendingIn, long[] pendingOut,
+                            long[] blockedOut, long[] blockedIn) {
+
+        public boolean isFriend(long otherId) {
+            return Arrays.binarySearch(accepted, otherId) >= 0;
+        }
+
+        public boolean hasPendingWith(long otherId) {
+            return Arrays.binarySearch(pendingIn, otherId) >= 0 || Arrays.binarySearch(pendingOut, otherId) >= 0;
+        }
+
+        public boolean hasBlocked(long otherId) {
+            return Arrays.binarySearch(blockedOut, otherId) >= 0;
+        }
+
+        public boolean isBlockedBy(long otherId) {
+            return Arrays.binarySearch(blockedIn, otherId) >= 0;
+        }
+    }
+
+    public Adjacency get(Long userId) {
+        synchronized (cache) {
+            Adjacency cached = cache.get(userId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+
+        long stamp = epoch.get();
+        Adjacency loaded = load(userId);
+        synchronized (cache) {
+            if (epoch.get() == stamp) {
+                cache.put(userId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    public boolean areFriends(Long userId1, Long userId2) {
+        return get(userId1).isFriend(userId2);
+    }
+
+    /**
+     * Id bạn bè đã sắp xếp - mảng dùng chung với cache, không được sửa
+     */
+    public long[] friendIds(Long userId) {
+        return get(userId).accepted();
+    }
+
+    public int countFriends(Long userId) {
+        return get(userId).accepted().length;
+    }
+
+    /**
+     * Bỏ cache của các user vừa thay đổi quan hệ (gọi trong transaction ghi)
+     */
+    public void invalidate(Long... userIds) {
+        evict(userIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Request đọc chạy song song có thể đã load lại dữ liệu cũ trước khi commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userIds);
+                }
+            });
+        }
+    }
+
+    private void evict(Long... userIds) {
+        synchronized (cache) {
+            epoch.incrementAndGet();
+            for (Long userId : userIds) {
+                cache.remove(userId);
+            }
+        }
+        invalidations.incrementAndGet();
+        eventPublisher.publishEvent(new ChangedEvent(List.of(userIds)));
+    }
+
+    private Adjacency load(Long userId) {
+        LongList accepted = new LongList();
+        LongList pendingIn = new LongList();
+        LongList pendingOut = new LongList();
+        LongList blockedOut = new LongList();
+        LongList blockedIn = new LongList();
+
+        for (FriendshipRepository.FriendEdge edge : friendshipRepository.findEdgesFrom(userId)) {
+            long other = edge.getReceiverId();
+            switch (edge.getStatus()) {
+                case ACCEPTED -> accepted.add(other);
+                case PENDING -> pendingOut.add(other);
+                case BLOCKED -> blockedOut.add(other);
+            }
+        }
+        for (FriendshipRepository.FriendEdge edge : friendshipRepository.findEdgesTo(userId)) {
+            long other = edge.getRequesterId();
+            switch (edge.getStatus()) {
+                case ACCEPTED -> accepted.add(other);
+                case PENDING -> pendingIn.add(other);
+                case BLOCKED -> blockedIn.add(other);
+            }
+        }
+        return new Adjacency(accepted.toSortedArray(), pendingIn.toSortedArray(), pendingOut.toSortedArray(),
+                blockedOut.toSortedArray(), blockedIn.toSortedArray());
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedUsers", size);
+        stats.put("maxUsers", maxUsers);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    /**
+     * Mảng long tự giãn để không box từng id khi load
+     */
+    private static final class LongList {
+        private long[] values = EMPTY;
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(8, size * 2));
+            }
+            values[size++] = value;
+        }
+
+        long[] toSortedArray() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            long[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.wolftalk.backend.component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.dto.FriendSuggestionDTO;
+import com.wolftalk.backend.repository.UserRepository;
+
+/**
+ * Gợi ý kết bạn theo bạn chung (friend-of-friend) trên FriendGraph
+ *
+ * - compute(): duyệt hai bước có giới hạn (tối đa max-friends-scanned bạn, mỗi bạn tối đa
+ *   max-fof-per-friend cạnh), đếm bạn chung bằng bảng băm long -> int primitive, giữ top
+ *   candidate-pool bằng min-heap; sau đó cộng điểm cùng league / cùng trình độ và lấy top-k lần nữa
+ * - Người chưa có bạn bè được bù bằng user cùng league hoạt động gần đây
+ * - Kết quả được cache cho user đã từng hỏi gợi ý; refresh() tính lại định kỳ các user bị đánh dấu
+ *   dirty (FriendGraph.ChangedEvent) hoặc quá ttl-ms, nên request thường chỉ đọc cache
+ * - Khi trả về, gợi ý đã thành bạn / đang chờ / bị chặn được lọc lại qua FriendGraph
+ */
+@Component
+public class FriendSuggestionEngine {
+
+    private static final double MUTUAL_WEIGHT = 10.0;
+    private static final double SAME_LEAGUE_BONUS = 3.0;
+    private static final double SAME_LEVEL_BONUS = 2.0;
+    private static final int MAX_CACHED_SUGGESTIONS = 50;
+
+    private final FriendGraph friendGraph;
+    private final UserRepository userRepository;
+
+    @Value("${friends.suggestions.max-friends-scanned:200}")
+    private int maxFriendsScanned;
+
+    @Value("${friends.suggestions.max-fof-per-friend:500}")
+    private int maxFofPerFriend;
+
+    @Value("${friends.suggestions.candidate-pool:200}")
+    private int candidatePool;
+
+    @Value("${friends.suggestions.ttl-ms:600000}")
+    private long ttlMs;
+
+    @Value("${friends.suggestions.active-window-ms:86400000}")
+    private long activeWindowMs;
+
+    @Value("${friends.suggestions.max-refresh-per-run:200}")
+    private int maxRefreshPerRun;
+
+    private final int maxUsers;
+    private final Map<Long, Entry> cache;
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // userId -> lần cuối hỏi gợi ý (ms); chỉ user active mới được tính trước
+    private final Map<Long, Long> activeUsers = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong computations = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+    private volatile long lastComputeMicros;
+    private volatile long maxComputeMicros;
+
+    public FriendSuggestionEngine(FriendGraph friendGraph, UserRepository userRepository,
+                                  @Value("${friends.suggestions.max-users:20000}") int maxUsers) {
+        this.friendGraph = friendGraph;
+        this.userRepository = userRepository;
+        this.maxUsers = maxUsers;
+        this.cache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > FriendSuggestionEngine.this.maxUsers;
+            }
+        };
+    }
+
+    private record Suggestion(long userId, String firstName, String lastName, String avatar,
+                              String league, String level, int mutualFriends, double score) {
+    }
+
+    private record Entry(List<Suggestion> suggestions, long computedAt) {
+    }
+
+    private record Candidate(long userId, int mutualFriends) {
+    }
+
+    public List<FriendSuggestionDTO> suggest(Long userId, int limit) {
+        long now = System.currentTimeMillis();
+        activeUsers.put(userId, now);
+
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(userId);
+        }
+        if (entry == null || dirty.contains(userId) || now - entry.computedAt() > ttlMs) {
+            entry = refresh(userId);
+        } else {
+            hits.incrementAndGet();
+        }
+
+        FriendGraph.Adjacency adjacency = friendGraph.get(userId);
+        List<FriendSuggestionDTO> result = new ArrayList<>(Math.min(limit, entry.suggestions().size()));
+        for (Suggestion suggestion : entry.suggestions()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (isExcluded(adjacency, userId, suggestion.userId())) {
+                continue;
+            }
+            result.add(new FriendSuggestionDTO(suggestion.userId(), suggestion.firstName(), suggestion.lastName(),
+                    suggestion.avatar(), suggestion.league(), suggestion.level(), suggestion.mutualFriends(),
+                    suggestion.score()));
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onFriendGraphChanged(FriendGraph.ChangedEvent event) {
+        dirty.addAll(event.userIds());
+    }
+
+    /**
+     * Tính trước cho user active bị dirty hoặc quá hạn
+     */
+    @Scheduled(fixedDelayString = "${friends.suggestions.refresh-interval-ms:60000}")
+    public void refreshActiveUsers() {
+        long now = System.currentTimeMillis();
+        activeUsers.values().removeIf(lastRequested -> now - lastRequested > activeWindowMs);
+
+        int refreshed = 0;
+        for (Long userId : activeUsers.keySet()) {
+            if (refreshed >= maxRefreshPerRun) {
+                break;
+            }
+            Entry entry;
+            synchronized (cache) {
+                entry = cache.get(userId);
+            }
+            if (entry == null || dirty.contains(userId) || now - entry.computedAt() > ttlMs) {
+                refresh(userId);
+                refreshed++;
+            }
+        }
+        backgroundRefreshes.addAndGet(refreshed);
+    }
+
+    private Entry refresh(Long userId) {
+        dirty.remove(userId);
+        Entry entry = new Entry(compute(userId), System.currentTimeMillis());
+        synchronized (cache) {
+            cache.put(userId, entry);
+        }
+        return entry;
+    }
+
+    private List<Suggestion> compute(Long userId) {
+        long startNanos = System.nanoTime();
+        FriendGraph.Adjacency adjacency = friendGraph.get(userId);
+
+        // Bước 1: đếm bạn chung qua tối đa maxFriendsScanned bạn bè
+        LongIntCounter mutualCounts = new LongIntCounter(256);
+        long[] friends = adjacency.accepted();
+        int scanned = Math.min(friends.length, maxFriendsScanned);
+        for (int i = 0; i < scanned; i++) {
+            long[] friendsOfFriend = friendGraph.friendIds(friends[i]);
+            int edges = Math.min(friendsOfFriend.length, maxFofPerFriend);
+            for (int j = 0; j < edges; j++) {
+                long candidateId = friendsOfFriend[j];
+                if (!isExcluded(adjacency, userId, candidateId)) {
+                    mutualCounts.increment(candidateId);
+                }
+            }
+        }
+
+        // Bước 2: giữ top candidatePool theo số bạn chung (min-heap)
+        PriorityQueue<Candidate> pool = new PriorityQueue<>(Comparator.comparingInt(Candidate::mutualFriends));
+        mutualCounts.forEach((candidateId, count) -> {
+            if (pool.size() < candidatePool) {
+                pool.add(new Candidate(candidateId, count));
+            } else if (count > pool.peek().mutualFriends()) {
+                pool.poll();
+                pool.add(new Candidate(candidateId, count));
+            }
+        });
+
+        Map<Long, Integer> mutualById = new LinkedHashMap<>();
+        for (Candidate candidate : pool) {
+            mutualById.put(candidate.userId(), candidate.mutualFriends());
+        }
+
+        List<UserRepository.SuggestionCandidateView> self = userRepository.findSuggestionCandidates(List.of(userId));
+        String league = self.isEmpty() ? null : self.get(0).getCurrentLeague();
+        String level = self.isEmpty() ? null : self.get(0).getCurrentLevel();
+
+        List<UserRepository.SuggestionCandidateView> views = new ArrayList<>();
+        if (!mutualById.isEmpty()) {
+            views.addAll(userRepository.findSuggestionCandidates(mutualById.keySet()));
+        }
+        // Bù bằng user cùng league khi không đủ ứng viên từ bạn chung
+        if (mutualById.size() < MAX_CACHED_SUGGESTIONS && league != null) {
+            for (UserRepository.SuggestionCandidateView view : userRepository.findActiveInLeague(
+                    league, userId, PageRequest.of(0, MAX_CACHED_SUGGESTIONS * 2))) {
+                if (!mutualById.containsKey(view.getId()) && !isExcluded(adjacency, userId, view.getId())) {
+                    views.add(view);
+                }
+            }
+        }
+
+        // Bước 3: trộn tín hiệu league / trình độ, lấy top-k theo điểm
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(Comparator.comparingDouble(Suggestion::score));
+        for (UserRepository.SuggestionCandidateView view : views) {
+            int mutual = mutualById.getOrDefault(view.getId(), 0);
+            double score = mutual * MUTUAL_WEIGHT
+                    + (league != null && league.equals(view.getCurrentLeague()) ? SAME_LEAGUE_BONUS : 0)
+                    + (level != null && level.equals(view.getCurrentLevel()) ? SAME_LEVEL_BONUS : 0);
+            Suggestion suggestion = new Suggestion(view.getId(), view.getFirstName(), view.getLastName(),
+                    view.getAvatar(), view.getCurrentLeague(), view.getCurrentLevel(), mutual, score);
+            if (top.size() < MAX_CACHED_SUGGESTIONS) {
+                top.add(suggestion);
+            } else if (score > top.peek().score()) {
+                top.poll();
+                top.add(suggestion);
+            }
+        }
+
+        List<Suggestion> ranked = new ArrayList<>(top);
+        ranked.sort(Comparator.comparingDouble(Suggestion::score).reversed()
+                .thenComparingLong(Suggestion::userId));
+
+        long elapsedMicros = (System.nanoTime() - startNanos) / 1000;
+        lastComputeMicros = elapsedMicros;
+        maxComputeMicros = Math.max(maxComputeMicros, elapsedMicros);
+        computations.incrementAndGet();
+        return ranked;
+    }
+
+    private static boolean isExcluded(FriendGraph.Adjacency adjacency, long userId, long candidateId) {
+        return candidateId == userId
+                || adjacency.isFriend(candidateId)
+                || adjacency.hasPendingWith(candidateId)
+                || adjacency.hasBlocked(candidateId)
+                || adjacency.isBlockedBy(candidateId);
+    }
+
+    public Map<String, Object> getStats() {
+        int cached;
+        synchronized (cache) {
+            cached = cache.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedUsers", cached);
+        stats.put("activeUsers", activeUsers.size());
+        stats.put("dirtyUsers", dirty.size());
+        stats.put("hits", hits.get());
+        stats.put("computations", computations.get());
+        stats.put("backgroundRefreshes", backgroundRefreshes.get());
+        stats.put("lastComputeMicros", lastComputeMicros);
+        stats.put("maxComputeMicros", maxComputeMicros);
+        return stats;
+    }
+}
@@ -0,0 +1,55 @@
+package com.wolftalk.backend.component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ChatClusterBus chỉ trong một JVM - dùng cho dev / test, KHÔNG fan-out giữa các instance backend
+ *
+ * Subscriber được giữ trong map static nên nhiều ApplicationContext (nhiều "node") chạy trong cùng
+ * một JVM nhận được tin nhắn của nhau. Hai process backend riêng biệt không thấy nhau: triển khai
+ * nhiều instance phải dùng chat.broker.mode=relay (STOMP broker ngoài) cho tới khi có một
+ * ChatClusterBus chạy trên broker thật.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.broker.mode", havingValue = "cluster")
+@Slf4j
+public class InJvmChatClusterBus implements ChatClusterBus {
+
+    private static final Map<String, Consumer<ClusterMessage>> SUBSCRIBERS = new ConcurrentHashMap<>();
+
+    public InJvmChatClusterBus() {
+        log.warn("Chat cluster bus: in-JVM only - /topic messages reach nodes of this process, not other "
+                + "backend instances; use chat.broker.mode=relay for a multi-instance deployment");
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        SUBSCRIBERS.forEach((nodeId, listener) -> {
+            if (nodeId.equals(message.originNode())) {
+                return;
+            }
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                log.warn("Cluster bus: delivery to node {} failed: {}", nodeId, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(String nodeId, Consumer<ClusterMessage> listener) {
+        SUBSCRIBERS.put(nodeId, listener);
+    }
+
+    @Override
+    public void unsubscribe(String nodeId) {
+        SUBSCRIBERS.remove(nodeId);
+    }
+}
@@ -12,7 +12,8 @@ import lombok.extern.slf4j.Slf4j;
  * Scheduled tasks cho Weekly Leaderboard
  * 
  * Tasks:
- * - resetWeeklyLeaderboard: Chạy mỗi Chủ Nhật lúc 23:59 để reset tuần mới
+ * - resetWeeklyLeaderboard: Chạy thứ Hai lúc 00:00 để archive tuần cũ (entry tuần mới tạo lazy khi có XP),
+ *   chạy lại lúc 00:10 để archive cả XP của các transaction commit sát nửa đêm
  */
 @Component
 @RequiredArgsConstructor
@@ -20,6 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 public class LeaderboardScheduler {
 
     private final LeaderboardService leaderboardService;
+    private final XpIngestionPipeline xpIngestionPipeline;
 
     /**
      * Reset weekly leaderboard mỗi Chủ Nhật lúc 23:59
@@ -32,10 +34,12 @@ public class LeaderboardScheduler {
      * - *: bất kỳ tháng nào
      * - SUN: Chủ Nhật
      */
-    @Scheduled(cron = "0 0 0 ? * MON")  // Chạy lúc 00:00 thứ Hai (sáng sớm)
+    @Scheduled(cron = "0 0,10 0 ? * MON")  // Chạy lúc 00:00 và 00:10 thứ Hai (sáng sớm)
     public void resetWeeklyLeaderboard() {
         try {
             log.info("===== Starting weekly leaderboard reset =====");
+            // XP của tuần cũ còn nằm trong pipeline phải vào database trước khi archive
+            xpIngestionPipeline.flush();
             leaderboardService.resetWeeklyLeaderboard();
             log.info("===== Weekly leaderboard reset completed successfully =====");
         } catch (Exception e) {
@@ -0,0 +1,112 @@
+package com.wolftalk.backend.component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cộng dồn thời gian học (phút) từ heartbeat trong bộ nhớ
+ *
+ * - record(): mỗi heartbeat /api/dashboard/heartbeat cộng 1 phút cho (email, ngày) - không chạm database
+ * - flush(): batch UPDATE users theo ngày; ngày cũ hơn last_learning_date thì bỏ qua,
+ *   ngày mới hơn thì reset today_learning_minutes
+ * - pendingMinutes(): phút chưa flush để dashboard hiển thị không bị trễ
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LearningTimeAccumulator {
+
+    private static final String UPDATE_SQL = "UPDATE users SET " +
+            "today_learning_minutes = CASE WHEN last_learning_date = ? " +
+            "THEN COALESCE(today_learning_minutes, 0) + ? ELSE ? END, " +
+            "last_learning_date = ? " +
+            "WHERE LOWER(email) = ? AND (last_learning_date IS NULL OR last_learning_date <= ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<MinuteKey, Integer> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong recordedMinutes = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    public void record(String email, LocalDate day) {
+        pending.merge(new MinuteKey(email.toLowerCase(Locale.ROOT), day), 1, Integer::sum);
+        recordedMinutes.incrementAndGet();
+    }
+
+    public int pendingMinutes(String email, LocalDate day) {
+        return pending.getOrDefault(new MinuteKey(email.toLowerCase(Locale.ROOT), day), 0);
+    }
+
+    @Scheduled(fixedDelayString = "${dashboard.learning-time.flush-interval-ms:60000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<MinuteKey, Integer> batch = new LinkedHashMap<>();
+        for (MinuteKey key : new ArrayList<>(pending.keySet())) {
+            Integer minutes = pending.remove(key);
+            if (minutes != null && minutes > 0) {
+                batch.put(key, minutes);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Ghi ngày cũ trước để bản ghi của ngày mới (nếu có) thắng
+        List<Object[]> args = new ArrayList<>(batch.size());
+        batch.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey((a, b) -> a.day().compareTo(b.day())))
+                .forEach(entry -> {
+                    Date day = Date.valueOf(entry.getKey().day());
+                    args.add(new Object[] {day, entry.getValue(), entry.getValue(), day,
+                            entry.getKey().email(), day});
+                });
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, args));
+            flushedRows.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            batch.forEach((key, minutes) -> pending.merge(key, minutes, Integer::sum));
+            log.error("Learning time flush failed for {} rows, will retry", batch.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingUsers", pending.size());
+        stats.put("recordedMinutes", recordedMinutes.get());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        return stats;
+    }
+
+    private record MinuteKey(String email, LocalDate day) {
+    }
+}
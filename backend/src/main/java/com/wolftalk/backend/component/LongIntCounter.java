@@ -0,0 +1,90 @@
+package com.wolftalk.backend.component;
+
+/**
+ * Bảng băm địa chỉ mở long -> int dùng để đếm bạn chung (id user luôn > 0 nên 0 đánh dấu ô trống)
+ *
+ * - Dò tuyến tính từ homeSlot(key); bảng luôn là lũy thừa của 2 và được nhân đôi khi quá nửa
+ */
+final class LongIntCounter {
+
+    private long[] keys;
+    private int[] counts;
+    private int size;
+
+    LongIntCounter(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    void increment(long key) {
+        int slot = slotOf(key, keys);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+            if (size * 2 > keys.length) {
+                counts[slot] = 1;
+                grow();
+                return;
+            }
+        }
+        counts[slot]++;
+    }
+
+    int get(long key) {
+        int slot = slotOf(key, keys);
+        return keys[slot] == key ? counts[slot] : 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    void forEach(LongIntConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Ô đầu tiên được thử cho key trong bảng có capacity ô
+     */
+    static int homeSlot(long key, int capacity) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) ((h ^ (h >>> 32)) & (capacity - 1));
+    }
+
+    private static int slotOf(long key, long[] table) {
+        int mask = table.length - 1;
+        int slot = homeSlot(key, table.length);
+        while (table[slot] != 0 && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i], keys);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface LongIntConsumer {
+        void accept(long key, int value);
+    }
+}
@@ -0,0 +1,74 @@
+package com.wolftalk.backend.component;
+
+import java.util.Map;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.security.VerifiedTokenCache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Interceptor trên clientInboundChannel của STOMP
+ *
+ * - CONNECT: đọc JWT từ header Authorization (Bearer ...) hoặc token, lưu userId vào session
+ *   attributes (ChatWebSocketController đọc "userId") và đăng ký session với PresenceRegistry
+ * - DISCONNECT (client gửi hoặc Spring tạo khi mất kết nối): bỏ session
+ * - Frame khác, kể cả heartbeat: làm mới TTL của session
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceChannelInterceptor implements ChannelInterceptor {
+
+    private final PresenceRegistry presenceRegistry;
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getSessionId() == null) {
+            return message;
+        }
+        String sessionId = accessor.getSessionId();
+
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            Long userId = authenticate(accessor);
+            Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+            if (userId != null && sessionAttributes != null) {
+                sessionAttributes.put("userId", userId);
+                presenceRegistry.connected(sessionId, userId);
+            }
+        } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            presenceRegistry.disconnected(sessionId);
+        } else {
+            presenceRegistry.touch(sessionId);
+        }
+        return message;
+    }
+
+    private Long authenticate(StompHeaderAccessor accessor) {
+        String token = accessor.getFirstNativeHeader("Authorization");
+        if (token != null && token.startsWith("Bearer ")) {
+            token = token.substring(7);
+        } else {
+            token = accessor.getFirstNativeHeader("token");
+        }
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            return verifiedTokenCache.authenticate(token).userId();
+        } catch (Exception e) {
+            log.debug("Rejected STOMP token for session {}: {}", accessor.getSessionId(), e.getMessage());
+            return null;
+        }
+    }
+}
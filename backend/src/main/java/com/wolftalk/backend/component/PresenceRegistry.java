@@ -0,0 +1,305 @@
+package com.wolftalk.backend.component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.repository.ConversationInboxRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Presence (online/offline) và typing của chat, giữ hoàn toàn trong bộ nhớ
+ *
+ * - PresenceChannelInterceptor gọi connected()/disconnected() theo STOMP CONNECT/DISCONNECT
+ *   và touch() cho mọi frame khác (kể cả heartbeat) của session
+ * - User được chia vào các stripe (ConcurrentHashMap riêng) theo userId; sweep() quét lần lượt
+ *   từng stripe và bỏ session không có frame nào trong ttl-ms (client mất mạng không gửi DISCONNECT)
+ * - Thay đổi online/offline và typing chỉ được đánh dấu; publish() gom lại mỗi publish-interval-ms:
+ *   mỗi bạn bè (FriendGraph) đang online nhận một message /topic/presence/{friendId} chứa mọi thay đổi trong đợt,
+ *   mỗi cuộc trò chuyện nhận một message TYPING trên /topic/chat/conversation/{id}
+ *
+ * Presence chỉ đúng trong một node; khi chạy nhiều instance cần broker relay/cluster (chat.broker.mode).
+ */
+@Component
+@Slf4j
+public class PresenceRegistry {
+
+    private final FriendGraph friendGraph;
+    private final ConversationInboxRepository conversationInboxRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${presence.ttl-ms:35000}")
+    private long ttlMs;
+
+    @Value("${presence.typing-throttle-ms:2000}")
+    private long typingThrottleMs;
+
+    private final Stripe[] stripes;
+    private final Map<String, Long> sessionOwners = new ConcurrentHashMap<>();
+
+    // userId -> bạn bè tại thời điểm đổi trạng thái (rỗng = chưa biết, tải khi publish)
+    private final Map<Long, Set<Long>> changedUsers = new ConcurrentHashMap<>();
+    private final Map<TypingKey, Long> pendingTyping = new ConcurrentHashMap<>();
+    private final Map<TypingKey, Long> lastTypingPublished = new ConcurrentHashMap<>();
+    private int nextSweepStripe;
+
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong expiredSessions = new AtomicLong();
+    private final AtomicLong presenceMessages = new AtomicLong();
+    private final AtomicLong typingEvents = new AtomicLong();
+    private final AtomicLong typingMessages = new AtomicLong();
+
+    public PresenceRegistry(FriendGraph friendGraph,
+                            ConversationInboxRepository conversationInboxRepository,
+                            @Lazy SimpMessagingTemplate messagingTemplate,
+                            @Value("${presence.stripes:16}") int stripeCount) {
+        this.friendGraph = friendGraph;
+        this.conversationInboxRepository = conversationInboxRepository;
+        this.messagingTemplate = messagingTemplate;
+        // Làm tròn lên lũy thừa của 2 để chọn stripe bằng mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static final class Stripe {
+        final Map<Long, UserPresence> users = new ConcurrentHashMap<>();
+    }
+
+    private static final class UserPresence {
+        // sessionId -> lần cuối nhận frame (ms)
+        final Map<String, Long> sessions = new ConcurrentHashMap<>();
+        volatile Set<Long> friendIds;
+    }
+
+    private record TypingKey(Long conversationId, Long userId) {
+    }
+
+    private Stripe stripeFor(Long userId) {
+        long h = userId ^ (userId >>> 32);
+        return stripes[(int) h & (stripes.length - 1)];
+    }
+
+    public void connected(String sessionId, Long userId) {
+        long now = System.currentTimeMillis();
+        sessionOwners.put(sessionId, userId);
+        AtomicBoolean cameOnline = new AtomicBoolean();
+        stripeFor(userId).users.compute(userId, (id, presence) -> {
+            if (presence == null) {
+                presence = new UserPresence();
+            }
+            cameOnline.set(presence.sessions.isEmpty());
+            presence.sessions.put(sessionId, now);
+            return presence;
+        });
+        connects.incrementAndGet();
+        if (cameOnline.get()) {
+            changedUsers.putIfAbsent(userId, Set.of());
+        }
+    }
+
+    public void disconnected(String sessionId) {
+        Long userId = sessionOwners.remove(sessionId);
+        if (userId != null) {
+            removeSession(userId, sessionId);
+        }
+    }
+
+    /**
+     * Session còn sống (frame bất kỳ, kể cả heartbeat)
+     */
+    public void touch(String sessionId) {
+        Long userId = sessionOwners.get(sessionId);
+        if (userId == null) {
+            return;
+        }
+        UserPresence presence = stripeFor(userId).users.get(userId);
+        if (presence != null) {
+            presence.sessions.computeIfPresent(sessionId, (id, lastSeen) -> System.currentTimeMillis());
+        }
+    }
+
+    public void typing(Long userId, Long conversationId) {
+        pendingTyping.put(new TypingKey(conversationId, userId), System.currentTimeMillis());
+        typingEvents.incrementAndGet();
+    }
+
+    public boolean isOnline(Long userId) {
+        UserPresence presence = stripeFor(userId).users.get(userId);
+        return presence != null && !presence.sessions.isEmpty();
+    }
+
+    public List<Long> onlineFriends(Long userId) {
+        List<Long> online = new ArrayList<>();
+        for (Long friendId : loadFriendIds(userId)) {
+            if (isOnline(friendId)) {
+                online.add(friendId);
+            }
+        }
+        return online;
+    }
+
+    private void removeSession(Long userId, String sessionId) {
+        AtomicReference<Set<Long>> offlineFriends = new AtomicReference<>();
+        stripeFor(userId).users.computeIfPresent(userId, (id, presence) -> {
+            presence.sessions.remove(sessionId);
+            if (!presence.sessions.isEmpty()) {
+                return presence;
+            }
+            offlineFriends.set(presence.friendIds != null ? presence.friendIds : Set.of());
+            return null;
+        });
+        if (offlineFriends.get() != null) {
+            changedUsers.put(userId, offlineFriends.get());
+        }
+    }
+
+    /**
+     * Bỏ các session quá TTL - mỗi lần quét một phần stripe để không khóa toàn bộ
+     */
+    @Scheduled(fixedDelayString = "${presence.sweep-interval-ms:5000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        int perRun = Math.max(1, stripes.length / 4);
+        for (int n = 0; n < perRun; n++) {
+            Stripe stripe = stripes[nextSweepStripe];
+            nextSweepStripe = (nextSweepStripe + 1) % stripes.length;
+            for (Map.Entry<Long, UserPresence> entry : stripe.users.entrySet()) {
+                for (Map.Entry<String, Long> session : entry.getValue().sessions.entrySet()) {
+                    if (session.getValue() < cutoff) {
+                        sessionOwners.remove(session.getKey());
+                        removeSession(entry.getKey(), session.getKey());
+                        expiredSessions.incrementAndGet();
+                    }
+                }
+            }
+        }
+        lastTypingPublished.values().removeIf(publishedAt -> publishedAt < cutoff);
+    }
+
+    /**
+     * Gom và gửi các thay đổi presence / typing của đợt vừa qua
+     */
+    @Scheduled(fixedDelayString = "${presence.publish-interval-ms:1000}")
+    public void publish() {
+        publishPresence();
+        publishTyping();
+    }
+
+    private void publishPresence() {
+        if (changedUsers.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Map<String, Object>>> updatesByRecipient = new HashMap<>();
+        for (Long userId : new ArrayList<>(changedUsers.keySet())) {
+            Set<Long> friendIds = changedUsers.remove(userId);
+            if (friendIds == null) {
+                continue;
+            }
+            boolean online = isOnline(userId);
+            if (friendIds.isEmpty()) {
+                friendIds = online ? cachedFriendIds(userId) : loadFriendIds(userId);
+            }
+            Map<String, Object> update = Map.of("user_id", userId, "online", online);
+            for (Long friendId : friendIds) {
+                // Chỉ bạn bè đang online mới đang subscribe
+                if (isOnline(friendId)) {
+                    updatesByRecipient.computeIfAbsent(friendId, id -> new ArrayList<>()).add(update);
+                }
+            }
+        }
+        updatesByRecipient.forEach((recipientId, updates) -> {
+            messagingTemplate.convertAndSend("/topic/presence/" + recipientId, Map.of(
+                    "type", "PRESENCE",
+                    "updates", updates
+            ));
+            presenceMessages.incrementAndGet();
+        });
+    }
+
+    private void publishTyping() {
+        if (pendingTyping.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, List<Long>> typingByConversation = new HashMap<>();
+        for (TypingKey key : new ArrayList<>(pendingTyping.keySet())) {
+            pendingTyping.remove(key);
+            Long publishedAt = lastTypingPublished.get(key);
+            if (publishedAt != null && now - publishedAt < typingThrottleMs) {
+                continue;
+            }
+            if (!conversationInboxRepository.existsByUserIdAndConversationId(key.userId(), key.conversationId())) {
+                continue;
+            }
+            lastTypingPublished.put(key, now);
+            typingByConversation.computeIfAbsent(key.conversationId(), id -> new ArrayList<>()).add(key.userId());
+        }
+        typingByConversation.forEach((conversationId, userIds) -> {
+            messagingTemplate.convertAndSend("/topic/chat/conversation/" + conversationId, Map.of(
+                    "type", "TYPING",
+                    "userIds", userIds
+            ));
+            typingMessages.incrementAndGet();
+        });
+    }
+
+    /**
+     * Danh sách bạn bè được nhớ trong UserPresence khi user đang online
+     */
+    private Set<Long> cachedFriendIds(Long userId) {
+        UserPresence presence = stripeFor(userId).users.get(userId);
+        if (presence == null) {
+            return loadFriendIds(userId);
+        }
+        Set<Long> friendIds = presence.friendIds;
+        if (friendIds == null) {
+            friendIds = loadFriendIds(userId);
+            presence.friendIds = friendIds;
+        }
+        return friendIds;
+    }
+
+    private Set<Long> loadFriendIds(Long userId) {
+        Set<Long> friendIds = new HashSet<>();
+        for (long friendId : friendGraph.friendIds(userId)) {
+            friendIds.add(friendId);
+        }
+        return friendIds;
+    }
+
+    public Map<String, Object> getStats() {
+        int onlineUsers = 0;
+        for (Stripe stripe : stripes) {
+            onlineUsers += stripe.users.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("onlineUsers", onlineUsers);
+        stats.put("sessions", sessionOwners.size());
+        stats.put("stripes", stripes.length);
+        stats.put("connects", connects.get());
+        stats.put("expiredSessions", expiredSessions.get());
+        stats.put("pendingPresenceChanges", changedUsers.size());
+        stats.put("presenceMessages", presenceMessages.get());
+        stats.put("typingEvents", typingEvents.get());
+        stats.put("typingMessages", typingMessages.get());
+        return stats;
+    }
+}
@@ -1,13 +1,14 @@
 package com.wolftalk.backend.component;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.wolftalk.backend.entity.User;
 import com.wolftalk.backend.repository.UserRepository;
 
 import lombok.RequiredArgsConstructor;
@@ -25,28 +26,28 @@ import lombok.extern.slf4j.Slf4j;
 public class QuestScheduler {
 
     private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Số user (theo khoảng id) xử lý trong mỗi transaction
+    @Value("${quest.scheduler.batch-size:1000}")
+    private int batchSize;
+
+    // Checkpoint: id cuối cùng đã xử lý xong của mỗi job trong ngày (để chạy lại từ chỗ dừng)
+    private final Map<String, JobCheckpoint> checkpoints = new ConcurrentHashMap<>();
 
     /**
      * Reset daily stats cho tất cả users lúc 0:00 mỗi ngày
      * Cron: second, minute, hour, day of month, month, day of week
+     * 
+     * Chạy bằng bulk UPDATE theo từng khoảng id, mỗi chunk một transaction,
+     * nên bộ nhớ không tăng theo số lượng users
      */
     @Scheduled(cron = "0 0 0 * * *") // 0:00 mỗi ngày
-    @Transactional
     public void resetDailyStats() {
         log.info("Starting daily stats reset...");
-        
+
         try {
-            List<User> users = userRepository.findAll();
-            int resetCount = 0;
-            
-            for (User user : users) {
-                user.resetDailyStats();
-                resetCount++;
-            }
-            
-            userRepository.saveAll(users);
-            log.info("Daily stats reset completed for {} users", resetCount);
-            
+            runInChunks("resetDailyStats", userRepository::resetDailyStatsInRange);
         } catch (Exception e) {
             log.error("Error resetting daily stats", e);
         }
@@ -57,32 +58,58 @@ public class QuestScheduler {
      * Chạy lúc 1:00 sáng mỗi ngày (sau khi reset daily stats)
      */
     @Scheduled(cron = "0 0 1 * * *") // 1:00 mỗi ngày
-    @Transactional
     public void checkAndResetStreaks() {
         log.info("Checking streaks...");
-        
+
         try {
+            // Nếu user không học hôm qua và hôm nay, reset streak
             LocalDate yesterday = LocalDate.now().minusDays(1);
-            List<User> users = userRepository.findAll();
-            int resetCount = 0;
-            
-            for (User user : users) {
-                // Nếu user không học hôm qua và hôm nay, reset streak
-                if (user.getLastLearningDate() != null && 
-                    user.getLastLearningDate().isBefore(yesterday)) {
-                    user.setStreak(0);
-                    resetCount++;
-                }
-            }
-            
-            userRepository.saveAll(users);
-            log.info("Streak check completed. Reset {} streaks", resetCount);
-            
+            runInChunks("checkAndResetStreaks",
+                    (fromId, toId) -> userRepository.resetExpiredStreaksInRange(fromId, toId, yesterday));
         } catch (Exception e) {
             log.error("Error checking streaks", e);
         }
     }
 
+    /**
+     * Chạy một bulk UPDATE theo từng khoảng id (fromId, toId], mỗi khoảng một transaction.
+     * Nếu lần chạy trước trong ngày bị lỗi giữa chừng thì tiếp tục từ checkpoint.
+     */
+    private void runInChunks(String jobName, ChunkUpdate chunkUpdate) {
+        long startTime = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        long maxId = userRepository.findMaxId();
+
+        JobCheckpoint checkpoint = checkpoints.get(jobName);
+        long fromId = checkpoint != null && checkpoint.date().equals(today) ? checkpoint.lastId() : 0L;
+        if (fromId > 0) {
+            log.info("{}: resuming from checkpoint id {}", jobName, fromId);
+        }
+
+        int chunks = 0;
+        long updated = 0;
+        while (fromId < maxId) {
+            long lower = fromId;
+            long upper = Math.min(fromId + batchSize, maxId);
+            Integer count = transactionTemplate.execute(status -> chunkUpdate.apply(lower, upper));
+            updated += count != null ? count : 0;
+            chunks++;
+            fromId = upper;
+            checkpoints.put(jobName, new JobCheckpoint(today, fromId));
+        }
+
+        log.info("{} completed: {} users updated in {} chunks (batch size {}, max id {}) in {} ms",
+                jobName, updated, chunks, batchSize, maxId, System.currentTimeMillis() - startTime);
+    }
+
+    @FunctionalInterface
+    private interface ChunkUpdate {
+        int apply(Long fromId, Long toId);
+    }
+
+    private record JobCheckpoint(LocalDate date, long lastId) {
+    }
+
     /**
      * Log thống kê hàng ngày lúc 23:59
      */
@@ -0,0 +1,168 @@
+package com.wolftalk.backend.component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lấy mẫu ngẫu nhiên thay cho "ORDER BY RANDOM() LIMIT n"
+ *
+ * - Mỗi bucket (vd: "vocab:FOOD:3") giữ mảng id trong bộ nhớ, load bằng một query chỉ lấy id
+ * - Bucket được refresh sau refresh-seconds hoặc khi gọi invalidate() lúc nội dung thay đổi
+ *   (SampledContentListener gọi sau mỗi commit ghi vào bảng được lấy mẫu); một lần load bắt đầu
+ *   trước invalidate không được ghi vào cache (so sánh epoch)
+ * - Lấy k id phân biệt bằng thuật toán Floyd (O(k)), sau đó load entity theo primary key
+ */
+@Component
+@Slf4j
+public class RandomSampler {
+
+    @Value("${sampling.refresh-seconds:600}")
+    private long refreshSeconds;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * Lấy ngẫu nhiên tối đa k entity trong bucket
+     *
+     * @param bucketKey  tên bucket, vd "challenge:LISTENING"
+     * @param idLoader   query lấy toàn bộ id của bucket (chỉ chạy khi bucket hết hạn)
+     * @param k          số phần tử cần lấy
+     * @param finder     load entity theo danh sách id (thường là repository::findAllById)
+     * @param idOf       lấy id từ entity
+     */
+    public <T> List<T> sample(String bucketKey, Supplier<List<Long>> idLoader, int k,
+                              Function<List<Long>, List<T>> finder, Function<T, Long> idOf) {
+        return sampleExcluding(bucketKey, idLoader, k, null, finder, idOf);
+    }
+
+    /**
+     * Giống sample() nhưng bỏ qua một id (vd: đáp án đúng khi lấy đáp án sai)
+     */
+    public <T> List<T> sampleExcluding(String bucketKey, Supplier<List<Long>> idLoader, int k, Long excludeId,
+                                       Function<List<Long>, List<T>> finder, Function<T, Long> idOf) {
+        List<Long> ids = sampleIds(bucketKey, idLoader, k, excludeId);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // findAllById không giữ thứ tự - sắp xếp lại theo thứ tự đã random
+        Map<Long, T> byId = new HashMap<>();
+        for (T entity : finder.apply(ids)) {
+            byId.put(idOf.apply(entity), entity);
+        }
+        List<T> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lấy ngẫu nhiên tối đa k id phân biệt trong bucket
+     */
+    public List<Long> sampleIds(String bucketKey, Supplier<List<Long>> idLoader, int k, Long excludeId) {
+        long[] ids = bucket(bucketKey, idLoader).ids();
+        int n = ids.length;
+        if (n == 0 || k <= 0) {
+            return List.of();
+        }
+
+        // Lấy dư một phần tử để vẫn đủ k sau khi bỏ excludeId
+        int draw = Math.min(n, excludeId != null ? k + 1 : k);
+        List<Long> result = new ArrayList<>(draw);
+        for (int index : floydSample(n, draw)) {
+            long id = ids[index];
+            if (excludeId == null || id != excludeId) {
+                result.add(id);
+            }
+        }
+        Collections.shuffle(result, ThreadLocalRandom.current());
+        return result.size() > k ? result.subList(0, k) : result;
+    }
+
+    /**
+     * Đánh dấu hết hạn các bucket có tên bắt đầu bằng prefix (gọi khi nội dung thay đổi)
+     *
+     * Trong transaction: bỏ ngay và bỏ lại sau commit - request đọc chạy song song có thể đã load
+     * lại id cũ trước khi commit.
+     */
+    public void invalidate(String prefix) {
+        evict(prefix);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(prefix);
+                }
+            });
+        }
+    }
+
+    private void evict(String prefix) {
+        synchronized (buckets) {
+            epoch.incrementAndGet();
+            buckets.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    private Bucket bucket(String bucketKey, Supplier<List<Long>> idLoader) {
+        long now = System.currentTimeMillis();
+        Bucket bucket = buckets.get(bucketKey);
+        if (bucket != null && now - bucket.loadedAt() < refreshSeconds * 1000) {
+            return bucket;
+        }
+        long stamp = epoch.get();
+        List<Long> loaded = idLoader.get();
+        long[] ids = new long[loaded.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = loaded.get(i);
+        }
+        Bucket refreshed = new Bucket(ids, now);
+        synchronized (buckets) {
+            if (epoch.get() == stamp) {
+                buckets.put(bucketKey, refreshed);
+            }
+        }
+        log.debug("RandomSampler: loaded bucket {} with {} ids", bucketKey, ids.length);
+        return refreshed;
+    }
+
+    /**
+     * Thuật toán Floyd: chọn k chỉ số phân biệt trong [0, n) với O(k) bước
+     */
+    private static Set<Integer> floydSample(int n, int k) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            if (!chosen.add(t)) {
+                chosen.add(j);
+            }
+        }
+        return chosen;
+    }
+
+    private record Bucket(long[] ids, long loadedAt) {
+    }
+}
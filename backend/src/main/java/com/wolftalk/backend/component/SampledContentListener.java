@@ -0,0 +1,98 @@
+package com.wolftalk.backend.component;
+
+import java.util.Map;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.entity.Challenge;
+import com.wolftalk.backend.entity.DailyQuest;
+import com.wolftalk.backend.entity.InitialAssessmentQuestion;
+import com.wolftalk.backend.entity.VocabularyWord;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Bỏ bucket của RandomSampler sau mỗi commit insert / update / delete vào bảng được lấy mẫu
+ *
+ * Đăng ký trực tiếp vào EventListenerRegistry của Hibernate nên mọi đường ghi qua JPA đều được
+ * bắt mà entity không cần biết tới RandomSampler. Bulk query (UPDATE / DELETE bằng JPQL hay SQL)
+ * không đi qua listener - chỉ còn refresh-seconds.
+ */
+@Component
+public class SampledContentListener implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final Map<Class<?>, String> PREFIXES = Map.of(
+            VocabularyWord.class, "vocab:",
+            Challenge.class, "challenge:",
+            DailyQuest.class, "dailyQuest:",
+            InitialAssessmentQuestion.class, "initialAssessment:");
+
+    private final RandomSampler randomSampler;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public SampledContentListener(RandomSampler randomSampler, EntityManagerFactory entityManagerFactory) {
+        this.randomSampler = randomSampler;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        invalidate(event.getPersister());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        invalidate(event.getPersister());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        invalidate(event.getPersister());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return PREFIXES.containsKey(persister.getMappedClass());
+    }
+
+    private void invalidate(EntityPersister persister) {
+        String prefix = PREFIXES.get(persister.getMappedClass());
+        if (prefix != null) {
+            randomSampler.invalidate(prefix);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.wolftalk.backend.component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wolftalk.backend.dto.learning.content.ConversationDTO;
+import com.wolftalk.backend.dto.learning.content.GrammarDTO;
+import com.wolftalk.backend.dto.learning.content.PracticeQuestionDTO;
+import com.wolftalk.backend.dto.learning.content.VocabularyDTO;
+import com.wolftalk.backend.entity.LessonConversation;
+import com.wolftalk.backend.entity.LessonGrammar;
+import com.wolftalk.backend.entity.LessonPracticeQuestion;
+import com.wolftalk.backend.entity.LessonVocabulary;
+import com.wolftalk.backend.entity.SyllabusLesson;
+import com.wolftalk.backend.entity.SyllabusLevel;
+import com.wolftalk.backend.entity.SyllabusUnit;
+import com.wolftalk.backend.repository.LessonConversationRepository;
+import com.wolftalk.backend.repository.LessonGrammarRepository;
+import com.wolftalk.backend.repository.LessonPracticeQuestionRepository;
+import com.wolftalk.backend.repository.LessonVocabularyRepository;
+import com.wolftalk.backend.repository.SyllabusLessonRepository;
+import com.wolftalk.backend.repository.SyllabusLevelRepository;
+import com.wolftalk.backend.repository.SyllabusUnitRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Snapshot bất biến của toàn bộ giáo trình, cache trong bộ nhớ
+ *
+ * - Cây Level -> Unit -> Lesson và nội dung từng lesson (vocabulary, grammar, conversation, practice)
+ * - Load một lần khi truy cập lần đầu; DataSeeder seed lại hoặc admin gọi reload() sẽ build
+ *   snapshot mới với version mới rồi swap atomic (request đang chạy vẫn đọc snapshot cũ)
+ * - DTO trong snapshot là @Value bất biến, list là unmodifiable - dùng chung giữa các request
+ * - Lesson không có trong snapshot được tính là miss để SyllabusService đọc từ database
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SyllabusCatalog {
+
+    private final SyllabusLevelRepository levelRepository;
+    private final SyllabusUnitRepository unitRepository;
+    private final SyllabusLessonRepository lessonRepository;
+    private final LessonVocabularyRepository vocabRepository;
+    private final LessonGrammarRepository grammarRepository;
+    private final LessonConversationRepository conversationRepository;
+    private final LessonPracticeQuestionRepository practiceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong versionCounter = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private volatile Tree tree;
+
+    public record LessonNode(String id, String unitId, Integer order, String title, String type,
+                             Integer durationMinutes) {
+    }
+
+    public record UnitNode(String id, String levelId, Integer order, String title, String description,
+                           String topic, String imageUrl, List<LessonNode> lessons) {
+    }
+
+    public record LevelNode(String id, String name, String group, String description, String color,
+                            Integer order, Integer totalUnits, List<UnitNode> units) {
+    }
+
+    private record Tree(long version, Instant loadedAt, long estimatedBytes,
+                        List<LevelNode> levels, Map<String, LevelNode> levelsById,
+                        Map<String, UnitNode> unitsById, Map<String, LessonNode> lessonsById,
+                        Map<String, List<VocabularyDTO>> vocabulary,
+                        Map<String, List<GrammarDTO>> grammar,
+                        Map<String, List<ConversationDTO>> conversation,
+                        Map<String, List<PracticeQuestionDTO>> practice) {
+    }
+
+    /**
+     * Tất cả level theo thứ tự (kèm units và lessons)
+     */
+    public List<LevelNode> getLevels() {
+        return tree().levels();
+    }
+
+    public Optional<LevelNode> getLevel(String levelId) {
+        return Optional.ofNullable(tree().levelsById().get(levelId));
+    }
+
+    public Optional<UnitNode> getUnit(String unitId) {
+        return Optional.ofNullable(tree().unitsById().get(unitId));
+    }
+
+    /**
+     * Tất cả unit của mọi level
+     */
+    public List<UnitNode> getAllUnits() {
+        return tree().levels().stream()
+                .flatMap(level -> level.units().stream())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Nội dung lesson trong snapshot; Optional.empty() nếu lesson không có trong snapshot
+     */
+    public Optional<List<VocabularyDTO>> getLessonVocabulary(String lessonId) {
+        return lookup(tree().vocabulary(), lessonId);
+    }
+
+    public Optional<List<GrammarDTO>> getLessonGrammar(String lessonId) {
+        return lookup(tree().grammar(), lessonId);
+    }
+
+    public Optional<List<ConversationDTO>> getLessonConversation(String lessonId) {
+        return lookup(tree().conversation(), lessonId);
+    }
+
+    public Optional<List<PracticeQuestionDTO>> getLessonPractice(String lessonId) {
+        return lookup(tree().practice(), lessonId);
+    }
+
+    public long getVersion() {
+        return tree().version();
+    }
+
+    /**
+     * Build snapshot mới từ database và swap (gọi sau khi DataSeeder seed lại hoặc admin sửa nội dung)
+     */
+    public synchronized void reload() {
+        tree = load();
+    }
+
+    /**
+     * Metrics của cache (version, hit rate, ước lượng bộ nhớ)
+     */
+    public Map<String, Object> getStats() {
+        Tree current = tree;
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", current != null);
+        stats.put("version", current != null ? current.version() : 0);
+        stats.put("loadedAt", current != null ? current.loadedAt() : null);
+        stats.put("levels", current != null ? current.levels().size() : 0);
+        stats.put("units", current != null ? current.unitsById().size() : 0);
+        stats.put("lessons", current != null ? current.lessonsById().size() : 0);
+        stats.put("estimatedBytes", current != null ? current.estimatedBytes() : 0);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        return stats;
+    }
+
+    private <T> Optional<List<T>> lookup(Map<String, List<T>> content, String lessonId) {
+        if (!tree().lessonsById().containsKey(lessonId)) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(content.getOrDefault(lessonId, List.of()));
+    }
+
+    private Tree tree() {
+        Tree current = tree;
+        if (current == null) {
+            synchronized (this) {
+                if (tree == null) {
+                    tree = load();
+                }
+                current = tree;
+            }
+        }
+        return current;
+    }
+
+    private Tree load() {
+        // Practice question có collection lazy (options, pairs) -> load trong một transaction
+        Tree loaded = transactionTemplate.execute(status -> build(versionCounter.incrementAndGet()));
+        log.info("SyllabusCatalog: loaded version {} - {} levels, {} units, {} lessons, ~{} KB",
+                loaded.version(), loaded.levels().size(), loaded.unitsById().size(),
+                loaded.lessonsById().size(), loaded.estimatedBytes() / 1024);
+        return loaded;
+    }
+
+    private Tree build(long version) {
+        Map<String, List<LessonNode>> lessonsByUnit = lessonRepository.findAll().stream()
+                .filter(lesson -> lesson.getUnitId() != null)
+                .map(this::toNode)
+                .sorted(Comparator.comparing(LessonNode::order, Comparator.nullsLast(Integer::compare)))
+                .collect(Collectors.groupingBy(LessonNode::unitId));
+
+        Map<String, List<UnitNode>> unitsByLevel = unitRepository.findAll().stream()
+                .filter(unit -> unit.getLevelId() != null)
+                .map(unit -> toNode(unit, lessonsByUnit.getOrDefault(unit.getId(), List.of())))
+                .sorted(Comparator.comparing(UnitNode::order, Comparator.nullsLast(Integer::compare)))
+                .collect(Collectors.groupingBy(UnitNode::levelId));
+
+        List<LevelNode> levels = levelRepository.findAllByOrderByOrderAsc().stream()
+                .map(level -> toNode(level, unitsByLevel.getOrDefault(level.getId(), List.of())))
+                .toList();
+
+        Map<String, LevelNode> levelsById = levels.stream()
+                .collect(Collectors.toUnmodifiableMap(LevelNode::id, Function.identity()));
+        Map<String, UnitNode> unitsById = levels.stream()
+                .flatMap(level -> level.units().stream())
+                .collect(Collectors.toUnmodifiableMap(UnitNode::id, Function.identity()));
+        Map<String, LessonNode> lessonsById = unitsById.values().stream()
+                .flatMap(unit -> unit.lessons().stream())
+                .collect(Collectors.toUnmodifiableMap(LessonNode::id, Function.identity()));
+
+        Map<String, List<VocabularyDTO>> vocabulary = groupByLesson(
+                vocabRepository.findAll(), v -> v.getLesson(), SyllabusCatalog::toVocabularyDTO);
+        Map<String, List<GrammarDTO>> grammar = groupByLesson(
+                grammarRepository.findAll(), g -> g.getLesson(), SyllabusCatalog::toGrammarDTO);
+        Map<String, List<ConversationDTO>> conversation = groupByLesson(
+                conversationRepository.findAll().stream()
+                        .sorted(Comparator.comparing(LessonConversation::getOrder,
+                                Comparator.nullsLast(Integer::compare)))
+                        .toList(),
+                c -> c.getLesson(), SyllabusCatalog::toConversationDTO);
+        Map<String, List<PracticeQuestionDTO>> practice = groupByLesson(
+                practiceRepository.findAll(), q -> q.getLesson(), SyllabusCatalog::toPracticeQuestionDTO);
+
+        long estimatedBytes = estimateBytes(levels, vocabulary, grammar, conversation, practice);
+
+        return new Tree(version, Instant.now(), estimatedBytes, levels, levelsById, unitsById, lessonsById,
+                vocabulary, grammar, conversation, practice);
+    }
+
+    private static <E, D> Map<String, List<D>> groupByLesson(List<E> entities,
+                                                             Function<E, SyllabusLesson> lessonOf,
+                                                             Function<E, D> mapper) {
+        // lesson là proxy lazy - getId() không cần load SyllabusLesson
+        Map<String, List<D>> grouped = entities.stream()
+                .filter(e -> lessonOf.apply(e) != null)
+                .collect(Collectors.groupingBy(e -> lessonOf.apply(e).getId(), LinkedHashMap::new,
+                        Collectors.mapping(mapper, Collectors.toList())));
+        return grouped.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> List.copyOf(e.getValue())));
+    }
+
+    public static VocabularyDTO toVocabularyDTO(LessonVocabulary v) {
+        return new VocabularyDTO(v.getId(), v.getWord(), v.getPhonetic(), v.getMeaning(), v.getExample(),
+                v.getUsageNote());
+    }
+
+    public static GrammarDTO toGrammarDTO(LessonGrammar g) {
+        return new GrammarDTO(g.getId(), g.getName(), g.getFormula(), g.getExplanation(), g.getExample(),
+                g.getNote());
+    }
+
+    public static ConversationDTO toConversationDTO(LessonConversation c) {
+        return new ConversationDTO(c.getId(), c.getOrder(), c.getTextEn(), c.getTextVi());
+    }
+
+    public static PracticeQuestionDTO toPracticeQuestionDTO(LessonPracticeQuestion q) {
+        List<PracticeQuestionDTO.MatchingPairDTO> pairs = q.getPairs() != null ? q.getPairs().stream()
+                .filter(Objects::nonNull)
+                .map(p -> new PracticeQuestionDTO.MatchingPairDTO(p.getId().toString(), p.getLeft(),
+                        p.getRight()))
+                .toList() : List.of();
+
+        return new PracticeQuestionDTO(q.getId().toString(), q.getType(), q.getQuestion(),
+                q.getExplanation(), q.getCorrectAnswer(), copy(q.getOptions()), copy(q.getSegments()),
+                copy(q.getCorrectOrder()), pairs, q.getImageUrl(), q.getAudioUrl());
+    }
+
+    // List.copyOf không nhận phần tử null -> bỏ null trước khi copy
+    private static List<String> copy(List<String> values) {
+        return values != null ? values.stream().filter(Objects::nonNull).toList() : null;
+    }
+
+    private LessonNode toNode(SyllabusLesson lesson) {
+        return new LessonNode(lesson.getId(), lesson.getUnitId(), lesson.getOrder(), lesson.getTitle(),
+                lesson.getType(), lesson.getDurationMinutes());
+    }
+
+    private UnitNode toNode(SyllabusUnit unit, List<LessonNode> lessons) {
+        return new UnitNode(unit.getId(), unit.getLevelId(), unit.getOrder(), unit.getTitle(),
+                unit.getDescription(), unit.getTopic(), unit.getImageUrl(), List.copyOf(lessons));
+    }
+
+    private LevelNode toNode(SyllabusLevel level, List<UnitNode> units) {
+        return new LevelNode(level.getId(), level.getName(), level.getGroup(), level.getDescription(),
+                level.getColor(), level.getOrder(), level.getTotalUnits(), List.copyOf(units));
+    }
+
+    /**
+     * Ước lượng thô bộ nhớ của snapshot: ~40 byte header mỗi String + 2 byte mỗi ký tự, ~32 byte mỗi object
+     */
+    private static long estimateBytes(List<LevelNode> levels,
+                                      Map<String, List<VocabularyDTO>> vocabulary,
+                                      Map<String, List<GrammarDTO>> grammar,
+                                      Map<String, List<ConversationDTO>> conversation,
+                                      Map<String, List<PracticeQuestionDTO>> practice) {
+        long bytes = 0;
+        for (LevelNode level : levels) {
+            bytes += 32 + strings(level.id(), level.name(), level.group(), level.description(), level.color());
+            for (UnitNode unit : level.units()) {
+                bytes += 32 + strings(unit.id(), unit.levelId(), unit.title(), unit.description(),
+                        unit.topic(), unit.imageUrl());
+                for (LessonNode lesson : unit.lessons()) {
+                    bytes += 32 + strings(lesson.id(), lesson.unitId(), lesson.title(), lesson.type());
+                }
+            }
+        }
+        for (List<VocabularyDTO> list : vocabulary.values()) {
+            for (VocabularyDTO v : list) {
+                bytes += 32 + strings(v.getWord(), v.getPhonetic(), v.getMeaning(), v.getExample(), v.getUsage());
+            }
+        }
+        for (List<GrammarDTO> list : grammar.values()) {
+            for (GrammarDTO g : list) {
+                bytes += 32 + strings(g.getName(), g.getFormula(), g.getExplanation(), g.getExample(), g.getNote());
+            }
+        }
+        for (List<ConversationDTO> list : conversation.values()) {
+            for (ConversationDTO c : list) {
+                bytes += 32 + strings(c.getEn(), c.getVi());
+            }
+        }
+        for (List<PracticeQuestionDTO> list : practice.values()) {
+            for (PracticeQuestionDTO q : list) {
+                bytes += 32 + strings(q.getId(), q.getType(), q.getQuestion(), q.getExplanation(),
+                        q.getCorrectAnswer(), q.getImageUrl(), q.getAudioUrl());
+                bytes += strings(q.getOptions()) + strings(q.getSegments()) + strings(q.getCorrectOrder());
+                for (PracticeQuestionDTO.MatchingPairDTO p : q.getPairs()) {
+                    bytes += 32 + strings(p.getId(), p.getLeft(), p.getRight());
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long strings(List<String> values) {
+        return values != null ? strings(values.toArray(new String[0])) : 0;
+    }
+
+    private static long strings(String... values) {
+        long bytes = 0;
+        for (String value : values) {
+            if (value != null) {
+                bytes += 40 + 2L * value.length();
+            }
+        }
+        return bytes;
+    }
+}
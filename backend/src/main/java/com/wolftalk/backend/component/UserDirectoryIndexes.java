@@ -0,0 +1,85 @@
+package com.wolftalk.backend.component;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index cho danh bạ / tìm kiếm user mà @Index của JPA không tạo được (index biểu thức, GIN)
+ *
+ * idx_users_directory khớp đúng ORDER BY / keyset của UserRepository.findDirectoryPage*:
+ * tên null được coi là '' nên trang sau chỉ cần so sánh một bộ (firstName, lastName, id).
+ * Mỗi trang là một lần đọc index theo thứ tự + LIMIT, không phụ thuộc tổng số user.
+ *
+ * idx_users_search_trgm (GIN pg_trgm trên UserRepository.SEARCH_TEXT_SQL) cho engine "trigram"
+ * của UserSearchService - chỉ tạo khi users.search.trigram-index=true vì làm chậm ghi bảng users.
+ * Cần quyền CREATE EXTENSION (hoặc pg_trgm đã được cài sẵn).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserDirectoryIndexes {
+
+    private static final String DIRECTORY_INDEX_SQL = "CREATE INDEX IF NOT EXISTS idx_users_directory " +
+            "ON users ((COALESCE(first_name, '')), (COALESCE(last_name, '')), id)";
+
+    private static final String TRIGRAM_INDEX_SQL = "CREATE INDEX IF NOT EXISTS idx_users_search_trgm " +
+            "ON users USING gin ((" + UserRepository.SEARCH_TEXT_SQL + ") gin_trgm_ops)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${users.directory.create-indexes-on-startup:true}")
+    private boolean createIndexesOnStartup;
+
+    @Value("${users.search.trigram-index:false}")
+    private boolean trigramIndex;
+
+    private volatile boolean trigramAvailable;
+
+    public boolean isTrigramAvailable() {
+        return trigramAvailable;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (createIndexesOnStartup) {
+            createIndexes();
+        }
+        trigramAvailable = isTrigramInstalled();
+    }
+
+    public void createIndexes() {
+        try {
+            jdbcTemplate.execute(DIRECTORY_INDEX_SQL);
+        } catch (DataAccessException e) {
+            // Thiếu index chỉ làm danh bạ chậm đi, không chặn ứng dụng khởi động
+            log.warn("User directory: could not create idx_users_directory: {}", e.getMessage());
+        }
+        if (trigramIndex) {
+            try {
+                jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+                jdbcTemplate.execute(TRIGRAM_INDEX_SQL);
+            } catch (DataAccessException e) {
+                log.warn("User search: could not create idx_users_search_trgm: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean isTrigramInstalled() {
+        try {
+            Integer installed = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_extension WHERE extname = 'pg_trgm'", Integer.class);
+            return installed != null && installed > 0;
+        } catch (DataAccessException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.wolftalk.backend.component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index tìm kiếm user trong bộ nhớ (engine "memory" của UserSearchService)
+ *
+ * - Văn bản được chuẩn hóa bằng fold(): bỏ dấu tiếng Việt (NFD + bỏ dấu kết hợp, đ -> d), chữ thường
+ * - Mỗi user là một doc (tên "first last" + email); mỗi từ được đệm "  từ " rồi cắt trigram như pg_trgm,
+ *   posting list của trigram là mảng int docId tăng dần
+ * - Từ khóa >= 3 ký tự: giao posting list các trigram bên trong từ -> khớp chuỗi con như LIKE '%từ%'
+ *   Từ khóa 1-2 ký tự: trigram đệm đầu từ -> khớp tiền tố của từ
+ * - Ứng viên được kiểm tra lại trên văn bản, chấm điểm (trùng khớp > tiền tố tên > tiền tố từ > chuỗi con);
+ *   duyệt hết giao posting list và chỉ giữ limit ứng viên tốt nhất trong một heap - không dừng sớm theo
+ *   thứ tự docId, nên user trùng khớp tạo sau vẫn không bị bỏ sót
+ * - Load toàn bộ users theo id (keyset) khi khởi động trên thread riêng; sau đó UserSearchIndexListener
+ *   cập nhật sau commit khi user được tạo / sửa / xóa. User sửa tên là doc mới + doc cũ bị đánh dấu xóa,
+ *   index được dựng lại khi doc đã xóa vượt 20%
+ *
+ * Bộ nhớ xấp xỉ 4 byte x số trigram mỗi user (~30-40) - khoảng 150MB cho 1M user.
+ */
+@Component
+@Slf4j
+public class UserSearchIndex {
+
+    public enum Field { ALL, LAST_NAME, EMAIL }
+
+    private static final int LOAD_BATCH = 5000;
+    private static final int MIN_DELETED_FOR_REBUILD = 1000;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // Điểm cao trước, rồi tên ngắn hơn, rồi id
+    private static final Comparator<Candidate> RANKING = Comparator.comparingInt(Candidate::score).reversed()
+            .thenComparingInt(Candidate::nameLength)
+            .thenComparingLong(Candidate::userId);
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] docUserIds = new long[1024];
+    private String[] docNames = new String[1024];
+    private int[] docLastNameOffsets = new int[1024];
+    private String[] docEmails = new String[1024];
+    private int docCount;
+    private final BitSet deletedDocs = new BitSet();
+    private int deletedCount;
+    private final Map<Long, Integer> docByUserId = new HashMap<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+
+    private volatile boolean ready;
+    private volatile long loadMillis;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong queryNanos = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    public UserSearchIndex(UserRepository userRepository,
+                           @Value("${users.search.engine:memory}") String engine) {
+        this.userRepository = userRepository;
+        this.enabled = "memory".equalsIgnoreCase(engine);
+    }
+
+    private record Candidate(long userId, int score, int nameLength) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            Thread.ofPlatform().name("user-search-index").daemon().start(this::load);
+        }
+    }
+
+    /**
+     * Đọc toàn bộ users theo từng lô id; user đã được listener đưa vào index trong lúc load thì giữ bản mới
+     */
+    public void load() {
+        long start = System.currentTimeMillis();
+        long afterId = 0;
+        int loaded = 0;
+        try {
+            while (true) {
+                List<UserRepository.SearchEntryView> batch =
+                        userRepository.findSearchEntriesAfter(afterId, PageRequest.of(0, LOAD_BATCH));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lock.writeLock().lock();
+                try {
+                    for (UserRepository.SearchEntryView entry : batch) {
+                        if (!docByUserId.containsKey(entry.getId())) {
+                            addDoc(entry.getId(), entry.getFirstName(), entry.getLastName(), entry.getEmail());
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+                loaded += batch.size();
+            }
+            loadMillis = System.currentTimeMillis() - start;
+            ready = true;
+            log.info("User search index: loaded {} users in {} ms", loaded, loadMillis);
+        } catch (RuntimeException e) {
+            log.error("User search index: load failed after {} users", loaded, e);
+        }
+    }
+
+    /**
+     * Gọi từ UserSearchIndexListener sau khi transaction lưu user đã commit
+     */
+    public void upsert(Long userId, String firstName, String lastName, String email) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        String foldedLast = fold(lastName);
+        String name = joinName(fold(firstName), foldedLast);
+        String mail = foldEmail(email);
+
+        lock.readLock().lock();
+        try {
+            // Phần lớn lần lưu User là điểm / streak - văn bản tìm kiếm không đổi, không cần khóa ghi
+            Integer existing = docByUserId.get(userId);
+            if (existing != null && name.equals(docNames[existing]) && mail.equals(docEmails[existing])) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = docByUserId.get(userId);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+            insertDoc(userId, name, name.length() - foldedLast.length(), mail);
+            updates.incrementAndGet();
+            rebuildIfFragmented();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = docByUserId.remove(userId);
+            if (existing != null) {
+                markDeleted(existing);
+                updates.incrementAndGet();
+                rebuildIfFragmented();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Id user khớp với query, đã xếp hạng, tối đa limit
+     */
+    public List<Long> search(String query, Field field, int limit) {
+        long start = System.nanoTime();
+        String folded = fold(query).trim();
+        List<String> tokens = words(folded);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // Phần tử đầu heap là ứng viên kém nhất đang giữ
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        lock.readLock().lock();
+        try {
+            List<IntList> lists = new ArrayList<>();
+            for (long gram : queryGrams(tokens)) {
+                IntList list = postings.get(gram);
+                if (list == null) {
+                    return List.of();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            IntList smallest = lists.get(0);
+            for (int i = 0; i < smallest.size; i++) {
+                int docId = smallest.values[i];
+                if (deletedDocs.get(docId) || !inAll(lists, docId)) {
+                    continue;
+                }
+                int score = score(docId, folded, tokens, field);
+                if (score > 0) {
+                    Candidate candidate = new Candidate(docUserIds[docId], score, docNames[docId].length());
+                    if (best.size() < limit) {
+                        best.add(candidate);
+                    } else if (RANKING.compare(candidate, best.peek()) < 0) {
+                        best.poll();
+                        best.add(candidate);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+            queries.incrementAndGet();
+            queryNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        List<Candidate> candidates = new ArrayList<>(best);
+        candidates.sort(RANKING);
+        List<Long> userIds = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            userIds.add(candidate.userId());
+        }
+        return userIds;
+    }
+
+    private static boolean inAll(List<IntList> lists, int docId) {
+        for (int i = 1; i < lists.size(); i++) {
+            IntList list = lists.get(i);
+            if (Arrays.binarySearch(list.values, 0, list.size, docId) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 0 nếu doc không thực sự khớp (trigram chỉ là bộ lọc), càng cao càng liên quan
+     */
+    private int score(int docId, String query, List<String> tokens, Field field) {
+        String name = docNames[docId];
+        String email = docEmails[docId];
+        String primary = switch (field) {
+            case ALL -> name;
+            case LAST_NAME -> name.substring(docLastNameOffsets[docId]);
+            case EMAIL -> email;
+        };
+
+        boolean inPrimary = true;
+        for (String token : tokens) {
+            if (!matches(primary, token)) {
+                inPrimary = false;
+                if (field != Field.ALL || !matches(email, token)) {
+                    return 0;
+                }
+            }
+        }
+        if (primary.equals(query)) {
+            return 100;
+        }
+        if (primary.startsWith(query)) {
+            return 80;
+        }
+        if (field == Field.ALL && email.startsWith(query)) {
+            return 70;
+        }
+        if (inPrimary) {
+            for (String token : tokens) {
+                if (!hasWordPrefix(primary, token)) {
+                    return 40;
+                }
+            }
+            return 60;
+        }
+        return 20;
+    }
+
+    private static boolean matches(String text, String token) {
+        return token.length() >= 3 ? text.contains(token) : hasWordPrefix(text, token);
+    }
+
+    private static boolean hasWordPrefix(String text, String token) {
+        int from = 0;
+        while (true) {
+            int i = text.indexOf(token, from);
+            if (i < 0) {
+                return false;
+            }
+            if (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1))) {
+                return true;
+            }
+            from = i + 1;
+        }
+    }
+
+    private void addDoc(long userId, String firstName, String lastName, String email) {
+        String foldedLast = fold(lastName);
+        String name = joinName(fold(firstName), foldedLast);
+        insertDoc(userId, name, name.length() - foldedLast.length(), foldEmail(email));
+    }
+
+    private void insertDoc(long userId, String name, int lastNameOffset, String mail) {
+        if (docCount == docUserIds.length) {
+            int capacity = docCount * 2;
+            docUserIds = Arrays.copyOf(docUserIds, capacity);
+            docNames = Arrays.copyOf(docNames, capacity);
+            docLastNameOffsets = Arrays.copyOf(docLastNameOffsets, capacity);
+            docEmails = Arrays.copyOf(docEmails, capacity);
+        }
+        int docId = docCount++;
+        docUserIds[docId] = userId;
+        docNames[docId] = name;
+        docLastNameOffsets[docId] = lastNameOffset;
+        docEmails[docId] = mail;
+        docByUserId.put(userId, docId);
+
+        Set<Long> grams = new HashSet<>();
+        addDocGrams(name, grams);
+        addDocGrams(mail, grams);
+        for (Long gram : grams) {
+            postings.computeIfAbsent(gram, key -> new IntList()).add(docId);
+        }
+    }
+
+    private void markDeleted(int docId) {
+        if (!deletedDocs.get(docId)) {
+            deletedDocs.set(docId);
+            deletedCount++;
+        }
+    }
+
+    private void rebuildIfFragmented() {
+        if (deletedCount < MIN_DELETED_FOR_REBUILD || deletedCount * 5 < docCount) {
+            return;
+        }
+        long[] oldUserIds = docUserIds;
+        String[] oldNames = docNames;
+        int[] oldOffsets = docLastNameOffsets;
+        String[] oldEmails = docEmails;
+        int oldCount = docCount;
+
+        int capacity = Math.max(1024, oldCount - deletedCount);
+        docUserIds = new long[capacity];
+        docNames = new String[capacity];
+        docLastNameOffsets = new int[capacity];
+        docEmails = new String[capacity];
+        docCount = 0;
+        docByUserId.clear();
+        postings.clear();
+
+        BitSet deleted = (BitSet) deletedDocs.clone();
+        deletedDocs.clear();
+        deletedCount = 0;
+        for (int docId = 0; docId < oldCount; docId++) {
+            if (!deleted.get(docId)) {
+                insertDoc(oldUserIds[docId], oldNames[docId], oldOffsets[docId], oldEmails[docId]);
+            }
+        }
+        rebuilds.incrementAndGet();
+    }
+
+    /**
+     * Chuẩn hóa để so khớp: bỏ dấu tiếng Việt, đ -> d, chữ thường
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        return stripped.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+    }
+
+    private static String foldEmail(String email) {
+        return email == null ? "" : email.toLowerCase(Locale.ROOT);
+    }
+
+    private static String joinName(String first, String last) {
+        if (first.isEmpty()) {
+            return last;
+        }
+        return last.isEmpty() ? first : first + " " + last;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Trigram của doc: mỗi từ đệm "  từ " (hai khoảng trắng đầu, một cuối) như pg_trgm
+     */
+    private static void addDocGrams(String text, Set<Long> grams) {
+        for (String word : words(text)) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(gram(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2)));
+            }
+        }
+    }
+
+    private static Set<Long> queryGrams(List<String> tokens) {
+        Set<Long> grams = new HashSet<>();
+        for (String token : tokens) {
+            if (token.length() == 1) {
+                grams.add(gram(' ', ' ', token.charAt(0)));
+            } else if (token.length() == 2) {
+                grams.add(gram(' ', token.charAt(0), token.charAt(1)));
+            } else {
+                for (int i = 0; i + 3 <= token.length(); i++) {
+                    grams.add(gram(token.charAt(i), token.charAt(i + 1), token.charAt(i + 2)));
+                }
+            }
+        }
+        return grams;
+    }
+
+    private static long gram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            long postingEntries = 0;
+            for (IntList list : postings.values()) {
+                postingEntries += list.size;
+            }
+            stats.put("enabled", enabled);
+            stats.put("ready", ready);
+            stats.put("docs", docCount - deletedCount);
+            stats.put("deletedDocs", deletedCount);
+            stats.put("grams", postings.size());
+            stats.put("postingEntries", postingEntries);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long queryCount = queries.get();
+        stats.put("loadMillis", loadMillis);
+        stats.put("queries", queryCount);
+        stats.put("avgQueryMicros", queryCount == 0 ? 0.0 : queryNanos.get() / 1000.0 / queryCount);
+        stats.put("updates", updates.get());
+        stats.put("rebuilds", rebuilds.get());
+        return stats;
+    }
+
+    /**
+     * Posting list: mảng int tự giãn, docId luôn được thêm theo thứ tự tăng
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.wolftalk.backend.component;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.entity.User;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Đưa thay đổi tên / email của User vào UserSearchIndex sau mỗi commit insert / update / delete
+ *
+ * Đăng ký trực tiếp vào EventListenerRegistry của Hibernate (như SampledContentListener) nên entity
+ * User không phụ thuộc vào component tìm kiếm. Bulk query (UPDATE / DELETE bằng JPQL hay SQL) không
+ * đi qua listener - index chỉ thấy thay đổi đó ở lần load tiếp theo.
+ */
+@Component
+public class UserSearchIndexListener implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final UserSearchIndex userSearchIndex;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public UserSearchIndexListener(UserSearchIndex userSearchIndex, EntityManagerFactory entityManagerFactory) {
+        this.userSearchIndex = userSearchIndex;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof User user) {
+            userSearchIndex.upsert(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof User user) {
+            userSearchIndex.upsert(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User user) {
+            userSearchIndex.remove(user.getId());
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.getMappedClass() == User.class;
+    }
+}
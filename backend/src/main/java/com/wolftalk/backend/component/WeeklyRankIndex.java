@@ -0,0 +1,345 @@
+package com.wolftalk.backend.component;
+
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.repository.LeaderboardRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index xếp hạng in-memory cho Weekly Leaderboard
+ *
+ * - Mỗi tuần (year, weekNumber) giữ một order-statistic tree (treap)
+ *   sắp xếp theo (weeklyXp DESC, userId ASC)
+ * - Tuần hiện tại được rebuild từ bảng leaderboard_entries lúc startup. Chỉ tuần hiện tại
+ *   (và tuần vừa kết thúc, tới khi được archive) được giữ trong bộ nhớ; tuần cũ hơn được
+ *   trả lời thẳng từ database (rank bằng một câu COUNT, không load cả tuần vào index)
+ * - Sau mỗi lần ghi XP, refresh() đọc lại weekly XP đã commit của các user đó - không nhận
+ *   giá trị từ caller nên hai commit về không đúng thứ tự cũng không để lại tổng cũ
+ * - Rank của user, top-N và "xung quanh tôi" đều O(log n)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WeeklyRankIndex implements CommandLineRunner {
+
+    private final LeaderboardRepository leaderboardRepository;
+
+    private final Map<Integer, WeekRanking> weeks = new ConcurrentHashMap<>();
+
+    @Override
+    public void run(String... args) {
+        LocalDate today = LocalDate.now();
+        int weekNumber = today.get(WeekFields.of(Locale.getDefault()).weekOfWeekBasedYear());
+        int year = today.get(IsoFields.WEEK_BASED_YEAR);
+
+        WeekRanking ranking = liveWeek(year, weekNumber);
+        log.info("WeeklyRankIndex: loaded {} entries for week {}/{}", ranking.size(), weekNumber, year);
+    }
+
+    /**
+     * Cập nhật index cho các user vừa được ghi XP - gọi sau khi transaction ghi đã commit
+     *
+     * Weekly XP được đọc lại từ database trong lúc giữ refreshLock của tuần: lần refresh chạy
+     * sau luôn đọc được giá trị mới nhất đã commit, bất kể các commit kết thúc theo thứ tự nào.
+     */
+    public void refresh(int year, int weekNumber, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        WeekRanking ranking = liveWeek(year, weekNumber);
+        if (ranking == null) {
+            // Tuần cũ không nằm trong bộ nhớ - rank được tính thẳng từ database
+            return;
+        }
+        ranking.refreshLock.lock();
+        try {
+            for (Object[] row : leaderboardRepository.findWeeklyXpOfUsers(year, weekNumber, userIds)) {
+                ranking.put(((Number) row[0]).longValue(), row[1] != null ? ((Number) row[1]).intValue() : 0);
+            }
+        } finally {
+            ranking.refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Xếp hạng của user trong tuần (cùng XP thì cùng rank, giống getWeeklyLeaderboard)
+     * Nếu user chưa có entry thì trả về size + 1
+     */
+    public int rankOf(int year, int weekNumber, Long userId) {
+        WeekRanking ranking = liveWeek(year, weekNumber);
+        if (ranking == null) {
+            return (int) leaderboardRepository.countUsersAhead(year, weekNumber, userId) + 1;
+        }
+        return ranking.rankOf(userId);
+    }
+
+    /**
+     * Vị trí (0-based) của user trong bảng xếp hạng, -1 nếu chưa có entry
+     */
+    public int positionOf(int year, int weekNumber, Long userId) {
+        return week(year, weekNumber).positionOf(userId);
+    }
+
+    /**
+     * Lấy userId theo thứ tự xếp hạng từ vị trí from (0-based), tối đa count phần tử
+     */
+    public List<Long> userIdsByPosition(int year, int weekNumber, int from, int count) {
+        return week(year, weekNumber).userIds(from, count);
+    }
+
+    public int size(int year, int weekNumber) {
+        return week(year, weekNumber).size();
+    }
+
+    /**
+     * Bỏ index của một tuần đã kết thúc khỏi bộ nhớ (từ đó tuần được trả lời từ database)
+     */
+    public void evict(int year, int weekNumber) {
+        weeks.remove(key(year, weekNumber));
+    }
+
+    /**
+     * Index của tuần nếu tuần được giữ trong bộ nhớ: tuần hiện tại (load khi cần) hoặc tuần cũ
+     * còn sót lại tới lúc được evict. null với các tuần cũ khác.
+     */
+    private WeekRanking liveWeek(int year, int weekNumber) {
+        int key = key(year, weekNumber);
+        if (key >= currentWeekKey()) {
+            return weeks.computeIfAbsent(key, k -> load(year, weekNumber));
+        }
+        return weeks.get(key);
+    }
+
+    /**
+     * Index để duyệt theo vị trí: tuần cũ được load tạm cho request này, không giữ lại
+     */
+    private WeekRanking week(int year, int weekNumber) {
+        WeekRanking ranking = liveWeek(year, weekNumber);
+        return ranking != null ? ranking : load(year, weekNumber);
+    }
+
+    private WeekRanking load(int year, int weekNumber) {
+        WeekRanking ranking = new WeekRanking();
+        for (Object[] row : leaderboardRepository.findWeeklyXpSnapshot(year, weekNumber)) {
+            Long userId = ((Number) row[0]).longValue();
+            int weeklyXp = row[1] != null ? ((Number) row[1]).intValue() : 0;
+            ranking.put(userId, weeklyXp);
+        }
+        return ranking;
+    }
+
+    private static int currentWeekKey() {
+        LocalDate today = LocalDate.now();
+        return key(today.get(IsoFields.WEEK_BASED_YEAR),
+                today.get(WeekFields.of(Locale.getDefault()).weekOfWeekBasedYear()));
+    }
+
+    private static int key(int year, int weekNumber) {
+        return year * 100 + weekNumber;
+    }
+
+    /**
+     * Bảng xếp hạng của một tuần: userId -> XP và treap sắp xếp theo XP
+     */
+    private static final class WeekRanking {
+
+        private final Map<Long, Integer> xpByUser = new HashMap<>();
+        private final RankTree tree = new RankTree();
+        // Tuần tự hóa các lần refresh (đọc database + put), tách khỏi monitor của các lệnh đọc index
+        private final ReentrantLock refreshLock = new ReentrantLock();
+
+        synchronized void put(Long userId, int weeklyXp) {
+            Integer previous = xpByUser.put(userId, weeklyXp);
+            if (previous != null) {
+                if (previous == weeklyXp) {
+                    return;
+                }
+                tree.remove(previous, userId);
+            }
+            tree.insert(weeklyXp, userId);
+        }
+
+        synchronized int rankOf(Long userId) {
+            Integer xp = xpByUser.get(userId);
+            if (xp == null) {
+                return tree.size() + 1;
+            }
+            // Số user có XP cao hơn hẳn + 1
+            return tree.indexOf(xp, Long.MIN_VALUE) + 1;
+        }
+
+        synchronized int positionOf(Long userId) {
+            Integer xp = xpByUser.get(userId);
+            return xp == null ? -1 : tree.indexOf(xp, userId);
+        }
+
+        synchronized List<Long> userIds(int from, int count) {
+            List<Long> result = new ArrayList<>();
+            int end = Math.min(tree.size(), from + count);
+            for (int i = Math.max(0, from); i < end; i++) {
+                result.add(tree.select(i));
+            }
+            return result;
+        }
+
+        synchronized int size() {
+            return tree.size();
+        }
+    }
+
+    /**
+     * Treap có đếm kích thước cây con (order-statistic tree)
+     * Thứ tự: weeklyXp giảm dần, cùng XP thì userId tăng dần
+     */
+    private static final class RankTree {
+
+        private static final class Node {
+            final int xp;
+            final long userId;
+            final int priority = ThreadLocalRandom.current().nextInt();
+            int size = 1;
+            Node left;
+            Node right;
+
+            Node(int xp, long userId) {
+                this.xp = xp;
+                this.userId = userId;
+            }
+        }
+
+        private Node root;
+
+        int size() {
+            return size(root);
+        }
+
+        void insert(int xp, long userId) {
+            Node[] parts = split(root, xp, userId);
+            root = merge(merge(parts[0], new Node(xp, userId)), parts[1]);
+        }
+
+        void remove(int xp, long userId) {
+            root = remove(root, xp, userId);
+        }
+
+        /**
+         * Số phần tử đứng trước khóa (xp, userId)
+         */
+        int indexOf(int xp, long userId) {
+            int index = 0;
+            Node node = root;
+            while (node != null) {
+                if (compare(node.xp, node.userId, xp, userId) < 0) {
+                    index += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    node = node.left;
+                }
+            }
+            return index;
+        }
+
+        /**
+         * userId ở vị trí index (0-based)
+         */
+        long select(int index) {
+            Node node = root;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (index < leftSize) {
+                    node = node.left;
+                } else if (index == leftSize) {
+                    return node.userId;
+                } else {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+            throw new IndexOutOfBoundsException("Rank position out of range: " + index);
+        }
+
+        private Node remove(Node node, int xp, long userId) {
+            if (node == null) {
+                return null;
+            }
+            int cmp = compare(xp, userId, node.xp, node.userId);
+            if (cmp == 0) {
+                return merge(node.left, node.right);
+            }
+            if (cmp < 0) {
+                node.left = remove(node.left, xp, userId);
+            } else {
+                node.right = remove(node.right, xp, userId);
+            }
+            update(node);
+            return node;
+        }
+
+        /**
+         * Tách cây thành [< key] và [>= key]
+         */
+        private Node[] split(Node node, int xp, long userId) {
+            if (node == null) {
+                return new Node[] { null, null };
+            }
+            if (compare(node.xp, node.userId, xp, userId) < 0) {
+                Node[] parts = split(node.right, xp, userId);
+                node.right = parts[0];
+                update(node);
+                return new Node[] { node, parts[1] };
+            }
+            Node[] parts = split(node.left, xp, userId);
+            node.left = parts[1];
+            update(node);
+            return new Node[] { parts[0], node };
+        }
+
+        private Node merge(Node left, Node right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                update(left);
+                return left;
+            }
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+
+        private static int compare(int xpA, long userA, int xpB, long userB) {
+            if (xpA != xpB) {
+                return xpA > xpB ? -1 : 1;
+            }
+            return Long.compare(userA, userB);
+        }
+
+        private static int size(Node node) {
+            return node == null ? 0 : node.size;
+        }
+
+        private static void update(Node node) {
+            node.size = 1 + size(node.left) + size(node.right);
+        }
+    }
+}
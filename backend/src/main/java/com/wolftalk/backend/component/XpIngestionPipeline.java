@@ -0,0 +1,291 @@
+package com.wolftalk.backend.component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pipeline ghi Weekly XP
+ *
+ * - submit(): cộng dồn XP theo (user, tuần) trong ConcurrentHashMap (lock-free, không round-trip database)
+ * - flush(): một writer duy nhất (@Scheduled fixedDelay) ghi các delta đã gộp bằng batch upsert
+ *   "weekly_xp = weekly_xp + ?" nên không mất update khi nhiều request cộng XP song song
+ * - Khi số (user, tuần) đang chờ vượt capacity thì XP được ghi trực tiếp (backpressure, không bỏ XP):
+ *   LeaderboardService kiểm tra isFull() trước, submit() tự ghi thẳng nếu pipeline đầy giữa chừng
+ * - LeaderboardService chỉ submit sau khi transaction của caller commit
+ * - Batch lỗi được ghi lại từng row (transaction riêng): row lỗi không chặn XP của các user khác.
+ *   Row vẫn lỗi sau max-attempts lần flush được bỏ khỏi pipeline và ghi log "XP dead letter".
+ *   Khi database không truy cập được thì mọi row được giữ lại, không tính là lần thử.
+ *
+ * XP đang chờ flush (tối đa flush-interval) sẽ mất nếu process bị kill đột ngột;
+ * khi shutdown bình thường pipeline được flush trong @PreDestroy.
+ */
+@Component
+@Slf4j
+public class XpIngestionPipeline {
+
+    private static final String UPSERT_SQL = "INSERT INTO leaderboard_entries " +
+            "(user_id, year, week_number, weekly_xp, rank, week_start, week_end, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, 0, ?, ?, NOW(), NOW()) " +
+            "ON CONFLICT (user_id, year, week_number) " +
+            "DO UPDATE SET weekly_xp = leaderboard_entries.weekly_xp + EXCLUDED.weekly_xp, updated_at = NOW()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final WeeklyRankIndex weeklyRankIndex;
+
+    @Value("${leaderboard.xp-pipeline.capacity:100000}")
+    private int capacity;
+
+    @Value("${leaderboard.xp-pipeline.max-attempts:3}")
+    private int maxAttempts;
+
+    private final Map<XpKey, Integer> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingKeys = new AtomicInteger();
+    // Số lần flush lỗi liên tiếp của từng row (chỉ writer đọc/ghi)
+    private final Map<XpKey, Integer> failedAttempts = new HashMap<>();
+
+    // Metrics
+    private final AtomicLong submittedEvents = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong directWrites = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong deadLetteredRows = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+
+    public XpIngestionPipeline(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               WeeklyRankIndex weeklyRankIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Luôn ghi trong transaction riêng: flush() có thể được gọi khi caller đang mở transaction,
+        // delta đã lấy khỏi pending không được phụ thuộc vào việc transaction của caller commit
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.weeklyRankIndex = weeklyRankIndex;
+    }
+
+    /**
+     * Pipeline đã đầy: caller nên ghi trực tiếp (và gọi recordDirectWrite) thay vì submit
+     */
+    public boolean isFull() {
+        return pendingKeys.get() >= capacity;
+    }
+
+    /**
+     * Ghi nhận một lần caller ghi XP trực tiếp vì pipeline đầy (metrics)
+     */
+    public void recordDirectWrite() {
+        directWrites.incrementAndGet();
+    }
+
+    /**
+     * Đưa một lần cộng XP vào pipeline (gộp với XP đang chờ của cùng user/tuần)
+     * Nếu pipeline đã đầy và chưa có XP chờ cho (user, tuần) này thì ghi thẳng xuống database
+     */
+    public void submit(Long userId, int year, int weekNumber,
+                       LocalDateTime weekStart, LocalDateTime weekEnd, int xp) {
+        XpKey key = new XpKey(userId, year, weekNumber, weekStart, weekEnd);
+        submittedEvents.incrementAndGet();
+        if (pendingKeys.get() >= capacity && !pending.containsKey(key) && writeDirect(key, xp)) {
+            return;
+        }
+        pending.merge(key, xp, (current, delta) -> current + delta);
+        pendingKeys.set(pending.size());
+    }
+
+    private boolean writeDirect(XpKey key, int xp) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeRow(key, xp));
+        } catch (RuntimeException e) {
+            // Không bỏ XP: vẫn đưa vào pipeline (vượt capacity) để writer thử lại
+            log.warn("XP pipeline full and direct write failed for user {}: {}", key.userId(), e.getMessage());
+            return false;
+        }
+        directWrites.incrementAndGet();
+        refreshRankIndex(List.of(key));
+        return true;
+    }
+
+    /**
+     * XP của user trong tuần đang chờ flush (để đọc stats không bị trễ)
+     */
+    public int pendingXp(Long userId, int year, int weekNumber,
+                         LocalDateTime weekStart, LocalDateTime weekEnd) {
+        return pending.getOrDefault(new XpKey(userId, year, weekNumber, weekStart, weekEnd), 0);
+    }
+
+    /**
+     * Writer duy nhất: gom các delta đang chờ và ghi bằng batch upsert trong một transaction
+     */
+    @Scheduled(fixedDelayString = "${leaderboard.xp-pipeline.flush-interval-ms:500}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+
+        // remove() trả về tổng delta tại thời điểm lấy ra; submit sau đó tạo entry mới
+        Map<XpKey, Integer> batch = new LinkedHashMap<>();
+        for (XpKey key : new ArrayList<>(pending.keySet())) {
+            Integer delta = pending.remove(key);
+            if (delta != null && delta != 0) {
+                batch.put(key, delta);
+            }
+        }
+        pendingKeys.set(pending.size());
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+            batch.keySet().forEach(failedAttempts::remove);
+            refreshRankIndex(batch.keySet());
+            flushedRows.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            log.warn("XP pipeline batch flush failed for {} rows, writing row by row: {}", batch.size(), e.getMessage());
+            writeRowByRow(batch);
+        } finally {
+            long elapsed = System.currentTimeMillis() - startTime;
+            lastFlushMillis = elapsed;
+            maxFlushMillis = Math.max(maxFlushMillis, elapsed);
+            flushCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Ghi từng row trong transaction riêng sau khi batch lỗi: row lỗi được trả lại pipeline
+     * (hoặc dead-letter sau max-attempts lần), các row khác vẫn được ghi
+     */
+    private void writeRowByRow(Map<XpKey, Integer> batch) {
+        List<XpKey> written = new ArrayList<>();
+        boolean databaseUnavailable = false;
+        for (Map.Entry<XpKey, Integer> row : batch.entrySet()) {
+            XpKey key = row.getKey();
+            int delta = row.getValue();
+            if (databaseUnavailable) {
+                requeue(key, delta);
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeRow(key, delta));
+                failedAttempts.remove(key);
+                written.add(key);
+            } catch (RuntimeException e) {
+                if (isDatabaseUnavailable(e)) {
+                    // Lỗi không nằm ở row: giữ lại toàn bộ phần còn lại cho lần flush sau
+                    log.error("XP pipeline: database unavailable, keeping {} rows for the next flush",
+                            batch.size() - written.size(), e);
+                    databaseUnavailable = true;
+                    requeue(key, delta);
+                    continue;
+                }
+                int attempts = failedAttempts.merge(key, 1, Integer::sum);
+                if (attempts < maxAttempts) {
+                    requeue(key, delta);
+                } else {
+                    failedAttempts.remove(key);
+                    deadLetteredRows.incrementAndGet();
+                    log.error("XP dead letter: dropping {} XP of user {} for week {}/{} after {} attempts",
+                            delta, key.userId(), key.weekNumber(), key.year(), attempts, e);
+                }
+            }
+        }
+        refreshRankIndex(written);
+        flushedRows.addAndGet(written.size());
+    }
+
+    private void requeue(XpKey key, int delta) {
+        pending.merge(key, delta, (current, d) -> current + d);
+        pendingKeys.set(pending.size());
+    }
+
+    private static boolean isDatabaseUnavailable(RuntimeException e) {
+        return e instanceof CannotCreateTransactionException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransientDataAccessException;
+    }
+
+    private void writeRow(XpKey key, int delta) {
+        jdbcTemplate.update(UPSERT_SQL, key.userId(), key.year(), key.weekNumber(), delta,
+                Timestamp.valueOf(key.weekStart()), Timestamp.valueOf(key.weekEnd()));
+    }
+
+    private void writeBatch(Map<XpKey, Integer> batch) {
+        List<Object[]> args = new ArrayList<>(batch.size());
+        batch.forEach((key, delta) -> args.add(new Object[] {
+                key.userId(), key.year(), key.weekNumber(), delta,
+                Timestamp.valueOf(key.weekStart()), Timestamp.valueOf(key.weekEnd())
+        }));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+    }
+
+    /**
+     * Sau commit: rank index đọc lại weekly XP của các user vừa ghi (theo từng tuần)
+     */
+    private void refreshRankIndex(Collection<XpKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Map<Integer, Set<Long>> usersByWeek = new HashMap<>();
+        keys.forEach(key -> usersByWeek
+                .computeIfAbsent(key.year() * 100 + key.weekNumber(), w -> new HashSet<>())
+                .add(key.userId()));
+        usersByWeek.forEach((week, userIds) -> weeklyRankIndex.refresh(week / 100, week % 100, userIds));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing XP pipeline before shutdown ({} pending)", pending.size());
+        flush();
+    }
+
+    /**
+     * Metrics của pipeline (queue depth, flush latency, ...)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", pendingKeys.get());
+        stats.put("capacity", capacity);
+        stats.put("submittedEvents", submittedEvents.get());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("directWrites", directWrites.get());
+        stats.put("flushCount", flushCount.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("deadLetteredRows", deadLetteredRows.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("maxFlushMillis", maxFlushMillis);
+        return stats;
+    }
+
+    private record XpKey(Long userId, int year, int weekNumber,
+                         LocalDateTime weekStart, LocalDateTime weekEnd) {
+    }
+}
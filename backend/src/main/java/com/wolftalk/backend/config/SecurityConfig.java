@@ -15,6 +15,7 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import com.wolftalk.backend.security.JwtAuthenticationFilter;
+import com.wolftalk.backend.security.VerifiedTokenCache;
 
 @Configuration
 public class SecurityConfig {
@@ -51,7 +52,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http, com.wolftalk.backend.security.JwtUtil jwtUtil,
+    public SecurityFilterChain filterChain(HttpSecurity http, VerifiedTokenCache verifiedTokenCache,
             com.wolftalk.backend.security.OAuth2LoginSuccessHandler oAuth2LoginSuccessHandler)
             throws Exception {
         http
@@ -78,7 +79,7 @@ public class SecurityConfig {
                 .oauth2Login(oauth2 -> oauth2
                         .successHandler(oAuth2LoginSuccessHandler));
         // Add JWT filter to validate tokens and set SecurityContext
-        http.addFilterBefore(new JwtAuthenticationFilter(jwtUtil), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(new JwtAuthenticationFilter(verifiedTokenCache), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
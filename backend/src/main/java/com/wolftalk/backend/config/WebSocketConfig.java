@@ -1,30 +1,157 @@
 package com.wolftalk.backend.config;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import com.wolftalk.backend.component.ChatClusterBridge;
+import com.wolftalk.backend.component.PresenceChannelInterceptor;
+
+import lombok.extern.slf4j.Slf4j;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    /**
+     * simple  - broker trong JVM (một instance backend)
+     * relay   - STOMP broker ngoài (RabbitMQ STOMP plugin / ActiveMQ), scale ngang nhiều instance
+     * cluster - simple broker mỗi node + ChatClusterBridge fan-out /topic/** qua ChatClusterBus
+     *           (hiện chỉ có InJvmChatClusterBus: các node trong cùng một JVM, dùng cho dev / test)
+     */
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${chat.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${chat.broker.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${chat.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    @Value("${chat.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    @Value("${chat.websocket.inbound-pool-size:8}")
+    private int inboundPoolSize;
+
+    @Value("${chat.websocket.outbound-pool-size:8}")
+    private int outboundPoolSize;
+
+    @Value("${chat.websocket.send-buffer-limit-kb:512}")
+    private int sendBufferLimitKb;
+
+    @Value("${chat.websocket.send-time-limit-ms:15000}")
+    private int sendTimeLimitMs;
+
+    @Value("${chat.websocket.message-size-limit-kb:64}")
+    private int messageSizeLimitKb;
+
+    // Scheduler do @EnableWebSocketMessageBroker tạo sẵn - dùng cho heartbeat của simple broker
+    @Autowired
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    private ObjectProvider<ChatClusterBridge> chatClusterBridge;
+
+    @Autowired
+    private PresenceChannelInterceptor presenceChannelInterceptor;
+
     /**
      * Cấu hình message broker cho WebSocket
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Tiền tố cho các topic mà client subscribe
-        config.enableSimpleBroker("/topic");
-        
+        long[] heartbeat = {heartbeatMs, heartbeatMs};
+
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // Broker ngoài giữ subscription của mọi instance nên fan-out tới client ở node khác
+            var relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatMs);
+            if (!relayVirtualHost.isEmpty()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+            log.info("WebSocket broker: STOMP relay {}:{}", relayHost, relayPort);
+        } else {
+            // Tiền tố cho các topic mà client subscribe
+            config.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(heartbeat)
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+
+            ChatClusterBridge bridge = chatClusterBridge.getIfAvailable();
+            if ("cluster".equalsIgnoreCase(brokerMode) && bridge != null) {
+                config.configureBrokerChannel().interceptors(bridge);
+                log.info("WebSocket broker: simple broker with cluster fan-out");
+            }
+        }
+
         // Tiền tố cho các endpoint mà client gửi tin nhắn
         config.setApplicationDestinationPrefixes("/app");
-        
+
         // Tiền tố cho tin nhắn user-specific
         config.setUserDestinationPrefix("/user");
     }
 
+    /**
+     * Thread pool cho tin nhắn từ client (inbound) và tới client (outbound)
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor().corePoolSize(inboundPoolSize).maxPoolSize(inboundPoolSize * 2);
+        // Xác thực CONNECT + presence (connect/disconnect/heartbeat)
+        registration.interceptors(presenceChannelInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor().corePoolSize(outboundPoolSize).maxPoolSize(outboundPoolSize * 2);
+    }
+
+    /**
+     * Giới hạn cho client chậm: vượt buffer hoặc time limit thì session bị đóng
+     * thay vì giữ thread outbound
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferLimitKb * 1024)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setMessageSizeLimit(messageSizeLimitKb * 1024);
+    }
+
     /**
      * Cấu hình STOMP endpoints
      */
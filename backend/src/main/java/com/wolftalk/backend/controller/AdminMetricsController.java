@@ -0,0 +1,215 @@
+package com.wolftalk.backend.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.wolftalk.backend.component.AudioCache;
+import com.wolftalk.backend.component.AudioPregenerationJob;
+import com.wolftalk.backend.component.ChatWriteBehindJournal;
+import com.wolftalk.backend.component.ConversationInboxStore;
+import com.wolftalk.backend.component.FriendGraph;
+import com.wolftalk.backend.component.FriendSuggestionEngine;
+import com.wolftalk.backend.component.LearningTimeAccumulator;
+import com.wolftalk.backend.component.PresenceRegistry;
+import com.wolftalk.backend.component.SyllabusCatalog;
+import com.wolftalk.backend.component.UserDirectoryIndexes;
+import com.wolftalk.backend.component.UserSearchIndex;
+import com.wolftalk.backend.component.XpIngestionPipeline;
+import com.wolftalk.backend.security.VerifiedTokenCache;
+
+/**
+ * Metrics nội bộ của các pipeline / cache in-memory (chỉ ADMIN)
+ */
+@RestController
+@RequestMapping("/api/admin/metrics")
+public class AdminMetricsController {
+
+    @Autowired
+    private XpIngestionPipeline xpIngestionPipeline;
+
+    @Autowired
+    private SyllabusCatalog syllabusCatalog;
+
+    @Autowired
+    private AudioCache audioCache;
+
+    @Autowired
+    private AudioPregenerationJob audioPregenerationJob;
+
+    @Autowired
+    private ChatWriteBehindJournal chatWriteBehindJournal;
+
+    @Autowired
+    private ConversationInboxStore conversationInboxStore;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private LearningTimeAccumulator learningTimeAccumulator;
+
+    @Autowired
+    private FriendGraph friendGraph;
+
+    @Autowired
+    private FriendSuggestionEngine friendSuggestionEngine;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private UserDirectoryIndexes userDirectoryIndexes;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    /**
+     * Metrics của XP pipeline (queue depth, flush latency, ...)
+     * GET /api/admin/metrics/xp-pipeline
+     */
+    @GetMapping("/xp-pipeline")
+    public ResponseEntity<Map<String, Object>> getXpPipelineStats() {
+        return ResponseEntity.ok(xpIngestionPipeline.getStats());
+    }
+
+    /**
+     * Metrics của cache giáo trình (version, hit rate, bộ nhớ ước lượng)
+     * GET /api/admin/metrics/syllabus-cache
+     */
+    @GetMapping("/syllabus-cache")
+    public ResponseEntity<Map<String, Object>> getSyllabusCacheStats() {
+        return ResponseEntity.ok(syllabusCatalog.getStats());
+    }
+
+    /**
+     * Build lại snapshot giáo trình sau khi sửa nội dung (swap atomic, không downtime)
+     * POST /api/admin/metrics/syllabus-cache/reload
+     */
+    @PostMapping("/syllabus-cache/reload")
+    public ResponseEntity<Map<String, Object>> reloadSyllabusCache() {
+        syllabusCatalog.reload();
+        return ResponseEntity.ok(syllabusCatalog.getStats());
+    }
+
+    /**
+     * Metrics của cache audio TTS (hit theo tầng heap / đĩa)
+     * GET /api/admin/metrics/audio-cache
+     */
+    @GetMapping("/audio-cache")
+    public ResponseEntity<Map<String, Object>> getAudioCacheStats() {
+        return ResponseEntity.ok(audioCache.getStats());
+    }
+
+    /**
+     * Tiến độ job sinh trước audio
+     * GET /api/admin/metrics/audio-pregeneration
+     */
+    @GetMapping("/audio-pregeneration")
+    public ResponseEntity<Map<String, Object>> getAudioPregenerationStats() {
+        return ResponseEntity.ok(audioPregenerationJob.getStats());
+    }
+
+    /**
+     * Chạy (hoặc chạy tiếp) job sinh trước audio; 409 nếu job đang chạy
+     * POST /api/admin/metrics/audio-pregeneration/start
+     */
+    @PostMapping("/audio-pregeneration/start")
+    public ResponseEntity<Map<String, Object>> startAudioPregeneration() {
+        if (!audioPregenerationJob.start()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(audioPregenerationJob.getStats());
+        }
+        return ResponseEntity.accepted().body(audioPregenerationJob.getStats());
+    }
+
+    /**
+     * Dừng job sinh trước audio
+     * POST /api/admin/metrics/audio-pregeneration/cancel
+     */
+    @PostMapping("/audio-pregeneration/cancel")
+    public ResponseEntity<Map<String, Object>> cancelAudioPregeneration() {
+        audioPregenerationJob.cancel();
+        return ResponseEntity.ok(audioPregenerationJob.getStats());
+    }
+
+    /**
+     * Metrics của journal write-behind tin nhắn chat
+     * GET /api/admin/metrics/chat-journal
+     */
+    @GetMapping("/chat-journal")
+    public ResponseEntity<Map<String, Object>> getChatJournalStats() {
+        return ResponseEntity.ok(chatWriteBehindJournal.getStats());
+    }
+
+    /**
+     * Metrics của hộp thư chat materialize
+     * GET /api/admin/metrics/chat-inbox
+     */
+    @GetMapping("/chat-inbox")
+    public ResponseEntity<Map<String, Object>> getChatInboxStats() {
+        return ResponseEntity.ok(conversationInboxStore.getStats());
+    }
+
+    /**
+     * Metrics của presence (user online, session hết hạn, số message đã gom)
+     * GET /api/admin/metrics/presence
+     */
+    @GetMapping("/presence")
+    public ResponseEntity<Map<String, Object>> getPresenceStats() {
+        return ResponseEntity.ok(presenceRegistry.getStats());
+    }
+
+    /**
+     * Metrics của bộ cộng dồn thời gian học
+     * GET /api/admin/metrics/learning-time
+     */
+    @GetMapping("/learning-time")
+    public ResponseEntity<Map<String, Object>> getLearningTimeStats() {
+        return ResponseEntity.ok(learningTimeAccumulator.getStats());
+    }
+
+    /**
+     * Metrics của cache đồ thị bạn bè
+     * GET /api/admin/metrics/friend-graph
+     */
+    @GetMapping("/friend-graph")
+    public ResponseEntity<Map<String, Object>> getFriendGraphStats() {
+        return ResponseEntity.ok(friendGraph.getStats());
+    }
+
+    /**
+     * Metrics của engine gợi ý kết bạn
+     * GET /api/admin/metrics/friend-suggestions
+     */
+    @GetMapping("/friend-suggestions")
+    public ResponseEntity<Map<String, Object>> getFriendSuggestionStats() {
+        return ResponseEntity.ok(friendSuggestionEngine.getStats());
+    }
+
+    /**
+     * Metrics của index tìm kiếm user trong bộ nhớ
+     * GET /api/admin/metrics/user-search
+     */
+    @GetMapping("/user-search")
+    public ResponseEntity<Map<String, Object>> getUserSearchStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(userSearchIndex.getStats());
+        stats.put("trigramAvailable", userDirectoryIndexes.isTrigramAvailable());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Metrics của cache JWT đã xác thực
+     * GET /api/admin/metrics/jwt-cache
+     */
+    @GetMapping("/jwt-cache")
+    public ResponseEntity<Map<String, Object>> getJwtCacheStats() {
+        return ResponseEntity.ok(verifiedTokenCache.getStats());
+    }
+}
@@ -3,8 +3,14 @@ package com.wolftalk.backend.controller;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -15,8 +21,11 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.wolftalk.backend.component.AudioCache;
 import com.wolftalk.backend.service.AudioGenerationService;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 /**
  * Audio generation endpoint for Text-to-Speech
  * Used by alphabet quiz to generate pronunciation audio on-demand
@@ -25,9 +34,18 @@ import com.wolftalk.backend.service.AudioGenerationService;
 @RequestMapping("/api/audio")
 public class AudioController {
 
+    // Request attributes understood by Tomcat's connector for zero-copy sendfile
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private AudioGenerationService audioGenerationService;
 
+    @Value("${audio.cache.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
     /**
      * Generate audio from text
      * GET /api/audio/generate?text=hello&lang=en-US
@@ -37,7 +55,8 @@ public class AudioController {
             @RequestParam String text,
             @RequestParam(defaultValue = "en-US") String lang,
             @RequestParam(required = false) String voice,
-            @RequestParam(defaultValue = "false") boolean returnBase64) {
+            @RequestParam(defaultValue = "false") boolean returnBase64,
+            HttpServletRequest request) {
         
         try {
             // Check if service is available
@@ -50,24 +69,19 @@ public class AudioController {
                 return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
             }
             
-            String base64Audio = audioGenerationService.generateAudio(text, lang, voice);
+            AudioCache.Clip clip = audioGenerationService.getAudio(text, lang, voice);
             
             if (returnBase64) {
                 // Return as JSON with base64 string
                 Map<String, Object> response = new HashMap<>();
                 response.put("text", text);
                 response.put("language", lang);
-                response.put("audioBase64", base64Audio);
+                response.put("audioBase64", Base64.getEncoder().encodeToString(clip.readBytes()));
                 response.put("format", "mp3");
                 return ResponseEntity.ok(response);
             } else {
                 // Return as binary audio file
-                byte[] audioBytes = Base64.getDecoder().decode(base64Audio);
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
-                headers.setContentLength(audioBytes.length);
-                headers.set("Cache-Control", "public, max-age=86400"); // Cache for 1 day
-                return new ResponseEntity<>(audioBytes, headers, HttpStatus.OK);
+                return audioResponse(clip, request);
             }
         } catch (IllegalStateException e) {
             // TTS not enabled - return info to use browser TTS
@@ -94,16 +108,11 @@ public class AudioController {
     @GetMapping("/generate-with-rate")
     public ResponseEntity<?> generateAudioWithRate(
             @RequestParam String text,
-            @RequestParam(defaultValue = "0.9") double rate) {
+            @RequestParam(defaultValue = "0.9") double rate,
+            HttpServletRequest request) {
         
         try {
-            String base64Audio = audioGenerationService.generateAudioWithRate(text, rate);
-            byte[] audioBytes = Base64.getDecoder().decode(base64Audio);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
-            headers.setContentLength(audioBytes.length);
-            return new ResponseEntity<>(audioBytes, headers, HttpStatus.OK);
+            return audioResponse(audioGenerationService.getAudioWithRate(text, rate), request);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -116,14 +125,9 @@ public class AudioController {
      * GET /api/audio/generate-british?text=hello
      */
     @GetMapping("/generate-british")
-    public ResponseEntity<?> generateBritishAudio(@RequestParam String text) {
+    public ResponseEntity<?> generateBritishAudio(@RequestParam String text, HttpServletRequest request) {
         try {
-            String base64Audio = audioGenerationService.generateAudioBritish(text);
-            byte[] audioBytes = Base64.getDecoder().decode(base64Audio);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
-            return new ResponseEntity<>(audioBytes, headers, HttpStatus.OK);
+            return audioResponse(audioGenerationService.getAudioBritish(text), request);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -142,4 +146,42 @@ public class AudioController {
         status.put("service", "Google Cloud Text-to-Speech");
         return ResponseEntity.ok(status);
     }
+
+    /**
+     * Serve cached audio with ETag / Range support
+     * - If-None-Match with the content hash -> 304 without a body
+     * - Large files on disk (no Range) are handed to Tomcat sendfile (FileChannel.transferTo, zero-copy)
+     * - Range requests are answered with 206 by Spring's Resource handling
+     */
+    private ResponseEntity<?> audioResponse(AudioCache.Clip clip, HttpServletRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
+        headers.setETag(clip.etag());
+        // Content-addressed: the same URL always returns the same bytes - except fake (silent) audio,
+        // which must not stick in browsers once real TTS is enabled
+        headers.setCacheControl(audioGenerationService.isFake()
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(clip.etag()) || ifNoneMatch.trim().equals("*"))) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        boolean rangeRequest = request.getHeader(HttpHeaders.RANGE) != null;
+        if (clip.file() != null && !rangeRequest && clip.size() >= sendfileMinBytes
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, clip.file().toString());
+            request.setAttribute(SENDFILE_START_ATTR, 0L);
+            request.setAttribute(SENDFILE_END_ATTR, clip.size());
+            headers.setContentLength(clip.size());
+            return new ResponseEntity<>(headers, HttpStatus.OK);
+        }
+
+        Resource body = clip.bytes() != null
+                ? new ByteArrayResource(clip.bytes())
+                : new FileSystemResource(clip.file());
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
 }
@@ -20,6 +20,7 @@ import com.wolftalk.backend.dto.ChallengeDTO;
 import com.wolftalk.backend.dto.ChallengeSubmissionDTO;
 import com.wolftalk.backend.dto.ChallengeWeeklyProgressDTO;
 import com.wolftalk.backend.entity.Challenge;
+import com.wolftalk.backend.security.AuthenticatedUser;
 import com.wolftalk.backend.service.ChallengeService;
 
 import lombok.RequiredArgsConstructor;
@@ -241,6 +242,11 @@ public class ChallengeController {
             return ((Jwt) principal).getSubject();
         }
         
+        // Principal do JwtAuthenticationFilter đặt (email, userId đã resolve sẵn)
+        if (principal instanceof AuthenticatedUser user) {
+            return user.email();
+        }
+
         // Handle UsernamePasswordAuthenticationToken where principal is email string
         if (principal instanceof String) {
             return (String) principal;
@@ -152,27 +152,42 @@ public class ChatController {
 
     /**
      * Lấy danh sách tin nhắn của cuộc trò chuyện
-     * GET /api/chat/messages/1?page=0
+     * GET /api/chat/messages/1?before=123&limit=50  (cursor - nên dùng)
+     * GET /api/chat/messages/1?page=0               (offset - cho client cũ)
+     * nextCursor = id tin nhắn cũ nhất trong trang, null khi đã hết lịch sử
      */
     @GetMapping("/messages/{conversationId}")
     public ResponseEntity<?> getMessages(
             @PathVariable Long conversationId,
-            @RequestParam(defaultValue = "0") int page) {
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") int limit) {
         try {
             if (conversationId == null || conversationId <= 0) {
                 return ResponseEntity.badRequest()
                         .body(Map.of("error", "Invalid conversation ID"));
             }
-            
-            log.info("Getting messages for conversation {} (page: {})", conversationId, page);
-            
-            List<MessageDTO> messages = chatService.getMessages(conversationId, page);
-            
+
+            limit = Math.max(1, Math.min(limit, 100));
+            boolean cursorMode = before != null || page == 0;
+            log.info("Getting messages for conversation {} (page: {}, before: {})", conversationId, page, before);
+
+            List<MessageDTO> messages = cursorMode
+                    ? chatService.getMessagesBefore(conversationId, before, limit)
+                    : chatService.getMessages(conversationId, page);
+
+            // Tin nhắn trả về theo thứ tự mới -> cũ; tin cũ nhất là cursor cho trang tiếp theo
+            Long nextCursor = null;
+            if (!messages.isEmpty() && messages.size() >= (cursorMode ? limit : 50)) {
+                nextCursor = messages.get(messages.size() - 1).getId();
+            }
+
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("messages", messages);
             response.put("count", messages.size());
-            
+            response.put("nextCursor", nextCursor);
+
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             log.error("Validation error getting messages: {}", e.getMessage());
@@ -277,4 +292,44 @@ public class ChatController {
                     .body(Map.of("error", e.getMessage()));
         }
     }
+
+    /**
+     * Đánh dấu đã đọc cuộc trò chuyện (reset unread_count)
+     * PUT /api/chat/conversation/1/read
+     */
+    @PutMapping("/conversation/{conversationId}/read")
+    public ResponseEntity<?> markConversationRead(@PathVariable Long conversationId, Authentication auth) {
+        try {
+            chatService.markConversationReadByEmail(conversationId, auth.getName());
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "message", "Conversation marked as read"
+            ));
+        } catch (Exception e) {
+            log.error("Error marking conversation read: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Tổng số tin nhắn chưa đọc của người dùng hiện tại
+     * GET /api/chat/unread
+     */
+    @GetMapping("/unread")
+    public ResponseEntity<?> getUnreadCount(Authentication auth) {
+        try {
+            long unread = chatService.getUnreadCountByEmail(auth.getName());
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "unread", unread
+            ));
+        } catch (Exception e) {
+            log.error("Error getting unread count: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
 }
@@ -7,6 +7,7 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 
+import com.wolftalk.backend.component.PresenceRegistry;
 import com.wolftalk.backend.dto.MessageDTO;
 import com.wolftalk.backend.service.ChatService;
 
@@ -19,6 +20,9 @@ public class ChatWebSocketController {
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
     /**
      * Xử lý tin nhắn từ client qua WebSocket
      * Client gửi đến: /app/chat/{conversationId}
@@ -49,6 +53,21 @@ public class ChatWebSocketController {
         }
     }
 
+    /**
+     * Đang gõ phím
+     * Client gửi đến: /app/chat/{conversationId}/typing
+     * PresenceRegistry gom lại và broadcast TYPING đến: /topic/chat/conversation/{conversationId}
+     */
+    @MessageMapping("/chat/{conversationId}/typing")
+    public void handleTyping(
+            @DestinationVariable Long conversationId,
+            SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = (Long) headerAccessor.getSessionAttributes().get("userId");
+        if (userId != null) {
+            presenceRegistry.typing(userId, conversationId);
+        }
+    }
+
     /**
      * DTO để nhận tin nhắn từ client
      */
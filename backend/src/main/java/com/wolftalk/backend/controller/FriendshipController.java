@@ -7,11 +7,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.wolftalk.backend.component.PresenceRegistry;
 import com.wolftalk.backend.dto.FriendRequestDTO;
 import com.wolftalk.backend.dto.FriendResponseDTO;
+import com.wolftalk.backend.dto.FriendSuggestionDTO;
 import com.wolftalk.backend.dto.FriendshipDTO;
 import com.wolftalk.backend.dto.UserFriendDTO;
-import com.wolftalk.backend.repository.UserRepository;
+import com.wolftalk.backend.security.UserIdResolver;
 import com.wolftalk.backend.service.FriendshipService;
 
 import lombok.RequiredArgsConstructor;
@@ -23,7 +25,8 @@ import lombok.RequiredArgsConstructor;
 public class FriendshipController {
 
     private final FriendshipService friendshipService;
-    private final UserRepository userRepository;
+    private final UserIdResolver userIdResolver;
+    private final PresenceRegistry presenceRegistry;
 
     /**
      * Gửi lời mời kết bạn
@@ -226,6 +229,26 @@ public class FriendshipController {
         }
     }
 
+    /**
+     * Id các bạn bè đang online (trạng thái ban đầu, sau đó client nghe /topic/presence/{userId})
+     * GET /api/v1/friendships/online
+     */
+    @GetMapping("/online")
+    public ResponseEntity<?> getOnlineFriends(Principal principal) {
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(new ErrorResponse("Không được xác thực"));
+            }
+
+            Long userId = extractUserIdFromPrincipal(principal);
+            return ResponseEntity.ok(presenceRegistry.onlineFriends(userId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     /**
      * Kiểm tra xem hai user đã kết bạn chưa
      * GET /api/v1/friendships/check/{userId}
@@ -272,17 +295,18 @@ public class FriendshipController {
 
     /**
      * Tìm kiếm người dùng
-     * GET /api/v1/friendships/search?q=keyword
+     * GET /api/v1/friendships/search?q=keyword&limit=20
      */
     @GetMapping("/search")
-    public ResponseEntity<?> searchUsers(@RequestParam String q) {
+    public ResponseEntity<?> searchUsers(@RequestParam String q,
+                                         @RequestParam(required = false) Integer limit) {
         try {
             if (q == null || q.trim().isEmpty()) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(new ErrorResponse("Từ khóa tìm kiếm không được để trống"));
             }
             
-            List<UserFriendDTO> users = friendshipService.searchUsers(q);
+            List<UserFriendDTO> users = friendshipService.searchUsers(q, limit);
             return ResponseEntity.ok(users);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -290,13 +314,38 @@ public class FriendshipController {
         }
     }
 
+    /**
+     * Gợi ý kết bạn theo bạn chung
+     * GET /api/v1/friendships/suggestions?limit=20
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<?> getFriendSuggestions(
+            Principal principal,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            if (principal == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(new ErrorResponse("Không được xác thực"));
+            }
+
+            Long userId = extractUserIdFromPrincipal(principal);
+            List<FriendSuggestionDTO> suggestions = friendshipService.getFriendSuggestions(userId, limit);
+            return ResponseEntity.ok(suggestions);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     /**
      * Lấy danh sách tất cả users để hiển thị khi tìm bạn
-     * GET /api/v1/friendships/all-users
+     * GET /api/v1/friendships/all-users?after={id của user cuối trang trước}&size=20
+     * (page vẫn được hỗ trợ khi không có after)
      */
     @GetMapping("/all-users")
     public ResponseEntity<?> getAllUsers(
             Principal principal,
+            @RequestParam(required = false) Long after,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         try {
@@ -306,7 +355,7 @@ public class FriendshipController {
             }
             
             Long currentUserId = extractUserIdFromPrincipal(principal);
-            List<UserFriendDTO> allUsers = friendshipService.getAllUsersExcludingCurrent(currentUserId, page, size);
+            List<UserFriendDTO> allUsers = friendshipService.getAllUsersExcludingCurrent(currentUserId, after, page, size);
             return ResponseEntity.ok(allUsers);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -314,11 +363,9 @@ public class FriendshipController {
         }
     }
 
-    // Helper method để extract userId từ Principal
+    // Helper method để extract userId từ Principal (có sẵn trong AuthenticatedUser, không query DB)
     private Long extractUserIdFromPrincipal(Principal principal) {
-        String email = principal.getName();
-        return userRepository.findByEmailIgnoreCase(email)
-                .map(user -> user.getId())
+        return userIdResolver.findUserId(principal)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng"));
     }
 
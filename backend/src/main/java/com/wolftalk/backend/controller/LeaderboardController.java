@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.wolftalk.backend.dto.UserLeaderboardStatsDTO;
 import com.wolftalk.backend.dto.WeeklyLeaderboardEntryDTO;
+import com.wolftalk.backend.security.AuthenticatedUser;
 import com.wolftalk.backend.service.LeaderboardService;
 
 import lombok.RequiredArgsConstructor;
@@ -24,6 +25,7 @@ import lombok.extern.slf4j.Slf4j;
  * - GET /api/leaderboard/weekly - Lấy top leaderboard của tuần
  * - GET /api/leaderboard/stats/me - Lấy thống kê cá nhân
  * - GET /api/leaderboard/history - Lấy lịch sử ranking
+ * - GET /api/leaderboard/around-me - Lấy các user xếp hạng quanh user hiện tại
  */
 @RestController
 @RequestMapping("/api/leaderboard")
@@ -80,6 +82,23 @@ public class LeaderboardController {
         return ResponseEntity.ok(history);
     }
 
+    /**
+     * Lấy các user xếp hạng ngay trên và dưới user hiện tại trong tuần
+     * 
+     * @param radius Số user mỗi phía (default: 5)
+     * @return List<WeeklyLeaderboardEntryDTO>
+     */
+    @GetMapping("/around-me")
+    public ResponseEntity<List<WeeklyLeaderboardEntryDTO>> getAroundMe(
+            Authentication authentication,
+            @RequestParam(defaultValue = "5") int radius) {
+        String email = extractEmail(authentication);
+
+        log.info("Fetching leaderboard around user: {}, radius: {}", email, radius);
+        List<WeeklyLeaderboardEntryDTO> around = leaderboardService.getUsersAroundMeByEmail(email, Math.min(radius, 50));
+        return ResponseEntity.ok(around);
+    }
+
     /**
      * Award XP to a user (called by external services like pronunciation-checking)
      * 
@@ -115,7 +134,12 @@ public class LeaderboardController {
             return ((Jwt) principal).getSubject();
         }
         
-        // Handle case where principal is a String (email directly from JwtAuthenticationFilter)
+        // Principal do JwtAuthenticationFilter đặt (email, userId đã resolve sẵn)
+        if (principal instanceof AuthenticatedUser user) {
+            return user.email();
+        }
+
+        // Handle case where principal is a plain email String
         if (principal instanceof String) {
             return (String) principal;
         }
@@ -17,6 +17,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.wolftalk.backend.dto.DailyQuestProgressDTO;
 import com.wolftalk.backend.dto.MonthlyChallengeProgressDTO;
 import com.wolftalk.backend.dto.QuestDashboardDTO;
+import com.wolftalk.backend.security.AuthenticatedUser;
 import com.wolftalk.backend.service.QuestService;
 
 import lombok.RequiredArgsConstructor;
@@ -224,7 +225,12 @@ public class QuestController {
             return ((Jwt) principal).getSubject();
         }
         
-        // Handle case where principal is a String (email directly from JwtAuthenticationFilter)
+        // Principal do JwtAuthenticationFilter đặt (email, userId đã resolve sẵn)
+        if (principal instanceof AuthenticatedUser user) {
+            return user.email();
+        }
+
+        // Handle case where principal is a plain email String
         if (principal instanceof String) {
             return (String) principal;
         }
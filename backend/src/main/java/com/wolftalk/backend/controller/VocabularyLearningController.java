@@ -16,7 +16,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.wolftalk.backend.dto.VocabularyLearningDTO;
-import com.wolftalk.backend.repository.UserRepository;
+import com.wolftalk.backend.security.AuthenticatedUser;
+import com.wolftalk.backend.security.UserIdResolver;
 import com.wolftalk.backend.service.VocabularyLearningService;
 
 import lombok.RequiredArgsConstructor;
@@ -30,7 +31,7 @@ import lombok.extern.slf4j.Slf4j;
 public class VocabularyLearningController {
 
     private final VocabularyLearningService vocabularyService;
-    private final UserRepository userRepository;
+    private final UserIdResolver userIdResolver;
 
     /**
      * Get user's vocabulary level and stats
@@ -202,7 +203,12 @@ public class VocabularyLearningController {
             // Fallback to subject which contains email in our JWT
             return jwt.getSubject();
         }
-        // Handle case where principal is a String (email directly from JwtAuthenticationFilter)
+        // Principal do JwtAuthenticationFilter đặt (email, userId đã resolve sẵn)
+        if (principal instanceof AuthenticatedUser user) {
+            return user.email();
+        }
+
+        // Handle case where principal is a plain email String
         if (principal instanceof String) {
             return (String) principal;
         }
@@ -210,8 +216,7 @@ public class VocabularyLearningController {
     }
 
     private Long getUserIdFromEmail(String email) {
-        return userRepository.findByEmailIgnoreCase(email)
-            .orElseThrow(() -> new RuntimeException("User not found"))
-            .getId();
+        return userIdResolver.findUserId(email)
+            .orElseThrow(() -> new RuntimeException("User not found"));
     }
 }
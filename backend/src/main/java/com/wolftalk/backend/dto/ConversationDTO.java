@@ -51,6 +51,9 @@ public class ConversationDTO {
     @JsonProperty("last_message_at")
     private Instant lastMessageAt;
 
+    @JsonProperty("unread_count")
+    private Integer unreadCount;
+
     @JsonProperty("firebase_room_id")
     private String firebaseRoomId;
 
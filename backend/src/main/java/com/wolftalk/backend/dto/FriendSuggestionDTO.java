@@ -0,0 +1,19 @@
+package com.wolftalk.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendSuggestionDTO {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String avatar;
+    private String currentLeague;
+    private String currentLevel;
+    private Integer mutualFriends;
+    private Double score;
+}
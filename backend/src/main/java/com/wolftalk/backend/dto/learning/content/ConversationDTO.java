@@ -1,15 +1,11 @@
 package com.wolftalk.backend.dto.learning.content;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+@Value
 public class ConversationDTO {
-    private Long id;
-    private int order;
-    private String en; // Mapped from textEn
-    private String vi; // Mapped from textVi
+    Long id;
+    int order;
+    String en; // Mapped from textEn
+    String vi; // Mapped from textVi
 }
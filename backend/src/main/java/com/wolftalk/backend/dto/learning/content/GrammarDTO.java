@@ -1,17 +1,13 @@
 package com.wolftalk.backend.dto.learning.content;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+@Value
 public class GrammarDTO {
-    private Long id;
-    private String name;
-    private String formula;
-    private String explanation;
-    private String example;
-    private String note;
+    Long id;
+    String name;
+    String formula;
+    String explanation;
+    String example;
+    String note;
 }
@@ -1,32 +1,26 @@
 package com.wolftalk.backend.dto.learning.content;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 import java.util.List;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+@Value
 public class PracticeQuestionDTO {
-    private String id;
-    private String type;
-    private String question;
-    private String explanation;
-    private String correctAnswer;
-    private List<String> options;
-    private List<String> segments;
-    private List<String> correctOrder;
-    private List<MatchingPairDTO> pairs;
-    private String imageUrl;
-    private String audioUrl;
+    String id;
+    String type;
+    String question;
+    String explanation;
+    String correctAnswer;
+    List<String> options;
+    List<String> segments;
+    List<String> correctOrder;
+    List<MatchingPairDTO> pairs;
+    String imageUrl;
+    String audioUrl;
 
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
+    @Value
     public static class MatchingPairDTO {
-        private String id;
-        private String left;
-        private String right;
+        String id;
+        String left;
+        String right;
     }
 }
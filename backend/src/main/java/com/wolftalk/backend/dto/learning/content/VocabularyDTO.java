@@ -1,17 +1,13 @@
 package com.wolftalk.backend.dto.learning.content;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+@Value
 public class VocabularyDTO {
-    private Long id;
-    private String word;
-    private String phonetic;
-    private String meaning;
-    private String example;
-    private String usage;
+    Long id;
+    String word;
+    String phonetic;
+    String meaning;
+    String example;
+    String usage;
 }
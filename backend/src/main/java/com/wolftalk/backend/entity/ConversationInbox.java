@@ -0,0 +1,74 @@
+package com.wolftalk.backend.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Hộp thư chat đã materialize: một dòng cho mỗi (user, conversation)
+ * Được ConversationInboxStore cập nhật dần khi tin nhắn được ghi (journal flush) và khi đọc tin nhắn
+ * Danh sách cuộc trò chuyện của một user = một lần quét index (user_id, is_archived, last_activity_at)
+ */
+@Entity
+@Table(
+    name = "conversation_inbox",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "conversation_id"}),
+    indexes = @Index(name = "idx_conversation_inbox_user_activity",
+            columnList = "user_id, is_archived, last_activity_at")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationInbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    @Column(name = "other_user_id", nullable = false)
+    private Long otherUserId;
+
+    @Column(name = "last_message", columnDefinition = "TEXT")
+    private String lastMessage;
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_message_sender_id")
+    private Long lastMessageSenderId;
+
+    @Column(name = "last_message_at")
+    private Instant lastMessageAt;
+
+    // Tin nhắn cuối hoặc thời điểm tạo cuộc trò chuyện - luôn có giá trị để sắp xếp theo index
+    @Column(name = "last_activity_at", nullable = false)
+    private Instant lastActivityAt;
+
+    @Column(name = "unread_count", nullable = false)
+    private Integer unreadCount = 0;
+
+    @Column(name = "last_read_message_id")
+    private Long lastReadMessageId;
+
+    @Column(name = "is_archived", nullable = false)
+    private Boolean isArchived = false;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt = Instant.now();
+}
@@ -9,6 +9,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -20,6 +21,9 @@ import lombok.NoArgsConstructor;
 @Entity
 @Table(name = "friendships", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"requester_id", "receiver_id"})
+}, indexes = {
+    // Unique (requester_id, receiver_id) phục vụ chiều requester; index này cho chiều receiver (FriendGraph)
+    @Index(name = "idx_friendships_receiver", columnList = "receiver_id")
 })
 @Data
 @NoArgsConstructor
@@ -0,0 +1,58 @@
+package com.wolftalk.backend.entity;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Snapshot gọn của leaderboard một tuần đã kết thúc
+ * Được ghi bởi LeaderboardService.resetWeeklyLeaderboard (thứ Hai 00:00, chạy lại lúc 00:10)
+ * Chỉ lưu userId, XP và rank cuối tuần - không join User
+ */
+@Entity
+@Table(
+    name = "leaderboard_week_snapshots",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "year", "week_number"}),
+    indexes = @Index(name = "idx_leaderboard_snapshot_week", columnList = "year, week_number, final_rank")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardWeekSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "week_number", nullable = false)
+    private Integer weekNumber;
+
+    @Column(nullable = false)
+    private Integer year;
+
+    @Column(name = "weekly_xp", nullable = false)
+    private Integer weeklyXp;
+
+    @Column(name = "final_rank", nullable = false)
+    private Integer finalRank; // Xếp hạng cuối tuần (cùng XP thì cùng rank)
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+}
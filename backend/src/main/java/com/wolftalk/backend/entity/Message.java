@@ -7,6 +7,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -15,7 +16,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "messages")
+@Table(
+    name = "messages",
+    // Phục vụ lịch sử chat theo keyset: WHERE conversation_id = ? AND is_deleted = false
+    // ORDER BY created_at DESC, id DESC
+    indexes = @Index(name = "idx_messages_conversation_history",
+            columnList = "conversation_id, is_deleted, created_at, id")
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
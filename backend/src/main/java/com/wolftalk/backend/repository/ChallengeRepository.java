@@ -17,13 +17,13 @@ public interface ChallengeRepository extends JpaRepository<Challenge, Long> {
 
     List<Challenge> findByTypeAndLevel(Challenge.ChallengeType type, Integer level);
 
-    @Query(value = "SELECT * FROM challenges WHERE type = :type ORDER BY RANDOM() LIMIT :limit", nativeQuery = true)
-    List<Challenge> findRandomByType(@Param("type") String type, @Param("limit") int limit);
-    
-    // Overload for enum type
-    default List<Challenge> findRandomByType(Challenge.ChallengeType type, int limit) {
-        return findRandomByType(type.name(), limit);
-    }
+    // Ids of all challenges of a type (used by RandomSampler)
+    @Query("SELECT c.id FROM Challenge c WHERE c.type = :type")
+    List<Long> findIdsByType(@Param("type") Challenge.ChallengeType type);
+
+    // Content of all challenges of a type (used by AudioPregenerationJob)
+    @Query("SELECT DISTINCT c.content FROM Challenge c WHERE c.type = :type AND c.content IS NOT NULL")
+    List<String> findDistinctContentByType(@Param("type") Challenge.ChallengeType type);
     
     // Get challenges by type ordered by level ascending (level 1, 2, 3...)
     @Query(value = "SELECT * FROM challenges WHERE type = :type ORDER BY level ASC LIMIT :limit", nativeQuery = true)
@@ -0,0 +1,52 @@
+package com.wolftalk.backend.repository;
+
+import com.wolftalk.backend.entity.ConversationInbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ConversationInboxRepository extends JpaRepository<ConversationInbox, Long> {
+
+    /**
+     * Một dòng hộp thư kèm thông tin người kia - join theo khóa chính, không load entity User/Conversation
+     */
+    interface InboxView {
+        Long getConversationId();
+        Long getUser1Id();
+        Long getUser2Id();
+        Long getOtherUserId();
+        String getOtherFirstName();
+        String getOtherLastName();
+        String getOtherAvatar();
+        String getLastMessage();
+        Long getLastMessageSenderId();
+        Instant getLastMessageAt();
+        Integer getUnreadCount();
+        Instant getCreatedAt();
+        Instant getUpdatedAt();
+    }
+
+    @Query("SELECT i.conversationId AS conversationId, c.user1.id AS user1Id, c.user2.id AS user2Id, " +
+           "u.id AS otherUserId, u.firstName AS otherFirstName, u.lastName AS otherLastName, " +
+           "u.avatar AS otherAvatar, i.lastMessage AS lastMessage, i.lastMessageSenderId AS lastMessageSenderId, " +
+           "i.lastMessageAt AS lastMessageAt, i.unreadCount AS unreadCount, " +
+           "c.createdAt AS createdAt, c.updatedAt AS updatedAt " +
+           "FROM ConversationInbox i " +
+           "JOIN Conversation c ON c.id = i.conversationId " +
+           "JOIN User u ON u.id = i.otherUserId " +
+           "WHERE i.userId = :userId AND i.isArchived = false " +
+           "ORDER BY i.lastActivityAt DESC")
+    List<InboxView> findInbox(@Param("userId") Long userId, Pageable pageable);
+
+    boolean existsByUserIdAndConversationId(Long userId, Long conversationId);
+
+    @Query("SELECT COALESCE(SUM(i.unreadCount), 0) FROM ConversationInbox i " +
+           "WHERE i.userId = :userId AND i.isArchived = false")
+    long sumUnread(@Param("userId") Long userId);
+}
@@ -28,10 +28,10 @@ public interface DailyQuestRepository extends JpaRepository<DailyQuest, Long> {
     List<DailyQuest> findByDifficultyAndIsActiveTrue(Integer difficulty);
 
     /**
-     * Lấy quest ngẫu nhiên (mix các loại)
+     * Lấy id các quest đang active (RandomSampler dùng để random quest)
      */
-    @Query(value = "SELECT * FROM daily_quests WHERE is_active = true ORDER BY RANDOM() LIMIT :limit", nativeQuery = true)
-    List<DailyQuest> findRandomActiveQuests(@Param("limit") int limit);
+    @Query("SELECT q.id FROM DailyQuest q WHERE q.isActive = true")
+    List<Long> findActiveIds();
 
     /**
      * Lấy quest theo difficulty và số lượng
@@ -45,4 +45,22 @@ public interface FriendshipRepository extends JpaRepository<Friendship, Long> {
     // Kiểm tra xem hai user có phải là bạn bè không (trả về true/false)
     @Query("SELECT CASE WHEN COUNT(f) > 0 THEN true ELSE false END FROM Friendship f WHERE ((f.requester.id = :userId1 AND f.receiver.id = :userId2) OR (f.requester.id = :userId2 AND f.receiver.id = :userId1)) AND f.status = 'ACCEPTED'")
     boolean isFriendship(@Param("userId1") Long userId1, @Param("userId2") Long userId2);
+
+    /**
+     * Một cạnh của đồ thị bạn bè - chỉ id và trạng thái, không load User
+     */
+    interface FriendEdge {
+        Long getRequesterId();
+        Long getReceiverId();
+        FriendshipStatus getStatus();
+    }
+
+    // Các cạnh đi ra / đi vào của user (hai truy vấn theo index thay vì OR)
+    @Query("SELECT f.requester.id AS requesterId, f.receiver.id AS receiverId, f.status AS status " +
+           "FROM Friendship f WHERE f.requester.id = :userId")
+    List<FriendEdge> findEdgesFrom(@Param("userId") Long userId);
+
+    @Query("SELECT f.requester.id AS requesterId, f.receiver.id AS receiverId, f.status AS status " +
+           "FROM Friendship f WHERE f.receiver.id = :userId")
+    List<FriendEdge> findEdgesTo(@Param("userId") Long userId);
 }
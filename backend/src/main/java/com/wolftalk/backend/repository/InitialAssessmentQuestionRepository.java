@@ -22,7 +22,7 @@ public interface InitialAssessmentQuestionRepository extends JpaRepository<Initi
     // Lấy câu hỏi theo mức độ khó
     List<InitialAssessmentQuestion> findByDifficulty(Integer difficulty);
     
-    // Lấy ngẫu nhiên N câu hỏi
-    @Query(value = "SELECT * FROM initial_assessment_questions ORDER BY RANDOM() LIMIT ?1", nativeQuery = true)
-    List<InitialAssessmentQuestion> findRandomQuestions(Integer limit);
+    // Lấy id tất cả câu hỏi (RandomSampler dùng để lấy ngẫu nhiên N câu hỏi)
+    @Query("SELECT q.id FROM InitialAssessmentQuestion q")
+    List<Long> findAllIds();
 }
@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +20,25 @@ public interface LeaderboardRepository extends JpaRepository<LeaderboardEntry, L
      */
     Optional<LeaderboardEntry> findByUserAndYearAndWeekNumber(User user, Integer year, Integer weekNumber);
 
+    /**
+     * Cộng XP cho user trong tuần bằng một câu upsert atomic
+     * Entry của tuần chỉ được tạo ở lần ghi XP đầu tiên
+     *
+     * @return weekly XP sau khi cộng
+     */
+    @Query(value = "INSERT INTO leaderboard_entries " +
+            "(user_id, year, week_number, weekly_xp, rank, week_start, week_end, created_at, updated_at) " +
+            "VALUES (:userId, :year, :weekNumber, :xp, 0, :weekStart, :weekEnd, NOW(), NOW()) " +
+            "ON CONFLICT (user_id, year, week_number) " +
+            "DO UPDATE SET weekly_xp = leaderboard_entries.weekly_xp + EXCLUDED.weekly_xp, updated_at = NOW() " +
+            "RETURNING weekly_xp", nativeQuery = true)
+    Integer upsertWeeklyXp(@Param("userId") Long userId,
+                           @Param("year") Integer year,
+                           @Param("weekNumber") Integer weekNumber,
+                           @Param("xp") int xp,
+                           @Param("weekStart") LocalDateTime weekStart,
+                           @Param("weekEnd") LocalDateTime weekEnd);
+
     /**
      * Lấy top entries của tuần hiện tại, sắp xếp theo XP giảm dần
      */
@@ -34,6 +55,45 @@ public interface LeaderboardRepository extends JpaRepository<LeaderboardEntry, L
      */
     List<LeaderboardEntry> findByYearAndWeekNumberOrderByWeeklyXpDesc(Integer year, Integer weekNumber);
 
+    /**
+     * Lấy entries của một nhóm user trong tuần (kèm User để hiển thị)
+     */
+    @Query("SELECT le FROM LeaderboardEntry le JOIN FETCH le.user u " +
+            "WHERE le.year = :year AND le.weekNumber = :weekNumber AND u.id IN :userIds")
+    List<LeaderboardEntry> findByYearAndWeekNumberAndUserIdIn(@Param("year") Integer year,
+                                                             @Param("weekNumber") Integer weekNumber,
+                                                             @Param("userIds") List<Long> userIds);
+
+    /**
+     * Lấy (userId, weeklyXp) của một tuần để build rank index (không load entity User)
+     */
+    @Query("SELECT le.user.id, le.weeklyXp FROM LeaderboardEntry le " +
+            "WHERE le.year = :year AND le.weekNumber = :weekNumber")
+    List<Object[]> findWeeklyXpSnapshot(@Param("year") Integer year,
+                                        @Param("weekNumber") Integer weekNumber);
+
+    /**
+     * Lấy weekly XP hiện tại của một nhóm user (WeeklyRankIndex.refresh sau khi ghi XP)
+     */
+    @Query("SELECT le.user.id, le.weeklyXp FROM LeaderboardEntry le " +
+            "WHERE le.year = :year AND le.weekNumber = :weekNumber AND le.user.id IN :userIds")
+    List<Object[]> findWeeklyXpOfUsers(@Param("year") Integer year,
+                                       @Param("weekNumber") Integer weekNumber,
+                                       @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Số user có weekly XP cao hơn hẳn user trong tuần (rank của tuần cũ không nằm trong WeeklyRankIndex)
+     * User chưa có entry đứng sau tất cả các entry của tuần
+     */
+    @Query(value = "SELECT COUNT(*) FROM leaderboard_entries le " +
+            "WHERE le.year = :year AND le.week_number = :weekNumber " +
+            "AND COALESCE(le.weekly_xp, 0) > COALESCE((SELECT COALESCE(me.weekly_xp, 0) FROM leaderboard_entries me " +
+            "WHERE me.user_id = :userId AND me.year = :year AND me.week_number = :weekNumber), -1)",
+            nativeQuery = true)
+    long countUsersAhead(@Param("year") Integer year,
+                         @Param("weekNumber") Integer weekNumber,
+                         @Param("userId") Long userId);
+
     /**
      * Tìm xếp hạng của user trong tuần cụ thể
      */
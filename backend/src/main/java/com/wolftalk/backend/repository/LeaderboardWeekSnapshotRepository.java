@@ -0,0 +1,36 @@
+package com.wolftalk.backend.repository;
+
+import com.wolftalk.backend.entity.LeaderboardWeekSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LeaderboardWeekSnapshotRepository extends JpaRepository<LeaderboardWeekSnapshot, Long> {
+
+    /**
+     * Archive toàn bộ một tuần vào bảng snapshot bằng một câu INSERT ... SELECT
+     * (rank tính bằng RANK() ngay trong database, bỏ qua entry 0 XP)
+     * Chạy lại được: snapshot đã có được cập nhật theo XP và rank mới nhất
+     */
+    @Modifying
+    @Query(value = "INSERT INTO leaderboard_week_snapshots " +
+            "(user_id, year, week_number, weekly_xp, final_rank, created_at) " +
+            "SELECT le.user_id, le.year, le.week_number, le.weekly_xp, " +
+            "RANK() OVER (ORDER BY le.weekly_xp DESC), NOW() " +
+            "FROM leaderboard_entries le " +
+            "WHERE le.year = :year AND le.week_number = :weekNumber AND le.weekly_xp > 0 " +
+            "ON CONFLICT (user_id, year, week_number) " +
+            "DO UPDATE SET weekly_xp = EXCLUDED.weekly_xp, final_rank = EXCLUDED.final_rank", nativeQuery = true)
+    int archiveWeek(@Param("year") Integer year, @Param("weekNumber") Integer weekNumber);
+
+    /**
+     * Lấy tất cả snapshot của user để xem lịch sử
+     */
+    List<LeaderboardWeekSnapshot> findByUserIdOrderByYearDescWeekNumberDesc(Long userId);
+
+}
@@ -8,4 +8,8 @@ import java.util.List;
 @Repository
 public interface LessonConversationRepository extends JpaRepository<LessonConversation, Long> {
     List<LessonConversation> findByLessonIdOrderByOrderAsc(String lessonId);
+
+    // Câu tiếng Anh của toàn bộ conversation (dùng cho AudioPregenerationJob)
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT c.textEn FROM LessonConversation c WHERE c.textEn IS NOT NULL")
+    List<String> findDistinctTextEn();
 }
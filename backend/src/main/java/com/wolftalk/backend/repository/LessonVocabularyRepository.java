@@ -11,4 +11,11 @@ public interface LessonVocabularyRepository extends JpaRepository<LessonVocabula
 
     @org.springframework.data.jpa.repository.Query("SELECT COUNT(v) FROM LessonVocabulary v JOIN v.lesson l WHERE l.id IN (SELECT p.lessonId FROM UserLessonProgress p WHERE p.userId = :userId AND p.isCompleted = true)")
     long countLearnedWordsByUserId(@org.springframework.data.repository.query.Param("userId") Long userId);
+
+    // Text cần đọc của toàn bộ vocabulary (dùng cho AudioPregenerationJob)
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT v.word FROM LessonVocabulary v WHERE v.word IS NOT NULL")
+    List<String> findDistinctWords();
+
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT v.example FROM LessonVocabulary v WHERE v.example IS NOT NULL")
+    List<String> findDistinctExamples();
 }
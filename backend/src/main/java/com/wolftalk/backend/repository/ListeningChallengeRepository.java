@@ -19,4 +19,8 @@ public interface ListeningChallengeRepository extends JpaRepository<ListeningCha
     
     @Query("SELECT lc FROM ListeningChallenge lc WHERE lc.isActive = true ORDER BY lc.difficultyLevel ASC LIMIT ?1")
     List<ListeningChallenge> findRandomChallenges(int limit);
+
+    // Text tiếng Anh của các challenge đang active (dùng cho AudioPregenerationJob)
+    @Query("SELECT DISTINCT lc.englishText FROM ListeningChallenge lc WHERE lc.isActive = true")
+    List<String> findDistinctActiveEnglishTexts();
 }
@@ -1,19 +1,64 @@
 package com.wolftalk.backend.repository;
 
-import com.wolftalk.backend.entity.Conversation;
 import com.wolftalk.backend.entity.Message;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
-    @Query("SELECT m FROM Message m WHERE m.conversation = ?1 AND m.isDeleted = false " +
-           "ORDER BY m.createdAt DESC")
-    Page<Message> findByConversationAndNotDeleted(Conversation conversation, Pageable pageable);
+    /**
+     * Projection một dòng lịch sử chat: tin nhắn + tên/avatar người gửi trong cùng một câu SELECT
+     * (không load entity Message/User nên không có truy vấn User theo từng dòng)
+     */
+    interface MessageView {
+        Long getId();
+        Long getSenderId();
+        String getSenderFirstName();
+        String getSenderLastName();
+        String getSenderAvatar();
+        String getContent();
+        Instant getCreatedAt();
+        Boolean getIsDeleted();
+    }
+
+    String HISTORY_SELECT = "SELECT m.id AS id, s.id AS senderId, s.firstName AS senderFirstName, " +
+            "s.lastName AS senderLastName, s.avatar AS senderAvatar, m.content AS content, " +
+            "m.createdAt AS createdAt, m.isDeleted AS isDeleted " +
+            "FROM Message m JOIN m.sender s " +
+            "WHERE m.conversation.id = :conversationId AND m.isDeleted = false ";
+
+    String HISTORY_ORDER = "ORDER BY m.createdAt DESC, m.id DESC";
+
+    /**
+     * Trang mới nhất (hoặc trang theo offset cho client cũ dùng ?page=) - không có count query
+     */
+    @Query(HISTORY_SELECT + HISTORY_ORDER)
+    List<MessageView> findHistory(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    /**
+     * Keyset: các tin nhắn cũ hơn cursor (createdAt, id)
+     * So sánh row-value để Postgres quét một khoảng liền trên idx_messages_conversation_history,
+     * nên chi phí không phụ thuộc độ sâu trang
+     */
+    @Query(HISTORY_SELECT +
+            "AND (m.createdAt, m.id) < (:createdAt, :beforeId) " +
+            HISTORY_ORDER)
+    List<MessageView> findHistoryBefore(@Param("conversationId") Long conversationId,
+                                        @Param("createdAt") Instant createdAt,
+                                        @Param("beforeId") Long beforeId,
+                                        Pageable pageable);
+
+    /**
+     * Vị trí của cursor - chỉ lấy created_at, không load entity
+     */
+    @Query("SELECT m.createdAt FROM Message m WHERE m.id = :id AND m.conversation.id = :conversationId")
+    Optional<Instant> findCreatedAtById(@Param("conversationId") Long conversationId, @Param("id") Long id);
 }
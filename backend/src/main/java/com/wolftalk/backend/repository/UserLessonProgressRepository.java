@@ -2,6 +2,8 @@ package com.wolftalk.backend.repository;
 
 import com.wolftalk.backend.entity.UserLessonProgress;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 import java.util.List;
@@ -13,4 +15,7 @@ public interface UserLessonProgressRepository extends JpaRepository<UserLessonPr
     long countByUserIdAndIsCompletedTrue(Long userId);
 
     List<UserLessonProgress> findByUserId(Long userId);
+
+    @Query("SELECT p.lessonId FROM UserLessonProgress p WHERE p.userId = :userId AND p.isCompleted = true")
+    List<String> findCompletedLessonIdsByUserId(@Param("userId") Long userId);
 }
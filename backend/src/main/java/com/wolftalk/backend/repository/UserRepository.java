@@ -1,13 +1,18 @@
 package com.wolftalk.backend.repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.wolftalk.backend.dto.UserFriendDTO;
 import com.wolftalk.backend.entity.User;
 
 @Repository
@@ -16,17 +21,137 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmailIgnoreCase(String email);
 
-    // Tìm kiếm người dùng theo tên
-    @Query("SELECT u FROM User u WHERE LOWER(CONCAT(u.firstName, ' ', u.lastName)) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<User> searchByName(@Param("searchTerm") String searchTerm);
+    // Chỉ lấy id (UserIdResolver / VerifiedTokenCache) - không load entity
+    @Query("SELECT u.id FROM User u WHERE LOWER(u.email) = LOWER(:email)")
+    Optional<Long> findIdByEmailIgnoreCase(@Param("email") String email);
+
+    /**
+     * Thông tin để xếp hạng gợi ý kết bạn (league + trình độ) - không load entity
+     */
+    interface SuggestionCandidateView {
+        Long getId();
+        String getFirstName();
+        String getLastName();
+        String getAvatar();
+        String getCurrentLeague();
+        String getCurrentLevel();
+    }
+
+    String SUGGESTION_CANDIDATE_SELECT = "SELECT u.id AS id, u.firstName AS firstName, u.lastName AS lastName, " +
+            "u.avatar AS avatar, u.currentLeague AS currentLeague, lp.currentLevel AS currentLevel " +
+            "FROM User u LEFT JOIN LearningProfile lp ON lp.user = u ";
+
+    @Query(SUGGESTION_CANDIDATE_SELECT + "WHERE u.id IN :ids")
+    List<SuggestionCandidateView> findSuggestionCandidates(@Param("ids") Collection<Long> ids);
+
+    // User cùng league hoạt động gần đây - bù cho người chưa có bạn bè
+    @Query(SUGGESTION_CANDIDATE_SELECT +
+           "WHERE u.currentLeague = :league AND u.id <> :userId AND u.roles LIKE '%ROLE_USER%' " +
+           "ORDER BY u.lastActiveDate DESC NULLS LAST")
+    List<SuggestionCandidateView> findActiveInLeague(@Param("league") String league,
+                                                     @Param("userId") Long userId,
+                                                     Pageable pageable);
+
+    // Thẻ bạn bè (UserFriendDTO) - chỉ các cột cần hiển thị
+    String FRIEND_CARD_SELECT = "SELECT new com.wolftalk.backend.dto.UserFriendDTO(u.id, u.firstName, u.lastName, " +
+            "u.email, u.avatar, u.learningLanguage, u.points, u.streak, u.lastActiveDate) FROM User u ";
+
+    @Query(FRIEND_CARD_SELECT + "WHERE u.id IN :ids")
+    List<UserFriendDTO> findFriendCardsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Khóa sắp xếp của danh bạ user - khớp với index idx_users_directory
+     * (COALESCE(first_name, ''), COALESCE(last_name, ''), id), xem UserDirectoryIndexes
+     */
+    interface DirectoryKeyView {
+        String getFirstName();
+        String getLastName();
+        Long getId();
+    }
+
+    String DIRECTORY_SELECT = FRIEND_CARD_SELECT +
+            "WHERE u.roles LIKE '%ROLE_USER%' AND u.id <> :currentUserId ";
+
+    String DIRECTORY_ORDER = "ORDER BY COALESCE(u.firstName, ''), COALESCE(u.lastName, ''), u.id";
+
+    // Trang đầu (hoặc phân trang offset cũ) của danh bạ
+    @Query(DIRECTORY_SELECT + DIRECTORY_ORDER)
+    List<UserFriendDTO> findDirectoryPage(@Param("currentUserId") Long currentUserId, Pageable pageable);
+
+    // Trang tiếp theo sau khóa (firstName, lastName, id) của dòng cuối trang trước - keyset trên index
+    @Query(DIRECTORY_SELECT +
+           "AND (COALESCE(u.firstName, ''), COALESCE(u.lastName, ''), u.id) > (:firstName, :lastName, :afterId) " +
+           DIRECTORY_ORDER)
+    List<UserFriendDTO> findDirectoryPageAfter(@Param("currentUserId") Long currentUserId,
+                                               @Param("firstName") String firstName,
+                                               @Param("lastName") String lastName,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    @Query("SELECT COALESCE(u.firstName, '') AS firstName, COALESCE(u.lastName, '') AS lastName, u.id AS id " +
+           "FROM User u WHERE u.id = :id")
+    Optional<DirectoryKeyView> findDirectoryKeyById(@Param("id") Long id);
+
+    // Tìm kiếm người dùng theo tên (engine "like" của UserSearchService - quét tuần tự, giới hạn bằng Pageable)
+    @Query(FRIEND_CARD_SELECT + "WHERE LOWER(CONCAT(u.firstName, ' ', u.lastName)) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
+           "OR LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')) ORDER BY u.firstName, u.lastName, u.id")
+    List<UserFriendDTO> searchByName(@Param("searchTerm") String searchTerm, Pageable pageable);
 
     // Tìm kiếm người dùng theo last_name
-    @Query("SELECT u FROM User u WHERE LOWER(u.lastName) LIKE LOWER(CONCAT('%', :lastName, '%')) ORDER BY u.lastName, u.firstName")
-    List<User> searchByLastName(@Param("lastName") String lastName);
+    @Query(FRIEND_CARD_SELECT + "WHERE LOWER(u.lastName) LIKE LOWER(CONCAT('%', :lastName, '%')) ORDER BY u.lastName, u.firstName, u.id")
+    List<UserFriendDTO> searchByLastName(@Param("lastName") String lastName, Pageable pageable);
 
     // Tìm kiếm người dùng theo email
-    @Query("SELECT u FROM User u WHERE LOWER(u.email) LIKE LOWER(CONCAT('%', :email, '%')) ORDER BY u.email")
-    List<User> searchByEmail(@Param("email") String email);
+    @Query(FRIEND_CARD_SELECT + "WHERE LOWER(u.email) LIKE LOWER(CONCAT('%', :email, '%')) ORDER BY u.email")
+    List<UserFriendDTO> searchByEmail(@Param("email") String email, Pageable pageable);
+
+    /**
+     * Văn bản tìm kiếm của user trong Postgres - phải giống hệt biểu thức của idx_users_search_trgm
+     * (UserDirectoryIndexes) để planner dùng được index GIN trigram
+     */
+    String SEARCH_TEXT_SQL = "lower(coalesce(first_name, '') || ' ' || coalesce(last_name, '') || ' ' || email)";
+
+    // Engine "trigram": LIKE '%term%' trên index GIN pg_trgm, xếp hạng theo similarity
+    @Query(value = "SELECT id FROM users WHERE " + SEARCH_TEXT_SQL + " LIKE :pattern " +
+           "ORDER BY similarity(" + SEARCH_TEXT_SQL + ", :term) DESC, id LIMIT :limit", nativeQuery = true)
+    List<Long> searchIdsByTrigram(@Param("term") String term,
+                                  @Param("pattern") String pattern,
+                                  @Param("limit") int limit);
+
+    /**
+     * Các trường được đánh index trong UserSearchIndex
+     */
+    interface SearchEntryView {
+        Long getId();
+        String getFirstName();
+        String getLastName();
+        String getEmail();
+    }
+
+    // Duyệt toàn bộ users theo id (keyset) để dựng index tìm kiếm trong bộ nhớ
+    @Query("SELECT u.id AS id, u.firstName AS firstName, u.lastName AS lastName, u.email AS email " +
+           "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<SearchEntryView> findSearchEntriesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(u.id), 0) FROM User u")
+    Long findMaxId();
+
+    // Reset daily stats cho một khoảng id (dùng bởi QuestScheduler, chạy theo từng chunk)
+    @Modifying
+    @Query("UPDATE User u SET u.todayXp = 0, u.todayLearningMinutes = 0 " +
+            "WHERE u.id > :fromId AND u.id <= :toId " +
+            "AND (u.todayXp IS NULL OR u.todayXp <> 0 " +
+            "OR u.todayLearningMinutes IS NULL OR u.todayLearningMinutes <> 0)")
+    int resetDailyStatsInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    // Reset streak của user không học kể từ trước cutoff, cho một khoảng id
+    @Modifying
+    @Query("UPDATE User u SET u.streak = 0 " +
+            "WHERE u.id > :fromId AND u.id <= :toId " +
+            "AND u.lastLearningDate < :cutoff " +
+            "AND (u.streak IS NULL OR u.streak <> 0)")
+    int resetExpiredStreaksInRange(@Param("fromId") Long fromId, @Param("toId") Long toId,
+            @Param("cutoff") LocalDate cutoff);
 
     // Alias methods to fix compilation errors in services
     default Optional<User> findByEmail(String email) {
@@ -25,15 +25,12 @@ public interface VocabularyWordRepository extends JpaRepository<VocabularyWord,
     @Query("SELECT v FROM VocabularyWord v WHERE v.topic IN :topics AND v.level <= :maxLevel ORDER BY v.level ASC")
     List<VocabularyWord> findByTopicsAndMaxLevel(@Param("topics") List<VocabularyTopic> topics, @Param("maxLevel") Integer maxLevel);
     
-    @Query(value = "SELECT * FROM vocabulary_words WHERE topic = :topic AND level <= :maxLevel ORDER BY RANDOM() LIMIT :limit", nativeQuery = true)
-    List<VocabularyWord> findRandomByTopicAndMaxLevel(@Param("topic") String topic, @Param("maxLevel") Integer maxLevel, @Param("limit") int limit);
+    // Ids only - random picks are drawn in memory by RandomSampler
+    @Query("SELECT v.id FROM VocabularyWord v WHERE v.topic = :topic AND v.level <= :maxLevel")
+    List<Long> findIdsByTopicAndMaxLevel(@Param("topic") VocabularyTopic topic, @Param("maxLevel") Integer maxLevel);
     
-    default List<VocabularyWord> findRandomByTopicAndMaxLevel(VocabularyTopic topic, Integer maxLevel, int limit) {
-        return findRandomByTopicAndMaxLevel(topic.name(), maxLevel, limit);
-    }
-    
-    @Query(value = "SELECT * FROM vocabulary_words WHERE level <= :maxLevel ORDER BY RANDOM() LIMIT :limit", nativeQuery = true)
-    List<VocabularyWord> findRandomByMaxLevel(@Param("maxLevel") Integer maxLevel, @Param("limit") int limit);
+    @Query("SELECT v.id FROM VocabularyWord v WHERE v.level <= :maxLevel")
+    List<Long> findIdsByMaxLevel(@Param("maxLevel") Integer maxLevel);
     
     @Query("SELECT DISTINCT v.topic FROM VocabularyWord v WHERE v.level <= :maxLevel")
     List<VocabularyTopic> findDistinctTopicsByMaxLevel(@Param("maxLevel") Integer maxLevel);
@@ -63,22 +60,4 @@ public interface VocabularyWordRepository extends JpaRepository<VocabularyWord,
         LIMIT :limit
         """, nativeQuery = true)
     List<VocabularyWord> findWordsToReviewForUser(@Param("userId") Long userId, @Param("limit") int limit);
-    
-    // Find random wrong answers for multiple choice options
-    @Query(value = """
-        SELECT v.* FROM vocabulary_words v 
-        WHERE v.id != :correctWordId 
-        AND v.topic = :topic
-        AND v.level <= :maxLevel
-        ORDER BY RANDOM() 
-        LIMIT :limit
-        """, nativeQuery = true)
-    List<VocabularyWord> findRandomWrongAnswersByTopic(@Param("correctWordId") Long correctWordId, 
-                                                        @Param("topic") String topic,
-                                                        @Param("maxLevel") Integer maxLevel, 
-                                                        @Param("limit") int limit);
-    
-    default List<VocabularyWord> findRandomWrongAnswers(Long correctWordId, VocabularyTopic topic, Integer maxLevel, int limit) {
-        return findRandomWrongAnswersByTopic(correctWordId, topic.name(), maxLevel, limit);
-    }
 }
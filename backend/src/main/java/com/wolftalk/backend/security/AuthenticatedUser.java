@@ -0,0 +1,48 @@
+package com.wolftalk.backend.security;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Principal của request đã xác thực bằng JWT (JwtAuthenticationFilter) - userId, email, roles
+ * đã được resolve một lần cho mỗi token và giữ trong VerifiedTokenCache
+ *
+ * getName() là email nên code dùng Principal.getName() / Authentication.getName() không đổi.
+ * userId có thể null với token cũ (không có claim uid) của user không còn tồn tại.
+ */
+public record AuthenticatedUser(Long userId, String email, List<String> roles) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+
+    /**
+     * AuthenticatedUser từ Principal của controller (Authentication hoặc chính AuthenticatedUser)
+     */
+    public static Optional<AuthenticatedUser> from(Principal principal) {
+        if (principal instanceof AuthenticatedUser user) {
+            return Optional.of(user);
+        }
+        if (principal instanceof Authentication auth && auth.getPrincipal() instanceof AuthenticatedUser user) {
+            return Optional.of(user);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * AuthenticatedUser của request hiện tại (SecurityContext)
+     */
+    public static Optional<AuthenticatedUser> current() {
+        return from(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
@@ -18,10 +18,10 @@ import jakarta.servlet.http.HttpServletResponse;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
-        this.jwtUtil = jwtUtil;
+    public JwtAuthenticationFilter(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     @Override
@@ -30,27 +30,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (StringUtils.hasText(header) && header.startsWith("Bearer ")) {
             String token = header.substring(7);
             try {
-                var claims = jwtUtil.parseClaims(token);
-                String subject = claims.getSubject();
-                if (subject != null) {
-                    // Extract roles from token claims if available, default to ROLE_USER
-                    List<SimpleGrantedAuthority> authorities = new ArrayList<>();
-                    Object rolesObj = claims.get("roles");
-                    if (rolesObj != null) {
-                        String roles = rolesObj.toString();
-                        if (roles != null && !roles.isEmpty()) {
-                            for (String role : roles.split(",")) {
-                                authorities.add(new SimpleGrantedAuthority(role.trim()));
-                            }
-                        } else {
-                            authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-                        }
-                    } else {
-                        authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-                    }
-                    Authentication auth = new UsernamePasswordAuthenticationToken(subject, null, authorities);
-                    SecurityContextHolder.getContext().setAuthentication(auth);
+                // Token đã kiểm tra được lấy từ cache; principal mang sẵn userId, email, roles
+                AuthenticatedUser user = verifiedTokenCache.authenticate(token);
+                List<SimpleGrantedAuthority> authorities = new ArrayList<>(user.roles().size());
+                for (String role : user.roles()) {
+                    authorities.add(new SimpleGrantedAuthority(role));
                 }
+                Authentication auth = new UsernamePasswordAuthenticationToken(user, null, authorities);
+                SecurityContextHolder.getContext().setAuthentication(auth);
             } catch (Exception ex) {
                 // invalid token -> ignore, SecurityContext remains empty
             }
@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -15,14 +16,20 @@ import io.jsonwebtoken.security.Keys;
 @Component
 public class JwtUtil {
 
+    public static final String ROLES_CLAIM = "roles";
+    public static final String USER_ID_CLAIM = "uid";
+
     private final SecretKey key;
     private final long expirationMs;
+    // JwtParser immutable, thread-safe - dựng một lần thay vì mỗi request
+    private final JwtParser parser;
 
     public JwtUtil(@Value("${jwt.secret}") String secret,
                    @Value("${jwt.expiration}") long expirationMs) {
         // Use provided secret bytes; for production use longer secret and proper key management
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     public String generateToken(String subject) {
@@ -30,6 +37,13 @@ public class JwtUtil {
     }
 
     public String generateToken(String subject, String roles) {
+        return generateToken(subject, roles, null);
+    }
+
+    /**
+     * userId được ghi vào claim uid để VerifiedTokenCache không phải tra id theo email
+     */
+    public String generateToken(String subject, String roles, Long userId) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + expirationMs);
         var builder = Jwts.builder()
@@ -38,15 +52,18 @@ public class JwtUtil {
                 .setExpiration(exp);
         
         if (roles != null && !roles.isEmpty()) {
-            builder.claim("roles", roles);
+            builder.claim(ROLES_CLAIM, roles);
         }
-        
+        if (userId != null) {
+            builder.claim(USER_ID_CLAIM, userId);
+        }
+
         return builder.signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Claims parseClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
 }
@@ -0,0 +1,42 @@
+package com.wolftalk.backend.security;
+
+import java.security.Principal;
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Email -> userId cho controller / service "ByEmail"
+ *
+ * Request đã xác thực bằng JWT có sẵn userId trong AuthenticatedUser nên không query DB;
+ * các trường hợp khác (STOMP, email của người khác, token cũ) chỉ query cột id.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserIdResolver {
+
+    private final UserRepository userRepository;
+
+    public Optional<Long> findUserId(Principal principal) {
+        if (principal == null) {
+            return Optional.empty();
+        }
+        return AuthenticatedUser.from(principal)
+                .map(AuthenticatedUser::userId)
+                .or(() -> userRepository.findIdByEmailIgnoreCase(principal.getName()));
+    }
+
+    public Optional<Long> findUserId(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return AuthenticatedUser.current()
+                .filter(user -> user.userId() != null && email.equalsIgnoreCase(user.email()))
+                .map(AuthenticatedUser::userId)
+                .or(() -> userRepository.findIdByEmailIgnoreCase(email));
+    }
+}
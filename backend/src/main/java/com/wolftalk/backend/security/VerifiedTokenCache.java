@@ -0,0 +1,185 @@
+package com.wolftalk.backend.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.wolftalk.backend.repository.UserRepository;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Cache các JWT đã kiểm tra chữ ký, key là SHA-256 của token (không giữ token gốc trong bộ nhớ)
+ *
+ * - Miss: JwtUtil.parseClaims (HMAC + parse JSON) rồi resolve AuthenticatedUser - userId lấy từ claim uid,
+ *   token cũ không có uid thì query id theo email một lần cho cả vòng đời entry
+ * - Hit: chỉ tốn một lần SHA-256 + tra ConcurrentHashMap, không khóa chung giữa các request
+ * - Entry hết hạn theo exp của token, tối đa jwt.cache.ttl-ms
+ * - Khi vượt jwt.cache.max-entries, một thread dọn: bỏ entry đã hết hạn trước, nếu vẫn đầy thì bỏ các entry
+ *   sắp hết hạn nhất cho tới còn 90% max-entries (các thread khác không chờ)
+ * - Token sai / hết hạn không được cache, lần sau vẫn bị kiểm tra lại
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+    private final int maxEntries;
+    private final long ttlMs;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>(1024);
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public VerifiedTokenCache(JwtUtil jwtUtil,
+                              UserRepository userRepository,
+                              @Value("${jwt.cache.max-entries:50000}") int maxEntries,
+                              @Value("${jwt.cache.ttl-ms:600000}") long ttlMs) {
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+    }
+
+    private record Entry(AuthenticatedUser user, long expiresAtMs) {
+    }
+
+    /**
+     * Principal của token; ném JwtException nếu chữ ký sai, token hỏng hoặc đã hết hạn
+     */
+    public AuthenticatedUser authenticate(String token) {
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(key);
+        if (entry != null) {
+            if (entry.expiresAtMs() > now) {
+                hits.incrementAndGet();
+                return entry.user();
+            }
+            if (cache.remove(key, entry)) {
+                expired.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+        if (claims.getSubject() == null) {
+            rejected.incrementAndGet();
+            throw new JwtException("Token has no subject");
+        }
+        AuthenticatedUser user = resolve(claims);
+
+        long expiresAt = now + ttlMs;
+        if (claims.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+        }
+        cache.put(key, new Entry(user, expiresAt));
+        if (cache.size() > maxEntries) {
+            trim(now);
+        }
+        return user;
+    }
+
+    private void trim(long now) {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (Iterator<Entry> it = cache.values().iterator(); it.hasNext(); ) {
+                if (it.next().expiresAtMs() <= now) {
+                    it.remove();
+                    expired.incrementAndGet();
+                }
+            }
+
+            int excess = cache.size() - (maxEntries - maxEntries / 10);
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<String, Entry>> entries = new ArrayList<>(cache.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().expiresAtMs()));
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                if (cache.remove(entries.get(i).getKey(), entries.get(i).getValue())) {
+                    evicted.incrementAndGet();
+                }
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    private AuthenticatedUser resolve(Claims claims) {
+        String email = claims.getSubject();
+
+        List<String> roles = new ArrayList<>();
+        Object rolesClaim = claims.get(JwtUtil.ROLES_CLAIM);
+        if (rolesClaim != null) {
+            for (String role : rolesClaim.toString().split(",")) {
+                if (!role.isBlank()) {
+                    roles.add(role.trim());
+                }
+            }
+        }
+        if (roles.isEmpty()) {
+            roles.add("ROLE_USER");
+        }
+
+        Long userId;
+        Object userIdClaim = claims.get(JwtUtil.USER_ID_CLAIM);
+        if (userIdClaim instanceof Number number) {
+            userId = number.longValue();
+        } else {
+            userId = userRepository.findIdByEmailIgnoreCase(email).orElse(null);
+        }
+        return new AuthenticatedUser(userId, email, List.copyOf(roles));
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedTokens", cache.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("rejected", rejected.get());
+        stats.put("expired", expired.get());
+        stats.put("evicted", evicted.get());
+        return stats;
+    }
+}
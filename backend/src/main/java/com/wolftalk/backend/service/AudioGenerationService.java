@@ -2,121 +2,189 @@ package com.wolftalk.backend.service;
 
 import com.google.cloud.texttospeech.v1.*;
 import com.google.protobuf.ByteString;
+import com.wolftalk.backend.component.AudioCache;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.Base64;
 
 /**
  * Text-to-Speech service using Google Cloud TTS
  * Similar to what Duolingo and ELSA use for pronunciation audio
+ *
+ * Audio is content-addressed in AudioCache, so the same (synthesizer, text, lang, voice, rate)
+ * is synthesized once and then served from memory / disk. Fake (silent) audio is kept in memory
+ * only and never written to the disk tier.
  */
 @Service
+@RequiredArgsConstructor
+@Slf4j
 public class AudioGenerationService {
 
+    private static final double DEFAULT_SPEAKING_RATE = 0.9; // Slightly slower for learning
+
+    // One silent MPEG-1 Layer III frame (128 kbps, 44.1 kHz, ~26 ms) used by the fake synthesizer
+    private static final int FAKE_FRAME_SIZE = 417;
+
+    private final AudioCache audioCache;
+
     @Value("${google.cloud.tts.enabled:false}")
     private boolean googleTtsEnabled;
 
+    @Value("${audio.tts.fake:false}")
+    private boolean fakeTtsEnabled;
+
+    // TextToSpeechClient is thread-safe and expensive to create (gRPC channel) - share one instance
+    private volatile TextToSpeechClient textToSpeechClient;
+
     /**
-     * Generate audio from text using Google Cloud TTS
-     * 
+     * Get audio for text, synthesizing it only on a cache miss
+     *
      * @param text The word or phrase to convert to speech
      * @param languageCode Language code (e.g., "en-US", "en-GB")
      * @param voiceName Optional voice name (e.g., "en-US-Neural2-A")
-     * @return Base64 encoded MP3 audio data
+     * @param speakingRate Speaking rate, 0.25 to 4.0
+     * @return Cached MP3 audio
      */
-    public String generateAudio(String text, String languageCode, String voiceName) throws IOException {
-        if (!googleTtsEnabled) {
+    public AudioCache.Clip getAudio(String text, String languageCode, String voiceName, double speakingRate)
+            throws IOException {
+        if (!isAvailable()) {
             throw new IllegalStateException("Google Cloud TTS is not enabled. Set google.cloud.tts.enabled=true");
         }
 
-        try (TextToSpeechClient textToSpeechClient = TextToSpeechClient.create()) {
-            // Set the text input to be synthesized
-            SynthesisInput input = SynthesisInput.newBuilder()
-                    .setText(text)
-                    .build();
-
-            // Build the voice request
-            VoiceSelectionParams.Builder voiceBuilder = VoiceSelectionParams.newBuilder()
-                    .setLanguageCode(languageCode);
-            
-            if (voiceName != null && !voiceName.isEmpty()) {
-                voiceBuilder.setName(voiceName);
-            } else {
-                // Use Neural2 voices for better quality (like Duolingo)
-                voiceBuilder.setSsmlGender(SsmlVoiceGender.NEUTRAL);
-            }
-            
-            VoiceSelectionParams voice = voiceBuilder.build();
+        String key = AudioCache.keyOf(synthesizerId(), text, languageCode, voiceName, speakingRate);
+        return audioCache.getOrCreate(key, () -> synthesize(text, languageCode, voiceName, speakingRate),
+                !fakeTtsEnabled);
+    }
 
-            // Select the type of audio file
-            AudioConfig audioConfig = AudioConfig.newBuilder()
-                    .setAudioEncoding(AudioEncoding.MP3)
-                    .setSpeakingRate(0.9) // Slightly slower for learning
-                    .setPitch(0.0)
-                    .build();
+    /**
+     * Get audio with the default learning speaking rate
+     */
+    public AudioCache.Clip getAudio(String text, String languageCode, String voiceName) throws IOException {
+        return getAudio(text, languageCode, voiceName, DEFAULT_SPEAKING_RATE);
+    }
 
-            // Perform the text-to-speech request
-            SynthesizeSpeechResponse response = textToSpeechClient.synthesizeSpeech(input, voice, audioConfig);
+    /**
+     * Get audio with default US English voice
+     */
+    public AudioCache.Clip getAudio(String text) throws IOException {
+        return getAudio(text, "en-US", "en-US-Neural2-C");
+    }
 
-            // Get the audio contents from the response
-            ByteString audioContents = response.getAudioContent();
+    /**
+     * Get audio with British English accent
+     */
+    public AudioCache.Clip getAudioBritish(String text) throws IOException {
+        return getAudio(text, "en-GB", "en-GB-Neural2-B");
+    }
 
-            // Return as Base64 for easy transmission
-            return Base64.getEncoder().encodeToString(audioContents.toByteArray());
-        }
+    /**
+     * Get audio with custom speaking rate (for slow/fast pronunciation practice)
+     */
+    public AudioCache.Clip getAudioWithRate(String text, double speakingRate) throws IOException {
+        return getAudio(text, "en-US", "en-US-Neural2-C", speakingRate);
     }
 
     /**
-     * Generate audio with default US English voice
+     * Check whether audio for this request is already cached (no synthesis)
      */
-    public String generateAudio(String text) throws IOException {
-        return generateAudio(text, "en-US", "en-US-Neural2-C");
+    public boolean isCached(String text, String languageCode, String voiceName) {
+        return audioCache.contains(AudioCache.keyOf(synthesizerId(), text, languageCode, voiceName,
+                DEFAULT_SPEAKING_RATE));
     }
 
     /**
-     * Generate audio with British English accent
+     * True when audio comes from the offline fake synthesizer (silent, must not be cached long-term)
      */
-    public String generateAudioBritish(String text) throws IOException {
-        return generateAudio(text, "en-GB", "en-GB-Neural2-B");
+    public boolean isFake() {
+        return fakeTtsEnabled;
     }
 
     /**
-     * Generate audio with custom speaking rate (for slow/fast pronunciation practice)
+     * Check if TTS is available (Google Cloud TTS or the offline fake synthesizer)
      */
-    public String generateAudioWithRate(String text, double speakingRate) throws IOException {
-        if (!googleTtsEnabled) {
-            throw new IllegalStateException("Google Cloud TTS is not enabled");
-        }
+    public boolean isAvailable() {
+        return googleTtsEnabled || fakeTtsEnabled;
+    }
 
-        try (TextToSpeechClient textToSpeechClient = TextToSpeechClient.create()) {
-            SynthesisInput input = SynthesisInput.newBuilder()
-                    .setText(text)
-                    .build();
+    private String synthesizerId() {
+        return fakeTtsEnabled ? "fake" : "google";
+    }
 
-            VoiceSelectionParams voice = VoiceSelectionParams.newBuilder()
-                    .setLanguageCode("en-US")
-                    .setName("en-US-Neural2-C")
-                    .build();
+    private byte[] synthesize(String text, String languageCode, String voiceName, double speakingRate)
+            throws IOException {
+        if (fakeTtsEnabled) {
+            return synthesizeFake(text);
+        }
 
-            AudioConfig audioConfig = AudioConfig.newBuilder()
-                    .setAudioEncoding(AudioEncoding.MP3)
-                    .setSpeakingRate(speakingRate) // 0.25 to 4.0
-                    .setPitch(0.0)
-                    .build();
+        // Set the text input to be synthesized
+        SynthesisInput input = SynthesisInput.newBuilder()
+                .setText(text)
+                .build();
 
-            SynthesizeSpeechResponse response = textToSpeechClient.synthesizeSpeech(input, voice, audioConfig);
-            ByteString audioContents = response.getAudioContent();
+        // Build the voice request
+        VoiceSelectionParams.Builder voiceBuilder = VoiceSelectionParams.newBuilder()
+                .setLanguageCode(languageCode);
 
-            return Base64.getEncoder().encodeToString(audioContents.toByteArray());
+        if (voiceName != null && !voiceName.isEmpty()) {
+            voiceBuilder.setName(voiceName);
+        } else {
+            // Use Neural2 voices for better quality (like Duolingo)
+            voiceBuilder.setSsmlGender(SsmlVoiceGender.NEUTRAL);
         }
+
+        VoiceSelectionParams voice = voiceBuilder.build();
+
+        // Select the type of audio file
+        AudioConfig audioConfig = AudioConfig.newBuilder()
+                .setAudioEncoding(AudioEncoding.MP3)
+                .setSpeakingRate(speakingRate) // 0.25 to 4.0
+                .setPitch(0.0)
+                .build();
+
+        // Perform the text-to-speech request
+        SynthesizeSpeechResponse response = client().synthesizeSpeech(input, voice, audioConfig);
+
+        // Get the audio contents from the response
+        ByteString audioContents = response.getAudioContent();
+        return audioContents.toByteArray();
     }
 
     /**
-     * Check if Google TTS is available
+     * Offline synthesizer for local development: silent MP3, roughly 100 ms per character
      */
-    public boolean isAvailable() {
-        return googleTtsEnabled;
+    private byte[] synthesizeFake(String text) {
+        int frames = Math.max(1, text.length() * 4);
+        byte[] audio = new byte[frames * FAKE_FRAME_SIZE];
+        for (int i = 0; i < frames; i++) {
+            int offset = i * FAKE_FRAME_SIZE;
+            audio[offset] = (byte) 0xFF;
+            audio[offset + 1] = (byte) 0xFB;
+            audio[offset + 2] = (byte) 0x90;
+        }
+        return audio;
+    }
+
+    private TextToSpeechClient client() throws IOException {
+        TextToSpeechClient client = textToSpeechClient;
+        if (client == null) {
+            synchronized (this) {
+                if (textToSpeechClient == null) {
+                    textToSpeechClient = TextToSpeechClient.create();
+                }
+                client = textToSpeechClient;
+            }
+        }
+        return client;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (textToSpeechClient != null) {
+            textToSpeechClient.close();
+        }
     }
 }
@@ -37,7 +37,7 @@ public class AuthService {
         u.setLearningLanguage(req.getLearningLanguage());
         u.setRoles("ROLE_USER");
         userRepository.save(u);
-        String token = jwtUtil.generateToken(u.getEmail(), "ROLE_USER");
+        String token = jwtUtil.generateToken(u.getEmail(), "ROLE_USER", u.getId());
         return new AuthResponse(token);
     }
 
@@ -48,7 +48,7 @@ public class AuthService {
         if (!passwordEncoder.matches(req.getPassword(), u.getPassword())) {
             throw new IllegalArgumentException("Invalid credentials");
         }
-        String token = jwtUtil.generateToken(u.getEmail(), u.getRoles());
+        String token = jwtUtil.generateToken(u.getEmail(), u.getRoles(), u.getId());
         return new AuthResponse(token, u);
     }
 }
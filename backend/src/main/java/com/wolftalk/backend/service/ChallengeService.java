@@ -11,6 +11,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wolftalk.backend.component.RandomSampler;
 import com.wolftalk.backend.dto.ChallengeDTO;
 import com.wolftalk.backend.dto.ChallengeSubmissionDTO;
 import com.wolftalk.backend.dto.ChallengeWeeklyProgressDTO;
@@ -36,6 +37,7 @@ public class ChallengeService {
     private final ChallengeWeeklyProgressRepository progressRepository;
     private final UserRepository userRepository;
     private final LeaderboardService leaderboardService;
+    private final RandomSampler randomSampler;
     
     @Lazy
     private QuestService questService;
@@ -56,7 +58,10 @@ public class ChallengeService {
 
     // Get random challenges
     public List<ChallengeDTO> getRandomChallenges(Challenge.ChallengeType type, int limit) {
-        return challengeRepository.findRandomByType(type, limit)
+        return randomSampler.sample(
+                        "challenge:" + type.name(),
+                        () -> challengeRepository.findIdsByType(type),
+                        limit, challengeRepository::findAllById, Challenge::getId)
                 .stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
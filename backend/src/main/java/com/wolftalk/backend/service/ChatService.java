@@ -1,8 +1,12 @@
 package com.wolftalk.backend.service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,15 +16,19 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wolftalk.backend.component.ChatWriteBehindJournal;
+import com.wolftalk.backend.component.ConversationInboxStore;
 import com.wolftalk.backend.dto.ConversationDTO;
 import com.wolftalk.backend.dto.MessageDTO;
 import com.wolftalk.backend.entity.Conversation;
 import com.wolftalk.backend.entity.Message;
 import com.wolftalk.backend.entity.User;
+import com.wolftalk.backend.repository.ConversationInboxRepository;
 import com.wolftalk.backend.repository.ConversationRepository;
 import com.wolftalk.backend.repository.FriendshipRepository;
 import com.wolftalk.backend.repository.MessageRepository;
 import com.wolftalk.backend.repository.UserRepository;
+import com.wolftalk.backend.security.UserIdResolver;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -28,6 +36,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class ChatService {
 
+    private static final int MESSAGE_PAGE_SIZE = 50;
+    private static final int MAX_MESSAGE_PAGE_SIZE = 100;
+
     @Autowired
     private ConversationRepository conversationRepository;
 
@@ -43,6 +54,18 @@ public class ChatService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private ChatWriteBehindJournal chatJournal;
+
+    @Autowired
+    private ConversationInboxStore inboxStore;
+
+    @Autowired
+    private ConversationInboxRepository conversationInboxRepository;
+
+    @Autowired
+    private UserIdResolver userIdResolver;
+
     /**
      * Lấy hoặc tạo cuộc trò chuyện giữa 2 người
      */
@@ -82,6 +105,7 @@ public class ChatService {
         conversation.setIsArchived(false);
         
         Conversation savedConversation = conversationRepository.save(conversation);
+        inboxStore.createRows(savedConversation);
         log.info("New conversation created with ID: {}", savedConversation.getId());
         
         return savedConversation;
@@ -89,8 +113,8 @@ public class ChatService {
 
     /**
      * Gửi tin nhắn
+     * Không mở transaction ghi: tin nhắn được ghi qua ChatWriteBehindJournal
      */
-    @Transactional
     public MessageDTO sendMessage(Long conversationId, Long senderId, String content) {
         // Validate input
         if (conversationId == null || conversationId <= 0) {
@@ -121,47 +145,78 @@ public class ChatService {
             throw new RuntimeException("User is not part of this conversation");
         }
 
-        // Lưu tin nhắn vào database
-        Message message = new Message();
-        message.setConversation(conversation);
-        message.setSender(sender);
-        message.setContent(trimmedContent);
-        message.setCreatedAt(Instant.now());
-        message.setUpdatedAt(Instant.now());
-        message.setIsDeleted(false);
-
-        Message savedMessage = messageRepository.save(message);
-        log.info("Message saved to database with ID: {} from sender: {}", savedMessage.getId(), senderId);
+        return publishMessage(conversation, sender, trimmedContent);
+    }
 
-        // Cập nhật cuộc trò chuyện
-        Instant now = Instant.now();
-        conversation.setLastMessage(trimmedContent);
-        conversation.setLastMessageSenderId(senderId);
-        conversation.setLastMessageAt(now);
-        conversation.setUpdatedAt(now);
-        conversationRepository.save(conversation);
-        log.info("Conversation {} updated with last message", conversationId);
+    /**
+     * Lấy danh sách tin nhắn của một cuộc trò chuyện
+     */
+    public List<MessageDTO> getMessages(Long conversationId, int page) {
+        if (page < 0) {
+            throw new RuntimeException("Invalid page number: " + page);
+        }
+        if (!conversationRepository.existsById(conversationId)) {
+            throw new RuntimeException("Conversation not found");
+        }
 
-        // Gửi tin nhắn qua WebSocket
-        MessageDTO messageDTO = convertMessageToDTO(savedMessage, sender);
-        String destination = "/topic/chat/conversation/" + conversationId;
-        messagingTemplate.convertAndSend(destination, messageDTO);
-        log.info("Message sent to WebSocket: {}", destination);
+        // Client cũ vẫn dùng ?page= (OFFSET); client mới nên dùng getMessagesBefore
+        List<MessageDTO> messages = toMessageDTOs(
+                messageRepository.findHistory(conversationId, PageRequest.of(page, MESSAGE_PAGE_SIZE)));
 
-        return messageDTO;
+        // Trang đầu: thêm tin nhắn mới gửi nhưng journal chưa flush xuống database
+        return page == 0 ? mergePending(conversationId, messages) : messages;
     }
 
     /**
-     * Lấy danh sách tin nhắn của một cuộc trò chuyện
+     * Lịch sử tin nhắn theo cursor (keyset)
+     * beforeId = null: trang mới nhất; ngược lại: các tin nhắn cũ hơn tin nhắn beforeId
      */
-    public List<MessageDTO> getMessages(Long conversationId, int page) {
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found"));
+    public List<MessageDTO> getMessagesBefore(Long conversationId, Long beforeId, int limit) {
+        if (!conversationRepository.existsById(conversationId)) {
+            throw new RuntimeException("Conversation not found");
+        }
+        int size = Math.max(1, Math.min(limit, MAX_MESSAGE_PAGE_SIZE));
+        Pageable pageable = PageRequest.of(0, size);
 
-        Pageable pageable = PageRequest.of(page, 50);
-        return messageRepository.findByConversationAndNotDeleted(conversation, pageable)
-                .stream()
-                .map(msg -> convertMessageToDTO(msg, msg.getSender()))
+        if (beforeId == null) {
+            return mergePending(conversationId, toMessageDTOs(messageRepository.findHistory(conversationId, pageable)));
+        }
+
+        Optional<Instant> cursorCreatedAt = messageRepository.findCreatedAtById(conversationId, beforeId);
+        if (cursorCreatedAt.isEmpty()) {
+            // Cursor có thể là tin nhắn còn nằm trong journal - flush rồi thử lại
+            chatJournal.flush();
+            cursorCreatedAt = messageRepository.findCreatedAtById(conversationId, beforeId);
+        }
+        Instant createdAt = cursorCreatedAt
+                .orElseThrow(() -> new RuntimeException("Message not found: " + beforeId));
+
+        return toMessageDTOs(messageRepository.findHistoryBefore(conversationId, createdAt, beforeId, pageable));
+    }
+
+    private List<MessageDTO> mergePending(Long conversationId, List<MessageDTO> messages) {
+        List<MessageDTO> pending = chatJournal.pendingMessages(conversationId);
+        if (pending.isEmpty()) {
+            return messages;
+        }
+        Set<Long> persistedIds = messages.stream().map(MessageDTO::getId).collect(Collectors.toSet());
+        List<MessageDTO> merged = new ArrayList<>(pending.size() + messages.size());
+        pending.stream().filter(dto -> !persistedIds.contains(dto.getId())).forEach(merged::add);
+        merged.addAll(messages);
+        return merged;
+    }
+
+    private List<MessageDTO> toMessageDTOs(List<MessageRepository.MessageView> views) {
+        return views.stream()
+                .map(view -> MessageDTO.builder()
+                        .id(view.getId())
+                        .senderId(view.getSenderId())
+                        .senderName(view.getSenderFirstName() + " " + view.getSenderLastName())
+                        .senderAvatar(view.getSenderAvatar())
+                        .content(view.getContent())
+                        .createdAt(view.getCreatedAt())
+                        .isDeleted(view.getIsDeleted())
+                        .build())
                 .collect(Collectors.toList());
     }
 
@@ -182,9 +237,9 @@ public class ChatService {
         
         log.info("Getting conversations for user {} (page: {})", userId, page);
         Pageable pageable = PageRequest.of(page, 20);
-        return conversationRepository.findUserConversations(user, pageable)
+        return conversationInboxRepository.findInbox(user.getId(), pageable)
                 .stream()
-                .map(conv -> convertConversationToDTO(conv, user))
+                .map(view -> convertInboxToDTO(view, user))
                 .collect(Collectors.toList());
     }
 
@@ -197,8 +252,13 @@ public class ChatService {
             throw new RuntimeException("Invalid message ID: " + messageId);
         }
         
-        Message message = messageRepository.findById(messageId)
-                .orElseThrow(() -> new RuntimeException("Message not found: " + messageId));
+        Message message = messageRepository.findById(messageId).orElse(null);
+        if (message == null) {
+            // Tin nhắn vừa gửi có thể còn trong journal - flush rồi tìm lại
+            chatJournal.flush();
+            message = messageRepository.findById(messageId)
+                    .orElseThrow(() -> new RuntimeException("Message not found: " + messageId));
+        }
 
         if (Boolean.TRUE.equals(message.getIsDeleted())) {
             log.warn("Message {} is already deleted", messageId);
@@ -220,6 +280,38 @@ public class ChatService {
         }
     }
 
+    /**
+     * Read receipt: đánh dấu đã đọc hết cuộc trò chuyện
+     */
+    public void markConversationReadByEmail(Long conversationId, String userEmail) {
+        if (conversationId == null || conversationId <= 0) {
+            throw new RuntimeException("Invalid conversation ID: " + conversationId);
+        }
+        Long userId = userIdResolver.findUserId(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userEmail));
+        if (!conversationInboxRepository.existsByUserIdAndConversationId(userId, conversationId)) {
+            throw new RuntimeException("User is not part of this conversation");
+        }
+
+        // Tin nhắn còn trong journal cũng đã hiện với người đọc: đánh dấu đã đọc tới đó, khi flush
+        // inbox không cộng chúng vào unread nữa - không phải chờ flush trên request thread
+        inboxStore.markRead(conversationId, userId, chatJournal.latestPendingId(conversationId));
+
+        messagingTemplate.convertAndSend("/topic/chat/conversation/" + conversationId, Map.of(
+                "type", "READ",
+                "userId", userId
+        ));
+    }
+
+    /**
+     * Tổng số tin nhắn chưa đọc của user (badge)
+     */
+    public long getUnreadCountByEmail(String userEmail) {
+        Long userId = userIdResolver.findUserId(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userEmail));
+        return conversationInboxRepository.sumUnread(userId);
+    }
+
     /**
      * Lưu trữ cuộc trò chuyện
      */
@@ -240,6 +332,7 @@ public class ChatService {
         conversation.setIsArchived(true);
         conversation.setUpdatedAt(Instant.now());
         conversationRepository.save(conversation);
+        inboxStore.setArchived(conversationId, true);
         log.info("Conversation {} archived", conversationId);
     }
 
@@ -263,6 +356,7 @@ public class ChatService {
         conversation.setIsArchived(false);
         conversation.setUpdatedAt(Instant.now());
         conversationRepository.save(conversation);
+        inboxStore.setArchived(conversationId, false);
         log.info("Conversation {} unarchived", conversationId);
     }
 
@@ -305,6 +399,7 @@ public class ChatService {
         conversation.setIsArchived(false);
         
         Conversation savedConversation = conversationRepository.save(conversation);
+        inboxStore.createRows(savedConversation);
         log.info("New conversation created with ID: {}", savedConversation.getId());
         
         return savedConversation;
@@ -313,7 +408,6 @@ public class ChatService {
     /**
      * Gửi tin nhắn bằng email người gửi
      */
-    @Transactional
     public MessageDTO sendMessageByEmail(Long conversationId, String senderEmail, String content) {
         // Validate input
         if (conversationId == null || conversationId <= 0) {
@@ -344,34 +438,7 @@ public class ChatService {
             throw new RuntimeException("User is not part of this conversation");
         }
 
-        // Lưu tin nhắn vào database
-        Message message = new Message();
-        message.setConversation(conversation);
-        message.setSender(sender);
-        message.setContent(trimmedContent);
-        message.setCreatedAt(Instant.now());
-        message.setUpdatedAt(Instant.now());
-        message.setIsDeleted(false);
-
-        Message savedMessage = messageRepository.save(message);
-        log.info("Message saved to database with ID: {} from sender: {}", savedMessage.getId(), senderEmail);
-
-        // Cập nhật cuộc trò chuyện
-        Instant now = Instant.now();
-        conversation.setLastMessage(trimmedContent);
-        conversation.setLastMessageSenderId(sender.getId());
-        conversation.setLastMessageAt(now);
-        conversation.setUpdatedAt(now);
-        conversationRepository.save(conversation);
-        log.info("Conversation {} updated with last message", conversationId);
-
-        // Gửi tin nhắn qua WebSocket
-        MessageDTO messageDTO = convertMessageToDTO(savedMessage, sender);
-        String destination = "/topic/chat/conversation/" + conversationId;
-        messagingTemplate.convertAndSend(destination, messageDTO);
-        log.info("Message sent to WebSocket: {}", destination);
-
-        return messageDTO;
+        return publishMessage(conversation, sender, trimmedContent);
     }
 
     /**
@@ -391,45 +458,81 @@ public class ChatService {
         
         log.info("Getting conversations for user {} (page: {})", userEmail, page);
         Pageable pageable = PageRequest.of(page, 20);
-        return conversationRepository.findUserConversations(user, pageable)
+        return conversationInboxRepository.findInbox(user.getId(), pageable)
                 .stream()
-                .map(conv -> convertConversationToDTO(conv, user))
+                .map(view -> convertInboxToDTO(view, user))
                 .collect(Collectors.toList());
     }
 
-    private MessageDTO convertMessageToDTO(Message message, User sender) {
-        return MessageDTO.builder()
-                .id(message.getId())
+    /**
+     * Cấp id, ghi journal rồi broadcast ngay; INSERT tin nhắn và UPDATE cuộc trò chuyện
+     * được ChatWriteBehindJournal ghi theo batch
+     */
+    private MessageDTO publishMessage(Conversation conversation, User sender, String content) {
+        ChatWriteBehindJournal.JournalEntry entry = new ChatWriteBehindJournal.JournalEntry(
+                chatJournal.nextId(), conversation.getId(), sender.getId(), content, Instant.now());
+
+        MessageDTO messageDTO = MessageDTO.builder()
+                .id(entry.id())
                 .senderId(sender.getId())
                 .senderName(sender.getFirstName() + " " + sender.getLastName())
                 .senderAvatar(sender.getAvatar())
-                .content(message.getContent())
-                .createdAt(message.getCreatedAt())
-                .isDeleted(message.getIsDeleted())
+                .content(content)
+                .createdAt(entry.createdAt())
+                .isDeleted(false)
                 .build();
+
+        if (chatJournal.isFull()) {
+            // Journal đầy - ghi thẳng database (backpressure)
+            chatJournal.writeDirect(entry);
+        } else {
+            chatJournal.append(entry, messageDTO);
+        }
+        log.debug("Message {} from sender {} journaled", entry.id(), sender.getId());
+
+        // Gửi tin nhắn qua WebSocket
+        String destination = "/topic/chat/conversation/" + conversation.getId();
+        messagingTemplate.convertAndSend(destination, messageDTO);
+        log.debug("Message sent to WebSocket: {}", destination);
+
+        // Báo hộp thư của người nhận để client cập nhật danh sách + unread mà không phải poll
+        Long recipientId = conversation.getUser1().getId().equals(sender.getId())
+                ? conversation.getUser2().getId()
+                : conversation.getUser1().getId();
+        Map<String, Object> inboxEvent = new HashMap<>();
+        inboxEvent.put("type", "NEW_MESSAGE");
+        inboxEvent.put("conversation_id", conversation.getId());
+        inboxEvent.put("message_id", messageDTO.getId());
+        inboxEvent.put("last_message", content);
+        inboxEvent.put("last_message_sender_id", sender.getId());
+        inboxEvent.put("last_message_at", messageDTO.getCreatedAt());
+        messagingTemplate.convertAndSend("/topic/chat/inbox/" + recipientId, inboxEvent);
+
+        return messageDTO;
     }
 
-    private ConversationDTO convertConversationToDTO(Conversation conversation, User currentUser) {
-        User otherUser = conversation.getUser1().getId().equals(currentUser.getId())
-                ? conversation.getUser2()
-                : conversation.getUser1();
+    private ConversationDTO convertInboxToDTO(ConversationInboxRepository.InboxView view, User currentUser) {
+        String currentName = currentUser.getFirstName() + " " + currentUser.getLastName();
+        String otherName = view.getOtherFirstName() + " " + view.getOtherLastName();
+        boolean currentIsUser1 = currentUser.getId().equals(view.getUser1Id());
 
         return ConversationDTO.builder()
-                .id(conversation.getId())
-                .user1Id(conversation.getUser1().getId())
-                .user1Name(conversation.getUser1().getFirstName() + " " + conversation.getUser1().getLastName())
-                .user1Avatar(conversation.getUser1().getAvatar())
-                .user2Id(conversation.getUser2().getId())
-                .user2Name(conversation.getUser2().getFirstName() + " " + conversation.getUser2().getLastName())
-                .user2Avatar(conversation.getUser2().getAvatar())
-                .otherUserId(otherUser.getId())
-                .otherUserName(otherUser.getFirstName() + " " + otherUser.getLastName())
-                .otherUserAvatar(otherUser.getAvatar())
-                .lastMessage(conversation.getLastMessage())
-                .lastMessageSenderId(conversation.getLastMessageSenderId())
-                .lastMessageAt(conversation.getLastMessageAt())
-                .createdAt(conversation.getCreatedAt())
-                .updatedAt(conversation.getUpdatedAt())
+                .id(view.getConversationId())
+                .user1Id(view.getUser1Id())
+                .user1Name(currentIsUser1 ? currentName : otherName)
+                .user1Avatar(currentIsUser1 ? currentUser.getAvatar() : view.getOtherAvatar())
+                .user2Id(view.getUser2Id())
+                .user2Name(currentIsUser1 ? otherName : currentName)
+                .user2Avatar(currentIsUser1 ? view.getOtherAvatar() : currentUser.getAvatar())
+                .otherUserId(view.getOtherUserId())
+                .otherUserName(otherName)
+                .otherUserAvatar(view.getOtherAvatar())
+                .lastMessage(view.getLastMessage())
+                .lastMessageSenderId(view.getLastMessageSenderId())
+                .lastMessageAt(view.getLastMessageAt())
+                .unreadCount(view.getUnreadCount())
+                .createdAt(view.getCreatedAt())
+                .updatedAt(view.getUpdatedAt())
                 .build();
     }
 }
@@ -1,5 +1,6 @@
 package com.wolftalk.backend.service;
 
+import com.wolftalk.backend.component.LearningTimeAccumulator;
 import com.wolftalk.backend.dto.DashboardStatsDTO;
 import com.wolftalk.backend.entity.User;
 import com.wolftalk.backend.repository.LessonVocabularyRepository;
@@ -22,6 +23,7 @@ public class DashboardService {
     private final LessonVocabularyRepository vocabRepository;
     private final UserUnitProgressRepository unitProgressRepository;
     private final UserVocabularyProgressRepository progressRepository;
+    private final LearningTimeAccumulator learningTimeAccumulator;
 
     private static final ZoneOffset VIETNAM_ZONE = ZoneOffset.ofHours(7);
 
@@ -41,7 +43,8 @@ public class DashboardService {
             user.setLastLearningDate(today);
             userRepository.save(user);
         }
-        stats.setTodayLearningMinutes(user.getTodayLearningMinutes() != null ? user.getTodayLearningMinutes() : 0);
+        stats.setTodayLearningMinutes((user.getTodayLearningMinutes() != null ? user.getTodayLearningMinutes() : 0)
+                + learningTimeAccumulator.pendingMinutes(email, today));
 
         // --- Units Completed (Trophy Icon) ---
         long units = unitProgressRepository.countByUserIdAndStatus(user.getId(), "completed");
@@ -93,21 +96,10 @@ public class DashboardService {
         userRepository.save(user);
     }
 
-    @Transactional
+    /**
+     * Heartbeat mỗi phút: cộng dồn trong LearningTimeAccumulator, flush định kỳ xuống database
+     */
     public void incrementLearningTime(String email) {
-        User user = userRepository.findByEmailIgnoreCase(email)
-                .orElseThrow(() -> new RuntimeException("User not found: " + email));
-        LocalDate today = LocalDate.now(VIETNAM_ZONE);
-
-        if (user.getLastLearningDate() == null || !user.getLastLearningDate().equals(today)) {
-            user.setTodayLearningMinutes(1);
-            user.setLastLearningDate(today);
-        } else {
-            user.setTodayLearningMinutes(
-                    (user.getTodayLearningMinutes() != null ? user.getTodayLearningMinutes() : 0) + 1);
-        }
-
-        userRepository.save(user);
-        System.out.println("DEBUG: Incremented time for " + email + " to " + user.getTodayLearningMinutes() + " mins.");
+        learningTimeAccumulator.record(email, LocalDate.now(VIETNAM_ZONE));
     }
 }
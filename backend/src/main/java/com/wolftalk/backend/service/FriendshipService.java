@@ -1,15 +1,22 @@
 package com.wolftalk.backend.service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wolftalk.backend.component.FriendGraph;
+import com.wolftalk.backend.component.FriendSuggestionEngine;
+import com.wolftalk.backend.component.UserSearchIndex;
 import com.wolftalk.backend.dto.FriendRequestDTO;
 import com.wolftalk.backend.dto.FriendResponseDTO;
+import com.wolftalk.backend.dto.FriendSuggestionDTO;
 import com.wolftalk.backend.dto.FriendshipDTO;
 import com.wolftalk.backend.dto.UserFriendDTO;
 import com.wolftalk.backend.entity.Friendship;
@@ -25,8 +32,13 @@ import lombok.RequiredArgsConstructor;
 @Transactional
 public class FriendshipService {
 
+    private static final int MAX_DIRECTORY_PAGE_SIZE = 100;
+
     private final FriendshipRepository friendshipRepository;
     private final UserRepository userRepository;
+    private final FriendGraph friendGraph;
+    private final FriendSuggestionEngine friendSuggestionEngine;
+    private final UserSearchService userSearchService;
 
     /**
      * Gửi lời mời kết bạn
@@ -44,24 +56,21 @@ public class FriendshipService {
             throw new RuntimeException("Không thể gửi lời mời kết bạn cho chính mình");
         }
 
-        // Kiểm tra xem đã kết bạn chưa
-        if (friendshipRepository.findFriendship(requesterId, request.getReceiverId()).isPresent()) {
+        // Kiểm tra quan hệ hiện tại qua FriendGraph (không truy vấn friendships)
+        FriendGraph.Adjacency adjacency = friendGraph.get(requesterId);
+        long receiverId = request.getReceiverId();
+        if (adjacency.isFriend(receiverId)) {
             throw new RuntimeException("Bạn đã kết bạn với người dùng này");
         }
 
-        // Kiểm tra xem có lời mời đang chờ hoặc bị chặn không
-        Optional<Friendship> existing = friendshipRepository.findPendingOrBlockedFriendship(requesterId, request.getReceiverId());
-        if (existing.isPresent()) {
-            Friendship friendship = existing.get();
-            if (friendship.getStatus() == FriendshipStatus.BLOCKED) {
-                throw new RuntimeException("Bạn hoặc người dùng này đã chặn lẫn nhau");
-            }
-            throw new RuntimeException("Lời mời kết bạn này đã tồn tại");
+        // Kiểm tra xem có bị chặn không (cả hai chiều)
+        if (adjacency.hasBlocked(receiverId) || adjacency.isBlockedBy(receiverId)) {
+            throw new RuntimeException("Bạn hoặc người dùng này đã chặn lẫn nhau");
         }
 
-        // Kiểm tra xem bị chặn không
-        if (friendshipRepository.findBlockedFriendship(request.getReceiverId(), requesterId).isPresent()) {
-            throw new RuntimeException("Người dùng này đã chặn bạn");
+        // Kiểm tra xem có lời mời đang chờ không
+        if (adjacency.hasPendingWith(receiverId)) {
+            throw new RuntimeException("Lời mời kết bạn này đã tồn tại");
         }
 
         // Tạo lời mời kết bạn mới
@@ -73,6 +82,7 @@ public class FriendshipService {
         friendship.setUpdatedAt(Instant.now());
 
         Friendship savedFriendship = friendshipRepository.save(friendship);
+        friendGraph.invalidate(requesterId, request.getReceiverId());
         return mapToDTO(savedFriendship);
     }
 
@@ -96,6 +106,7 @@ public class FriendshipService {
         friendship.setUpdatedAt(Instant.now());
         
         Friendship updatedFriendship = friendshipRepository.save(friendship);
+        friendGraph.invalidate(friendship.getRequester().getId(), receiverId);
         return mapToDTO(updatedFriendship);
     }
 
@@ -116,6 +127,7 @@ public class FriendshipService {
         }
 
         friendshipRepository.delete(friendship);
+        friendGraph.invalidate(friendship.getRequester().getId(), receiverId);
     }
 
     /**
@@ -149,22 +161,31 @@ public class FriendshipService {
             
             friendshipRepository.save(blockFriendship);
         }
+        friendGraph.invalidate(userId, userToBlockId);
     }
 
     /**
      * Bỏ chặn người dùng
      */
     public void unblockUser(Long userId, Long userToUnblockId) {
+        if (!friendGraph.get(userId).hasBlocked(userToUnblockId)) {
+            return;
+        }
         Optional<Friendship> blocked = friendshipRepository.findBlockedFriendship(userId, userToUnblockId);
         blocked.ifPresent(friendshipRepository::delete);
+        friendGraph.invalidate(userId, userToUnblockId);
     }
 
     /**
      * Hủy kết bạn
      */
     public void unfriend(Long userId, Long friendId) {
+        if (!friendGraph.areFriends(userId, friendId)) {
+            return;
+        }
         Optional<Friendship> friendship = friendshipRepository.findFriendship(userId, friendId);
         friendship.ifPresent(friendshipRepository::delete);
+        friendGraph.invalidate(userId, friendId);
     }
 
     /**
@@ -178,26 +199,36 @@ public class FriendshipService {
     /**
      * Lấy danh sách bạn bè đã chấp nhận
      */
+    @Transactional(readOnly = true)
     public List<UserFriendDTO> getFriendsList(Long userId) {
-        List<Friendship> friendships = friendshipRepository.findAcceptedFriends(userId);
-        return friendships.stream()
-            .map(f -> f.getRequester().getId().equals(userId) ? f.getReceiver() : f.getRequester())
-            .map(this::mapUserToFriendDTO)
-            .collect(Collectors.toList());
+        long[] friendIds = friendGraph.friendIds(userId);
+        if (friendIds.length == 0) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = Arrays.stream(friendIds).boxed().collect(Collectors.toList());
+        return userRepository.findFriendCardsByIds(ids);
     }
 
     /**
      * Kiểm tra xem hai user đã kết bạn chưa
      */
     public boolean areFriends(Long userId1, Long userId2) {
-        return friendshipRepository.findFriendship(userId1, userId2).isPresent();
+        return friendGraph.areFriends(userId1, userId2);
     }
 
     /**
      * Đếm số bạn bè của user
      */
     public Long countFriends(Long userId) {
-        return friendshipRepository.countFriendsFor(userId);
+        return (long) friendGraph.countFriends(userId);
+    }
+
+    /**
+     * Gợi ý kết bạn (bạn chung + cùng league / trình độ)
+     */
+    @Transactional(readOnly = true)
+    public List<FriendSuggestionDTO> getFriendSuggestions(Long userId, int limit) {
+        return friendSuggestionEngine.suggest(userId, Math.max(1, Math.min(limit, 50)));
     }
 
     /**
@@ -209,53 +240,42 @@ public class FriendshipService {
     }
 
     /**
-     * Tìm kiếm người dùng để kết bạn
+     * Tìm kiếm người dùng để kết bạn (tên hoặc email, xếp hạng, tối đa limit - xem UserSearchService)
      */
-    public List<UserFriendDTO> searchUsers(String searchTerm) {
-        return userRepository.searchByName(searchTerm).stream()
-            .map(this::mapUserToFriendDTO)
-            .collect(Collectors.toList());
+    public List<UserFriendDTO> searchUsers(String searchTerm, Integer limit) {
+        return userSearchService.search(searchTerm, UserSearchIndex.Field.ALL, limit);
     }
 
     /**
      * Tìm kiếm người dùng theo last_name
      */
     public List<UserFriendDTO> searchByLastName(String lastName) {
-        return userRepository.searchByLastName(lastName).stream()
-            .map(this::mapUserToFriendDTO)
-            .collect(Collectors.toList());
+        return userSearchService.search(lastName, UserSearchIndex.Field.LAST_NAME, null);
     }
 
     /**
      * Tìm kiếm người dùng theo email
      */
     public List<UserFriendDTO> searchByEmail(String email) {
-        return userRepository.searchByEmail(email).stream()
-            .map(this::mapUserToFriendDTO)
-            .collect(Collectors.toList());
+        return userSearchService.search(email, UserSearchIndex.Field.EMAIL, null);
     }
 
     /**
      * Lấy danh sách tất cả users trừ user hiện tại, chỉ lấy users có ROLE_USER
+     * Sắp xếp theo (firstName, lastName, id) và phân trang trong DB (idx_users_directory)
+     *
+     * afterId != null: keyset - trang tiếp theo sau user afterId (id của dòng cuối trang trước), bỏ qua page
+     * afterId == null: phân trang offset theo page như trước
      */
-    public List<UserFriendDTO> getAllUsersExcludingCurrent(Long currentUserId, int page, int size) {
-        // Lấy tất cả users
-        List<User> allUsers = userRepository.findAll();
-        
-        // Lọc ra user hiện tại, chỉ lấy ROLE_USER, và sắp xếp
-        return allUsers.stream()
-            .filter(user -> !user.getId().equals(currentUserId))
-            .filter(user -> user.getRoles() != null && user.getRoles().contains("ROLE_USER"))
-            .sorted((a, b) -> {
-                // Sắp xếp theo firstName
-                int nameCompare = (a.getFirstName() + " " + a.getLastName())
-                    .compareTo(b.getFirstName() + " " + b.getLastName());
-                return nameCompare;
-            })
-            .skip((long) page * size)
-            .limit(size)
-            .map(this::mapUserToFriendDTO)
-            .collect(Collectors.toList());
+    public List<UserFriendDTO> getAllUsersExcludingCurrent(Long currentUserId, Long afterId, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_DIRECTORY_PAGE_SIZE));
+        if (afterId == null) {
+            return userRepository.findDirectoryPage(currentUserId, PageRequest.of(Math.max(page, 0), limit));
+        }
+        UserRepository.DirectoryKeyView cursor = userRepository.findDirectoryKeyById(afterId)
+            .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng"));
+        return userRepository.findDirectoryPageAfter(currentUserId, cursor.getFirstName(), cursor.getLastName(),
+            cursor.getId(), PageRequest.of(0, limit));
     }
 
     // Helper methods
@@ -273,18 +293,4 @@ public class FriendshipService {
         dto.setUpdatedAt(friendship.getUpdatedAt());
         return dto;
     }
-
-    private UserFriendDTO mapUserToFriendDTO(User user) {
-        UserFriendDTO dto = new UserFriendDTO();
-        dto.setId(user.getId());
-        dto.setFirstName(user.getFirstName());
-        dto.setLastName(user.getLastName());
-        dto.setEmail(user.getEmail());
-        dto.setAvatar(user.getAvatar());
-        dto.setLearningLanguage(user.getLearningLanguage());
-        dto.setPoints(user.getPoints());
-        dto.setStreak(user.getStreak());
-        dto.setLastActiveDate(user.getLastActiveDate());
-        return dto;
-    }
 }
@@ -1,5 +1,6 @@
 package com.wolftalk.backend.service;
 
+import com.wolftalk.backend.component.RandomSampler;
 import com.wolftalk.backend.dto.*;
 import com.wolftalk.backend.entity.InitialAssessment;
 import com.wolftalk.backend.entity.InitialAssessmentQuestion;
@@ -28,6 +29,9 @@ public class InitialAssessmentService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private RandomSampler randomSampler;
+    
     // Bắt đầu bài test mới
     public InitialAssessmentDTO startTest(String email) {
         User user = userRepository.findByEmail(email)
@@ -57,7 +61,10 @@ public class InitialAssessmentService {
         }
         
         // Lấy 20 câu hỏi ngẫu nhiên
-        List<InitialAssessmentQuestion> questions = questionRepository.findRandomQuestions(20);
+        List<InitialAssessmentQuestion> questions = randomSampler.sample(
+            "initialAssessment:all",
+            questionRepository::findAllIds,
+            20, questionRepository::findAllById, InitialAssessmentQuestion::getId);
         
         if (questions.isEmpty()) {
             throw new RuntimeException("No questions available");
@@ -4,20 +4,31 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.IsoFields;
 import java.time.temporal.WeekFields;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.wolftalk.backend.component.WeeklyRankIndex;
+import com.wolftalk.backend.component.XpIngestionPipeline;
 
 import com.wolftalk.backend.dto.UserLeaderboardStatsDTO;
 import com.wolftalk.backend.dto.WeeklyLeaderboardEntryDTO;
 import com.wolftalk.backend.entity.LeaderboardEntry;
+import com.wolftalk.backend.entity.LeaderboardWeekSnapshot;
 import com.wolftalk.backend.entity.ListeningChallenge;
 import com.wolftalk.backend.entity.User;
 import com.wolftalk.backend.repository.LeaderboardRepository;
+import com.wolftalk.backend.repository.LeaderboardWeekSnapshotRepository;
 import com.wolftalk.backend.repository.UserRepository;
+import com.wolftalk.backend.security.UserIdResolver;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -39,19 +50,16 @@ public class LeaderboardService {
 
     private final LeaderboardRepository leaderboardRepository;
     private final UserRepository userRepository;
+    private final UserIdResolver userIdResolver;
+    private final LeaderboardWeekSnapshotRepository snapshotRepository;
+    private final WeeklyRankIndex weeklyRankIndex;
+    private final XpIngestionPipeline xpIngestionPipeline;
 
     /**
-     * Lấy hoặc tạo weekly entry cho user trong tuần hiện tại
+     * Lấy weekly entry của user trong tuần (không ghi database)
+     * Nếu user chưa có XP trong tuần thì trả về entry tạm với 0 XP
      */
-    public LeaderboardEntry getOrCreateWeeklyEntry(User user) {
-        LocalDate today = LocalDate.now();
-        return getOrCreateWeeklyEntry(user, today);
-    }
-
-    /**
-     * Lấy hoặc tạo weekly entry cho user trong tuần được chỉ định
-     */
-    public LeaderboardEntry getOrCreateWeeklyEntry(User user, LocalDate date) {
+    private LeaderboardEntry findWeeklyEntryOrEmpty(User user, LocalDate date) {
         WeekFields weekFields = WeekFields.of(Locale.getDefault());
         int weekNumber = date.get(weekFields.weekOfWeekBasedYear());
         int year = date.get(IsoFields.WEEK_BASED_YEAR);
@@ -65,7 +73,7 @@ public class LeaderboardService {
                     entry.setWeeklyXp(0);
                     entry.setWeekStart(getWeekStart(date));
                     entry.setWeekEnd(getWeekEnd(date));
-                    return leaderboardRepository.save(entry);
+                    return entry;
                 });
     }
 
@@ -138,20 +146,63 @@ public class LeaderboardService {
     /**
      * Cập nhật weekly XP cho user by email
      */
-    public LeaderboardEntry updateWeeklyXPByEmail(String email, int xpEarned) {
+    public void updateWeeklyXPByEmail(String email, int xpEarned) {
         User user = userRepository.findByEmailIgnoreCase(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        return updateWeeklyXP(user, xpEarned);
+        updateWeeklyXP(user, xpEarned);
     }
 
     /**
      * Cập nhật weekly XP cho user
+     * XP được đưa vào XpIngestionPipeline sau khi transaction commit (gộp theo user,
+     * ghi batch bằng upsert atomic); nếu pipeline đầy thì ghi trực tiếp bằng upsert.
+     * Entry của tuần được tạo ở lần ghi XP đầu tiên.
+     */
+    public void updateWeeklyXP(User user, int xpEarned) {
+        if (xpEarned == 0) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        WeekFields weekFields = WeekFields.of(Locale.getDefault());
+        int weekNumber = today.get(weekFields.weekOfWeekBasedYear());
+        int year = today.get(IsoFields.WEEK_BASED_YEAR);
+        LocalDateTime weekStart = getWeekStart(today);
+        LocalDateTime weekEnd = getWeekEnd(today);
+
+        Long userId = user.getId();
+
+        if (xpIngestionPipeline.isFull()) {
+            xpIngestionPipeline.recordDirectWrite();
+            leaderboardRepository.upsertWeeklyXp(userId, year, weekNumber, xpEarned, weekStart, weekEnd);
+            updateRankIndexAfterCommit(year, weekNumber, userId);
+            return;
+        }
+        runAfterCommit(() -> xpIngestionPipeline.submit(userId, year, weekNumber, weekStart, weekEnd, xpEarned));
+    }
+
+    /**
+     * Cập nhật rank index sau khi transaction commit (rollback thì index không bị lệch)
+     * Index tự đọc lại XP đã commit thay vì nhận giá trị tuyệt đối từ transaction này
      */
-    public LeaderboardEntry updateWeeklyXP(User user, int xpEarned) {
-        LeaderboardEntry entry = getOrCreateWeeklyEntry(user);
-        entry.setWeeklyXp(entry.getWeeklyXp() + xpEarned);
-        return leaderboardRepository.save(entry);
+    private void updateRankIndexAfterCommit(int year, int weekNumber, Long userId) {
+        runAfterCommit(() -> weeklyRankIndex.refresh(year, weekNumber, List.of(userId)));
+    }
+
+    /**
+     * Chạy action sau khi transaction hiện tại commit (chạy ngay nếu không có transaction)
+     */
+    private void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     /**
@@ -178,7 +229,7 @@ public class LeaderboardService {
         int prevXP = -1;
         int sameRankCount = 0;
 
-        List<WeeklyLeaderboardEntryDTO> result = new java.util.ArrayList<>();
+        List<WeeklyLeaderboardEntryDTO> result = new ArrayList<>();
 
         for (LeaderboardEntry entry : entries) {
             // Handle ties (nếu cùng XP thì cùng rank)
@@ -213,10 +264,10 @@ public class LeaderboardService {
      * Lấy thống kê leaderboard cá nhân by email (rank của user trong tuần)
      */
     public UserLeaderboardStatsDTO getMyWeeklyStatsByEmail(String email) {
-        User user = userRepository.findByEmailIgnoreCase(email)
+        Long userId = userIdResolver.findUserId(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        return getMyWeeklyStats(user.getId());
+        return getMyWeeklyStats(userId);
     }
 
     /**
@@ -227,17 +278,21 @@ public class LeaderboardService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         LocalDate today = LocalDate.now();
-        LeaderboardEntry entry = getOrCreateWeeklyEntry(user, today);
+        LeaderboardEntry entry = findWeeklyEntryOrEmpty(user, today);
 
         // Tính xếp hạng
         int rank = calculateUserRank(entry);
 
+        // Cộng thêm XP còn nằm trong pipeline chưa flush (không sửa entity đang managed)
+        int weeklyXp = entry.getWeeklyXp() + xpIngestionPipeline.pendingXp(
+                userId, entry.getYear(), entry.getWeekNumber(), entry.getWeekStart(), entry.getWeekEnd());
+
         UserLeaderboardStatsDTO stats = new UserLeaderboardStatsDTO(
                 userId,
                 user.getFirstName(),
                 user.getLastName(),
                 user.getAvatar(),
-                entry.getWeeklyXp(),
+                weeklyXp,
                 rank,
                 entry.getTier(),
                 entry.getTierEmoji(),
@@ -256,33 +311,77 @@ public class LeaderboardService {
     }
 
     /**
-     * Tính xếp hạng của user dựa vào entry hiện tại
+     * Tính xếp hạng của user trong đúng tuần của entry (dùng WeeklyRankIndex, O(log n))
      */
     private int calculateUserRank(LeaderboardEntry entry) {
-        WeekFields weekFields = WeekFields.of(Locale.getDefault());
+        return weeklyRankIndex.rankOf(entry.getYear(), entry.getWeekNumber(), entry.getUser().getId());
+    }
+
+    /**
+     * Lấy các user xếp hạng xung quanh user hiện tại by email (radius user phía trên và phía dưới)
+     */
+    @Transactional(readOnly = true)
+    public List<WeeklyLeaderboardEntryDTO> getUsersAroundMeByEmail(String email, int radius) {
+        Long userId = userIdResolver.findUserId(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return getUsersAroundMe(userId, radius);
+    }
+
+    /**
+     * Lấy các user xếp hạng xung quanh user trong tuần hiện tại
+     */
+    @Transactional(readOnly = true)
+    public List<WeeklyLeaderboardEntryDTO> getUsersAroundMe(Long userId, int radius) {
         LocalDate today = LocalDate.now();
+        WeekFields weekFields = WeekFields.of(Locale.getDefault());
         int weekNumber = today.get(weekFields.weekOfWeekBasedYear());
         int year = today.get(IsoFields.WEEK_BASED_YEAR);
 
-        List<LeaderboardEntry> topEntries = leaderboardRepository
-                .findByYearAndWeekNumberOrderByWeeklyXpDesc(year, weekNumber);
+        int position = weeklyRankIndex.positionOf(year, weekNumber, userId);
+        if (position < 0) {
+            return List.of();
+        }
 
-        for (int i = 0; i < topEntries.size(); i++) {
-            if (topEntries.get(i).getId().equals(entry.getId())) {
-                return i + 1;
+        int from = Math.max(0, position - radius);
+        List<Long> userIds = weeklyRankIndex.userIdsByPosition(year, weekNumber, from, 2 * radius + 1);
+
+        Map<Long, LeaderboardEntry> entries = leaderboardRepository
+                .findByYearAndWeekNumberAndUserIdIn(year, weekNumber, userIds)
+                .stream()
+                .collect(Collectors.toMap(entry -> entry.getUser().getId(), Function.identity()));
+
+        List<WeeklyLeaderboardEntryDTO> result = new ArrayList<>();
+        for (Long id : userIds) {
+            LeaderboardEntry entry = entries.get(id);
+            if (entry == null) {
+                continue;
             }
+            User user = entry.getUser();
+            result.add(new WeeklyLeaderboardEntryDTO(
+                    weeklyRankIndex.rankOf(year, weekNumber, id),
+                    user.getId(),
+                    user.getFirstName(),
+                    user.getLastName(),
+                    user.getAvatar(),
+                    entry.getWeeklyXp(),
+                    entry.getTier(),
+                    entry.getTierEmoji(),
+                    entry.getWeekStart(),
+                    entry.getWeekEnd()
+            ));
         }
-        return topEntries.size() + 1;
+        return result;
     }
 
     /**
      * Lấy lịch sử ranking của user by email (tất cả các tuần trước đó)
      */
     public List<WeeklyLeaderboardEntryDTO> getUserLeaderboardHistoryByEmail(String email) {
-        User user = userRepository.findByEmailIgnoreCase(email)
+        Long userId = userIdResolver.findUserId(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        return getUserLeaderboardHistory(user.getId());
+        return getUserLeaderboardHistory(userId);
     }
 
     /**
@@ -292,10 +391,18 @@ public class LeaderboardService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        // Tuần đã kết thúc: dùng rank cuối tuần trong snapshot
+        Map<Integer, Integer> finalRanks = snapshotRepository.findByUserIdOrderByYearDescWeekNumberDesc(userId)
+                .stream()
+                .collect(Collectors.toMap(
+                        snapshot -> snapshot.getYear() * 100 + snapshot.getWeekNumber(),
+                        LeaderboardWeekSnapshot::getFinalRank));
+
         return leaderboardRepository.findByUserOrderByYearDescWeekNumberDesc(user)
                 .stream()
                 .map(entry -> {
-                    int rank = calculateUserRank(entry);
+                    Integer finalRank = finalRanks.get(entry.getYear() * 100 + entry.getWeekNumber());
+                    int rank = finalRank != null ? finalRank : calculateUserRank(entry);
                     return new WeeklyLeaderboardEntryDTO(
                             rank,
                             user.getId(),
@@ -313,23 +420,28 @@ public class LeaderboardService {
     }
 
     /**
-     * Reset leaderboard (scheduled task chạy mỗi Chủ Nhật)
-     * Ghi lại history trước khi reset
+     * Chuyển tuần leaderboard (scheduled task chạy thứ Hai 00:00)
+     *
+     * Không tạo entry cho tuần mới - entry được upsert ở lần ghi XP đầu tiên.
+     * Chỉ archive tuần vừa kết thúc vào leaderboard_week_snapshots bằng một câu
+     * INSERT ... SELECT và bỏ index của tuần cũ khỏi bộ nhớ.
+     *
+     * Caller phải flush XpIngestionPipeline trước (ngoài transaction này). Archive là upsert
+     * nên chạy lại an toàn: lần chạy sau cập nhật XP/rank của XP tới trễ (commit sát nửa đêm).
      */
     @Transactional
     public void resetWeeklyLeaderboard() {
-        log.info("Starting weekly leaderboard reset...");
-        LocalDate today = LocalDate.now();
-        
-        // Lấy tất cả users
-        List<User> users = userRepository.findAll();
-        
-        // Tạo entry cho tuần mới
-        for (User user : users) {
-            getOrCreateWeeklyEntry(user, today.plusDays(1)); // Tuần tới
-        }
-        
-        log.info("Weekly leaderboard reset completed");
+        log.info("Starting weekly leaderboard rollover...");
+        LocalDate lastWeek = LocalDate.now().minusDays(1);
+        WeekFields weekFields = WeekFields.of(Locale.getDefault());
+        int weekNumber = lastWeek.get(weekFields.weekOfWeekBasedYear());
+        int year = lastWeek.get(IsoFields.WEEK_BASED_YEAR);
+
+        int archived = snapshotRepository.archiveWeek(year, weekNumber);
+        weeklyRankIndex.evict(year, weekNumber);
+
+        log.info("Weekly leaderboard rollover completed: archived {} entries of week {}/{}",
+                archived, weekNumber, year);
     }
 
     /**
@@ -1,10 +1,12 @@
 package com.wolftalk.backend.service;
 
+import com.wolftalk.backend.component.RandomSampler;
 import com.wolftalk.backend.dto.DailyQuestProgressDTO;
 import com.wolftalk.backend.dto.MonthlyChallengeProgressDTO;
 import com.wolftalk.backend.dto.QuestDashboardDTO;
 import com.wolftalk.backend.entity.*;
 import com.wolftalk.backend.repository.*;
+import com.wolftalk.backend.security.UserIdResolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -37,7 +39,9 @@ public class QuestService {
     private final MonthlyChallengeRepository monthlyChallengeRepository;
     private final UserQuestProgressRepository progressRepository;
     private final UserRepository userRepository;
+    private final UserIdResolver userIdResolver;
     private final LeaderboardService leaderboardService;
+    private final RandomSampler randomSampler;
 
     private static final int DAILY_QUESTS_COUNT = 3; // Số quest hằng ngày
     private static final int RESET_HOUR = 0; // Reset lúc 0:00
@@ -72,9 +76,9 @@ public class QuestService {
      * Lấy daily quests by email
      */
     public List<DailyQuestProgressDTO> getDailyQuestsByEmail(String email) {
-        User user = userRepository.findByEmailIgnoreCase(email)
+        Long userId = userIdResolver.findUserId(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return getDailyQuests(user.getId());
+        return getDailyQuests(userId);
     }
 
     /**
@@ -82,7 +86,10 @@ public class QuestService {
      */
     private List<DailyQuestProgressDTO> createDailyQuestsForUser(User user, LocalDate date) {
         // Lấy quests ngẫu nhiên (mix các loại)
-        List<DailyQuest> randomQuests = dailyQuestRepository.findRandomActiveQuests(DAILY_QUESTS_COUNT);
+        List<DailyQuest> randomQuests = randomSampler.sample(
+                "dailyQuest:active",
+                dailyQuestRepository::findActiveIds,
+                DAILY_QUESTS_COUNT, dailyQuestRepository::findAllById, DailyQuest::getId);
 
         // Nếu không đủ quests trong DB, tạo default quests
         if (randomQuests.isEmpty()) {
@@ -190,9 +197,9 @@ public class QuestService {
      * Lấy monthly challenge by email
      */
     public MonthlyChallengeProgressDTO getCurrentMonthlyChallengeByEmail(String email) {
-        User user = userRepository.findByEmailIgnoreCase(email)
+        Long userId = userIdResolver.findUserId(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return getCurrentMonthlyChallenge(user.getId());
+        return getCurrentMonthlyChallenge(userId);
     }
 
     /**
@@ -387,9 +394,9 @@ public class QuestService {
      * Claim reward by email
      */
     public QuestDashboardDTO.ClaimRewardResponse claimRewardByEmail(String email, Long progressId) {
-        User user = userRepository.findByEmailIgnoreCase(email)
+        Long userId = userIdResolver.findUserId(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return claimReward(user.getId(), progressId);
+        return claimReward(userId, progressId);
     }
 
     // ==================== QUEST DASHBOARD ====================
@@ -458,8 +465,8 @@ public class QuestService {
      * Lấy quest dashboard by email
      */
     public QuestDashboardDTO getQuestDashboardByEmail(String email) {
-        User user = userRepository.findByEmailIgnoreCase(email)
+        Long userId = userIdResolver.findUserId(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return getQuestDashboard(user.getId());
+        return getQuestDashboard(userId);
     }
 }
@@ -1,5 +1,6 @@
 package com.wolftalk.backend.service;
 
+import com.wolftalk.backend.component.SyllabusCatalog;
 import com.wolftalk.backend.dto.learning.LessonDTO;
 import com.wolftalk.backend.dto.learning.LevelDTO;
 import com.wolftalk.backend.dto.learning.UnitDTO;
@@ -17,17 +18,16 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class SyllabusService {
 
-    private final SyllabusLevelRepository levelRepository;
-    private final SyllabusUnitRepository unitRepository;
     private final UserUnitProgressRepository unitProgressRepository;
     private final UserLessonProgressRepository lessonProgressRepository;
     private final UserRepository userRepository;
@@ -38,31 +38,32 @@ public class SyllabusService {
     private final LessonPracticeQuestionRepository practiceRepository;
     private final SyllabusLessonRepository lessonRepository;
     private final DashboardService dashboardService;
+    private final SyllabusCatalog syllabusCatalog;
 
     @Transactional(readOnly = true)
     public List<LevelDTO> getLevels(String userEmail) {
         User user = userRepository.findByEmailIgnoreCase(userEmail).orElse(null);
         Long userId = user != null ? user.getId() : null;
 
-        List<SyllabusLevel> levels = levelRepository.findAllByOrderByOrderAsc();
+        // Một query cho toàn bộ unit progress của user, join với cây syllabus đã cache
+        Map<String, UserUnitProgress> unitProgress = loadUnitProgress(userId);
 
-        return levels.stream().map(level -> {
+        return syllabusCatalog.getLevels().stream().map(level -> {
             LevelDTO dto = new LevelDTO();
-            dto.setId(level.getId());
-            dto.setName(level.getName());
-            dto.setGroup(level.getGroup());
-            dto.setDescription(level.getDescription());
-            dto.setColor(level.getColor());
-            dto.setTotalUnits(level.getTotalUnits() != null ? level.getTotalUnits() : 0);
+            dto.setId(level.id());
+            dto.setName(level.name());
+            dto.setGroup(level.group());
+            dto.setDescription(level.description());
+            dto.setColor(level.color());
+            dto.setTotalUnits(level.totalUnits() != null ? level.totalUnits() : 0);
 
             int completedCount = 0;
             String status = "locked";
 
             if (userId != null) {
-                List<SyllabusUnit> units = unitRepository.findByLevelIdOrderByOrderAsc(level.getId());
-                for (SyllabusUnit u : units) {
-                    Optional<UserUnitProgress> p = unitProgressRepository.findByUserIdAndUnitId(userId, u.getId());
-                    if (p.isPresent() && "completed".equals(p.get().getStatus())) {
+                for (SyllabusCatalog.UnitNode u : level.units()) {
+                    UserUnitProgress p = unitProgress.get(u.id());
+                    if (p != null && "completed".equals(p.getStatus())) {
                         completedCount++;
                     }
                 }
@@ -70,7 +71,7 @@ public class SyllabusService {
 
             dto.setCompletedUnits(completedCount);
 
-            if ("A1".equals(level.getId())) {
+            if ("A1".equals(level.id())) {
                 status = "active";
             } else if (completedCount == dto.getTotalUnits() && dto.getTotalUnits() > 0) {
                 status = "completed";
@@ -86,57 +87,54 @@ public class SyllabusService {
         User user = userRepository.findByEmailIgnoreCase(userEmail).orElse(null);
         Long userId = user != null ? user.getId() : null;
 
-        List<SyllabusUnit> units = unitRepository.findByLevelIdOrderByOrderAsc(levelId);
+        List<SyllabusCatalog.UnitNode> units = syllabusCatalog.getLevel(levelId)
+                .map(SyllabusCatalog.LevelNode::units)
+                .orElse(List.of());
+
+        // Một query cho unit progress và một query cho lesson progress, không phụ thuộc số unit/lesson
+        Map<String, UserUnitProgress> unitProgress = loadUnitProgress(userId);
+        Set<String> completedLessonIds = loadCompletedLessonIds(userId);
 
         return units.stream().map(unit -> {
             UnitDTO dto = new UnitDTO();
-            dto.setId(unit.getId());
-            dto.setLevelId(unit.getLevel().getId());
-            dto.setOrder(unit.getOrder());
-            dto.setTitle(unit.getTitle());
-            dto.setDescription(unit.getDescription());
-            dto.setTopic(unit.getTopic());
-            dto.setImageUrl(unit.getImageUrl());
+            dto.setId(unit.id());
+            dto.setLevelId(unit.levelId());
+            dto.setOrder(unit.order());
+            dto.setTitle(unit.title());
+            dto.setDescription(unit.description());
+            dto.setTopic(unit.topic());
+            dto.setImageUrl(unit.imageUrl());
 
             dto.setStatus("locked");
             dto.setCompletedLessons(0);
             dto.setScore(0);
 
             if (userId != null) {
-                Optional<UserUnitProgress> progress = unitProgressRepository.findByUserIdAndUnitId(userId,
-                        unit.getId());
-                if (progress.isPresent()) {
-                    dto.setStatus(progress.get().getStatus());
-                    dto.setScore(progress.get().getScore());
+                UserUnitProgress progress = unitProgress.get(unit.id());
+                if (progress != null) {
+                    dto.setStatus(progress.getStatus());
+                    dto.setScore(progress.getScore());
                 } else {
-                    if ("u1_greet".equals(unit.getId())) {
+                    if ("u1_greet".equals(unit.id())) {
                         dto.setStatus("unlocked");
                     }
                 }
             } else {
-                if ("u1_greet".equals(unit.getId())) {
+                if ("u1_greet".equals(unit.id())) {
                     dto.setStatus("unlocked");
                 }
             }
 
-            List<SyllabusLesson> lessons = unit.getLessons();
+            List<SyllabusCatalog.LessonNode> lessons = unit.lessons();
             dto.setTotalLessons(lessons.size());
 
             List<LessonDTO> lessonDTOs = lessons.stream().map(lesson -> {
                 LessonDTO lDto = new LessonDTO();
-                lDto.setId(lesson.getId());
-                lDto.setTitle(lesson.getTitle());
-                lDto.setType(lesson.getType());
-                lDto.setDurationMinutes(lesson.getDurationMinutes());
-                lDto.setCompleted(false);
-
-                if (userId != null) {
-                    Optional<UserLessonProgress> lp = lessonProgressRepository.findByUserIdAndLessonId(userId,
-                            lesson.getId());
-                    if (lp.isPresent() && Boolean.TRUE.equals(lp.get().getIsCompleted())) {
-                        lDto.setCompleted(true);
-                    }
-                }
+                lDto.setId(lesson.id());
+                lDto.setTitle(lesson.title());
+                lDto.setType(lesson.type());
+                lDto.setDurationMinutes(lesson.durationMinutes());
+                lDto.setCompleted(completedLessonIds.contains(lesson.id()));
                 return lDto;
             }).collect(Collectors.toList());
 
@@ -149,43 +147,55 @@ public class SyllabusService {
         }).collect(Collectors.toList());
     }
 
+    private Map<String, UserUnitProgress> loadUnitProgress(Long userId) {
+        if (userId == null) {
+            return Map.of();
+        }
+        return unitProgressRepository.findByUserId(userId).stream()
+                .filter(p -> p.getUnitId() != null)
+                .collect(Collectors.toMap(UserUnitProgress::getUnitId, p -> p, (a, b) -> a));
+    }
+
+    private Set<String> loadCompletedLessonIds(Long userId) {
+        if (userId == null) {
+            return Set.of();
+        }
+        return new HashSet<>(lessonProgressRepository.findCompletedLessonIdsByUserId(userId));
+    }
+
+    /**
+     * Nội dung lesson đọc từ snapshot của SyllabusCatalog; lesson chưa có trong snapshot thì đọc database
+     */
     @Transactional(readOnly = true)
     public List<VocabularyDTO> getLessonVocabulary(String lessonId) {
-        return vocabRepository.findByLessonId(lessonId).stream()
-                .map(v -> new VocabularyDTO(v.getId(), v.getWord(), v.getPhonetic(), v.getMeaning(), v.getExample(),
-                        v.getUsageNote()))
-                .collect(Collectors.toList());
+        return syllabusCatalog.getLessonVocabulary(lessonId)
+                .orElseGet(() -> vocabRepository.findByLessonId(lessonId).stream()
+                        .map(SyllabusCatalog::toVocabularyDTO)
+                        .collect(Collectors.toList()));
     }
 
     @Transactional(readOnly = true)
     public List<GrammarDTO> getLessonGrammar(String lessonId) {
-        return grammarRepository.findByLessonId(lessonId).stream()
-                .map(g -> new GrammarDTO(g.getId(), g.getName(), g.getFormula(), g.getExplanation(), g.getExample(),
-                        g.getNote()))
-                .collect(Collectors.toList());
+        return syllabusCatalog.getLessonGrammar(lessonId)
+                .orElseGet(() -> grammarRepository.findByLessonId(lessonId).stream()
+                        .map(SyllabusCatalog::toGrammarDTO)
+                        .collect(Collectors.toList()));
     }
 
     @Transactional(readOnly = true)
     public List<ConversationDTO> getLessonConversation(String lessonId) {
-        return conversationRepository.findByLessonIdOrderByOrderAsc(lessonId).stream()
-                .map(c -> new ConversationDTO(c.getId(), c.getOrder(), c.getTextEn(), c.getTextVi()))
-                .collect(Collectors.toList());
+        return syllabusCatalog.getLessonConversation(lessonId)
+                .orElseGet(() -> conversationRepository.findByLessonIdOrderByOrderAsc(lessonId).stream()
+                        .map(SyllabusCatalog::toConversationDTO)
+                        .collect(Collectors.toList()));
     }
 
     @Transactional(readOnly = true)
     public PracticeExerciseDTO getLessonPractice(String lessonId, String scenarioId) {
-        List<PracticeQuestionDTO> questions = practiceRepository.findByLessonId(lessonId).stream()
-                .map(q -> {
-                    List<PracticeQuestionDTO.MatchingPairDTO> pairs = q.getPairs() != null ? q.getPairs().stream()
-                            .map(p -> new PracticeQuestionDTO.MatchingPairDTO(p.getId().toString(), p.getLeft(),
-                                    p.getRight()))
-                            .collect(Collectors.toList()) : List.of();
-
-                    return new PracticeQuestionDTO(q.getId().toString(), q.getType(), q.getQuestion(),
-                            q.getExplanation(), q.getCorrectAnswer(), q.getOptions(), q.getSegments(),
-                            q.getCorrectOrder(), pairs, q.getImageUrl(), q.getAudioUrl());
-                })
-                .collect(Collectors.toList());
+        List<PracticeQuestionDTO> questions = syllabusCatalog.getLessonPractice(lessonId)
+                .orElseGet(() -> practiceRepository.findByLessonId(lessonId).stream()
+                        .map(SyllabusCatalog::toPracticeQuestionDTO)
+                        .collect(Collectors.toList()));
 
         return new PracticeExerciseDTO(scenarioId, questions);
     }
@@ -240,13 +250,15 @@ public class SyllabusService {
         userRepository.save(user);
 
         // Unlock next unit
-        SyllabusUnit currentUnit = unitRepository.findById(unitId).orElse(null);
+        SyllabusCatalog.UnitNode currentUnit = syllabusCatalog.getUnit(unitId).orElse(null);
         if (currentUnit != null) {
-            List<SyllabusUnit> levelUnits = unitRepository.findByLevelIdOrderByOrderAsc(currentUnit.getLevel().getId());
+            List<SyllabusCatalog.UnitNode> levelUnits = syllabusCatalog.getLevel(currentUnit.levelId())
+                    .map(SyllabusCatalog.LevelNode::units)
+                    .orElse(List.of());
             for (int i = 0; i < levelUnits.size() - 1; i++) {
-                if (levelUnits.get(i).getId().equals(unitId)) {
-                    SyllabusUnit next = levelUnits.get(i + 1);
-                    unlockUnit(userEmail, next.getId());
+                if (levelUnits.get(i).id().equals(unitId)) {
+                    SyllabusCatalog.UnitNode next = levelUnits.get(i + 1);
+                    unlockUnit(userEmail, next.id());
                     break;
                 }
             }
@@ -275,22 +287,22 @@ public class SyllabusService {
 
     @Transactional(readOnly = true)
     public List<TopicDTO> getTopicGroups() {
-        List<SyllabusUnit> allUnits = unitRepository.findAll();
-        Map<String, List<SyllabusUnit>> groupedByTopic = allUnits.stream()
-                .filter(u -> u.getTopic() != null)
-                .collect(Collectors.groupingBy(SyllabusUnit::getTopic));
+        List<SyllabusCatalog.UnitNode> allUnits = syllabusCatalog.getAllUnits();
+        Map<String, List<SyllabusCatalog.UnitNode>> groupedByTopic = allUnits.stream()
+                .filter(u -> u.topic() != null)
+                .collect(Collectors.groupingBy(SyllabusCatalog.UnitNode::topic));
 
         return groupedByTopic.entrySet().stream().map(entry -> {
             String topicName = entry.getKey();
-            List<SyllabusUnit> unitsInTopic = entry.getValue();
+            List<SyllabusCatalog.UnitNode> unitsInTopic = entry.getValue();
 
             TopicDTO dto = new TopicDTO();
             dto.setId("topic_" + topicName.toLowerCase().replace(" ", "_"));
             dto.setGroup(topicName);
             dto.setMinLevel(unitsInTopic.stream()
-                    .map(u -> u.getLevel().getId())
+                    .map(SyllabusCatalog.UnitNode::levelId)
                     .min(String::compareTo).orElse("A1"));
-            dto.setTopics(unitsInTopic.stream().map(SyllabusUnit::getTitle).collect(Collectors.toList()));
+            dto.setTopics(unitsInTopic.stream().map(SyllabusCatalog.UnitNode::title).collect(Collectors.toList()));
             dto.setExamples(List.of());
             return dto;
         }).collect(Collectors.toList());
@@ -298,37 +310,37 @@ public class SyllabusService {
 
     @Transactional(readOnly = true)
     public List<String> getScenariosByTopic(String topicName) {
-        return unitRepository.findAll().stream()
-                .filter(u -> topicName.equalsIgnoreCase(u.getTopic()))
-                .map(SyllabusUnit::getTitle)
+        return syllabusCatalog.getAllUnits().stream()
+                .filter(u -> topicName.equalsIgnoreCase(u.topic()))
+                .map(SyllabusCatalog.UnitNode::title)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public ScenarioDetailDTO getScenarioDetail(String unitIdOrTitle) {
-        SyllabusUnit unit = unitRepository.findById(unitIdOrTitle)
-                .orElseGet(() -> unitRepository.findAll().stream()
-                        .filter(u -> u.getTitle().equalsIgnoreCase(unitIdOrTitle))
+        SyllabusCatalog.UnitNode unit = syllabusCatalog.getUnit(unitIdOrTitle)
+                .orElseGet(() -> syllabusCatalog.getAllUnits().stream()
+                        .filter(u -> u.title().equalsIgnoreCase(unitIdOrTitle))
                         .findFirst()
                         .orElseThrow(() -> new RuntimeException("Scenario not found: " + unitIdOrTitle)));
 
         ScenarioDetailDTO dto = new ScenarioDetailDTO();
-        dto.setScenarioName(unit.getTitle());
+        dto.setScenarioName(unit.title());
 
         List<VocabularyDTO> vocabList = List.of();
         List<GrammarDTO> grammarList = List.of();
         List<ConversationDTO> conversationList = List.of();
         PracticeExerciseDTO practice = null;
 
-        for (SyllabusLesson lesson : unit.getLessons()) {
-            if ("vocabulary".equals(lesson.getType())) {
-                vocabList = getLessonVocabulary(lesson.getId());
-            } else if ("grammar".equals(lesson.getType())) {
-                grammarList = getLessonGrammar(lesson.getId());
-            } else if ("conversation".equals(lesson.getType())) {
-                conversationList = getLessonConversation(lesson.getId());
-            } else if ("practice".equals(lesson.getType())) {
-                practice = getLessonPractice(lesson.getId(), unit.getTitle());
+        for (SyllabusCatalog.LessonNode lesson : unit.lessons()) {
+            if ("vocabulary".equals(lesson.type())) {
+                vocabList = getLessonVocabulary(lesson.id());
+            } else if ("grammar".equals(lesson.type())) {
+                grammarList = getLessonGrammar(lesson.id());
+            } else if ("conversation".equals(lesson.type())) {
+                conversationList = getLessonConversation(lesson.id());
+            } else if ("practice".equals(lesson.type())) {
+                practice = getLessonPractice(lesson.id(), unit.title());
             }
         }
 
@@ -0,0 +1,121 @@
+package com.wolftalk.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.wolftalk.backend.component.UserDirectoryIndexes;
+import com.wolftalk.backend.component.UserSearchIndex;
+import com.wolftalk.backend.dto.UserFriendDTO;
+import com.wolftalk.backend.repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Tìm kiếm user cho màn hình tìm bạn, chọn engine theo users.search.engine:
+ *
+ * - memory:  UserSearchIndex (trigram trong bộ nhớ, bỏ dấu tiếng Việt, xếp hạng)
+ * - trigram: Postgres pg_trgm - LIKE '%term%' trên index GIN idx_users_search_trgm, xếp theo similarity
+ *            (chỉ chữ thường, không bỏ dấu; tìm theo last name / email dùng engine like)
+ * - like:    các query LIKE '%term%' cũ (quét tuần tự), giới hạn số kết quả
+ *
+ * Engine memory chưa load xong hoặc pg_trgm chưa cài thì rơi về like.
+ * Mọi engine trả tối đa limit thẻ UserFriendDTO, không load entity User.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserSearchService {
+
+    public static final String ENGINE_MEMORY = "memory";
+    public static final String ENGINE_TRIGRAM = "trigram";
+    public static final String ENGINE_LIKE = "like";
+
+    private static final int MAX_LIMIT = 100;
+
+    private final UserRepository userRepository;
+    private final UserSearchIndex userSearchIndex;
+    private final UserDirectoryIndexes userDirectoryIndexes;
+
+    @Value("${users.search.engine:memory}")
+    private String engine;
+
+    @Value("${users.search.default-limit:20}")
+    private int defaultLimit;
+
+    public List<UserFriendDTO> search(String query, UserSearchIndex.Field field, Integer limit) {
+        int effectiveLimit = limit == null ? defaultLimit : Math.max(1, Math.min(limit, MAX_LIMIT));
+        return searchWith(engine, query, field, effectiveLimit);
+    }
+
+    /**
+     * Tìm bằng một engine cụ thể (UserSearchBenchmark so sánh các engine trên cùng dữ liệu)
+     */
+    public List<UserFriendDTO> searchWith(String engineName, String query, UserSearchIndex.Field field, int limit) {
+        String term = query == null ? "" : query.trim();
+        if (term.isEmpty()) {
+            return List.of();
+        }
+        String resolved = resolveEngine(engineName, field);
+        if (ENGINE_MEMORY.equals(resolved)) {
+            return loadCards(userSearchIndex.search(term, field, limit));
+        }
+        if (ENGINE_TRIGRAM.equals(resolved)) {
+            String lower = term.toLowerCase(Locale.ROOT);
+            return loadCards(userRepository.searchIdsByTrigram(lower, "%" + escapeLike(lower) + "%", limit));
+        }
+        PageRequest page = PageRequest.of(0, limit);
+        return switch (field) {
+            case ALL -> userRepository.searchByName(term, page);
+            case LAST_NAME -> userRepository.searchByLastName(term, page);
+            case EMAIL -> userRepository.searchByEmail(term, page);
+        };
+    }
+
+    /**
+     * Engine thực sự được dùng cho một lần tìm (sau khi rơi về like nếu engine chưa sẵn sàng)
+     */
+    public String resolveEngine(String engineName, UserSearchIndex.Field field) {
+        if (ENGINE_MEMORY.equalsIgnoreCase(engineName) && userSearchIndex.isReady()) {
+            return ENGINE_MEMORY;
+        }
+        if (ENGINE_TRIGRAM.equalsIgnoreCase(engineName) && field == UserSearchIndex.Field.ALL
+                && userDirectoryIndexes.isTrigramAvailable()) {
+            return ENGINE_TRIGRAM;
+        }
+        return ENGINE_LIKE;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    /**
+     * Thẻ bạn bè theo đúng thứ tự xếp hạng của danh sách id
+     */
+    private List<UserFriendDTO> loadCards(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UserFriendDTO> cards = userRepository.findFriendCardsByIds(userIds).stream()
+            .collect(Collectors.toMap(UserFriendDTO::getId, Function.identity()));
+        List<UserFriendDTO> ordered = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            UserFriendDTO card = cards.get(userId);
+            if (card != null) {
+                ordered.add(card);
+            }
+        }
+        return ordered;
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
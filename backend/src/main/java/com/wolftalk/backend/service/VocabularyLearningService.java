@@ -8,6 +8,7 @@ import java.util.List;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wolftalk.backend.component.RandomSampler;
 import com.wolftalk.backend.dto.VocabularyLearningDTO;
 import com.wolftalk.backend.entity.User;
 import com.wolftalk.backend.entity.UserVocabularyLevel;
@@ -18,6 +19,7 @@ import com.wolftalk.backend.repository.UserRepository;
 import com.wolftalk.backend.repository.UserVocabularyLevelRepository;
 import com.wolftalk.backend.repository.UserVocabularyProgressRepository;
 import com.wolftalk.backend.repository.VocabularyWordRepository;
+import com.wolftalk.backend.security.UserIdResolver;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -31,7 +33,9 @@ public class VocabularyLearningService {
     private final UserVocabularyProgressRepository progressRepository;
     private final UserVocabularyLevelRepository levelRepository;
     private final UserRepository userRepository;
+    private final UserIdResolver userIdResolver;
     private final LeaderboardService leaderboardService;
+    private final RandomSampler randomSampler;
 
     /**
      * Get or create user's vocabulary level
@@ -57,9 +61,9 @@ public class VocabularyLearningService {
      */
     @Transactional
     public UserVocabularyLevel getOrCreateUserLevelByEmail(String email) {
-        User user = userRepository.findByEmailIgnoreCase(email)
+        Long userId = userIdResolver.findUserId(email)
             .orElseThrow(() -> new RuntimeException("User not found"));
-        return getOrCreateUserLevel(user.getId());
+        return getOrCreateUserLevel(userId);
     }
 
     /**
@@ -101,7 +105,10 @@ public class VocabularyLearningService {
         if (topicName != null && !topicName.isEmpty()) {
             // Get one word from specific topic
             VocabularyTopic topic = VocabularyTopic.valueOf(topicName.toUpperCase());
-            List<VocabularyWord> words = vocabularyWordRepository.findRandomByTopicAndMaxLevel(topic, maxLevel, 1);
+            List<VocabularyWord> words = randomSampler.sample(
+                    "vocab:" + topic.name() + ":" + maxLevel,
+                    () -> vocabularyWordRepository.findIdsByTopicAndMaxLevel(topic, maxLevel),
+                    1, vocabularyWordRepository::findAllById, VocabularyWord::getId);
             if (!words.isEmpty()) {
                 targetWord = words.get(0);
             }
@@ -119,7 +126,10 @@ public class VocabularyLearningService {
                     sessionType = "LEARN";
                 } else {
                     // If no new or review words, get random
-                    List<VocabularyWord> randomWords = vocabularyWordRepository.findRandomByMaxLevel(maxLevel, 1);
+                    List<VocabularyWord> randomWords = randomSampler.sample(
+                            "vocab:*:" + maxLevel,
+                            () -> vocabularyWordRepository.findIdsByMaxLevel(maxLevel),
+                            1, vocabularyWordRepository::findAllById, VocabularyWord::getId);
                     if (!randomWords.isEmpty()) {
                         targetWord = randomWords.get(0);
                         sessionType = "PRACTICE";
@@ -155,11 +165,14 @@ public class VocabularyLearningService {
         options.add(correctWord.getMeaning()); // Correct answer
         
         // Get 3 wrong answers from other words in same topic or random
-        List<VocabularyWord> otherWords = vocabularyWordRepository.findRandomWrongAnswers(
-            correctWord.getId(), 
-            correctWord.getTopic(), 
-            maxLevel, 
-            3
+        VocabularyTopic topic = correctWord.getTopic();
+        List<VocabularyWord> otherWords = randomSampler.sampleExcluding(
+            "vocab:" + topic.name() + ":" + maxLevel,
+            () -> vocabularyWordRepository.findIdsByTopicAndMaxLevel(topic, maxLevel),
+            3,
+            correctWord.getId(),
+            vocabularyWordRepository::findAllById,
+            VocabularyWord::getId
         );
         
         for (VocabularyWord word : otherWords) {
@@ -0,0 +1,140 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AudioCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void theHeapTierEvictsTheLeastRecentlyUsedClipsPastTheByteBudget() throws IOException {
+        AudioCache cache = cache(300);
+
+        cache.getOrCreate("a", () -> new byte[100], false);
+        cache.getOrCreate("b", () -> new byte[100], false);
+        cache.getOrCreate("c", () -> new byte[100], false);
+        cache.lookup("a");
+        cache.getOrCreate("d", () -> new byte[100], false);
+
+        assertThat(cache.contains("a")).isTrue();
+        assertThat(cache.contains("b")).isFalse();
+        assertThat(cache.contains("c")).isTrue();
+        assertThat(cache.contains("d")).isTrue();
+        assertThat(cache.getStats()).containsEntry("memoryEntries", 3).containsEntry("memoryBytes", 300L);
+    }
+
+    @Test
+    void aClipLargerThanTheHeapBudgetIsOnlyKeptOnDisk() throws IOException {
+        AudioCache cache = cache(300);
+
+        AudioCache.Clip clip = cache.getOrCreate("large", () -> new byte[500]);
+
+        assertThat(clip.file()).exists();
+        assertThat(cache.getStats()).containsEntry("memoryEntries", 0).containsEntry("memoryBytes", 0L);
+        assertThat(cache.lookup("large").bytes()).isNull();
+        assertThat(cache.lookup("large").readBytes()).hasSize(500);
+    }
+
+    @Test
+    void theDiskTierSurvivesARestart() throws IOException {
+        byte[] audio = {1, 2, 3, 4};
+        cache(64_000).getOrCreate("hello", () -> audio);
+
+        AudioCache restarted = cache(64_000);
+        AudioCache.Clip clip = restarted.getOrCreate("hello", () -> {
+            throw new IOException("must be served from disk");
+        });
+
+        assertThat(clip.readBytes()).isEqualTo(audio);
+        // Small clips are promoted to the heap on the first disk hit
+        restarted.lookup("hello");
+        assertThat(restarted.getStats())
+                .containsEntry("diskHits", 1L)
+                .containsEntry("memoryHits", 1L)
+                .containsEntry("misses", 0L);
+    }
+
+    @Test
+    void nonPersistentAudioIsNeverWrittenToDisk() throws IOException {
+        AudioCache cache = cache(64_000);
+
+        AudioCache.Clip clip = cache.getOrCreate("fake", () -> new byte[10], false);
+
+        assertThat(clip.file()).isNull();
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertThat(files.toList()).isEmpty();
+        }
+        assertThat(cache(64_000).contains("fake")).isFalse();
+    }
+
+    @Test
+    void concurrentRequestsForOneKeySynthesizeOnce() throws Exception {
+        AudioCache cache = cache(64_000);
+        AtomicInteger synthesized = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<AudioCache.Clip>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.getOrCreate("shared", () -> {
+                        synthesized.incrementAndGet();
+                        // Long enough for the other threads to find the synthesis in flight
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+                        return new byte[42];
+                    });
+                }));
+            }
+            start.countDown();
+
+            for (Future<AudioCache.Clip> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).size()).isEqualTo(42L);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(synthesized.get()).isEqualTo(1);
+        assertThat(cache.getStats()).containsEntry("misses", 1L).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void aFailedSynthesisIsNotCached() throws IOException {
+        AudioCache cache = cache(64_000);
+
+        assertThatThrownBy(() -> cache.getOrCreate("flaky", () -> {
+            throw new IOException("provider unavailable");
+        })).isInstanceOf(IOException.class);
+
+        assertThat(cache.contains("flaky")).isFalse();
+        assertThat(cache.getOrCreate("flaky", () -> new byte[7]).size()).isEqualTo(7L);
+    }
+
+    private AudioCache cache(long memoryMaxBytes) {
+        AudioCache cache = new AudioCache();
+        ReflectionTestUtils.setField(cache, "cacheDir", cacheDir.toString());
+        ReflectionTestUtils.setField(cache, "memoryMaxBytes", memoryMaxBytes);
+        cache.init();
+        return cache;
+    }
+}
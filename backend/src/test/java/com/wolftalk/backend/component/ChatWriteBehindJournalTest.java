@@ -0,0 +1,176 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.wolftalk.backend.dto.MessageDTO;
+
+class ChatWriteBehindJournalTest {
+
+    private static final long CONVERSATION_ID = 7L;
+    private static final int NODE_ID = 3;
+
+    @TempDir
+    Path journalDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+    private final List<ChatWriteBehindJournal> journals = new ArrayList<>();
+
+    // messages table (id -> content); a message with content "poison" violates a constraint
+    private final Map<Long, String> messages = new ConcurrentHashMap<>();
+    private volatile boolean databaseUnavailable;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO messages"), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (databaseUnavailable) {
+                throw new CannotGetJdbcConnectionException("connection refused");
+            }
+            for (Object[] row : rows) {
+                if ("poison".equals(row[3])) {
+                    throw new DataIntegrityViolationException("messages_content_check");
+                }
+            }
+            rows.forEach(row -> messages.putIfAbsent((Long) row[0], (String) row[3]));
+            return new int[rows.size()];
+        });
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @AfterEach
+    void tearDown() {
+        journals.forEach(ChatWriteBehindJournal::flushOnShutdown);
+    }
+
+    @Test
+    void flushWritesPendingMessagesInItsOwnTransaction() throws IOException {
+        ChatWriteBehindJournal journal = start();
+        append(journal, "hello");
+        append(journal, "world");
+
+        assertThat(journal.pendingMessages(CONVERSATION_ID)).hasSize(2);
+        journal.flush();
+
+        assertThat(messages.values()).containsExactlyInAnyOrder("hello", "world");
+        assertThat(journal.pendingMessages(CONVERSATION_ID)).isEmpty();
+        // REQUIRES_NEW: a caller's transaction rolling back cannot undo a flush that already emptied the queue
+        verify(transactionManager, atLeastOnce()).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        verify(transactionManager, never()).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() != TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    @Test
+    void aFailingMessageIsDeadLetteredWithoutBlockingTheQueue() throws IOException {
+        ChatWriteBehindJournal journal = start();
+        append(journal, "first");
+        long poisonId = append(journal, "poison");
+        append(journal, "second");
+
+        journal.flush();
+
+        // The batch failed; the other messages were written one by one, the poison one waits
+        assertThat(messages.values()).containsExactlyInAnyOrder("first", "second");
+        assertThat(journal.getStats()).containsEntry("queueDepth", 1);
+
+        append(journal, "third");
+        journal.flush();
+        journal.flush();
+
+        assertThat(messages.values()).contains("third");
+        assertThat(journal.getStats()).containsEntry("queueDepth", 0).containsEntry("deadLetteredRows", 1L);
+        assertThat(Files.readString(journalDir.resolve("dead-letter.jsonl"))).contains(String.valueOf(poisonId));
+
+        // Nothing is left on disk for a restart to replay
+        messages.clear();
+        start();
+        assertThat(messages).isEmpty();
+    }
+
+    @Test
+    void messagesAreKeptWhileTheDatabaseIsUnavailableAndReplayedAfterRestart() throws IOException {
+        ChatWriteBehindJournal journal = start();
+        databaseUnavailable = true;
+        append(journal, "one");
+        append(journal, "two");
+
+        for (int i = 0; i < 5; i++) {
+            journal.flush();
+        }
+        assertThat(journal.getStats()).containsEntry("queueDepth", 2).containsEntry("deadLetteredRows", 0L);
+
+        // Crash before the database comes back: the next instance replays the journal
+        databaseUnavailable = false;
+        ChatWriteBehindJournal restarted = start();
+
+        assertThat(messages.values()).containsExactlyInAnyOrder("one", "two");
+        assertThat(restarted.getStats()).containsEntry("replayedRows", 2L).containsEntry("queueDepth", 0);
+    }
+
+    @Test
+    void idsCarryTheNodeIdAndIncrease() throws IOException {
+        ChatWriteBehindJournal journal = start();
+        long previous = 0;
+        for (int i = 0; i < 1000; i++) {
+            long id = journal.nextId();
+            assertThat(id).isGreaterThan(previous);
+            assertThat((id >> 8) & 0xF).isEqualTo((long) NODE_ID);
+            previous = id;
+        }
+    }
+
+    private ChatWriteBehindJournal start() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        ChatWriteBehindJournal journal = new ChatWriteBehindJournal(jdbcTemplate, transactionManager, objectMapper,
+                mock(ConversationInboxStore.class), mock(ChatJournalNodeLease.class));
+        ReflectionTestUtils.setField(journal, "journalDir", journalDir.toString());
+        ReflectionTestUtils.setField(journal, "capacity", 100);
+        ReflectionTestUtils.setField(journal, "configuredNodeId", NODE_ID);
+        ReflectionTestUtils.setField(journal, "maxAttempts", 3);
+        journal.init();
+        journals.add(journal);
+        return journal;
+    }
+
+    private long append(ChatWriteBehindJournal journal, String content) {
+        ChatWriteBehindJournal.JournalEntry entry = new ChatWriteBehindJournal.JournalEntry(
+                journal.nextId(), CONVERSATION_ID, 1L, content, Instant.now());
+        journal.append(entry, MessageDTO.builder().id(entry.id()).content(content).build());
+        return entry.id();
+    }
+}
@@ -0,0 +1,42 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class ConversationInboxStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ConversationInboxStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        store = new ConversationInboxStore(jdbcTemplate);
+    }
+
+    @Test
+    void backfillScansConversationsOnlyOnce() {
+        when(jdbcTemplate.queryForObject(contains("FROM conversation_inbox_backfill"), eq(Integer.class), any()))
+                .thenReturn(0, 1);
+        when(jdbcTemplate.update(contains("FROM conversations c"))).thenReturn(4);
+
+        assertThat(store.backfillOnce()).isEqualTo(4);
+        assertThat(store.backfillOnce()).isEqualTo(0);
+        // A restarted instance sees the marker as well
+        assertThat(new ConversationInboxStore(jdbcTemplate).backfillOnce()).isEqualTo(0);
+
+        verify(jdbcTemplate, times(1)).update(contains("FROM conversations c"));
+        verify(jdbcTemplate, times(1)).update(startsWith("INSERT INTO conversation_inbox_backfill"), eq(1), eq(4));
+    }
+}
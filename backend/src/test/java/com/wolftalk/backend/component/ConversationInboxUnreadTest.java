@@ -0,0 +1,139 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.wolftalk.backend.entity.Conversation;
+import com.wolftalk.backend.entity.User;
+import com.wolftalk.backend.repository.ConversationRepository;
+import com.wolftalk.backend.repository.UserRepository;
+
+/**
+ * unread_count do SQL của ConversationInboxStore tính trên database thật: người gửi / người nhận,
+ * replay journal và read receipt trước khi journal flush
+ */
+@SpringBootTest
+class ConversationInboxUnreadTest {
+
+    @Autowired
+    private ConversationInboxStore inboxStore;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User alice;
+    private User bob;
+    private Conversation conversation;
+    private long nextId;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(user("alice"));
+        bob = userRepository.save(user("bob"));
+
+        conversation = new Conversation();
+        conversation.setUser1(alice);
+        conversation.setUser2(bob);
+        conversation = conversationRepository.save(conversation);
+        inboxStore.createRows(conversation);
+
+        nextId = System.currentTimeMillis();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM conversation_inbox WHERE conversation_id = ?", conversation.getId());
+        conversationRepository.delete(conversation);
+        userRepository.delete(alice);
+        userRepository.delete(bob);
+    }
+
+    @Test
+    void theRecipientCountsEveryMessageOfALoneSender() {
+        inboxStore.apply(List.of(from(alice), from(alice), from(alice)));
+
+        assertThat(unread(bob)).isEqualTo(3);
+        assertThat(unread(alice)).isZero();
+    }
+
+    @Test
+    void aSenderOnlyCountsRepliesAfterTheirLastMessage() {
+        inboxStore.apply(List.of(from(alice), from(bob)));
+        inboxStore.apply(List.of(from(alice), from(bob), from(bob), from(alice), from(bob), from(bob)));
+
+        assertThat(unread(alice)).isEqualTo(2);
+        assertThat(unread(bob)).isZero();
+    }
+
+    @Test
+    void replayingABatchDoesNotCountItTwice() {
+        List<ChatWriteBehindJournal.JournalEntry> batch = List.of(from(alice), from(alice));
+
+        inboxStore.apply(batch);
+        // Crash sau commit nhưng trước khi xóa segment: lần khởi động sau ghi lại cùng batch
+        inboxStore.apply(batch);
+
+        assertThat(unread(bob)).isEqualTo(2);
+    }
+
+    @Test
+    void messagesReadWhileStillInTheJournalStayRead() {
+        inboxStore.apply(List.of(from(alice)));
+        ChatWriteBehindJournal.JournalEntry seen = from(alice);
+        ChatWriteBehindJournal.JournalEntry alsoSeen = from(alice);
+
+        // Bob đọc khi hai tin nhắn sau còn trong journal
+        inboxStore.markRead(conversation.getId(), bob.getId(), alsoSeen.id());
+        assertThat(unread(bob)).isZero();
+
+        inboxStore.apply(List.of(seen, alsoSeen, from(alice)));
+        assertThat(unread(bob)).isEqualTo(1);
+
+        inboxStore.markRead(conversation.getId(), bob.getId(), 0);
+        assertThat(unread(bob)).isZero();
+    }
+
+    @Test
+    void archivingHidesTheConversationForBothUsers() {
+        inboxStore.setArchived(conversation.getId(), true);
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM conversation_inbox WHERE conversation_id = ? AND is_archived = true",
+                Integer.class, conversation.getId())).isEqualTo(2);
+    }
+
+    private ChatWriteBehindJournal.JournalEntry from(User sender) {
+        long id = nextId++;
+        return new ChatWriteBehindJournal.JournalEntry(id, conversation.getId(), sender.getId(), "message " + id,
+                Instant.now());
+    }
+
+    private int unread(User user) {
+        return jdbcTemplate.queryForObject(
+                "SELECT unread_count FROM conversation_inbox WHERE conversation_id = ? AND user_id = ?",
+                Integer.class, conversation.getId(), user.getId());
+    }
+
+    private static User user(String name) {
+        User user = new User();
+        user.setEmail(name + "-" + System.nanoTime() + "@wolftalk.test");
+        user.setFirstName(name);
+        user.setLastName("Inbox");
+        return user;
+    }
+}
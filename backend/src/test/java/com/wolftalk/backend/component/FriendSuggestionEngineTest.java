@@ -0,0 +1,180 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wolftalk.backend.dto.FriendSuggestionDTO;
+import com.wolftalk.backend.entity.Friendship.FriendshipStatus;
+import com.wolftalk.backend.repository.FriendshipRepository;
+import com.wolftalk.backend.repository.UserRepository;
+
+class FriendSuggestionEngineTest {
+
+    private static final long ME = 1L;
+
+    // User 1 (GOLD, B1) has friends 2, 3 and 4
+    private final List<Edge> edges = new ArrayList<>(List.of(
+            accepted(1, 2), accepted(1, 3), accepted(4, 1), accepted(2, 3),
+            accepted(2, 10), accepted(2, 11), accepted(2, 12),
+            accepted(3, 10), accepted(13, 3), accepted(3, 11),
+            accepted(4, 10), accepted(4, 14), accepted(4, 15),
+            new Edge(1, 15, FriendshipStatus.PENDING),
+            new Edge(14, 1, FriendshipStatus.BLOCKED)));
+
+    private final Map<Long, Profile> profiles = Map.of(
+            ME, new Profile(ME, "GOLD", "B1"),
+            10L, new Profile(10, "SILVER", "A2"),
+            11L, new Profile(11, "SILVER", "A2"),
+            12L, new Profile(12, "GOLD", "B1"),
+            13L, new Profile(13, "SILVER", "B1"),
+            20L, new Profile(20, "GOLD", "A2"),
+            21L, new Profile(21, "GOLD", "A2"));
+
+    private FriendGraph friendGraph;
+    private UserRepository userRepository;
+    private FriendSuggestionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        FriendshipRepository friendshipRepository = mock(FriendshipRepository.class);
+        when(friendshipRepository.findEdgesFrom(any())).thenAnswer(invocation -> edges.stream()
+                .filter(edge -> edge.requesterId() == (Long) invocation.getArgument(0))
+                .map(FriendshipRepository.FriendEdge.class::cast)
+                .toList());
+        when(friendshipRepository.findEdgesTo(any())).thenAnswer(invocation -> edges.stream()
+                .filter(edge -> edge.receiverId() == (Long) invocation.getArgument(0))
+                .map(FriendshipRepository.FriendEdge.class::cast)
+                .toList());
+        friendGraph = new FriendGraph(friendshipRepository, mock(ApplicationEventPublisher.class), 100);
+
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findSuggestionCandidates(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream()
+                    .filter(profiles::containsKey)
+                    .map(id -> (UserRepository.SuggestionCandidateView) profiles.get(id))
+                    .toList();
+        });
+        // Recently active GOLD users, including ones already counted, a friend and a blocker
+        when(userRepository.findActiveInLeague(eq("GOLD"), eq(ME), any())).thenReturn(List.of(
+                profiles.get(21L), profiles.get(12L), profiles.get(20L), new Profile(2, "GOLD", "B1"),
+                new Profile(14, "GOLD", "B1")));
+
+        engine = new FriendSuggestionEngine(friendGraph, userRepository, 100);
+        ReflectionTestUtils.setField(engine, "maxFriendsScanned", 200);
+        ReflectionTestUtils.setField(engine, "maxFofPerFriend", 500);
+        ReflectionTestUtils.setField(engine, "candidatePool", 200);
+        ReflectionTestUtils.setField(engine, "ttlMs", 600_000L);
+        ReflectionTestUtils.setField(engine, "activeWindowMs", 86_400_000L);
+        ReflectionTestUtils.setField(engine, "maxRefreshPerRun", 200);
+    }
+
+    @Test
+    void ranksByMutualFriendsThenLeagueAndLevelThenId() {
+        List<FriendSuggestionDTO> suggestions = engine.suggest(ME, 10);
+
+        assertThat(suggestions).extracting(FriendSuggestionDTO::getId)
+                .containsExactly(10L, 11L, 12L, 13L, 20L, 21L);
+        assertThat(suggestions).extracting(FriendSuggestionDTO::getMutualFriends)
+                .containsExactly(3, 2, 1, 1, 0, 0);
+        // 12 and 13 share one mutual friend; the same league and level put 12 first
+        assertThat(suggestions).extracting(FriendSuggestionDTO::getScore)
+                .containsExactly(30.0, 20.0, 15.0, 12.0, 3.0, 3.0);
+    }
+
+    @Test
+    void keepsOnlyTheTopCandidatePoolByMutualFriends() {
+        ReflectionTestUtils.setField(engine, "candidatePool", 2);
+
+        List<FriendSuggestionDTO> suggestions = engine.suggest(ME, 10);
+
+        // 12 falls out of the pool but comes back through the league fill; 13 is not in GOLD
+        assertThat(suggestions).extracting(FriendSuggestionDTO::getId).containsExactly(10L, 11L, 12L, 20L, 21L);
+        assertThat(suggestions).extracting(FriendSuggestionDTO::getScore)
+                .containsExactly(30.0, 20.0, 5.0, 3.0, 3.0);
+    }
+
+    @Test
+    void aCachedSuggestionThatBecameAFriendIsFilteredOut() {
+        assertThat(engine.suggest(ME, 3)).extracting(FriendSuggestionDTO::getId).containsExactly(10L, 11L, 12L);
+
+        edges.add(accepted(ME, 10));
+        friendGraph.invalidate(ME, 10L);
+
+        assertThat(engine.suggest(ME, 3)).extracting(FriendSuggestionDTO::getId).containsExactly(11L, 12L, 13L);
+        // Served from the cached ranking: self lookup and candidate lookup happen once
+        verify(userRepository, times(2)).findSuggestionCandidates(anyCollection());
+    }
+
+    private static Edge accepted(long requesterId, long receiverId) {
+        return new Edge(requesterId, receiverId, FriendshipStatus.ACCEPTED);
+    }
+
+    private record Edge(long requesterId, long receiverId, FriendshipStatus status)
+            implements FriendshipRepository.FriendEdge {
+
+        @Override
+        public Long getRequesterId() {
+            return requesterId;
+        }
+
+        @Override
+        public Long getReceiverId() {
+            return receiverId;
+        }
+
+        @Override
+        public FriendshipStatus getStatus() {
+            return status;
+        }
+    }
+
+    private record Profile(long id, String league, String level) implements UserRepository.SuggestionCandidateView {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getFirstName() {
+            return "User";
+        }
+
+        @Override
+        public String getLastName() {
+            return String.valueOf(id);
+        }
+
+        @Override
+        public String getAvatar() {
+            return null;
+        }
+
+        @Override
+        public String getCurrentLeague() {
+            return league;
+        }
+
+        @Override
+        public String getCurrentLevel() {
+            return level;
+        }
+    }
+}
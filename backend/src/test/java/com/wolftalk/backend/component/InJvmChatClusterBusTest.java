@@ -0,0 +1,107 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+class InJvmChatClusterBusTest {
+
+    private final InJvmChatClusterBus bus = new InJvmChatClusterBus();
+    private final List<ChatClusterBridge> bridges = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        // Subscribers are JVM-wide
+        bridges.forEach(ChatClusterBridge::unsubscribe);
+    }
+
+    @Test
+    void aTopicMessageSentOnOneNodeReachesTheOtherNodes() {
+        List<Message<?>> deliveredToB = new ArrayList<>();
+        List<Message<?>> deliveredToC = new ArrayList<>();
+        MessageChannel channelA = mock(MessageChannel.class);
+        ChatClusterBridge nodeA = start(channelA);
+        start(recording(deliveredToB));
+        start(recording(deliveredToC));
+
+        Message<byte[]> sent = topicMessage("/topic/chat/conversation/7", "{\"content\":\"hello\"}");
+        assertThat(nodeA.preSend(sent, channelA)).isSameAs(sent);
+
+        for (List<Message<?>> delivered : List.of(deliveredToB, deliveredToC)) {
+            assertThat(delivered).hasSize(1);
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(delivered.get(0));
+            assertThat(accessor.getDestination()).isEqualTo("/topic/chat/conversation/7");
+            assertThat(new String((byte[]) delivered.get(0).getPayload(), StandardCharsets.UTF_8))
+                    .isEqualTo("{\"content\":\"hello\"}");
+        }
+        // The sending node's own simple broker already has the message
+        verify(channelA, never()).send(any());
+    }
+
+    @Test
+    void aDeliveredMessageIsNotPublishedAgain() {
+        List<Message<?>> deliveredToB = new ArrayList<>();
+        MessageChannel channelA = mock(MessageChannel.class);
+        MessageChannel channelB = recording(deliveredToB);
+        ChatClusterBridge nodeA = start(channelA);
+        ChatClusterBridge nodeB = start(channelB);
+
+        nodeA.preSend(topicMessage("/topic/chat/inbox/2", "{}"), channelA);
+        // Node B's broker channel passes the delivered message through its own interceptor
+        nodeB.preSend(deliveredToB.get(0), channelB);
+
+        assertThat(deliveredToB).hasSize(1);
+        verify(channelA, never()).send(any());
+    }
+
+    @Test
+    void onlyServerMessagesToTopicsAreFannedOut() {
+        List<Message<?>> deliveredToB = new ArrayList<>();
+        MessageChannel channelA = mock(MessageChannel.class);
+        ChatClusterBridge nodeA = start(channelA);
+        start(recording(deliveredToB));
+
+        nodeA.preSend(topicMessage("/queue/errors", "{}"), channelA);
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setDestination("/topic/chat/conversation/7");
+        nodeA.preSend(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()), channelA);
+
+        assertThat(deliveredToB).isEmpty();
+    }
+
+    private ChatClusterBridge start(MessageChannel brokerChannel) {
+        ChatClusterBridge bridge = new ChatClusterBridge(bus, brokerChannel);
+        bridge.subscribe();
+        bridges.add(bridge);
+        return bridge;
+    }
+
+    private static MessageChannel recording(List<Message<?>> delivered) {
+        MessageChannel channel = mock(MessageChannel.class);
+        when(channel.send(any())).thenAnswer(invocation -> delivered.add(invocation.getArgument(0)));
+        return channel;
+    }
+
+    private static Message<byte[]> topicMessage(String destination, String json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,85 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LongIntCounterTest {
+
+    @Test
+    void growsPastHalfFullAndKeepsEveryCount() {
+        LongIntCounter counter = new LongIntCounter(4);
+        assertThat(counter.capacity()).isEqualTo(8);
+
+        for (long key = 1; key <= 4; key++) {
+            for (int i = 0; i < key; i++) {
+                counter.increment(key);
+            }
+        }
+        assertThat(counter.capacity()).isEqualTo(8);
+
+        // The fifth key takes the table past half full
+        counter.increment(5);
+        assertThat(counter.capacity()).isEqualTo(16);
+        assertThat(counter.size()).isEqualTo(5);
+        for (long key = 1; key <= 4; key++) {
+            assertThat(counter.get(key)).isEqualTo((int) key);
+        }
+        assertThat(counter.get(5)).isEqualTo(1);
+    }
+
+    @Test
+    void collidingKeysProbeToTheirOwnSlots() {
+        LongIntCounter counter = new LongIntCounter(16);
+        List<Long> colliding = collidingKeys(counter.capacity(), 3);
+
+        counter.increment(colliding.get(0));
+        counter.increment(colliding.get(1));
+        counter.increment(colliding.get(1));
+        counter.increment(colliding.get(2));
+        counter.increment(colliding.get(2));
+        counter.increment(colliding.get(2));
+
+        assertThat(counter.size()).isEqualTo(3);
+        assertThat(counter.get(colliding.get(0))).isEqualTo(1);
+        assertThat(counter.get(colliding.get(1))).isEqualTo(2);
+        assertThat(counter.get(colliding.get(2))).isEqualTo(3);
+        // A key that shares the home slot but was never counted
+        assertThat(counter.get(collidingKeys(counter.capacity(), 4).get(3))).isZero();
+    }
+
+    @Test
+    void matchesAHashMapAcrossManyResizes() {
+        LongIntCounter counter = new LongIntCounter(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long key = 1 + random.nextInt(3_000);
+            counter.increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        Map<Long, Integer> actual = new HashMap<>();
+        counter.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(counter.size()).isEqualTo(expected.size());
+        assertThat(counter.capacity()).isGreaterThanOrEqualTo(expected.size() * 2);
+    }
+
+    private static List<Long> collidingKeys(int capacity, int count) {
+        List<Long> keys = new ArrayList<>();
+        int home = LongIntCounter.homeSlot(1, capacity);
+        for (long key = 1; keys.size() < count; key++) {
+            if (LongIntCounter.homeSlot(key, capacity) == home) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
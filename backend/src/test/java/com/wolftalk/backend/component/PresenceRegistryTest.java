@@ -0,0 +1,147 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wolftalk.backend.entity.Friendship.FriendshipStatus;
+import com.wolftalk.backend.repository.ConversationInboxRepository;
+import com.wolftalk.backend.repository.FriendshipRepository;
+
+class PresenceRegistryTest {
+
+    private static final long CONVERSATION_ID = 10L;
+
+    private final List<Message<?>> sent = new ArrayList<>();
+    private ConversationInboxRepository inboxRepository;
+    private PresenceRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        // 1 is friends with 2 and 3
+        FriendshipRepository friendshipRepository = mock(FriendshipRepository.class);
+        when(friendshipRepository.findEdgesFrom(anyLong())).thenReturn(List.of());
+        when(friendshipRepository.findEdgesTo(anyLong())).thenReturn(List.of());
+        when(friendshipRepository.findEdgesFrom(eq(1L))).thenReturn(List.of(edge(1L, 2L), edge(1L, 3L)));
+        when(friendshipRepository.findEdgesTo(eq(2L))).thenReturn(List.of(edge(1L, 2L)));
+        when(friendshipRepository.findEdgesTo(eq(3L))).thenReturn(List.of(edge(1L, 3L)));
+        FriendGraph friendGraph = new FriendGraph(friendshipRepository, event -> { }, 100);
+
+        inboxRepository = mock(ConversationInboxRepository.class);
+        when(inboxRepository.existsByUserIdAndConversationId(anyLong(), anyLong())).thenReturn(false);
+        when(inboxRepository.existsByUserIdAndConversationId(eq(1L), eq(CONVERSATION_ID))).thenReturn(true);
+
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+        registry = new PresenceRegistry(friendGraph, inboxRepository, messagingTemplate, 1);
+        ReflectionTestUtils.setField(registry, "ttlMs", 35000L);
+        ReflectionTestUtils.setField(registry, "typingThrottleMs", 60000L);
+    }
+
+    @Test
+    void comingOnlineIsAnnouncedOnceToOnlineFriendsOnly() {
+        registry.connected("s-2", 2L);
+        registry.publish();
+        sent.clear();
+
+        registry.connected("s-1a", 1L);
+        registry.connected("s-1b", 1L);
+        registry.publish();
+
+        assertThat(destinations()).containsExactly("/topic/presence/2");
+        assertThat(payload(0).get("updates")).isEqualTo(List.of(Map.of("user_id", 1L, "online", true)));
+        assertThat(registry.onlineFriends(1L)).containsExactly(2L);
+    }
+
+    @Test
+    void userStaysOnlineUntilTheLastSessionCloses() {
+        registry.connected("s-2", 2L);
+        registry.connected("s-1a", 1L);
+        registry.connected("s-1b", 1L);
+        registry.publish();
+        sent.clear();
+
+        registry.disconnected("s-1a");
+        assertThat(registry.isOnline(1L)).isTrue();
+        registry.publish();
+        assertThat(sent).isEmpty();
+
+        registry.disconnected("s-1b");
+        assertThat(registry.isOnline(1L)).isFalse();
+        registry.publish();
+
+        assertThat(destinations()).containsExactly("/topic/presence/2");
+        assertThat(payload(0).get("updates")).isEqualTo(List.of(Map.of("user_id", 1L, "online", false)));
+    }
+
+    @Test
+    void sweepExpiresSessionsWithoutFrames() {
+        registry.connected("s-1", 1L);
+        registry.connected("s-2", 2L);
+        ReflectionTestUtils.setField(registry, "ttlMs", -1000L);
+
+        // Each run sweeps a share of the stripes
+        registry.sweep();
+        registry.sweep();
+
+        assertThat(registry.isOnline(1L)).isFalse();
+        assertThat(registry.isOnline(2L)).isFalse();
+        assertThat(registry.getStats()).containsEntry("expiredSessions", 2L).containsEntry("sessions", 0);
+    }
+
+    @Test
+    void typingIsCoalescedThrottledAndLimitedToMembers() {
+        registry.typing(1L, CONVERSATION_ID);
+        registry.typing(1L, CONVERSATION_ID);
+        registry.typing(9L, CONVERSATION_ID);
+        registry.publish();
+
+        assertThat(destinations()).containsExactly("/topic/chat/conversation/" + CONVERSATION_ID);
+        assertThat(payload(0).get("userIds")).isEqualTo(List.of(1L));
+
+        sent.clear();
+        registry.typing(1L, CONVERSATION_ID);
+        registry.publish();
+        assertThat(sent).isEmpty();
+    }
+
+    private List<String> destinations() {
+        return sent.stream().map(message -> SimpMessageHeaderAccessor.getDestination(message.getHeaders())).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> payload(int index) {
+        return (Map<String, Object>) sent.get(index).getPayload();
+    }
+
+    private static FriendshipRepository.FriendEdge edge(Long requesterId, Long receiverId) {
+        return new FriendshipRepository.FriendEdge() {
+            @Override
+            public Long getRequesterId() {
+                return requesterId;
+            }
+
+            @Override
+            public Long getReceiverId() {
+                return receiverId;
+            }
+
+            @Override
+            public FriendshipStatus getStatus() {
+                return FriendshipStatus.ACCEPTED;
+            }
+        };
+    }
+}
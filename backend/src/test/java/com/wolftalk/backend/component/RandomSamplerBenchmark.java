@@ -0,0 +1,147 @@
+package com.wolftalk.backend.component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wolftalk.backend.entity.VocabularyWord;
+import com.wolftalk.backend.entity.VocabularyWord.VocabularyTopic;
+import com.wolftalk.backend.repository.VocabularyWordRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * So sánh độ trễ lấy từ vựng ngẫu nhiên: RandomSampler (id trong bộ nhớ + findAllById) với
+ * "ORDER BY RANDOM() LIMIT k" trên dữ liệu của database cấu hình
+ *
+ * Không khớp mẫu tên test của surefire nên không chạy trong mvn test; chạy riêng bằng
+ *   mvn test -Dtest=RandomSamplerBenchmark -Dbenchmark.iterations=200 -Dbenchmark.level=5
+ * k = 1 là từ của phiên học, k = 3 là các đáp án sai (VocabularyLearningService)
+ */
+@SpringBootTest
+class RandomSamplerBenchmark {
+
+    private static final int[] SAMPLE_SIZES = {1, 3};
+
+    private static final String ORDER_BY_RANDOM_SQL =
+            "SELECT * FROM vocabulary_words WHERE topic = ?1 AND level <= ?2 ORDER BY RANDOM() LIMIT ?3";
+
+    @Autowired
+    private RandomSampler randomSampler;
+
+    @Autowired
+    private VocabularyWordRepository vocabularyWordRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void compareWithOrderByRandom() throws Exception {
+        int iterations = Integer.getInteger("benchmark.iterations", 200);
+        int maxLevel = Integer.getInteger("benchmark.level", 5);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("words", vocabularyWordRepository.count());
+        report.put("iterations", iterations);
+        report.put("maxLevel", maxLevel);
+
+        Map<String, Object> bySize = new LinkedHashMap<>();
+        for (int k : SAMPLE_SIZES) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("sampler", runSampler(k, maxLevel, iterations));
+            row.put("orderByRandom", runOrderByRandom(k, maxLevel, iterations));
+            bySize.put("k=" + k, row);
+        }
+        report.put("results", bySize);
+        System.out.println(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(report));
+    }
+
+    private Map<String, Object> runSampler(int k, int maxLevel, int iterations) {
+        VocabularyTopic[] topics = VocabularyTopic.values();
+
+        // Lần đầu của mỗi bucket chạy query lấy id - đo riêng, không tính vào độ trễ mỗi request
+        long[] loads = new long[topics.length];
+        for (int t = 0; t < topics.length; t++) {
+            randomSampler.invalidate(bucketKey(topics[t], maxLevel));
+            long start = System.nanoTime();
+            sample(topics[t], maxLevel, k);
+            loads[t] = System.nanoTime() - start;
+        }
+
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            VocabularyTopic topic = topics[i % topics.length];
+            long start = System.nanoTime();
+            sample(topic, maxLevel, k);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Map<String, Object> result = new LinkedHashMap<>(summarize(nanos));
+        result.put("bucketLoad", summarize(loads));
+        return result;
+    }
+
+    private Map<String, Object> runOrderByRandom(int k, int maxLevel, int iterations) {
+        VocabularyTopic[] topics = VocabularyTopic.values();
+        // Làm nóng (JIT, cache trang của Postgres) không tính
+        for (VocabularyTopic topic : topics) {
+            orderByRandom(topic, maxLevel, k);
+        }
+
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            VocabularyTopic topic = topics[i % topics.length];
+            long start = System.nanoTime();
+            orderByRandom(topic, maxLevel, k);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return summarize(nanos);
+    }
+
+    private List<VocabularyWord> sample(VocabularyTopic topic, int maxLevel, int k) {
+        return randomSampler.sample(bucketKey(topic, maxLevel),
+                () -> vocabularyWordRepository.findIdsByTopicAndMaxLevel(topic, maxLevel),
+                k, vocabularyWordRepository::findAllById, VocabularyWord::getId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<VocabularyWord> orderByRandom(VocabularyTopic topic, int maxLevel, int k) {
+        return entityManager.createNativeQuery(ORDER_BY_RANDOM_SQL, VocabularyWord.class)
+                .setParameter(1, topic.name())
+                .setParameter(2, maxLevel)
+                .setParameter(3, k)
+                .getResultList();
+    }
+
+    private static String bucketKey(VocabularyTopic topic, int maxLevel) {
+        return "vocab:" + topic.name() + ":" + maxLevel;
+    }
+
+    private static Map<String, Object> summarize(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long value : sorted) {
+            total += value;
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("meanMs", sorted.length == 0 ? 0.0 : total / 1e6 / sorted.length);
+        summary.put("p50Ms", percentile(sorted, 0.50));
+        summary.put("p95Ms", percentile(sorted, 0.95));
+        summary.put("maxMs", sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6);
+        return summary;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,110 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class RandomSamplerTest {
+
+    private RandomSampler sampler;
+    private final List<Long> idsInDb = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<List<Long>> loader = () -> {
+        loads.incrementAndGet();
+        return new ArrayList<>(idsInDb);
+    };
+
+    @BeforeEach
+    void setUp() {
+        sampler = new RandomSampler();
+        ReflectionTestUtils.setField(sampler, "refreshSeconds", 600L);
+        for (long id = 1; id <= 100; id++) {
+            idsInDb.add(id);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void samplesDistinctIdsAndSkipsTheExcludedOne() {
+        for (int round = 0; round < 200; round++) {
+            List<Long> ids = sampler.sampleIds("vocab:FOOD:3", loader, 10, 7L);
+
+            assertThat(ids.size()).isEqualTo(10);
+            assertThat(new HashSet<>(ids).size()).isEqualTo(10);
+            assertThat(ids.contains(7L)).isFalse();
+            assertThat(idsInDb.containsAll(ids)).isTrue();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void returnsTheWholeBucketWhenItIsSmallerThanK() {
+        idsInDb.subList(3, idsInDb.size()).clear();
+
+        assertThat(new HashSet<>(sampler.sampleIds("challenge:LISTENING", loader, 10, null)).size()).isEqualTo(3);
+        assertThat(sampler.sampleIds("challenge:LISTENING", loader, 10, 2L).size()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidateInsideTransactionEvictsAgainAfterCommit() {
+        sampler.sampleIds("dailyQuest:active", loader, 3, null);
+        TransactionSynchronizationManager.initSynchronization();
+
+        idsInDb.add(101L);
+        sampler.invalidate("dailyQuest:");
+        // A concurrent reader reloads before the write commits and sees the old rows
+        idsInDb.remove(101L);
+        sampler.sampleIds("dailyQuest:active", loader, 3, null);
+        idsInDb.add(101L);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(sampler.sampleIds("dailyQuest:active", loader, 200, null).contains(101L)).isTrue();
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    void loadThatStartedBeforeInvalidateIsNotCached() {
+        Supplier<List<Long>> racingLoader = () -> {
+            List<Long> stale = loader.get();
+            sampler.invalidate("vocab:");
+            return stale;
+        };
+        sampler.sampleIds("vocab:*:2", racingLoader, 1, null);
+        sampler.sampleIds("vocab:*:2", loader, 1, null);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidateOnlyTouchesMatchingPrefix() {
+        sampler.sampleIds("vocab:FOOD:3", loader, 1, null);
+        sampler.sampleIds("challenge:SPEAKING", loader, 1, null);
+
+        sampler.invalidate("challenge:");
+        sampler.sampleIds("vocab:FOOD:3", loader, 1, null);
+        sampler.sampleIds("challenge:SPEAKING", loader, 1, null);
+
+        assertThat(loads.get()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,124 @@
+package com.wolftalk.backend.component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wolftalk.backend.repository.UserRepository;
+import com.wolftalk.backend.service.UserSearchService;
+
+/**
+ * So sánh độ trễ các engine tìm kiếm user (memory / trigram / like) trên dữ liệu của database cấu hình
+ *
+ * Không khớp mẫu tên test của surefire nên không chạy trong mvn test; chạy riêng bằng
+ *   mvn test -Dtest=UserSearchBenchmark -Dbenchmark.iterations=20 -Dbenchmark.limit=20
+ * Để đo ở quy mô 1M user: nạp src/test/resources/db/seed_search_benchmark_users.sql vào database
+ * thử nghiệm và bật users.search.trigram-index=true. Engine chưa sẵn sàng (pg_trgm chưa cài) được
+ * đánh dấu skipped.
+ */
+@SpringBootTest
+class UserSearchBenchmark {
+
+    private static final List<String> QUERIES = List.of(
+            "nguyen", "tran van", "ngoc anh", "hoa", "le t", "minh", "phuong", "gmail");
+
+    private static final List<String> ENGINES = List.of(
+            UserSearchService.ENGINE_MEMORY, UserSearchService.ENGINE_TRIGRAM, UserSearchService.ENGINE_LIKE);
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void compareEngines() throws Exception {
+        int iterations = Integer.getInteger("benchmark.iterations", 20);
+        int limit = Integer.getInteger("benchmark.limit", 20);
+
+        // Index memory được load trên thread riêng sau ApplicationReadyEvent
+        long deadline = System.currentTimeMillis() + 600_000;
+        while (!userSearchIndex.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(200);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", userRepository.count());
+        report.put("iterations", iterations);
+        report.put("limit", limit);
+        report.put("configuredEngine", userSearchService.getEngine());
+        report.put("index", userSearchIndex.getStats());
+
+        Map<String, Object> engines = new LinkedHashMap<>();
+        for (String engine : ENGINES) {
+            engines.put(engine, runEngine(engine, iterations, limit));
+        }
+        report.put("engines", engines);
+        System.out.println(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(report));
+    }
+
+    private Map<String, Object> runEngine(String engine, int iterations, int limit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        String resolved = userSearchService.resolveEngine(engine, UserSearchIndex.Field.ALL);
+        if (!resolved.equals(engine)) {
+            result.put("skipped", "engine not available");
+            return result;
+        }
+
+        List<Map<String, Object>> perQuery = new ArrayList<>();
+        long[] all = new long[QUERIES.size() * iterations];
+        int n = 0;
+        for (String query : QUERIES) {
+            // Lượt đầu làm nóng (JIT, cache trang của Postgres) không tính
+            int results = userSearchService.searchWith(engine, query, UserSearchIndex.Field.ALL, limit).size();
+            long[] nanos = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                userSearchService.searchWith(engine, query, UserSearchIndex.Field.ALL, limit);
+                nanos[i] = System.nanoTime() - start;
+                all[n++] = nanos[i];
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("query", query);
+            row.put("results", results);
+            row.putAll(summarize(nanos));
+            perQuery.add(row);
+        }
+        result.putAll(summarize(all));
+        result.put("queries", perQuery);
+        return result;
+    }
+
+    private static Map<String, Object> summarize(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long value : sorted) {
+            total += value;
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("meanMs", sorted.length == 0 ? 0.0 : total / 1e6 / sorted.length);
+        summary.put("p50Ms", percentile(sorted, 0.50));
+        summary.put("p95Ms", percentile(sorted, 0.95));
+        summary.put("maxMs", sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6);
+        return summary;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
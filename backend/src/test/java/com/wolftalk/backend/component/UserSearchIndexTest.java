@@ -0,0 +1,45 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class UserSearchIndexTest {
+
+    private final UserSearchIndex index = new UserSearchIndex(null, "memory");
+
+    @Test
+    void anExactMatchAddedLastOutranksEarlierSubstringMatches() {
+        for (long id = 1; id <= 20_000; id++) {
+            index.upsert(id, "Phương", "Nguyễn " + id, "user" + id + "@wolftalk.test");
+        }
+        index.upsert(30_000L, "Ngọc", "Anh", "ngoc.anh@wolftalk.test");
+        index.upsert(30_001L, "Nguyên", "", "nguyen@wolftalk.test");
+
+        assertThat(index.search("nguyen", UserSearchIndex.Field.ALL, 3)).startsWith(30_001L);
+        assertThat(index.search("ngoc anh", UserSearchIndex.Field.ALL, 5)).containsExactly(30_000L);
+    }
+
+    @Test
+    void resultsAreRankedAndCutToTheLimit() {
+        index.upsert(1L, "Minh", "Trần Văn", "a@wolftalk.test");
+        index.upsert(2L, "Minh", "", "b@wolftalk.test");
+        index.upsert(3L, "Hoàng", "Minh", "c@wolftalk.test");
+        index.upsert(4L, "Nhật", "Minh Khoa", "d@wolftalk.test");
+
+        // Trùng khớp > tiền tố tên > tiền tố từ (tên ngắn trước)
+        assertThat(index.search("Minh", UserSearchIndex.Field.ALL, 3)).containsExactly(2L, 1L, 3L);
+        assertThat(index.search("minh", UserSearchIndex.Field.ALL, 10)).containsExactly(2L, 1L, 3L, 4L);
+    }
+
+    @Test
+    void renamedAndRemovedUsersLeaveTheResults() {
+        index.upsert(1L, "Lan", "Phạm", "lan@wolftalk.test");
+        index.upsert(1L, "Mai", "Phạm", "lan@wolftalk.test");
+        index.upsert(2L, "Lan", "Võ", "vo@wolftalk.test");
+        index.remove(2L);
+
+        assertThat(index.search("lan", UserSearchIndex.Field.LAST_NAME, 10)).isEmpty();
+        assertThat(index.search("mai", UserSearchIndex.Field.ALL, 10)).containsExactly(1L);
+    }
+}
@@ -0,0 +1,100 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.wolftalk.backend.repository.LeaderboardRepository;
+
+class WeeklyRankIndexTest {
+
+    private final Map<Long, Integer> weeklyXpInDb = new ConcurrentHashMap<>();
+    private LeaderboardRepository repository;
+    private WeeklyRankIndex index;
+    private int year;
+    private int week;
+
+    @BeforeEach
+    void setUp() {
+        LocalDate today = LocalDate.now();
+        year = today.get(IsoFields.WEEK_BASED_YEAR);
+        week = today.get(WeekFields.of(Locale.getDefault()).weekOfWeekBasedYear());
+
+        repository = mock(LeaderboardRepository.class);
+        when(repository.findWeeklyXpSnapshot(anyInt(), anyInt())).thenAnswer(invocation -> rows(weeklyXpInDb.keySet()));
+        when(repository.findWeeklyXpOfUsers(anyInt(), anyInt(), any()))
+                .thenAnswer(invocation -> rows(invocation.getArgument(2)));
+        index = new WeeklyRankIndex(repository);
+    }
+
+    @Test
+    void refreshReadsCommittedXpSoOutOfOrderRefreshesKeepTheLatestTotal() {
+        weeklyXpInDb.put(1L, 50);
+        weeklyXpInDb.put(2L, 30);
+        index.run();
+
+        // Two commits for user 2 (30 -> 40 -> 60); the refresh of the earlier commit runs last
+        weeklyXpInDb.put(2L, 60);
+        index.refresh(year, week, List.of(2L));
+        index.refresh(year, week, List.of(2L));
+
+        assertThat(index.rankOf(year, week, 2L)).isEqualTo(1);
+        assertThat(index.rankOf(year, week, 1L)).isEqualTo(2);
+        assertThat(index.userIdsByPosition(year, week, 0, 10)).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void tiesShareARankAndUnknownUsersRankLast() {
+        weeklyXpInDb.put(1L, 40);
+        weeklyXpInDb.put(2L, 40);
+        weeklyXpInDb.put(3L, 10);
+        index.run();
+
+        assertThat(index.rankOf(year, week, 1L)).isEqualTo(1);
+        assertThat(index.rankOf(year, week, 2L)).isEqualTo(1);
+        assertThat(index.rankOf(year, week, 3L)).isEqualTo(3);
+        assertThat(index.rankOf(year, week, 99L)).isEqualTo(4);
+        assertThat(index.positionOf(year, week, 2L)).isEqualTo(1);
+    }
+
+    @Test
+    void pastWeeksAreRankedInTheDatabaseWithoutBeingCached() {
+        when(repository.countUsersAhead(eq(2020), eq(1), anyLong())).thenReturn(4L);
+
+        assertThat(index.rankOf(2020, 1, 7L)).isEqualTo(5);
+        index.refresh(2020, 1, List.of(7L));
+
+        verify(repository, never()).findWeeklyXpSnapshot(2020, 1);
+        verify(repository, never()).findWeeklyXpOfUsers(eq(2020), eq(1), any());
+    }
+
+    private List<Object[]> rows(Collection<Long> userIds) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Long userId : userIds) {
+            Integer xp = weeklyXpInDb.get(userId);
+            if (xp != null) {
+                rows.add(new Object[] { userId, xp });
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,165 @@
+package com.wolftalk.backend.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.wolftalk.backend.repository.LeaderboardRepository;
+
+class XpIngestionPipelineTest {
+
+    private static final int YEAR = 2026;
+    private static final int WEEK = 42;
+    private static final LocalDateTime WEEK_START = LocalDateTime.of(2026, 10, 12, 0, 0);
+    private static final LocalDateTime WEEK_END = LocalDateTime.of(2026, 10, 18, 23, 59, 59);
+
+    // leaderboard_entries (weekly XP per user); rows of poison users violate a constraint
+    private final Map<Long, Integer> weeklyXp = new ConcurrentHashMap<>();
+    private final List<List<Object[]>> batches = new ArrayList<>();
+    private final Set<Long> poisonUsers = ConcurrentHashMap.newKeySet();
+    private volatile boolean databaseUnavailable;
+
+    private XpIngestionPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            rows.forEach(this::check);
+            rows.forEach(this::apply);
+            batches.add(rows);
+            return new int[rows.size()];
+        });
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            Object[] row = Arrays.copyOfRange(invocation.getArguments(), 1, invocation.getArguments().length);
+            check(row);
+            apply(row);
+            return 1;
+        });
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        LeaderboardRepository repository = mock(LeaderboardRepository.class);
+        when(repository.findWeeklyXpOfUsers(anyInt(), anyInt(), any())).thenReturn(List.of());
+        pipeline = new XpIngestionPipeline(jdbcTemplate, transactionManager, new WeeklyRankIndex(repository));
+        ReflectionTestUtils.setField(pipeline, "capacity", 100);
+        ReflectionTestUtils.setField(pipeline, "maxAttempts", 3);
+    }
+
+    @Test
+    void deltasOfTheSameUserAndWeekAreCoalescedIntoOneBatchRow() {
+        submit(1L, 10);
+        submit(1L, 5);
+        submit(2L, 3);
+        submit(1L, 7);
+
+        pipeline.flush();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).hasSize(2);
+        assertThat(weeklyXp).containsEntry(1L, 22).containsEntry(2L, 3);
+        assertThat(pending(1L)).isEqualTo(0);
+    }
+
+    @Test
+    void aFailingRowIsDeadLetteredWithoutBlockingOtherUsers() {
+        poisonUsers.add(2L);
+        submit(1L, 10);
+        submit(2L, 20);
+
+        pipeline.flush();
+
+        // The batch failed; user 1 was written row by row, user 2 waits for the next flush
+        assertThat(weeklyXp).containsEntry(1L, 10).doesNotContainKey(2L);
+        assertThat(pending(2L)).isEqualTo(20);
+
+        submit(3L, 30);
+        pipeline.flush();
+        pipeline.flush();
+
+        assertThat(weeklyXp).containsEntry(3L, 30);
+        assertThat(pending(2L)).isEqualTo(0);
+        assertThat(pipeline.getStats()).containsEntry("deadLetteredRows", 1L).containsEntry("queueDepth", 0);
+    }
+
+    @Test
+    void rowsAreKeptWhileTheDatabaseIsUnavailable() {
+        databaseUnavailable = true;
+        submit(1L, 10);
+        submit(2L, 20);
+
+        for (int i = 0; i < 5; i++) {
+            pipeline.flush();
+        }
+        assertThat(pending(1L)).isEqualTo(10);
+        assertThat(pending(2L)).isEqualTo(20);
+        assertThat(pipeline.getStats()).containsEntry("deadLetteredRows", 0L);
+
+        databaseUnavailable = false;
+        pipeline.flush();
+
+        assertThat(weeklyXp).containsEntry(1L, 10).containsEntry(2L, 20);
+        assertThat(pipeline.getStats()).containsEntry("queueDepth", 0);
+    }
+
+    @Test
+    void submitWritesDirectlyOncePendingReachesCapacity() {
+        ReflectionTestUtils.setField(pipeline, "capacity", 1);
+        submit(1L, 10);
+
+        assertThat(pipeline.isFull()).isTrue();
+        assertThat(pipeline.isFull()).isTrue();
+        assertThat(pipeline.getStats()).containsEntry("directWrites", 0L);
+
+        // A new key goes straight to the database, an already pending key is still coalesced
+        submit(2L, 20);
+        submit(1L, 5);
+
+        assertThat(weeklyXp).containsEntry(2L, 20).doesNotContainKey(1L);
+        assertThat(pending(1L)).isEqualTo(15);
+        assertThat(pipeline.getStats()).containsEntry("directWrites", 1L).containsEntry("queueDepth", 1);
+    }
+
+    private void submit(Long userId, int xp) {
+        pipeline.submit(userId, YEAR, WEEK, WEEK_START, WEEK_END, xp);
+    }
+
+    private int pending(Long userId) {
+        return pipeline.pendingXp(userId, YEAR, WEEK, WEEK_START, WEEK_END);
+    }
+
+    private void check(Object[] row) {
+        if (databaseUnavailable) {
+            throw new CannotGetJdbcConnectionException("connection refused");
+        }
+        if (poisonUsers.contains((Long) row[0])) {
+            throw new DataIntegrityViolationException("fk_leaderboard_user");
+        }
+    }
+
+    private void apply(Object[] row) {
+        weeklyXp.merge((Long) row[0], (Integer) row[3], Integer::sum);
+    }
+}
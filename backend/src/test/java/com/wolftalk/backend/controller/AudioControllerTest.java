@@ -0,0 +1,93 @@
+package com.wolftalk.backend.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wolftalk.backend.component.AudioCache;
+import com.wolftalk.backend.service.AudioGenerationService;
+
+/**
+ * ETag / 304 của audio TTS, dùng fake synthesizer (audio.tts.fake=true) và AudioCache thật
+ */
+class AudioControllerTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private AudioController controller;
+
+    @BeforeEach
+    void setUp() {
+        AudioCache audioCache = new AudioCache();
+        ReflectionTestUtils.setField(audioCache, "cacheDir", cacheDir.toString());
+        ReflectionTestUtils.setField(audioCache, "memoryMaxBytes", 1_048_576L);
+        ReflectionTestUtils.invokeMethod(audioCache, "init");
+
+        AudioGenerationService audioGenerationService = new AudioGenerationService(audioCache);
+        ReflectionTestUtils.setField(audioGenerationService, "fakeTtsEnabled", true);
+
+        controller = new AudioController();
+        ReflectionTestUtils.setField(controller, "audioGenerationService", audioGenerationService);
+        ReflectionTestUtils.setField(controller, "sendfileMinBytes", 49_152L);
+    }
+
+    @Test
+    void servesTheAudioWithItsContentHashAsETag() throws Exception {
+        ResponseEntity<?> response = generate(new MockHttpServletRequest());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).startsWith("\"").endsWith("\"");
+        assertThat(response.getHeaders().getContentType()).hasToString("audio/mpeg");
+        // Fake audio must be revalidated so browsers pick up real TTS later
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("no-cache");
+        assertThat(((Resource) response.getBody()).contentLength()).isPositive();
+    }
+
+    @Test
+    void aMatchingIfNoneMatchIsAnsweredWith304AndNoBody() {
+        String etag = generate(new MockHttpServletRequest()).getHeaders().getETag();
+
+        MockHttpServletRequest revalidation = new MockHttpServletRequest();
+        revalidation.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        ResponseEntity<?> response = generate(revalidation);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo(etag);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    void aStaleIfNoneMatchGetsTheAudioAgain() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"not-this-clip\"");
+
+        ResponseEntity<?> response = generate(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isInstanceOf(Resource.class);
+    }
+
+    @Test
+    void aDifferentTextHasADifferentETag() {
+        String hello = generate(new MockHttpServletRequest()).getHeaders().getETag();
+        String goodbye = controller.generateAudio("goodbye", "en-US", null, false, new MockHttpServletRequest())
+                .getHeaders().getETag();
+
+        assertThat(goodbye).isNotEqualTo(hello);
+    }
+
+    private ResponseEntity<?> generate(MockHttpServletRequest request) {
+        return controller.generateAudio("hello", "en-US", null, false, request);
+    }
+}
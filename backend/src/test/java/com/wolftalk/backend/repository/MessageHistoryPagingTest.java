@@ -0,0 +1,108 @@
+package com.wolftalk.backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import com.wolftalk.backend.entity.Conversation;
+import com.wolftalk.backend.entity.Message;
+import com.wolftalk.backend.entity.User;
+
+/**
+ * Keyset lịch sử chat phải đi qua đủ mọi tin nhắn đúng một lần, kể cả khi nhiều tin nhắn cùng created_at
+ */
+@SpringBootTest
+class MessageHistoryPagingTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Message> messages = new ArrayList<>();
+    private User alice;
+    private User bob;
+    private Conversation conversation;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(user("alice"));
+        bob = userRepository.save(user("bob"));
+
+        conversation = new Conversation();
+        conversation.setUser1(alice);
+        conversation.setUser2(bob);
+        conversation = conversationRepository.save(conversation);
+
+        // Năm tin nhắn cùng created_at nằm giữa một tin cũ hơn và một tin mới hơn
+        Instant sharedCreatedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        messages.add(save(alice, "older", sharedCreatedAt.minusSeconds(1)));
+        for (int i = 0; i < 5; i++) {
+            messages.add(save(i % 2 == 0 ? alice : bob, "same " + i, sharedCreatedAt));
+        }
+        messages.add(save(bob, "newer", sharedCreatedAt.plusSeconds(1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageRepository.deleteAll(messages);
+        conversationRepository.delete(conversation);
+        userRepository.delete(alice);
+        userRepository.delete(bob);
+    }
+
+    @Test
+    void pagesAcrossMessagesSharingTheSameCreatedAt() {
+        List<Long> expected = messages.stream()
+                .sorted(Comparator.comparing(Message::getCreatedAt).thenComparing(Message::getId).reversed())
+                .map(Message::getId)
+                .toList();
+
+        List<Long> seen = new ArrayList<>();
+        List<MessageRepository.MessageView> page = messageRepository.findHistory(conversation.getId(),
+                PageRequest.of(0, PAGE_SIZE));
+        while (!page.isEmpty()) {
+            page.forEach(view -> seen.add(view.getId()));
+            MessageRepository.MessageView last = page.get(page.size() - 1);
+            page = messageRepository.findHistoryBefore(conversation.getId(), last.getCreatedAt(), last.getId(),
+                    PageRequest.of(0, PAGE_SIZE));
+        }
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    private Message save(User sender, String content, Instant createdAt) {
+        Message message = new Message();
+        message.setConversation(conversation);
+        message.setSender(sender);
+        message.setContent(content);
+        message.setCreatedAt(createdAt);
+        message.setUpdatedAt(createdAt);
+        return messageRepository.save(message);
+    }
+
+    private static User user(String name) {
+        User user = new User();
+        user.setEmail(name + "-" + System.nanoTime() + "@wolftalk.test");
+        user.setFirstName(name);
+        user.setLastName("Paging");
+        return user;
+    }
+}
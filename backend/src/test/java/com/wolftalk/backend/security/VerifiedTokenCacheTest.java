@@ -0,0 +1,122 @@
+package com.wolftalk.backend.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.wolftalk.backend.repository.UserRepository;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+
+class VerifiedTokenCacheTest {
+
+    private static final String SECRET = "verified-token-cache-test-secret-0123456789";
+    private static final long HOUR_MS = 3_600_000L;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, HOUR_MS);
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+    }
+
+    @Test
+    void aCachedTokenIsNotVerifiedAgain() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, userRepository, 100, DAY_MS);
+        String token = jwtUtil.generateToken("alice@wolftalk.test", "ROLE_USER,ROLE_ADMIN", 7L);
+
+        AuthenticatedUser first = cache.authenticate(token);
+        AuthenticatedUser second = cache.authenticate(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.userId()).isEqualTo(7L);
+        assertThat(first.roles()).containsExactly("ROLE_USER", "ROLE_ADMIN");
+        assertThat(cache.getStats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void aTokenWithoutUidLooksUpTheIdOnce() {
+        when(userRepository.findIdByEmailIgnoreCase(anyString())).thenReturn(Optional.of(9L));
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, userRepository, 100, DAY_MS);
+        String token = jwtUtil.generateToken("bob@wolftalk.test");
+
+        assertThat(cache.authenticate(token).userId()).isEqualTo(9L);
+        assertThat(cache.authenticate(token).userId()).isEqualTo(9L);
+
+        verify(userRepository, times(1)).findIdByEmailIgnoreCase("bob@wolftalk.test");
+    }
+
+    @Test
+    void anExpiredTokenIsRejectedEveryTime() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, userRepository, 100, DAY_MS);
+        String token = new JwtUtil(SECRET, -HOUR_MS).generateToken("alice@wolftalk.test", null, 7L);
+
+        assertThatThrownBy(() -> cache.authenticate(token)).isInstanceOf(ExpiredJwtException.class);
+        assertThatThrownBy(() -> cache.authenticate(token)).isInstanceOf(ExpiredJwtException.class);
+
+        assertThat(cache.getStats()).containsEntry("rejected", 2L).containsEntry("cachedTokens", 0);
+    }
+
+    @Test
+    void aTokenSignedWithARevokedKeyIsRejectedEveryTime() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, userRepository, 100, DAY_MS);
+        String token = new JwtUtil("a-rotated-out-signing-secret-0123456789", HOUR_MS)
+                .generateToken("alice@wolftalk.test", "ROLE_ADMIN", 7L);
+
+        assertThatThrownBy(() -> cache.authenticate(token)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> cache.authenticate(token)).isInstanceOf(JwtException.class);
+
+        assertThat(cache.getStats()).containsEntry("rejected", 2L).containsEntry("cachedTokens", 0);
+    }
+
+    @Test
+    void aCachedEntryExpiresWithItsToken() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, userRepository, 100, DAY_MS);
+        // exp is stored in whole seconds, so this token lives at most 1.5 s
+        String token = new JwtUtil(SECRET, 1_500).generateToken("alice@wolftalk.test", null, 7L);
+        cache.authenticate(token);
+
+        Thread.sleep(1_600);
+
+        assertThatThrownBy(() -> cache.authenticate(token)).isInstanceOf(ExpiredJwtException.class);
+        assertThat(cache.getStats()).containsEntry("expired", 1L).containsEntry("cachedTokens", 0);
+    }
+
+    @Test
+    void aFullCacheEvictsTheTokensClosestToExpiry() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, userRepository, 3, DAY_MS);
+        String expiresFirst = tokenValidFor(HOUR_MS);
+        String expiresSecond = tokenValidFor(2 * HOUR_MS);
+        String expiresThird = tokenValidFor(3 * HOUR_MS);
+        String expiresLast = tokenValidFor(4 * HOUR_MS);
+
+        cache.authenticate(expiresThird);
+        cache.authenticate(expiresFirst);
+        cache.authenticate(expiresSecond);
+        // Used most recently, but still the first to go when the fourth token arrives
+        cache.authenticate(expiresFirst);
+        cache.authenticate(expiresLast);
+        assertThat(cache.getStats()).containsEntry("cachedTokens", 3).containsEntry("evicted", 1L);
+
+        cache.authenticate(expiresSecond);
+        cache.authenticate(expiresThird);
+        cache.authenticate(expiresLast);
+        assertThat(cache.getStats()).containsEntry("hits", 4L).containsEntry("misses", 4L);
+    }
+
+    private static String tokenValidFor(long expirationMs) {
+        return new JwtUtil(SECRET, expirationMs).generateToken("user-" + expirationMs + "@wolftalk.test", null, 7L);
+    }
+}
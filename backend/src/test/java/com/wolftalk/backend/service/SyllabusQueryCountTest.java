@@ -0,0 +1,112 @@
+package com.wolftalk.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.wolftalk.backend.component.SyllabusCatalog;
+import com.wolftalk.backend.dto.learning.UnitDTO;
+import com.wolftalk.backend.entity.User;
+import com.wolftalk.backend.entity.UserLessonProgress;
+import com.wolftalk.backend.entity.UserUnitProgress;
+import com.wolftalk.backend.repository.UserLessonProgressRepository;
+import com.wolftalk.backend.repository.UserRepository;
+import com.wolftalk.backend.repository.UserUnitProgressRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Learning map phải render với số query cố định, không phụ thuộc số level / unit / lesson hay
+ * lượng progress của user
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SyllabusQueryCountTest {
+
+    @Autowired
+    private SyllabusService syllabusService;
+
+    @Autowired
+    private SyllabusCatalog syllabusCatalog;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserUnitProgressRepository unitProgressRepository;
+
+    @Autowired
+    private UserLessonProgressRepository lessonProgressRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("query-count-" + System.nanoTime() + "@wolftalk.test");
+        user.setFirstName("Query");
+        user.setLastName("Count");
+        user = userRepository.save(user);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // Cây syllabus được cache sau lần đọc đầu tiên
+        syllabusService.getLevels(user.getEmail());
+    }
+
+    @AfterEach
+    void tearDown() {
+        lessonProgressRepository.deleteAll(lessonProgressRepository.findByUserId(user.getId()));
+        unitProgressRepository.deleteAll(unitProgressRepository.findByUserId(user.getId()));
+        userRepository.delete(user);
+    }
+
+    @Test
+    void learningMapUsesConstantQueriesWithoutProgress() {
+        assertThat(levelsQueryCount()).isEqualTo(2);
+        assertThat(unitsQueryCount()).isEqualTo(3);
+    }
+
+    @Test
+    void learningMapUsesConstantQueriesWhenEveryUnitAndLessonHasProgress() {
+        for (SyllabusCatalog.UnitNode unit : syllabusCatalog.getAllUnits()) {
+            unitProgressRepository.save(new UserUnitProgress(null, user.getId(), unit.id(), "completed", 100,
+                    Instant.now()));
+            for (SyllabusCatalog.LessonNode lesson : unit.lessons()) {
+                lessonProgressRepository.save(new UserLessonProgress(null, user.getId(), lesson.id(), true,
+                        Instant.now()));
+            }
+        }
+
+        assertThat(levelsQueryCount()).isEqualTo(2);
+        assertThat(unitsQueryCount()).isEqualTo(3);
+    }
+
+    // findByEmailIgnoreCase + toàn bộ unit progress
+    private long levelsQueryCount() {
+        statistics.clear();
+        syllabusService.getLevels(user.getEmail());
+        return statistics.getPrepareStatementCount();
+    }
+
+    // findByEmailIgnoreCase + toàn bộ unit progress + lesson đã hoàn thành
+    private long unitsQueryCount() {
+        String levelId = syllabusCatalog.getLevels().get(0).id();
+        statistics.clear();
+        List<UnitDTO> units = syllabusService.getUnitsByLevel(user.getEmail(), levelId);
+        long count = statistics.getPrepareStatementCount();
+        assertThat(units.isEmpty()).isFalse();
+        return count;
+    }
+}
@@ -0,0 +1,23 @@
+-- Seed 1.000.000 user giả để benchmark tìm kiếm user (UserSearchBenchmark)
+-- CHỈ chạy trên database thử nghiệm. Xóa lại bằng:
+--   DELETE FROM users WHERE email LIKE 'bench.%@wolftalk.test';
+
+INSERT INTO users (email, first_name, last_name, roles, learning_language, has_completed_placement_test, is_first_login, is_enabled, created_at, updated_at, streak, points)
+SELECT
+    'bench.' || g || '@wolftalk.test',
+    (ARRAY['Nguyễn', 'Trần', 'Lê', 'Phạm', 'Hoàng', 'Huỳnh', 'Phan', 'Vũ', 'Võ', 'Đặng', 'Bùi', 'Đỗ', 'Hồ', 'Ngô', 'Dương', 'Lý'])[1 + g % 16]
+        || ' ' || (ARRAY['Văn', 'Thị', 'Minh', 'Ngọc', 'Thanh', 'Đức', 'Hữu', 'Thu'])[1 + (g / 16) % 8],
+    (ARRAY['An', 'Anh', 'Bình', 'Châu', 'Dũng', 'Giang', 'Hà', 'Hải', 'Hạnh', 'Hòa', 'Hùng', 'Hương', 'Khoa', 'Lan', 'Linh', 'Long',
+           'Mai', 'Nam', 'Nga', 'Phong', 'Phương', 'Quân', 'Quỳnh', 'Sơn', 'Tâm', 'Thảo', 'Thắng', 'Trang', 'Tuấn', 'Vy', 'Yến', 'Xuân'])[1 + (g / 128) % 32],
+    'ROLE_USER',
+    'en',
+    true,
+    false,
+    true,
+    CURRENT_TIMESTAMP,
+    CURRENT_TIMESTAMP,
+    0,
+    (g % 5000)
+FROM generate_series(1, 1000000) AS g;
+
+ANALYZE users;
@@ -20,7 +20,7 @@ const ChatWindow: React.FC<ChatWindowProps> = ({
   const [messages, setMessages] = useState<Message[]>([]);
   const [isLoading, setIsLoading] = useState(true);
   const [isLoadingMore, setIsLoadingMore] = useState(false);
-  const [page, setPage] = useState(0);
+  const [nextCursor, setNextCursor] = useState<number | null>(null);
   const unsubscribeRef = useRef<(() => void) | null>(null);
 
   // Load initial messages
@@ -93,9 +93,9 @@ const ChatWindow: React.FC<ChatWindowProps> = ({
   const loadMessages = async () => {
     setIsLoading(true);
     try {
-      const msgs = await chatService.getMessages(conversation.id, 0);
-      setMessages(msgs);
-      setPage(1);
+      const history = await chatService.getMessagesBefore(conversation.id);
+      setMessages(history.messages);
+      setNextCursor(history.nextCursor);
     } catch (error) {
       console.error("Error loading messages:", error);
     } finally {
@@ -104,11 +104,12 @@ const ChatWindow: React.FC<ChatWindowProps> = ({
   };
 
   const loadMoreMessages = async () => {
+    if (nextCursor == null) return;
     setIsLoadingMore(true);
     try {
-      const msgs = await chatService.getMessages(conversation.id, page);
-      setMessages((prev) => [...msgs, ...prev]);
-      setPage((prev) => prev + 1);
+      const history = await chatService.getMessagesBefore(conversation.id, nextCursor);
+      setMessages((prev) => [...history.messages, ...prev]);
+      setNextCursor(history.nextCursor);
     } catch (error) {
       console.error("Error loading more messages:", error);
     } finally {
@@ -136,6 +136,24 @@ class AILearningService {
     return response.data;
   }
 
+  /**
+   * Stream an AI conversation response: onToken receives text as it is generated,
+   * the promise resolves with the complete response (same shape as generateConversation)
+   */
+  async streamConversation(
+    request: ConversationRequest,
+    onToken: (text: string) => void,
+    provider: AIProvider = 'auto',
+    signal?: AbortSignal
+  ): Promise<ConversationResponse> {
+    return this.streamEvents<ConversationResponse>(
+      `/conversation/generate/stream?provider=${provider}`,
+      request,
+      onToken,
+      signal
+    );
+  }
+
   /**
    * Analyze writing (essay/email/article)
    */
@@ -184,6 +202,24 @@ class AILearningService {
     return response.data;
   }
 
+  /**
+   * Stream a reading passage: onToken receives the raw generated text as it arrives,
+   * the promise resolves with the parsed passage (same shape as generateReadingPassage)
+   */
+  async streamReadingPassage(
+    onToken: (text: string) => void,
+    topic?: string,
+    level: string = 'intermediate',
+    length: string = 'medium',
+    provider: AIProvider = 'auto',
+    signal?: AbortSignal
+  ): Promise<any> {
+    const params = new URLSearchParams({ level, length, provider });
+    if (topic) params.append('topic', topic);
+
+    return this.streamEvents(`/reading/generate/stream?${params.toString()}`, undefined, onToken, signal);
+  }
+
   /**
    * Generate grammar exercises
    */
@@ -198,6 +234,67 @@ class AILearningService {
     return response.data;
   }
 
+  /**
+   * POST to a server-sent events endpoint ("token" / "done" / "error" events).
+   * fetch is used because EventSource cannot send a body or the Authorization header.
+   */
+  private async streamEvents<T>(
+    path: string,
+    body: unknown,
+    onToken: (text: string) => void,
+    signal?: AbortSignal
+  ): Promise<T> {
+    const token = localStorage.getItem('accessToken') ||
+                 localStorage.getItem('token') ||
+                 localStorage.getItem('authToken');
+    const response = await fetch(`${this.baseURL}${path}`, {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+        Accept: 'text/event-stream',
+        ...(token ? { Authorization: `Bearer ${token}` } : {}),
+      },
+      body: body === undefined ? undefined : JSON.stringify(body),
+      signal,
+    });
+    if (!response.ok || !response.body) {
+      throw new Error(`Stream request failed: ${response.status}`);
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    for (;;) {
+      const { done, value } = await reader.read();
+      if (done) break;
+      buffer += decoder.decode(value, { stream: true });
+
+      // Events are separated by a blank line; multi-line data is joined with \n
+      let boundary;
+      while ((boundary = buffer.indexOf('\n\n')) !== -1) {
+        const rawEvent = buffer.slice(0, boundary);
+        buffer = buffer.slice(boundary + 2);
+
+        let event = 'message';
+        const data: string[] = [];
+        for (const line of rawEvent.split('\n')) {
+          if (line.startsWith('event:')) event = line.slice(6).trim();
+          else if (line.startsWith('data:')) data.push(line.slice(5));
+        }
+        const payload = data.join('\n');
+
+        if (event === 'token') {
+          onToken(payload);
+        } else if (event === 'done') {
+          return JSON.parse(payload) as T;
+        } else if (event === 'error') {
+          throw new Error(JSON.parse(payload).message);
+        }
+      }
+    }
+    throw new Error('Stream ended before the response was complete');
+  }
+
   /**
    * Health check
    */
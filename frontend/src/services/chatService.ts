@@ -28,6 +28,7 @@ export interface Conversation {
   lastMessage?: string;
   lastMessageSenderId?: number;
   lastMessageAt?: string;
+  unreadCount?: number;
   createdAt: string;
   updatedAt: string;
 }
@@ -36,6 +37,9 @@ export interface Conversation {
 class WebSocketManager {
   private stompClient: Client | null = null;
   private isConnected = false;
+  private conversationEventListeners = new Set<
+    (conversationId: number, event: { type: string; [key: string]: unknown }) => void
+  >();
 
   /**
    * Kết nối tới WebSocket server
@@ -51,8 +55,11 @@ class WebSocketManager {
         const socket = new SockJS(
           `${import.meta.env.VITE_API_BASE_URL}/ws-chat`,
         );
+        const token = localStorage.getItem("accessToken");
         this.stompClient = new Client({
           webSocketFactory: () => socket,
+          // Server xác thực CONNECT bằng JWT để biết user (presence, typing)
+          connectHeaders: token ? { Authorization: `Bearer ${token}` } : {},
           onConnect: () => {
             this.isConnected = true;
             console.log("WebSocket connected");
@@ -120,6 +127,11 @@ class WebSocketManager {
               createdAt: "",
               isDeleted: true,
             });
+          } else if (payload.type) {
+            // TYPING / READ: sự kiện của cuộc trò chuyện, không phải tin nhắn
+            this.conversationEventListeners.forEach((listener) =>
+              listener(conversationId, payload),
+            );
           } else {
             // Đây là một tin nhắn bình thường
             callback(payload);
@@ -151,6 +163,60 @@ class WebSocketManager {
     });
   }
 
+  /**
+   * Báo đang gõ phím (server gom và throttle)
+   */
+  sendTyping(conversationId: number): void {
+    if (!this.stompClient || !this.isConnected) {
+      return;
+    }
+
+    this.stompClient.publish({
+      destination: `/app/chat/${conversationId}/typing`,
+      body: "{}",
+    });
+  }
+
+  /**
+   * Lắng nghe sự kiện TYPING / READ của các cuộc trò chuyện đang subscribe
+   */
+  onConversationEvent(
+    listener: (conversationId: number, event: { type: string; [key: string]: unknown }) => void,
+  ): () => void {
+    this.conversationEventListeners.add(listener);
+    return () => {
+      this.conversationEventListeners.delete(listener);
+    };
+  }
+
+  /**
+   * Subscribe vào thay đổi online/offline của bạn bè
+   */
+  subscribeToPresence(
+    userId: number,
+    callback: (updates: { user_id: number; online: boolean }[]) => void,
+  ): () => void {
+    if (!this.stompClient || !this.isConnected) {
+      console.warn("WebSocket not connected");
+      return () => {};
+    }
+
+    const subscription = this.stompClient.subscribe(
+      `/topic/presence/${userId}`,
+      (message) => {
+        try {
+          callback(JSON.parse(message.body).updates);
+        } catch (error) {
+          console.error("Error parsing presence:", error);
+        }
+      },
+    );
+
+    return () => {
+      subscription.unsubscribe();
+    };
+  }
+
   /**
    * Kiểm tra xem WebSocket có kết nối không
    */
@@ -245,6 +311,31 @@ class ChatService {
     }
   }
 
+  /**
+   * Lấy lịch sử tin nhắn theo cursor: before = id tin nhắn cũ nhất đang hiển thị
+   * nextCursor = null khi đã hết lịch sử
+   */
+  async getMessagesBefore(
+    conversationId: number,
+    before?: number | null,
+    limit: number = 50,
+  ): Promise<{ messages: Message[]; nextCursor: number | null }> {
+    try {
+      const query = before != null ? `before=${before}&limit=${limit}` : `limit=${limit}`;
+      const response = await apiClient.get<{
+        success: boolean;
+        messages: Message[];
+        count: number;
+        nextCursor: number | null;
+      }>(`/chat/messages/${conversationId}?${query}`);
+
+      return { messages: response.messages, nextCursor: response.nextCursor ?? null };
+    } catch (error) {
+      console.error("Error getting messages:", error);
+      throw error;
+    }
+  }
+
   /**
    * Lấy danh sách cuộc trò chuyện của người dùng
    */
@@ -287,6 +378,33 @@ class ChatService {
     }
   }
 
+  /**
+   * Đánh dấu đã đọc cuộc trò chuyện
+   */
+  async markConversationRead(conversationId: number): Promise<void> {
+    try {
+      await apiClient.put(`/chat/conversation/${conversationId}/read`, {});
+    } catch (error) {
+      console.error("Error marking conversation read:", error);
+      throw error;
+    }
+  }
+
+  /**
+   * Tổng số tin nhắn chưa đọc
+   */
+  async getUnreadCount(): Promise<number> {
+    try {
+      const response = await apiClient.get<{ success: boolean; unread: number }>(
+        "/chat/unread",
+      );
+      return response.unread;
+    } catch (error) {
+      console.error("Error getting unread count:", error);
+      throw error;
+    }
+  }
+
   /**
    * Subscribe vào tin nhắn real-time của cuộc trò chuyện
    */
@@ -297,6 +415,44 @@ class ChatService {
     return wsManager.subscribeToConversation(conversationId, callback);
   }
 
+  /**
+   * Báo đang gõ phím trong cuộc trò chuyện
+   */
+  sendTyping(conversationId: number): void {
+    wsManager.sendTyping(conversationId);
+  }
+
+  /**
+   * Lắng nghe sự kiện TYPING / READ
+   */
+  onConversationEvent(
+    listener: (conversationId: number, event: { type: string; [key: string]: unknown }) => void,
+  ): () => void {
+    return wsManager.onConversationEvent(listener);
+  }
+
+  /**
+   * Subscribe vào thay đổi online/offline của bạn bè
+   */
+  subscribeToPresence(
+    userId: number,
+    callback: (updates: { user_id: number; online: boolean }[]) => void,
+  ): () => void {
+    return wsManager.subscribeToPresence(userId, callback);
+  }
+
+  /**
+   * Id các bạn bè đang online
+   */
+  async getOnlineFriends(): Promise<number[]> {
+    try {
+      return await apiClient.get<number[]>("/v1/friendships/online");
+    } catch (error) {
+      console.error("Error getting online friends:", error);
+      throw error;
+    }
+  }
+
   /**
    * Kết nối WebSocket
    */
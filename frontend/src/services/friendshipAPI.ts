@@ -129,12 +129,15 @@ export const friendshipAPI = {
   },
 
   // Lấy danh sách tất cả users (phân trang)
+  // after: id của user cuối trang trước - trang tiếp theo theo keyset, bỏ qua page
   async getAllUsers(
     page: number = 0,
     size: number = 20,
+    after?: number,
   ): Promise<UserFriendDTO[]> {
+    const cursor = after !== undefined ? `&after=${after}` : "";
     return apiClient.get<UserFriendDTO[]>(
-      `/v1/friendships/all-users?page=${page}&size=${size}`,
+      `/v1/friendships/all-users?page=${page}&size=${size}${cursor}`,
     );
   },
 };